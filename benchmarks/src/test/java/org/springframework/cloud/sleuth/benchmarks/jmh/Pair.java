@@ -55,6 +55,10 @@ public class Pair {
 		return new Pair("spring.sleuth.reactor.instrumentation-type", SleuthReactorProperties.InstrumentationType.MANUAL.name());
 	}
 
+	public static Pair contextOnly() {
+		return new Pair("spring.sleuth.reactor.instrumentation-type", SleuthReactorProperties.InstrumentationType.CONTEXT_ONLY.name());
+	}
+
 	public static Pair onLast() {
 		return new Pair("spring.sleuth.reactor.instrumentation-type", SleuthReactorProperties.InstrumentationType.DECORATE_ON_LAST.name());
 	}
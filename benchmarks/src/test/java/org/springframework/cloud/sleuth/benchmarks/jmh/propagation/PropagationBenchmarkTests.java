@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh.propagation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import jmh.mbr.junit5.Microbenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.sleuth.brave.bridge.CompositePropagationFactorySupplier;
+import org.springframework.cloud.sleuth.brave.propagation.PropagationType;
+
+/**
+ * Compares injecting and extracting a trace context with the W3C and the B3
+ * propagation.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Microbenchmark
+public class PropagationBenchmarkTests {
+
+	@Benchmark
+	public Map<String, String> inject(BenchmarkContext context) {
+		Map<String, String> carrier = new HashMap<>();
+		context.injector.inject(context.context, carrier);
+		return carrier;
+	}
+
+	@Benchmark
+	public TraceContextOrSamplingFlags extract(BenchmarkContext context) {
+		return context.extractor.extract(context.carrier);
+	}
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkContext {
+
+		@Param({ "W3C", "B3" })
+		PropagationType type;
+
+		final TraceContext context = TraceContext.newBuilder().traceIdHigh(0x463ac35c9f6413adL)
+				.traceId(0x48485a3953bb6124L).spanId(0xa2fb4a1d1a96d312L).sampled(true).build();
+
+		final Map<String, String> carrier = new HashMap<>();
+
+		TraceContext.Injector<Map<String, String>> injector;
+
+		TraceContext.Extractor<Map<String, String>> extractor;
+
+		@Setup
+		public void setup() {
+			Propagation<String> propagation = new CompositePropagationFactorySupplier(new StaticListableBeanFactory(),
+					Collections.emptyList(), Collections.singletonList(this.type)).get().get();
+			this.injector = propagation.injector(Map::put);
+			this.extractor = propagation.extractor(Map::get);
+			this.injector.inject(this.context, this.carrier);
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh.reactor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import jmh.mbr.junit5.Microbenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.sleuth.instrument.reactor.ReactorSleuth;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * Measures assembling {@code flatMap} chains, as in {@code FlatMapTests}, when the
+ * {@code DECORATE_ON_EACH} operator hook is registered.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Microbenchmark
+public class OnEachOperatorBenchmarkTests {
+
+	private static final String HOOK_KEY = OnEachOperatorBenchmarkTests.class.getName();
+
+	@Benchmark
+	public Mono<Integer> syncChain(BenchmarkContext context) {
+		return Mono.just(1).map(Function.identity()).flatMap(i -> Mono.just(i).map(Function.identity()))
+				.filter(i -> i > 0);
+	}
+
+	@Benchmark
+	public Flux<Integer> asyncChain(BenchmarkContext context) {
+		return Flux.range(1, 10).publishOn(context.scheduler).map(Function.identity())
+				.flatMap(i -> Mono.fromSupplier(() -> i).subscribeOn(context.scheduler)).filter(i -> i > 0);
+	}
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkContext {
+
+		@Param({ "true", "false" })
+		boolean hook;
+
+		final GenericApplicationContext springContext = new GenericApplicationContext();
+
+		Scheduler scheduler;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.springContext.refresh();
+			this.scheduler = Schedulers.newParallel("benchmark");
+			if (this.hook) {
+				Hooks.onEachOperator(HOOK_KEY, ReactorSleuth.onEachOperatorForOnEachInstrumentation(this.springContext));
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			Hooks.resetOnEachOperator(HOOK_KEY);
+			this.scheduler.dispose();
+			this.springContext.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh.reactor;
+
+import java.util.concurrent.TimeUnit;
+
+import jmh.mbr.junit5.Microbenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.cloud.sleuth.autoconfig.brave.BraveAutoConfiguration;
+import org.springframework.cloud.sleuth.autoconfig.instrument.reactor.TraceReactorAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Measures a 1M element {@code Flux.range().map()} pipeline instrumented with
+ * {@code DECORATE_ON_EACH}, where every operator after the asynchronous boundary passes
+ * the same parent to the next one.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Microbenchmark
+public class ScopePassingBenchmarkTests {
+
+	@Benchmark
+	public Long rangeMap(BenchmarkContext context) {
+		try (Tracer.SpanInScope ws = context.tracer.withSpan(context.parent)) {
+			return Flux.range(0, 1_000_000).publishOn(Schedulers.immediate()).map(i -> i + 1).map(i -> i * 2)
+					.filter(i -> i > 0).count().block();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkContext {
+
+		volatile ConfigurableApplicationContext withSleuth;
+
+		volatile Tracer tracer;
+
+		volatile Span parent;
+
+		@Setup
+		public void setup() {
+			SpringApplication application = new SpringApplication(TestConfiguration.class);
+			application.setWebApplicationType(WebApplicationType.NONE);
+			this.withSleuth = application.run("--spring.jmx.enabled=false",
+					"--spring.sleuth.reactor.instrumentation-type=DECORATE_ON_EACH");
+			this.tracer = this.withSleuth.getBean(Tracer.class);
+			this.parent = this.tracer.nextSpan().name("name").start();
+		}
+
+		@TearDown
+		public void clean() {
+			this.parent.end();
+			this.withSleuth.close();
+		}
+
+		@Configuration(proxyBeanMethods = false)
+		@ImportAutoConfiguration({ BraveAutoConfiguration.class, TraceReactorAutoConfiguration.class })
+		static class TestConfiguration {
+
+		}
+
+	}
+
+}
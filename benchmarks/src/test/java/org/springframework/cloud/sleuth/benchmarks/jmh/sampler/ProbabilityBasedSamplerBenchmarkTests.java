@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh.sampler;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import brave.sampler.Sampler;
+import jmh.mbr.junit5.Microbenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.sleuth.brave.sampler.ProbabilityBasedSampler;
+
+/**
+ * Throughput of {@link ProbabilityBasedSampler} with a growing number of threads. As
+ * threads share no sampling state, throughput should grow linearly with the threads.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Microbenchmark
+public class ProbabilityBasedSamplerBenchmarkTests {
+
+	@Benchmark
+	@Threads(1)
+	public boolean should_sample_with_1_thread(BenchmarkContext context) {
+		return context.sampler.isSampled(ThreadLocalRandom.current().nextLong());
+	}
+
+	@Benchmark
+	@Threads(2)
+	public boolean should_sample_with_2_threads(BenchmarkContext context) {
+		return context.sampler.isSampled(ThreadLocalRandom.current().nextLong());
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean should_sample_with_4_threads(BenchmarkContext context) {
+		return context.sampler.isSampled(ThreadLocalRandom.current().nextLong());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public boolean should_sample_with_8_threads(BenchmarkContext context) {
+		return context.sampler.isSampled(ThreadLocalRandom.current().nextLong());
+	}
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkContext {
+
+		final Sampler sampler = new ProbabilityBasedSampler(() -> 0.355f);
+
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh.sampler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import brave.http.HttpRequest;
+import brave.http.HttpServerRequest;
+import brave.sampler.SamplerFunction;
+import jmh.mbr.junit5.Microbenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.sleuth.autoconfig.instrument.web.SleuthWebProperties;
+import org.springframework.cloud.sleuth.brave.instrument.web.SkipPatternHttpServerSampler;
+import org.springframework.cloud.sleuth.instrument.web.SkipPatternProvider;
+
+/**
+ * Compares matching paths against the default skip pattern with a regex and with the
+ * {@link SkipPatternHttpServerSampler}.
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 5, time = 1)
+@Fork(2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Microbenchmark
+public class SkipPatternSamplerBenchmarkTests {
+
+	@Benchmark
+	public boolean regex(BenchmarkContext context) {
+		return context.pattern.matcher(context.path).matches();
+	}
+
+	@Benchmark
+	public Boolean sampler(BenchmarkContext context) {
+		return context.sampler.trySample(context.request);
+	}
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkContext {
+
+		@Param({ "/users/1/orders", "/favicon.ico", "/img/logo.png", "/swagger-ui/index.html" })
+		String path;
+
+		final Pattern pattern = Pattern.compile(SleuthWebProperties.DEFAULT_SKIP_PATTERN);
+
+		final SkipPatternProvider provider = () -> this.pattern;
+
+		SamplerFunction<HttpRequest> sampler;
+
+		HttpRequest request;
+
+		@Setup
+		public void setup() {
+			this.sampler = new SkipPatternHttpServerSampler(this.provider);
+			this.request = new PathRequest(this.path);
+		}
+
+	}
+
+	static class PathRequest extends HttpServerRequest {
+
+		private final String path;
+
+		PathRequest(String path) {
+			this.path = path;
+		}
+
+		@Override
+		public String method() {
+			return "GET";
+		}
+
+		@Override
+		public String path() {
+			return this.path;
+		}
+
+		@Override
+		public String url() {
+			return "http://localhost:8080" + this.path;
+		}
+
+		@Override
+		public String header(String name) {
+			return null;
+		}
+
+		@Override
+		public Object unwrap() {
+			return this;
+		}
+
+	}
+
+}
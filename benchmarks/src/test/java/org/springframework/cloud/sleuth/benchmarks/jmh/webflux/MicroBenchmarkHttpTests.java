@@ -128,11 +128,13 @@ public class MicroBenchmarkHttpTests {
 			noSleuthSimple("/simple", Pair.noSleuth()),
 			onQueuesSimple("/simple", Pair.onHook()),
 			onManualSimple("/simpleManual", Pair.manual()),
+			onContextOnlySimple("/simpleManual", Pair.contextOnly()),
 			onEachSimple("/simple", Pair.onEach()),
 			onLastSimple("/simple", Pair.onLast()),
 			noSleuthComplex("/complexNoSleuth", Pair.noSleuth()),
 			onQueueComplex("/complex", Pair.onHook()),
 			onManualComplex("/complexManual", Pair.manual()),
+			onContextOnlyComplex("/complexManual", Pair.contextOnly()),
 			onEachComplex("/complex", Pair.onEach()),
 			onLastComplex("/complex", Pair.onLast());
 			// @formatter:on
@@ -84,6 +84,15 @@ public interface FinishedSpan {
 		return null;
 	}
 
+	/**
+	 * @return name of the service that recorded the span or {@code null} if not set
+	 * @since 3.1.10
+	 */
+	@Nullable
+	default String getLocalServiceName() {
+		return null;
+	}
+
 	/**
 	 * @return span's remote port
 	 */
@@ -17,11 +17,14 @@
 package org.springframework.cloud.sleuth.exporter;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -29,7 +32,11 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.util.StringUtils;
 
 /**
- * {@link SpanFilter} that ignores spans via names.
+ * {@link SpanFilter} that ignores spans via names. All patterns are compiled once into
+ * a single matcher: literal names are looked up in a set, {@code prefix.*} patterns in a
+ * prefix trie and all remaining patterns are joined into one regex. Verdicts are cached
+ * per span name. The cache holds at most {@link #MAX_VERDICTS} names and is cleared when
+ * it's full, so names that are seen later get cached again.
  *
  * @author Marcin Grzejszczak
  * @since 3.0.0
@@ -38,40 +45,165 @@ public class SpanIgnoringSpanFilter implements SpanFilter {
 
 	private static final Log log = LogFactory.getLog(SpanIgnoringSpanFilter.class);
 
-	private final List<String> spanNamePatternsToSkip;
+	private static final String REGEX_SPECIAL_CHARACTERS = "\\^$.|?*+()[]{}";
 
-	private final List<String> additionalSpanNamePatternsToIgnore;
+	private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(\\d|k<)");
 
-	static final Map<String, Pattern> cache = new ConcurrentHashMap<>();
+	static final int MAX_VERDICTS = 1024;
+
+	private final Set<String> literals = new HashSet<>();
+
+	private final PrefixNode prefixes = new PrefixNode();
+
+	private final List<Pattern> patterns = new ArrayList<>();
+
+	final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
 
 	public SpanIgnoringSpanFilter(List<String> spanNamePatternsToSkip,
 			List<String> additionalSpanNamePatternsToIgnore) {
-		this.spanNamePatternsToSkip = spanNamePatternsToSkip;
-		this.additionalSpanNamePatternsToIgnore = additionalSpanNamePatternsToIgnore;
+		List<String> regexes = new ArrayList<>();
+		compile(spanNamePatternsToSkip, regexes);
+		compile(additionalSpanNamePatternsToIgnore, regexes);
+		combine(regexes);
+	}
+
+	private void compile(List<String> spanNamePatterns, List<String> regexes) {
+		for (String regex : spanNamePatterns) {
+			// fail fast on an invalid pattern, also when it is matched without regex
+			Pattern.compile(regex);
+			String unanchored = unanchored(regex);
+			if (isLiteral(unanchored)) {
+				this.literals.add(unanchored);
+			}
+			else if (unanchored.endsWith(".*") && isLiteral(unanchored.substring(0, unanchored.length() - 2))) {
+				this.prefixes.add(unanchored.substring(0, unanchored.length() - 2));
+			}
+			else {
+				regexes.add(regex);
+			}
+		}
+	}
+
+	/**
+	 * Joins the regexes into a single alternation. Back references rely on group
+	 * numbers, so such patterns are kept on their own. So are all patterns when they
+	 * can't be joined, e.g. because two of them declare the same named group.
+	 */
+	private void combine(List<String> regexes) {
+		List<String> combinable = new ArrayList<>();
+		for (String regex : regexes) {
+			if (BACK_REFERENCE.matcher(regex).find()) {
+				this.patterns.add(Pattern.compile(regex));
+			}
+			else {
+				combinable.add(regex);
+			}
+		}
+		if (combinable.size() == 1) {
+			this.patterns.add(Pattern.compile(combinable.get(0)));
+		}
+		else if (combinable.size() > 1) {
+			StringBuilder combined = new StringBuilder();
+			for (String regex : combinable) {
+				if (combined.length() > 0) {
+					combined.append('|');
+				}
+				combined.append("(?:").append(regex).append(')');
+			}
+			try {
+				this.patterns.add(Pattern.compile(combined.toString()));
+			}
+			catch (PatternSyntaxException e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Span name patterns " + combinable + " can't be joined, will match them one by one", e);
+				}
+				for (String regex : combinable) {
+					this.patterns.add(Pattern.compile(regex));
+				}
+			}
+		}
 	}
 
-	private List<Pattern> spanNamesToIgnore() {
-		return spanNames().stream().map(regex -> cache.computeIfAbsent(regex, Pattern::compile))
-				.collect(Collectors.toList());
+	private static String unanchored(String regex) {
+		String result = regex;
+		if (result.startsWith("^")) {
+			result = result.substring(1);
+		}
+		if (result.endsWith("$") && !result.endsWith("\\$")) {
+			result = result.substring(0, result.length() - 1);
+		}
+		return result;
 	}
 
-	private List<String> spanNames() {
-		List<String> spanNamesToIgnore = new ArrayList<>(this.spanNamePatternsToSkip);
-		spanNamesToIgnore.addAll(this.additionalSpanNamePatternsToIgnore);
-		return spanNamesToIgnore;
+	private static boolean isLiteral(String regex) {
+		for (int i = 0; i < regex.length(); i++) {
+			if (REGEX_SPECIAL_CHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public boolean isExportable(FinishedSpan span) {
-		List<Pattern> spanNamesToIgnore = spanNamesToIgnore();
 		String name = span.getName();
-		if (StringUtils.hasText(name) && spanNamesToIgnore.stream().anyMatch(p -> p.matcher(name).matches())) {
-			if (log.isDebugEnabled()) {
-				log.debug("Will ignore a span with name [" + name + "]");
+		if (!StringUtils.hasText(name)) {
+			return true;
+		}
+		Boolean exportable = this.verdicts.get(name);
+		if (exportable == null) {
+			exportable = !matches(name);
+			if (this.verdicts.size() >= MAX_VERDICTS) {
+				this.verdicts.clear();
 			}
-			return false;
+			this.verdicts.put(name, exportable);
 		}
-		return true;
+		if (!exportable && log.isDebugEnabled()) {
+			log.debug("Will ignore a span with name [" + name + "]");
+		}
+		return exportable;
+	}
+
+	private boolean matches(String name) {
+		if (this.literals.contains(name) || this.prefixes.matches(name)) {
+			return true;
+		}
+		for (Pattern pattern : this.patterns) {
+			if (pattern.matcher(name).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final class PrefixNode {
+
+		private final Map<Character, PrefixNode> children = new HashMap<>();
+
+		private boolean terminal;
+
+		void add(String prefix) {
+			PrefixNode node = this;
+			for (int i = 0; i < prefix.length(); i++) {
+				node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixNode());
+			}
+			node.terminal = true;
+		}
+
+		boolean matches(String name) {
+			PrefixNode node = this;
+			for (int i = 0; i < name.length(); i++) {
+				if (node.terminal) {
+					return true;
+				}
+				node = node.children.get(name.charAt(i));
+				if (node == null) {
+					return false;
+				}
+			}
+			return node.terminal;
+		}
+
 	}
 
 }
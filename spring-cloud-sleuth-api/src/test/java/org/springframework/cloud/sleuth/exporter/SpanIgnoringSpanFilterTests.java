@@ -16,7 +16,10 @@
 
 package org.springframework.cloud.sleuth.exporter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.BDDMockito;
@@ -26,8 +29,12 @@ import static org.assertj.core.api.BDDAssertions.then;
 class SpanIgnoringSpanFilterTests {
 
 	private FinishedSpan namedSpan() {
+		return namedSpan("someName");
+	}
+
+	private FinishedSpan namedSpan(String name) {
 		FinishedSpan span = BDDMockito.mock(FinishedSpan.class);
-		BDDMockito.given(span.getName()).willReturn("someName");
+		BDDMockito.given(span.getName()).willReturn(name);
 		return span;
 	}
 
@@ -48,23 +55,57 @@ class SpanIgnoringSpanFilterTests {
 	}
 
 	@Test
-	void should_use_cached_entry_for_same_patterns() {
-		export(handler("someOtherName"));
-		export(handler("someOtherName"));
-		export(handler("someOtherName"));
+	void should_match_literal_prefix_and_regex_patterns() {
+		SpanIgnoringSpanFilter handler = new SpanIgnoringSpanFilter(
+				Arrays.asList("^catalogWatchTaskScheduler$", "async.*"), Arrays.asList("x[0-9]+", "(a)\\1"));
+
+		then(handler.isExportable(namedSpan("catalogWatchTaskScheduler"))).isFalse();
+		then(handler.isExportable(namedSpan("catalogWatchTaskSchedulerX"))).isTrue();
+		then(handler.isExportable(namedSpan("async"))).isFalse();
+		then(handler.isExportable(namedSpan("asyncFoo"))).isFalse();
+		then(handler.isExportable(namedSpan("asy"))).isTrue();
+		then(handler.isExportable(namedSpan("x12"))).isFalse();
+		then(handler.isExportable(namedSpan("x"))).isTrue();
+		then(handler.isExportable(namedSpan("aa"))).isFalse();
+		then(handler.isExportable(namedSpan("ab"))).isTrue();
+	}
 
-		then(SpanIgnoringSpanFilter.cache).containsKey("someOtherName");
+	@Test
+	void should_match_patterns_declaring_the_same_named_group() {
+		SpanIgnoringSpanFilter handler = new SpanIgnoringSpanFilter(Arrays.asList("(?<id>a)b+", "(?<id>c)d+"),
+				Collections.emptyList());
 
-		export(handler("a"));
-		export(handler("b"));
-		export(handler("c"));
+		then(handler.isExportable(namedSpan("abb"))).isFalse();
+		then(handler.isExportable(namedSpan("cdd"))).isFalse();
+		then(handler.isExportable(namedSpan("ad"))).isTrue();
+	}
 
-		then(SpanIgnoringSpanFilter.cache).containsKey("someOtherName").containsKey("a").containsKey("b")
-				.containsKey("c");
+	@Test
+	void should_match_many_patterns() {
+		List<String> patterns = new ArrayList<>();
+		for (int i = 0; i < 512; i++) {
+			patterns.add("pattern" + i + "[0-9]");
+		}
+
+		SpanIgnoringSpanFilter handler = new SpanIgnoringSpanFilter(patterns, Collections.emptyList());
+
+		then(handler.isExportable(namedSpan("pattern01"))).isFalse();
+		then(handler.isExportable(namedSpan("pattern5111"))).isFalse();
+		then(handler.isExportable(namedSpan("pattern5121"))).isTrue();
 	}
 
-	private void export(SpanIgnoringSpanFilter handler) {
-		handler.isExportable(namedSpan());
+	@Test
+	void should_bound_cached_verdicts() {
+		SpanIgnoringSpanFilter handler = handler("someName");
+
+		for (int i = 0; i < SpanIgnoringSpanFilter.MAX_VERDICTS * 2; i++) {
+			handler.isExportable(namedSpan("name" + i));
+		}
+
+		then(handler.verdicts).hasSizeLessThanOrEqualTo(SpanIgnoringSpanFilter.MAX_VERDICTS)
+				.containsEntry("name" + (SpanIgnoringSpanFilter.MAX_VERDICTS * 2 - 1), true);
+		then(handler.isExportable(namedSpan())).isFalse();
+		then(handler.verdicts).containsEntry("someName", false);
 	}
 
 	private SpanIgnoringSpanFilter handler(String name) {
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.actuate;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+import brave.Tags;
+import brave.handler.MutableSpanBytesEncoder;
+
+import org.springframework.cloud.sleuth.brave.bridge.BraveFinishedSpan;
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link FinishedSpanWriter} that returns Zipkin JSON v2 as a {@link Resource}. Spans
+ * are encoded one by one while the response is being written, so the whole list is
+ * never held in memory as bytes.
+ *
+ * @since 3.1.10
+ */
+class BraveStreamingFinishedSpanWriter implements FinishedSpanWriter<Resource> {
+
+	private static final MutableSpanBytesEncoder ENCODER = MutableSpanBytesEncoder.zipkinJsonV2(Tags.ERROR);
+
+	@Override
+	public Resource write(TextOutputFormat format, List<FinishedSpan> spans) {
+		if (format == TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2) {
+			return new SpansResource(spans);
+		}
+		return null;
+	}
+
+	private static final class SpansResource extends AbstractResource {
+
+		private final List<FinishedSpan> spans;
+
+		private SpansResource(List<FinishedSpan> spans) {
+			this.spans = spans;
+		}
+
+		@Override
+		public String getDescription() {
+			return "Zipkin JSON v2 of [" + this.spans.size() + "] spans";
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new SpansInputStream(this.spans.iterator());
+		}
+
+		/**
+		 * Unknown, so that the response is not buffered to compute it.
+		 */
+		@Override
+		public long contentLength() {
+			return -1;
+		}
+
+	}
+
+	/**
+	 * Writes {@code [span,span,...]}, encoding the next span only once the previous
+	 * one was read.
+	 */
+	private static final class SpansInputStream extends InputStream {
+
+		private static final byte[] LIST_START = { '[' };
+
+		private static final byte[] LIST_END = { ']' };
+
+		private static final byte[] DELIMITER = { ',' };
+
+		private final Iterator<FinishedSpan> spans;
+
+		private byte[] chunk = LIST_START;
+
+		private int position;
+
+		private boolean first = true;
+
+		private byte[] pending;
+
+		private boolean finished;
+
+		private SpansInputStream(Iterator<FinishedSpan> spans) {
+			this.spans = spans;
+		}
+
+		@Override
+		public int read() {
+			if (!nextChunk()) {
+				return -1;
+			}
+			return this.chunk[this.position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			int read = 0;
+			while (read < length && nextChunk()) {
+				int count = Math.min(length - read, this.chunk.length - this.position);
+				System.arraycopy(this.chunk, this.position, bytes, offset + read, count);
+				this.position += count;
+				read += count;
+			}
+			return read == 0 ? -1 : read;
+		}
+
+		/**
+		 * @return {@code false} when there's nothing left to read
+		 */
+		private boolean nextChunk() {
+			while (this.position == this.chunk.length) {
+				if (this.finished) {
+					return false;
+				}
+				this.position = 0;
+				if (this.pending != null) {
+					this.chunk = this.pending;
+					this.pending = null;
+				}
+				else if (this.spans.hasNext()) {
+					byte[] encoded = ENCODER.encode(BraveFinishedSpan.toBrave(this.spans.next()));
+					if (this.first) {
+						this.first = false;
+						this.chunk = encoded;
+					}
+					else {
+						this.chunk = DELIMITER;
+						this.pending = encoded;
+					}
+				}
+				else {
+					this.chunk = LIST_END;
+					this.finished = true;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -17,17 +17,20 @@
 package org.springframework.cloud.sleuth.autoconfig.actuate;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 import org.springframework.boot.context.metrics.buffering.StartupTimeline;
 import org.springframework.cloud.sleuth.exporter.FinishedSpan;
 import org.springframework.cloud.sleuth.exporter.SpanReporter;
+import org.springframework.lang.Nullable;
 
 /**
- * A {@link SpanReporter} that buffers finished spans.
+ * A {@link SpanReporter} that buffers finished spans. Spans are stored in a
+ * pre-allocated ring buffer, when it's full the oldest span gets overwritten.
  *
  * @author Marcin Grzejszczak
  * @since 3.1.0
@@ -36,12 +39,19 @@ public class BufferingSpanReporter implements SpanReporter {
 
 	private final int capacity;
 
-	private final AtomicInteger estimatedSize = new AtomicInteger();
+	private final AtomicReferenceArray<FinishedSpan> spans;
 
-	final ConcurrentLinkedQueue<FinishedSpan> spans = new ConcurrentLinkedQueue<>();
+	/**
+	 * Sequence of the next write. The slot of a sequence is the sequence modulo
+	 * capacity.
+	 */
+	private final AtomicLong writeSequence = new AtomicLong();
+
+	private final LongAdder overwrittenSpans = new LongAdder();
 
 	public BufferingSpanReporter(int capacity) {
-		this.capacity = capacity;
+		this.capacity = Math.max(1, capacity);
+		this.spans = new AtomicReferenceArray<>(this.capacity);
 	}
 
 	/**
@@ -52,7 +62,18 @@ public class BufferingSpanReporter implements SpanReporter {
 	 * @return a snapshot of currently buffered spans.
 	 */
 	public List<FinishedSpan> getFinishedSpans() {
-		return new ArrayList<>(this.spans);
+		return collect(false, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Return a snapshot of currently buffered spans matching the filter, oldest first.
+	 * Only matching spans are copied.
+	 * @param filter spans to return, {@code null} for all spans
+	 * @param limit maximum number of spans to return
+	 * @return a snapshot of currently buffered spans matching the filter
+	 */
+	public List<FinishedSpan> getFinishedSpans(@Nullable Predicate<FinishedSpan> filter, int limit) {
+		return collect(false, filter, limit);
 	}
 
 	/**
@@ -63,27 +84,44 @@ public class BufferingSpanReporter implements SpanReporter {
 	 * @return buffered steps drained from the buffer.
 	 */
 	public List<FinishedSpan> drainFinishedSpans() {
-		List<FinishedSpan> events = new ArrayList<>();
-		Iterator<FinishedSpan> iterator = this.spans.iterator();
-		while (iterator.hasNext()) {
-			events.add(iterator.next());
-			iterator.remove();
-		}
-		this.estimatedSize.set(0);
-		return events;
+		return collect(true, null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return number of spans that were overwritten by newer ones since the buffer was
+	 * full
+	 */
+	public long getOverwrittenSpans() {
+		return this.overwrittenSpans.sum();
 	}
 
 	@Override
 	public void report(FinishedSpan span) {
-		if (this.estimatedSize.get() < this.capacity) {
-			this.estimatedSize.incrementAndGet();
-			this.spans.add(span);
+		long sequence = this.writeSequence.getAndIncrement();
+		if (this.spans.getAndSet(slot(sequence), span) != null) {
+			this.overwrittenSpans.increment();
 		}
-		else {
-			this.spans.poll();
-			this.estimatedSize.decrementAndGet();
-			report(span);
+	}
+
+	/**
+	 * Walks the buffer from the oldest to the newest span.
+	 */
+	private List<FinishedSpan> collect(boolean remove, @Nullable Predicate<FinishedSpan> filter, int limit) {
+		long end = this.writeSequence.get();
+		long start = Math.max(0, end - this.capacity);
+		List<FinishedSpan> result = new ArrayList<>(filter == null ? (int) Math.min(end - start, limit) : 16);
+		for (long sequence = start; sequence < end && result.size() < limit; sequence++) {
+			int slot = slot(sequence);
+			FinishedSpan span = remove ? this.spans.getAndSet(slot, null) : this.spans.get(slot);
+			if (span != null && (filter == null || filter.test(span))) {
+				result.add(span);
+			}
 		}
+		return result;
+	}
+
+	private int slot(long sequence) {
+		return (int) (sequence % this.capacity);
 	}
 
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.actuate;
+
+import java.util.List;
+
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+
+/**
+ * A {@link FinishedSpanWriter} that returns the output of the first delegate that
+ * supports the requested format.
+ *
+ * @since 3.1.10
+ */
+class CompositeFinishedSpanWriter implements FinishedSpanWriter<Object> {
+
+	private final List<FinishedSpanWriter<?>> delegates;
+
+	CompositeFinishedSpanWriter(List<FinishedSpanWriter<?>> delegates) {
+		this.delegates = delegates;
+	}
+
+	@Override
+	public Object write(TextOutputFormat format, List<FinishedSpan> spans) {
+		for (FinishedSpanWriter<?> delegate : this.delegates) {
+			Object result = delegate.write(format, spans);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+}
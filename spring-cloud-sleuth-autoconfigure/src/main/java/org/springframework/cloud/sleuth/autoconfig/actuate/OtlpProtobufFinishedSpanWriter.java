@@ -0,0 +1,478 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.actuate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+
+/**
+ * A {@link FinishedSpanWriter} that writes spans as an OTLP
+ * {@code ExportTraceServiceRequest} protobuf message. Spans are encoded straight from
+ * {@link FinishedSpan} into pooled buffers that are reused between scrapes. At most
+ * {@link #MAX_POOLED_BUFFERS} are kept, so buffers are not retained by every thread that
+ * ever served a scrape. A buffer that grew above {@link #MAX_RETAINED_BUFFER_SIZE} for a
+ * large scrape is dropped once the message is copied out of it.
+ * Timestamps are expected in epoch microseconds. Spans are grouped by their local service
+ * name, which is written as the {@code service.name} resource attribute.
+ *
+ * @since 3.1.10
+ */
+class OtlpProtobufFinishedSpanWriter implements FinishedSpanWriter<byte[]> {
+
+	private static final String SCOPE_NAME = "org.springframework.cloud.sleuth";
+
+	/**
+	 * Service name of spans without a local service name, as defined by the OpenTelemetry
+	 * resource semantic conventions.
+	 */
+	private static final String UNKNOWN_SERVICE_NAME = "unknown_service:java";
+
+	private static final String SERVICE_NAME_ATTRIBUTE = "service.name";
+
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+	private static final int INITIAL_SPAN_BUFFER_SIZE = 1024;
+
+	static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+	static final int MAX_POOLED_BUFFERS = 4;
+
+	// ExportTraceServiceRequest.resource_spans
+	private static final int RESOURCE_SPANS = tag(1, 2);
+
+	// ResourceSpans
+	private static final int RESOURCE = tag(1, 2);
+
+	private static final int SCOPE_SPANS = tag(2, 2);
+
+	// Resource
+	private static final int RESOURCE_ATTRIBUTES = tag(1, 2);
+
+	// ScopeSpans
+	private static final int SCOPE = tag(1, 2);
+
+	private static final int SPANS = tag(2, 2);
+
+	// InstrumentationScope
+	private static final int SCOPE_NAME_FIELD = tag(1, 2);
+
+	// Span
+	private static final int TRACE_ID = tag(1, 2);
+
+	private static final int SPAN_ID = tag(2, 2);
+
+	private static final int PARENT_SPAN_ID = tag(4, 2);
+
+	private static final int NAME = tag(5, 2);
+
+	private static final int KIND = tag(6, 0);
+
+	private static final int START_TIME = tag(7, 1);
+
+	private static final int END_TIME = tag(8, 1);
+
+	private static final int ATTRIBUTES = tag(9, 2);
+
+	private static final int EVENTS = tag(11, 2);
+
+	private static final int STATUS = tag(15, 2);
+
+	// KeyValue, AnyValue
+	private static final int KEY = tag(1, 2);
+
+	private static final int VALUE = tag(2, 2);
+
+	private static final int STRING_VALUE = tag(1, 2);
+
+	private static final int INT_VALUE = tag(3, 0);
+
+	// Event
+	private static final int EVENT_TIME = tag(1, 1);
+
+	private static final int EVENT_NAME = tag(2, 2);
+
+	// Status
+	private static final int STATUS_MESSAGE = tag(2, 2);
+
+	private static final int STATUS_CODE = tag(3, 0);
+
+	private static final int STATUS_CODE_ERROR = 2;
+
+	private final Queue<Buffers> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+	@Override
+	public byte[] write(TextOutputFormat format, List<FinishedSpan> spans) {
+		if (format != TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF) {
+			return null;
+		}
+		Buffers buffers = this.buffers.poll();
+		if (buffers == null) {
+			buffers = new Buffers();
+		}
+		try {
+			ProtobufBuffer result = buffers.result.reset();
+			for (Map.Entry<String, List<FinishedSpan>> resource : byServiceName(spans).entrySet()) {
+				writeResourceSpans(result, buffers, resource.getKey(), resource.getValue());
+			}
+			return Arrays.copyOf(result.bytes, result.size());
+		}
+		finally {
+			buffers.shrink();
+			this.buffers.offer(buffers);
+		}
+	}
+
+	/**
+	 * @return number of pooled buffers, for tests
+	 */
+	int pooledBuffers() {
+		return this.buffers.size();
+	}
+
+	/**
+	 * @return size of the largest pooled buffer, for tests
+	 */
+	int retainedBufferSize() {
+		int size = 0;
+		for (Buffers buffers : this.buffers) {
+			size = Math.max(size, Math.max(buffers.result.bytes.length,
+					Math.max(buffers.body.bytes.length, buffers.span.bytes.length)));
+		}
+		return size;
+	}
+
+	private static Map<String, List<FinishedSpan>> byServiceName(List<FinishedSpan> spans) {
+		Map<String, List<FinishedSpan>> byServiceName = new LinkedHashMap<>();
+		for (FinishedSpan span : spans) {
+			String serviceName = span.getLocalServiceName() != null ? span.getLocalServiceName()
+					: UNKNOWN_SERVICE_NAME;
+			byServiceName.computeIfAbsent(serviceName, name -> new ArrayList<>()).add(span);
+		}
+		return byServiceName;
+	}
+
+	private void writeResourceSpans(ProtobufBuffer result, Buffers buffers, String serviceName,
+			List<FinishedSpan> spans) {
+		ProtobufBuffer body = buffers.body.reset();
+		for (FinishedSpan span : spans) {
+			ProtobufBuffer encodedSpan = buffers.span.reset();
+			writeSpan(encodedSpan, span);
+			body.writeTag(SPANS);
+			body.writeBytes(encodedSpan);
+		}
+		int serviceNameValueSize = sizeOfString(STRING_VALUE, serviceName);
+		int serviceNameSize = sizeOfString(KEY, SERVICE_NAME_ATTRIBUTE)
+				+ sizeOfMessage(VALUE, serviceNameValueSize);
+		int resourceSize = sizeOfMessage(RESOURCE_ATTRIBUTES, serviceNameSize);
+		int scopeSize = sizeOfString(SCOPE_NAME_FIELD, SCOPE_NAME);
+		int scopeSpansSize = sizeOfMessage(SCOPE, scopeSize) + body.size();
+		int resourceSpansSize = sizeOfMessage(RESOURCE, resourceSize) + sizeOfMessage(SCOPE_SPANS, scopeSpansSize);
+		result.writeTag(RESOURCE_SPANS);
+		result.writeVarint(resourceSpansSize);
+		result.writeTag(RESOURCE);
+		result.writeVarint(resourceSize);
+		result.writeTag(RESOURCE_ATTRIBUTES);
+		result.writeVarint(serviceNameSize);
+		result.writeString(KEY, SERVICE_NAME_ATTRIBUTE);
+		result.writeTag(VALUE);
+		result.writeVarint(serviceNameValueSize);
+		result.writeString(STRING_VALUE, serviceName);
+		result.writeTag(SCOPE_SPANS);
+		result.writeVarint(scopeSpansSize);
+		result.writeTag(SCOPE);
+		result.writeVarint(scopeSize);
+		result.writeString(SCOPE_NAME_FIELD, SCOPE_NAME);
+		result.writeRaw(body);
+	}
+
+	private void writeSpan(ProtobufBuffer buffer, FinishedSpan span) {
+		buffer.writeTag(TRACE_ID);
+		buffer.writeVarint(16);
+		buffer.writeHexId(span.getTraceId(), 16);
+		buffer.writeTag(SPAN_ID);
+		buffer.writeVarint(8);
+		buffer.writeHexId(span.getSpanId(), 8);
+		String parentId = span.getParentId();
+		if (parentId != null) {
+			buffer.writeTag(PARENT_SPAN_ID);
+			buffer.writeVarint(8);
+			buffer.writeHexId(parentId, 8);
+		}
+		if (span.getName() != null) {
+			buffer.writeString(NAME, span.getName());
+		}
+		buffer.writeTag(KIND);
+		buffer.writeVarint(kind(span.getKind()));
+		buffer.writeTag(START_TIME);
+		buffer.writeFixed64(span.getStartTimestamp() * 1000L);
+		buffer.writeTag(END_TIME);
+		buffer.writeFixed64(span.getEndTimestamp() * 1000L);
+		for (Map.Entry<String, String> tag : span.getTags().entrySet()) {
+			writeStringAttribute(buffer, tag.getKey(), tag.getValue());
+		}
+		if (span.getRemoteServiceName() != null) {
+			writeStringAttribute(buffer, "peer.service", span.getRemoteServiceName());
+		}
+		if (span.getRemoteIp() != null) {
+			writeStringAttribute(buffer, "net.peer.ip", span.getRemoteIp());
+		}
+		if (span.getRemotePort() > 0) {
+			int valueSize = 1 + sizeOfVarint(span.getRemotePort());
+			buffer.writeTag(ATTRIBUTES);
+			buffer.writeVarint(sizeOfString(KEY, "net.peer.port") + sizeOfMessage(VALUE, valueSize));
+			buffer.writeString(KEY, "net.peer.port");
+			buffer.writeTag(VALUE);
+			buffer.writeVarint(valueSize);
+			buffer.writeTag(INT_VALUE);
+			buffer.writeVarint(span.getRemotePort());
+		}
+		for (Map.Entry<Long, String> event : span.getEvents()) {
+			buffer.writeTag(EVENTS);
+			buffer.writeVarint(9 + sizeOfString(EVENT_NAME, event.getValue()));
+			buffer.writeTag(EVENT_TIME);
+			buffer.writeFixed64(event.getKey() * 1000L);
+			buffer.writeString(EVENT_NAME, event.getValue());
+		}
+		Throwable error = span.getError();
+		if (error != null) {
+			String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+			buffer.writeTag(STATUS);
+			buffer.writeVarint(sizeOfString(STATUS_MESSAGE, message) + 2);
+			buffer.writeString(STATUS_MESSAGE, message);
+			buffer.writeTag(STATUS_CODE);
+			buffer.writeVarint(STATUS_CODE_ERROR);
+		}
+	}
+
+	private void writeStringAttribute(ProtobufBuffer buffer, String key, String value) {
+		int valueSize = sizeOfString(STRING_VALUE, value);
+		buffer.writeTag(ATTRIBUTES);
+		buffer.writeVarint(sizeOfString(KEY, key) + sizeOfMessage(VALUE, valueSize));
+		buffer.writeString(KEY, key);
+		buffer.writeTag(VALUE);
+		buffer.writeVarint(valueSize);
+		buffer.writeString(STRING_VALUE, value);
+	}
+
+	private static int kind(Span.Kind kind) {
+		if (kind == null) {
+			return 1;
+		}
+		switch (kind) {
+		case SERVER:
+			return 2;
+		case CLIENT:
+			return 3;
+		case PRODUCER:
+			return 4;
+		case CONSUMER:
+			return 5;
+		default:
+			return 1;
+		}
+	}
+
+	private static int tag(int fieldNumber, int wireType) {
+		return fieldNumber << 3 | wireType;
+	}
+
+	private static int sizeOfString(int tag, String value) {
+		int length = utf8Length(value);
+		return sizeOfMessage(tag, length);
+	}
+
+	private static int sizeOfMessage(int tag, int length) {
+		return sizeOfVarint(tag) + sizeOfVarint(length) + length;
+	}
+
+	private static int sizeOfVarint(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	static int utf8Length(String value) {
+		int length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				length++;
+			}
+			else if (c < 0x800) {
+				length += 2;
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				length += 4;
+				i++;
+			}
+			else if (Character.isSurrogate(c)) {
+				// unpaired surrogates are replaced with '?'
+				length++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private static final class Buffers {
+
+		private final ProtobufBuffer result = new ProtobufBuffer(INITIAL_BUFFER_SIZE);
+
+		private final ProtobufBuffer body = new ProtobufBuffer(INITIAL_BUFFER_SIZE);
+
+		private final ProtobufBuffer span = new ProtobufBuffer(INITIAL_SPAN_BUFFER_SIZE);
+
+		private void shrink() {
+			this.result.shrink(INITIAL_BUFFER_SIZE);
+			this.body.shrink(INITIAL_BUFFER_SIZE);
+			this.span.shrink(INITIAL_SPAN_BUFFER_SIZE);
+		}
+
+	}
+
+	/**
+	 * Growable buffer with the protobuf wire format primitives.
+	 */
+	private static final class ProtobufBuffer {
+
+		private byte[] bytes;
+
+		private int count;
+
+		private ProtobufBuffer(int initialSize) {
+			this.bytes = new byte[initialSize];
+		}
+
+		private ProtobufBuffer reset() {
+			this.count = 0;
+			return this;
+		}
+
+		private int size() {
+			return this.count;
+		}
+
+		private void shrink(int initialSize) {
+			if (this.bytes.length > MAX_RETAINED_BUFFER_SIZE) {
+				this.bytes = new byte[initialSize];
+				this.count = 0;
+			}
+		}
+
+		private void ensureCapacity(int required) {
+			if (this.bytes.length - this.count < required) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.count + required));
+			}
+		}
+
+		private void writeTag(int tag) {
+			writeVarint(tag);
+		}
+
+		private void writeVarint(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.bytes[this.count++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.count++] = (byte) value;
+		}
+
+		private void writeFixed64(long value) {
+			ensureCapacity(8);
+			for (int i = 0; i < 8; i++) {
+				this.bytes[this.count++] = (byte) (value >> (8 * i));
+			}
+		}
+
+		private void writeBytes(ProtobufBuffer buffer) {
+			writeVarint(buffer.count);
+			writeRaw(buffer);
+		}
+
+		private void writeRaw(ProtobufBuffer buffer) {
+			ensureCapacity(buffer.count);
+			System.arraycopy(buffer.bytes, 0, this.bytes, this.count, buffer.count);
+			this.count += buffer.count;
+		}
+
+		/**
+		 * Writes a hex encoded id as {@code length} bytes, left padding shorter ids
+		 * with zeros.
+		 */
+		private void writeHexId(String hex, int length) {
+			ensureCapacity(length);
+			int padding = length - hex.length() / 2;
+			for (int i = 0; i < padding; i++) {
+				this.bytes[this.count++] = 0;
+			}
+			for (int i = Math.max(0, -padding) * 2; i + 1 < hex.length(); i += 2) {
+				this.bytes[this.count++] = (byte) (Character.digit(hex.charAt(i), 16) << 4
+						| Character.digit(hex.charAt(i + 1), 16));
+			}
+		}
+
+		private void writeString(int tag, String value) {
+			writeTag(tag);
+			int length = utf8Length(value);
+			writeVarint(length);
+			ensureCapacity(length);
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c < 0x80) {
+					this.bytes[this.count++] = (byte) c;
+				}
+				else if (c < 0x800) {
+					this.bytes[this.count++] = (byte) (0xC0 | (c >> 6));
+					this.bytes[this.count++] = (byte) (0x80 | (c & 0x3F));
+				}
+				else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					this.bytes[this.count++] = (byte) (0xF0 | (codePoint >> 18));
+					this.bytes[this.count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					this.bytes[this.count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					this.bytes[this.count++] = (byte) (0x80 | (codePoint & 0x3F));
+				}
+				else if (Character.isSurrogate(c)) {
+					this.bytes[this.count++] = '?';
+				}
+				else {
+					this.bytes[this.count++] = (byte) (0xE0 | (c >> 12));
+					this.bytes[this.count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					this.bytes[this.count++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+		}
+
+	}
+
+}
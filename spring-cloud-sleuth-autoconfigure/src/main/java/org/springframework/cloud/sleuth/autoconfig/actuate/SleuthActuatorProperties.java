@@ -32,6 +32,12 @@ public class SleuthActuatorProperties {
 	 */
 	private int capacity = 10_000;
 
+	/**
+	 * Whether spans should be written to the response one by one instead of encoding
+	 * all of them in memory first. Applies to the Zipkin JSON format.
+	 */
+	private boolean streaming = false;
+
 	public int getCapacity() {
 		return this.capacity;
 	}
@@ -40,4 +46,12 @@ public class SleuthActuatorProperties {
 		this.capacity = capacity;
 	}
 
+	public boolean isStreaming() {
+		return this.streaming;
+	}
+
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 }
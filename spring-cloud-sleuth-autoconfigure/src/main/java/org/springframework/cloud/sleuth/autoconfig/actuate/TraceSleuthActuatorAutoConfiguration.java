@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.sleuth.autoconfig.actuate;
 
+import java.util.Arrays;
+
 import brave.handler.SpanHandler;
 
 import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
@@ -65,8 +67,10 @@ public class TraceSleuthActuatorAutoConfiguration {
 
 		@Bean
 		@ConditionalOnMissingBean
-		FinishedSpanWriter sleuthBraveFinishedSpanWriter() {
-			return new BraveFinishedSpanWriter();
+		FinishedSpanWriter sleuthBraveFinishedSpanWriter(SleuthActuatorProperties sleuthActuatorProperties) {
+			FinishedSpanWriter<?> zipkinWriter = sleuthActuatorProperties.isStreaming()
+					? new BraveStreamingFinishedSpanWriter() : new BraveFinishedSpanWriter();
+			return new CompositeFinishedSpanWriter(Arrays.asList(zipkinWriter, new OtlpProtobufFinishedSpanWriter()));
 		}
 
 		/**
@@ -16,7 +16,9 @@
 
 package org.springframework.cloud.sleuth.autoconfig.actuate;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
@@ -26,6 +28,7 @@ import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
 import org.springframework.cloud.sleuth.exporter.FinishedSpan;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
 /**
  * {@link Endpoint @Endpoint} that outputs spans in a format that can be scraped by a
@@ -37,6 +40,12 @@ import org.springframework.lang.NonNull;
 @WebEndpoint(id = "traces")
 public class TracesScrapeEndpoint {
 
+	/**
+	 * Order of spans returned for a {@code since} cursor.
+	 */
+	private static final Comparator<FinishedSpan> END_TIMESTAMP_AND_SPAN_ID = Comparator
+			.comparingLong(FinishedSpan::getEndTimestamp).thenComparing(FinishedSpan::getSpanId);
+
 	private final BufferingSpanReporter bufferingSpanReporter;
 
 	private final FinishedSpanWriter finishedSpanWriter;
@@ -46,10 +55,49 @@ public class TracesScrapeEndpoint {
 		this.finishedSpanWriter = finishedSpanWriter;
 	}
 
-	@ReadOperation(producesFrom = TextOutputFormat.class)
 	public WebEndpointResponse<Object> spansSnapshot(TextOutputFormat format) {
-		List<FinishedSpan> finishedSpans = this.bufferingSpanReporter.getFinishedSpans();
-		return response(format, finishedSpans);
+		return spansSnapshot(format, null, null, null, null);
+	}
+
+	/**
+	 * Returns buffered spans without removing them. Without {@code since} spans are
+	 * returned oldest first. With {@code since} spans are ordered by their end timestamp
+	 * and span id, so that scrapers can page through them by passing the end timestamp
+	 * and the span id of the last span they've seen as {@code since} and
+	 * {@code afterSpanId}. Spans that ended at the same time are then neither skipped nor
+	 * returned twice.
+	 * @param format output format
+	 * @param since only spans that ended at or after this timestamp are returned
+	 * @param afterSpanId together with {@code since}, spans that ended at {@code since}
+	 * are returned only if their span id is greater than this one
+	 * @param limit maximum number of returned spans
+	 * @param traceId only spans of this trace are returned
+	 * @return spans in the given format
+	 */
+	@ReadOperation(producesFrom = TextOutputFormat.class)
+	public WebEndpointResponse<Object> spansSnapshot(TextOutputFormat format, @Nullable Long since,
+			@Nullable String afterSpanId, @Nullable Integer limit, @Nullable String traceId) {
+		if (since == null && limit == null && traceId == null) {
+			return response(format, this.bufferingSpanReporter.getFinishedSpans());
+		}
+		int maxSpans = limit != null ? limit : Integer.MAX_VALUE;
+		Predicate<FinishedSpan> filter = span -> traceId == null || traceId.equals(span.getTraceId());
+		if (since == null) {
+			return response(format, this.bufferingSpanReporter.getFinishedSpans(filter, maxSpans));
+		}
+		filter = filter.and(span -> isAfter(span, since, afterSpanId));
+		// the limit can only be applied once the spans are sorted
+		List<FinishedSpan> finishedSpans = this.bufferingSpanReporter.getFinishedSpans(filter, Integer.MAX_VALUE);
+		finishedSpans.sort(END_TIMESTAMP_AND_SPAN_ID);
+		return response(format, finishedSpans.subList(0, Math.min(maxSpans, finishedSpans.size())));
+	}
+
+	private static boolean isAfter(FinishedSpan span, long since, @Nullable String afterSpanId) {
+		long endTimestamp = span.getEndTimestamp();
+		if (endTimestamp != since) {
+			return endTimestamp > since;
+		}
+		return afterSpanId == null || span.getSpanId().compareTo(afterSpanId) > 0;
 	}
 
 	@NonNull
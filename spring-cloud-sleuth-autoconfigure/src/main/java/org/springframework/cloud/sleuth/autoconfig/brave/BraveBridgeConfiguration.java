@@ -46,6 +46,7 @@ import org.springframework.cloud.sleuth.brave.bridge.BraveSpanCustomizer;
 import org.springframework.cloud.sleuth.brave.bridge.BraveTracer;
 import org.springframework.cloud.sleuth.brave.bridge.CompositePropagationFactorySupplier;
 import org.springframework.cloud.sleuth.brave.bridge.CompositeSpanHandler;
+import org.springframework.cloud.sleuth.brave.bridge.TailSamplingSpanBuffer;
 import org.springframework.cloud.sleuth.brave.propagation.PropagationFactorySupplier;
 import org.springframework.cloud.sleuth.exporter.SpanFilter;
 import org.springframework.cloud.sleuth.exporter.SpanReporter;
@@ -60,8 +61,19 @@ class BraveBridgeConfiguration {
 
 	@Bean
 	org.springframework.cloud.sleuth.Tracer braveTracer(brave.Tracer tracer,
-			org.springframework.cloud.sleuth.CurrentTraceContext braveCurrentTraceContext) {
-		return new BraveTracer(tracer, braveCurrentTraceContext, new BraveBaggageManager());
+			org.springframework.cloud.sleuth.CurrentTraceContext braveCurrentTraceContext,
+			SleuthBaggageProperties baggageProperties) {
+		return new BraveTracer(tracer, braveCurrentTraceContext,
+				new BraveBaggageManager(baggageFieldNames(baggageProperties)));
+	}
+
+	static List<String> baggageFieldNames(SleuthBaggageProperties baggageProperties) {
+		List<String> names = new ArrayList<>();
+		names.addAll(baggageProperties.getRemoteFields());
+		names.addAll(baggageProperties.getLocalFields());
+		names.addAll(baggageProperties.getTagFields());
+		names.addAll(baggageProperties.getCorrelationFields());
+		return names;
 	}
 
 	@Bean
@@ -91,9 +103,14 @@ class BraveBridgeConfiguration {
 	// Name is important for sampling conditions
 	@Bean(name = "traceCompositeSpanHandler")
 	SpanHandler compositeSpanHandler(ObjectProvider<List<SpanFilter>> exporters,
-			ObjectProvider<List<SpanReporter>> reporters) {
+			ObjectProvider<List<SpanReporter>> reporters, SleuthProperties sleuthProperties) {
+		SleuthProperties.TailSampling tailSampling = sleuthProperties.getTailSampling();
+		TailSamplingSpanBuffer tailSamplingBuffer = tailSampling.isEnabled()
+				? new TailSamplingSpanBuffer(tailSampling.getDecisionWait(), tailSampling.getMaxTraces(),
+						tailSampling.getMaxSpansPerTrace(), tailSampling.getLatencyThreshold(), tailSampling.getTags())
+				: null;
 		return new CompositeSpanHandler(exporters.getIfAvailable(ArrayList::new),
-				reporters.getIfAvailable(ArrayList::new));
+				reporters.getIfAvailable(ArrayList::new), sleuthProperties.getReporterQueueSize(), tailSamplingBuffer);
 	}
 
 	@Bean
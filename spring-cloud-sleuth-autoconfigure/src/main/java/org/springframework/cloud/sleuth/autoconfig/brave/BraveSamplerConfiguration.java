@@ -16,14 +16,23 @@
 
 package org.springframework.cloud.sleuth.autoconfig.brave;
 
+import java.util.Optional;
+
 import brave.sampler.CountingSampler;
 import brave.sampler.Sampler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.springframework.aop.scope.ScopedObject;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.cloud.sleuth.brave.sampler.AdaptiveSampler;
 import org.springframework.cloud.sleuth.brave.sampler.ProbabilityBasedSampler;
 import org.springframework.cloud.sleuth.brave.sampler.RateLimitingSampler;
 import org.springframework.context.annotation.Bean;
@@ -50,12 +59,19 @@ class BraveSamplerConfiguration {
 	// NOTE: Brave's default samplers return Sampler.NEVER_SAMPLE if the config implies
 	// that
 	static Sampler samplerFromProps(SamplerProperties config) {
+		if (config.getAdaptive().getTargetRate() != null) {
+			return adaptiveSampler(config);
+		}
 		if (config.getProbability() != null) {
 			return CountingSampler.create(config.getProbability());
 		}
 		return brave.sampler.RateLimitingSampler.create(config.getRate());
 	}
 
+	static Sampler adaptiveSampler(SamplerProperties config) {
+		return new AdaptiveSampler(() -> config.getAdaptive().getTargetRate(), config.getAdaptive().getWindow());
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@Conditional(SamplerCondition.class)
 	@ConditionalOnBean(type = "org.springframework.cloud.context.scope.refresh.RefreshScope")
@@ -79,6 +95,9 @@ class BraveSamplerConfiguration {
 		private Sampler sampler(SamplerProperties config) {
 			// TODO: Rewrite: refresh should replace the sampler, not change its state
 			// internally
+			if (config.getAdaptive().getTargetRate() != null) {
+				return adaptiveSampler(config);
+			}
 			if (config.getProbability() != null) {
 				return new ProbabilityBasedSampler(config::getProbability);
 			}
@@ -100,4 +119,49 @@ class BraveSamplerConfiguration {
 
 	}
 
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnProperty("spring.sleuth.sampler.adaptive.target-rate")
+	protected static class AdaptiveSamplerMetricsConfiguration {
+
+		/**
+		 * Registers gauges of the adaptive sampler. The sampler bean is resolved once,
+		 * when all singletons are created. A refresh scoped sampler is resolved to its
+		 * proxy, whose current target is read by the gauges, since a refresh replaces it.
+		 * @param meterRegistry meter registry
+		 * @param samplers sampler beans
+		 * @return registration of the sampler metrics
+		 */
+		@Bean
+		SmartInitializingSingleton adaptiveSamplerMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+				ObjectProvider<Sampler> samplers) {
+			return () -> {
+				MeterRegistry registry = meterRegistry.getIfAvailable();
+				if (registry == null) {
+					return;
+				}
+				Sampler sampler = samplers.orderedStream().filter(s -> adaptiveSampler(s).isPresent()).findFirst()
+						.orElse(null);
+				if (sampler == null) {
+					return;
+				}
+				Gauge.builder("sleuth.sampler.adaptive.probability", sampler,
+						s -> adaptiveSampler(s).map(AdaptiveSampler::getProbability).orElse(Double.NaN))
+						.strongReference(true).register(registry);
+				Gauge.builder("sleuth.sampler.adaptive.sampled.rate", sampler,
+						s -> adaptiveSampler(s).map(AdaptiveSampler::getSampledRate).orElse(Double.NaN))
+						.baseUnit("traces/s").strongReference(true).register(registry);
+				Gauge.builder("sleuth.sampler.adaptive.incoming.rate", sampler,
+						s -> adaptiveSampler(s).map(AdaptiveSampler::getIncomingRate).orElse(Double.NaN))
+						.baseUnit("traces/s").strongReference(true).register(registry);
+			};
+		}
+
+		private static Optional<AdaptiveSampler> adaptiveSampler(Sampler sampler) {
+			Object target = sampler instanceof ScopedObject ? ((ScopedObject) sampler).getTargetObject() : sampler;
+			return target instanceof AdaptiveSampler ? Optional.of((AdaptiveSampler) target) : Optional.empty();
+		}
+
+	}
+
 }
@@ -16,6 +16,10 @@
 
 package org.springframework.cloud.sleuth.autoconfig.brave;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -30,8 +34,7 @@ public class SamplerProperties {
 
 	/**
 	 * Probability of requests that should be sampled. E.g. 1.0 - 100% requests should be
-	 * sampled. The precision is whole-numbers only (i.e. there's no support for 0.1% of
-	 * the traces).
+	 * sampled. The precision is 0.01% of the traces.
 	 */
 	private Float probability;
 
@@ -47,6 +50,10 @@ public class SamplerProperties {
 	 */
 	private Integer rate = 10;
 
+	private Adaptive adaptive = new Adaptive();
+
+	private Rules rules = new Rules();
+
 	public Float getProbability() {
 		return this.probability;
 	}
@@ -63,4 +70,228 @@ public class SamplerProperties {
 		this.rate = rate;
 	}
 
+	public Adaptive getAdaptive() {
+		return this.adaptive;
+	}
+
+	public void setAdaptive(Adaptive adaptive) {
+		this.adaptive = adaptive;
+	}
+
+	public Rules getRules() {
+		return this.rules;
+	}
+
+	public void setRules(Rules rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Sampling that adjusts the probability to the load.
+	 */
+	public static class Adaptive {
+
+		/**
+		 * Number of traces per second that should be sampled, regardless of how many
+		 * requests come in. When set, takes precedence over the probability and the
+		 * rate.
+		 */
+		private Integer targetRate;
+
+		/**
+		 * Length of the window after which the probability is recomputed.
+		 */
+		private Duration window = Duration.ofSeconds(1);
+
+		public Integer getTargetRate() {
+			return this.targetRate;
+		}
+
+		public void setTargetRate(Integer targetRate) {
+			this.targetRate = targetRate;
+		}
+
+		public Duration getWindow() {
+			return this.window;
+		}
+
+		public void setWindow(Duration window) {
+			this.window = window;
+		}
+
+	}
+
+	/**
+	 * Sampling rules per endpoint or destination. Each rule has its own probability or
+	 * rate. Requests that match no rule are sampled as without rules. The rules apply to
+	 * both sides: HTTP and RPC rules to clients and servers, messaging rules to producers
+	 * and consumers. Rules are checked before the HTTP skip patterns, so a request that
+	 * matches a rule is sampled by it even when its path is skipped. When several rules
+	 * match, the most specific one wins, see
+	 * {@link org.springframework.cloud.sleuth.brave.sampler.RuleBasedSamplerFunction}.
+	 */
+	public static class Rules {
+
+		/**
+		 * Rules for HTTP requests.
+		 */
+		private List<HttpRule> http = new ArrayList<>();
+
+		/**
+		 * Rules for messages.
+		 */
+		private List<MessagingRule> messaging = new ArrayList<>();
+
+		/**
+		 * Rules for RPC requests.
+		 */
+		private List<RpcRule> rpc = new ArrayList<>();
+
+		public List<HttpRule> getHttp() {
+			return this.http;
+		}
+
+		public void setHttp(List<HttpRule> http) {
+			this.http = http;
+		}
+
+		public List<MessagingRule> getMessaging() {
+			return this.messaging;
+		}
+
+		public void setMessaging(List<MessagingRule> messaging) {
+			this.messaging = messaging;
+		}
+
+		public List<RpcRule> getRpc() {
+			return this.rpc;
+		}
+
+		public void setRpc(List<RpcRule> rpc) {
+			this.rpc = rpc;
+		}
+
+	}
+
+	/**
+	 * Sampling of requests matching a rule.
+	 */
+	public abstract static class Rule {
+
+		/**
+		 * Probability of matching requests that should be sampled. Takes precedence over
+		 * the rate.
+		 */
+		private Float probability;
+
+		/**
+		 * Maximum number of matching requests per second that should be sampled.
+		 */
+		private Integer rate;
+
+		public Float getProbability() {
+			return this.probability;
+		}
+
+		public void setProbability(Float probability) {
+			this.probability = probability;
+		}
+
+		public Integer getRate() {
+			return this.rate;
+		}
+
+		public void setRate(Integer rate) {
+			this.rate = rate;
+		}
+
+	}
+
+	/**
+	 * Sampling rule for HTTP requests.
+	 */
+	public static class HttpRule extends Rule {
+
+		/**
+		 * HTTP method, * for any.
+		 */
+		private String method = "*";
+
+		/**
+		 * Path template, e.g. /users/{id}. * and {name} match a single segment, a
+		 * trailing ** all remaining segments.
+		 */
+		private String path;
+
+		public String getMethod() {
+			return this.method;
+		}
+
+		public void setMethod(String method) {
+			this.method = method;
+		}
+
+		public String getPath() {
+			return this.path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+	}
+
+	/**
+	 * Sampling rule for messages.
+	 */
+	public static class MessagingRule extends Rule {
+
+		/**
+		 * Name of the queue or topic, * for any.
+		 */
+		private String destination;
+
+		public String getDestination() {
+			return this.destination;
+		}
+
+		public void setDestination(String destination) {
+			this.destination = destination;
+		}
+
+	}
+
+	/**
+	 * Sampling rule for RPC requests.
+	 */
+	public static class RpcRule extends Rule {
+
+		/**
+		 * RPC service, * for any.
+		 */
+		private String service = "*";
+
+		/**
+		 * RPC method, * for any.
+		 */
+		private String method = "*";
+
+		public String getService() {
+			return this.service;
+		}
+
+		public void setService(String service) {
+			this.service = service;
+		}
+
+		public String getMethod() {
+			return this.method;
+		}
+
+		public void setMethod(String method) {
+			this.method = method;
+		}
+
+	}
+
 }
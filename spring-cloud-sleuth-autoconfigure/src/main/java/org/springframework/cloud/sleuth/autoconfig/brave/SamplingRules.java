@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.brave;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import brave.http.HttpRequest;
+import brave.messaging.MessagingRequest;
+import brave.rpc.RpcRequest;
+import brave.sampler.SamplerFunction;
+
+import org.springframework.cloud.sleuth.brave.sampler.RuleBasedSamplerFunction;
+import org.springframework.lang.Nullable;
+
+/**
+ * Creates {@link RuleBasedSamplerFunction}s from {@link SamplerProperties.Rules}.
+ *
+ * @since 3.1.10
+ */
+public final class SamplingRules {
+
+	private SamplingRules() {
+		throw new IllegalStateException("Can't instantiate a utility class");
+	}
+
+	/**
+	 * @param rules sampling rules
+	 * @param fallback sampler to use when no rule matches
+	 * @return sampler with HTTP rules or the fallback when there are no rules
+	 */
+	@Nullable
+	public static SamplerFunction<HttpRequest> http(SamplerProperties.Rules rules,
+			@Nullable SamplerFunction<HttpRequest> fallback) {
+		if (rules.getHttp().isEmpty()) {
+			return fallback;
+		}
+		List<RuleBasedSamplerFunction.Rule> httpRules = rules.getHttp().stream()
+				.map(rule -> rule(rule, rule.getMethod(), rule.getPath())).collect(Collectors.toList());
+		return RuleBasedSamplerFunction.http(httpRules, fallback);
+	}
+
+	/**
+	 * @param rules sampling rules
+	 * @param fallback sampler to use when no rule matches
+	 * @return sampler with messaging rules or the fallback when there are no rules
+	 */
+	@Nullable
+	public static SamplerFunction<MessagingRequest> messaging(SamplerProperties.Rules rules,
+			@Nullable SamplerFunction<MessagingRequest> fallback) {
+		if (rules.getMessaging().isEmpty()) {
+			return fallback;
+		}
+		List<RuleBasedSamplerFunction.Rule> messagingRules = rules.getMessaging().stream()
+				.map(rule -> rule(rule, rule.getDestination(), null)).collect(Collectors.toList());
+		return RuleBasedSamplerFunction.messaging(messagingRules, fallback);
+	}
+
+	/**
+	 * @param rules sampling rules
+	 * @param fallback sampler to use when no rule matches
+	 * @return sampler with RPC rules or the fallback when there are no rules
+	 */
+	@Nullable
+	public static SamplerFunction<RpcRequest> rpc(SamplerProperties.Rules rules,
+			@Nullable SamplerFunction<RpcRequest> fallback) {
+		if (rules.getRpc().isEmpty()) {
+			return fallback;
+		}
+		List<RuleBasedSamplerFunction.Rule> rpcRules = rules.getRpc().stream()
+				.map(rule -> rule(rule, rule.getService(), rule.getMethod())).collect(Collectors.toList());
+		return RuleBasedSamplerFunction.rpc(rpcRules, fallback);
+	}
+
+	private static RuleBasedSamplerFunction.Rule rule(SamplerProperties.Rule rule, String first, String second) {
+		if (rule.getProbability() != null) {
+			return RuleBasedSamplerFunction.Rule.probability(first, second, rule.getProbability());
+		}
+		if (rule.getRate() != null) {
+			return RuleBasedSamplerFunction.Rule.rate(first, second, rule.getRate());
+		}
+		String name = second != null ? first + " " + second : first;
+		throw new IllegalStateException("Sampling rule for [" + name + "] has neither a probability nor a rate");
+	}
+
+}
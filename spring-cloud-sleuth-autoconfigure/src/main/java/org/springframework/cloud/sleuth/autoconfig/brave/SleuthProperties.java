@@ -16,6 +16,10 @@
 
 package org.springframework.cloud.sleuth.autoconfig.brave;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -38,6 +42,15 @@ public class SleuthProperties {
 	 */
 	private boolean supportsJoin = true;
 
+	/**
+	 * Size of the queue of finished spans that are passed to span reporters on a
+	 * separate thread. Spans are dropped when the queue is full. 0 means that spans are
+	 * reported on the thread that ends them.
+	 */
+	private int reporterQueueSize = 0;
+
+	private TailSampling tailSampling = new TailSampling();
+
 	public boolean isEnabled() {
 		return this.enabled;
 	}
@@ -62,4 +75,109 @@ public class SleuthProperties {
 		this.supportsJoin = supportsJoin;
 	}
 
+	public int getReporterQueueSize() {
+		return this.reporterQueueSize;
+	}
+
+	public void setReporterQueueSize(int reporterQueueSize) {
+		this.reporterQueueSize = reporterQueueSize;
+	}
+
+	public TailSampling getTailSampling() {
+		return this.tailSampling;
+	}
+
+	public void setTailSampling(TailSampling tailSampling) {
+		this.tailSampling = tailSampling;
+	}
+
+	/**
+	 * Local tail sampling. Spans of traces that were not sampled are recorded and kept
+	 * in memory. They are reported only if a span of the trace has an error, is slow or
+	 * has a matching tag.
+	 */
+	public static class TailSampling {
+
+		/**
+		 * Enables tail sampling in front of the span reporters.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * How long the spans of a trace are kept while waiting for an interesting span.
+		 */
+		private Duration decisionWait = Duration.ofSeconds(30);
+
+		/**
+		 * Maximum number of traces kept in memory. Spans of new traces are dropped when
+		 * the buffer is full.
+		 */
+		private int maxTraces = 10_000;
+
+		/**
+		 * Maximum number of spans kept in memory per trace. Further spans of the trace
+		 * are dropped unless they make the trace interesting.
+		 */
+		private int maxSpansPerTrace = 1_000;
+
+		/**
+		 * Minimum duration of a span that makes its trace interesting.
+		 */
+		private Duration latencyThreshold;
+
+		/**
+		 * Tag keys and value patterns that make a trace interesting.
+		 */
+		private Map<String, String> tags = new HashMap<>();
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getDecisionWait() {
+			return this.decisionWait;
+		}
+
+		public void setDecisionWait(Duration decisionWait) {
+			this.decisionWait = decisionWait;
+		}
+
+		public int getMaxTraces() {
+			return this.maxTraces;
+		}
+
+		public void setMaxTraces(int maxTraces) {
+			this.maxTraces = maxTraces;
+		}
+
+		public int getMaxSpansPerTrace() {
+			return this.maxSpansPerTrace;
+		}
+
+		public void setMaxSpansPerTrace(int maxSpansPerTrace) {
+			this.maxSpansPerTrace = maxSpansPerTrace;
+		}
+
+		public Duration getLatencyThreshold() {
+			return this.latencyThreshold;
+		}
+
+		public void setLatencyThreshold(Duration latencyThreshold) {
+			this.latencyThreshold = latencyThreshold;
+		}
+
+		public Map<String, String> getTags() {
+			return this.tags;
+		}
+
+		public void setTags(Map<String, String> tags) {
+			this.tags = tags;
+		}
+
+	}
+
 }
@@ -36,6 +36,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.sleuth.autoconfig.brave.SamplerProperties;
+import org.springframework.cloud.sleuth.autoconfig.brave.SamplingRules;
 import org.springframework.cloud.sleuth.autoconfig.instrument.messaging.SleuthMessagingProperties;
 import org.springframework.cloud.sleuth.brave.instrument.messaging.ConditionalOnMessagingEnabled;
 import org.springframework.cloud.sleuth.brave.instrument.messaging.ConsumerSampler;
@@ -64,7 +66,7 @@ import org.springframework.lang.Nullable;
 @ConditionalOnClass(MessagingTracing.class)
 @ConditionalOnMessagingEnabled
 @ConditionalOnBean(Tracing.class)
-@EnableConfigurationProperties(SleuthMessagingProperties.class)
+@EnableConfigurationProperties({ SleuthMessagingProperties.class, SamplerProperties.class })
 public class BraveMessagingAutoConfiguration {
 
 	@Bean
@@ -73,14 +75,19 @@ public class BraveMessagingAutoConfiguration {
 	MessagingTracing messagingTracing(Tracing tracing,
 			@Nullable @ProducerSampler SamplerFunction<MessagingRequest> producerSampler,
 			@Nullable @ConsumerSampler SamplerFunction<MessagingRequest> consumerSampler,
-			@Nullable List<MessagingTracingCustomizer> messagingTracingCustomizers) {
+			@Nullable List<MessagingTracingCustomizer> messagingTracingCustomizers,
+			SamplerProperties samplerProperties) {
 
 		MessagingTracing.Builder builder = MessagingTracing.newBuilder(tracing);
-		if (producerSampler != null) {
-			builder.producerSampler(producerSampler);
+		SamplerFunction<MessagingRequest> producer = SamplingRules.messaging(samplerProperties.getRules(),
+				producerSampler);
+		if (producer != null) {
+			builder.producerSampler(producer);
 		}
-		if (consumerSampler != null) {
-			builder.consumerSampler(consumerSampler);
+		SamplerFunction<MessagingRequest> consumer = SamplingRules.messaging(samplerProperties.getRules(),
+				consumerSampler);
+		if (consumer != null) {
+			builder.consumerSampler(consumer);
 		}
 		if (messagingTracingCustomizers != null) {
 			for (MessagingTracingCustomizer customizer : messagingTracingCustomizers) {
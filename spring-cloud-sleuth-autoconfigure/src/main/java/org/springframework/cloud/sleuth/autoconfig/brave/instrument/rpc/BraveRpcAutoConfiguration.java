@@ -29,7 +29,10 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.sleuth.autoconfig.brave.BraveAutoConfiguration;
+import org.springframework.cloud.sleuth.autoconfig.brave.SamplerProperties;
+import org.springframework.cloud.sleuth.autoconfig.brave.SamplingRules;
 import org.springframework.cloud.sleuth.brave.instrument.rpc.RpcClientSampler;
 import org.springframework.cloud.sleuth.brave.instrument.rpc.RpcServerSampler;
 import org.springframework.context.annotation.Bean;
@@ -47,6 +50,7 @@ import org.springframework.lang.Nullable;
 @ConditionalOnBean(Tracing.class)
 @ConditionalOnClass(RpcTracing.class)
 @AutoConfigureAfter(BraveAutoConfiguration.class)
+@EnableConfigurationProperties(SamplerProperties.class)
 public class BraveRpcAutoConfiguration {
 
 	@Bean
@@ -54,13 +58,15 @@ public class BraveRpcAutoConfiguration {
 	// NOTE: stable bean name as might be used outside sleuth
 	RpcTracing rpcTracing(Tracing tracing, @Nullable @RpcClientSampler SamplerFunction<RpcRequest> clientSampler,
 			@Nullable @RpcServerSampler SamplerFunction<RpcRequest> serverSampler,
-			@Nullable List<RpcTracingCustomizer> rpcTracingCustomizers) {
+			@Nullable List<RpcTracingCustomizer> rpcTracingCustomizers, SamplerProperties samplerProperties) {
 		RpcTracing.Builder builder = RpcTracing.newBuilder(tracing);
-		if (clientSampler != null) {
-			builder.clientSampler(clientSampler);
+		SamplerFunction<RpcRequest> client = SamplingRules.rpc(samplerProperties.getRules(), clientSampler);
+		if (client != null) {
+			builder.clientSampler(client);
 		}
-		if (serverSampler != null) {
-			builder.serverSampler(serverSampler);
+		SamplerFunction<RpcRequest> server = SamplingRules.rpc(samplerProperties.getRules(), serverSampler);
+		if (server != null) {
+			builder.serverSampler(server);
 		}
 		if (rpcTracingCustomizers != null) {
 			for (RpcTracingCustomizer customizer : rpcTracingCustomizers) {
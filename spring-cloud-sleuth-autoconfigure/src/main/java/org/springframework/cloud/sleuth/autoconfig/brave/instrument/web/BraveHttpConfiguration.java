@@ -35,6 +35,8 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.sleuth.autoconfig.brave.SamplerProperties;
+import org.springframework.cloud.sleuth.autoconfig.brave.SamplingRules;
 import org.springframework.cloud.sleuth.autoconfig.instrument.web.ConditionalOnSleuthHttp;
 import org.springframework.cloud.sleuth.autoconfig.instrument.web.SleuthHttpProperties;
 import org.springframework.cloud.sleuth.autoconfig.instrument.web.SleuthWebProperties;
@@ -70,7 +72,7 @@ import org.springframework.lang.Nullable;
 @Configuration(proxyBeanMethods = false)
 @ConditionalOnSleuthHttp
 @ConditionalOnClass(HttpTracing.class)
-@EnableConfigurationProperties({ SleuthWebProperties.class, SleuthHttpProperties.class })
+@EnableConfigurationProperties({ SleuthWebProperties.class, SleuthHttpProperties.class, SamplerProperties.class })
 @Import(BraveHttpBridgeConfiguration.class)
 public class BraveHttpConfiguration {
 
@@ -79,8 +81,9 @@ public class BraveHttpConfiguration {
 	// NOTE: stable bean name as might be used outside sleuth
 	HttpTracing httpTracing(Tracing tracing, @Nullable SkipPatternProvider provider,
 			@Nullable brave.http.HttpClientParser clientParser, @Nullable brave.http.HttpServerParser serverParser,
-			BeanFactory beanFactory, @Nullable List<HttpTracingCustomizer> httpTracingCustomizers) {
-		HttpTracing.Builder builder = httpTracingBuilder(tracing, provider, beanFactory);
+			BeanFactory beanFactory, @Nullable List<HttpTracingCustomizer> httpTracingCustomizers,
+			SamplerProperties samplerProperties) {
+		HttpTracing.Builder builder = httpTracingBuilder(tracing, provider, beanFactory, samplerProperties.getRules());
 		brave.http.HttpRequestParser httpClientRequestParser = httpRequestParser(beanFactory,
 				HttpClientRequestParser.NAME);
 		brave.http.HttpResponseParser httpClientResponseParser = httpResponseParser(beanFactory,
@@ -132,12 +135,13 @@ public class BraveHttpConfiguration {
 
 	@NotNull
 	private HttpTracing.Builder httpTracingBuilder(Tracing tracing, @Nullable SkipPatternProvider provider,
-			BeanFactory beanFactory) {
-		SamplerFunction<HttpRequest> httpClientSampler = toBraveSampler(beanFactory, HttpClientSampler.NAME);
-		SamplerFunction<HttpRequest> httpServerSampler = httpServerSampler(beanFactory);
-		SamplerFunction<HttpRequest> combinedSampler = combineUserProvidedSamplerWithSkipPatternSampler(
-				httpServerSampler, provider);
-		return HttpTracing.newBuilder(tracing).clientSampler(httpClientSampler).serverSampler(combinedSampler);
+			BeanFactory beanFactory, SamplerProperties.Rules rules) {
+		SamplerFunction<HttpRequest> httpClientSampler = SamplingRules.http(rules,
+				toBraveSampler(beanFactory, HttpClientSampler.NAME));
+		// rules take precedence over the skip pattern, like they do for clients
+		SamplerFunction<HttpRequest> httpServerSampler = SamplingRules.http(rules,
+				combineUserProvidedSamplerWithSkipPatternSampler(httpServerSampler(beanFactory), provider));
+		return HttpTracing.newBuilder(tracing).clientSampler(httpClientSampler).serverSampler(httpServerSampler);
 	}
 
 	@Nullable
@@ -113,7 +113,15 @@ public class SleuthReactorProperties {
 		/**
 		 * Does not automatically wrap any operators.
 		 */
-		MANUAL;
+		MANUAL,
+
+		/**
+		 * Like {@link #MANUAL}, and additionally stores the tracing context current at
+		 * subscription time in the Reactor context. Signals are never wrapped in a
+		 * scope, thread local context (and MDC) has to be restored explicitly via
+		 * {@code WebFluxSleuthOperators}.
+		 */
+		CONTEXT_ONLY;
 
 	}
 
@@ -20,6 +20,8 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.function.Function;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
@@ -28,6 +30,8 @@ import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
@@ -42,6 +46,7 @@ import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEven
 import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.cloud.sleuth.autoconfig.brave.BraveAutoConfiguration;
 import org.springframework.cloud.sleuth.instrument.reactor.ReactorSleuth;
+import org.springframework.cloud.sleuth.instrument.reactor.TraceScheduleHook;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationListener;
@@ -100,6 +105,35 @@ public class TraceReactorAutoConfiguration {
 			return ReflectionUtils.findMethod(Hooks.class, "addQueueWrapper", String.class, Function.class) != null;
 		}
 
+		@Configuration(proxyBeanMethods = false)
+		@ConditionalOnClass(MeterRegistry.class)
+		static class TraceReactorMetricsConfiguration {
+
+			/**
+			 * Registers counters of tasks scheduled with and without a trace context, if
+			 * the instrumentation type registered the schedule hook of this context.
+			 * @param meterRegistry meter registry
+			 * @param scheduleHook schedule hook of this context
+			 * @return registration of the schedule hook metrics
+			 */
+			@Bean
+			SmartInitializingSingleton sleuthReactorScheduleHookMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+					ObjectProvider<TraceScheduleHook> scheduleHook) {
+				return () -> {
+					MeterRegistry registry = meterRegistry.getIfAvailable();
+					TraceScheduleHook hook = scheduleHook.getIfAvailable();
+					if (registry == null || hook == null) {
+						return;
+					}
+					FunctionCounter.builder("sleuth.reactor.scheduled.tasks", hook,
+							TraceScheduleHook::tasksWithTraceContext).tag("traced", "true").register(registry);
+					FunctionCounter.builder("sleuth.reactor.scheduled.tasks", hook,
+							TraceScheduleHook::tasksWithoutTraceContext).tag("traced", "false").register(registry);
+				};
+			}
+
+		}
+
 		@Configuration(proxyBeanMethods = false)
 		@ConditionalOnClass(RefreshScope.class)
 		static class HooksRefresherConfiguration {
@@ -147,7 +181,7 @@ class HooksRefresher implements ApplicationListener<RefreshScopeRefreshedEvent>
 				HookRegisteringBeanFactoryPostProcessor.addQueueWrapper(context);
 				Hooks.onLastOperator(SLEUTH_TRACE_REACTOR_KEY, ReactorSleuth.scopePassingSpanOperator(this.context));
 				Schedulers.onScheduleHook(TraceReactorAutoConfiguration.SLEUTH_REACTOR_EXECUTOR_SERVICE_KEY,
-						ReactorSleuth.scopePassingOnScheduleHook(this.context));
+						HookRegisteringBeanFactoryPostProcessor.scheduleHook(this.context));
 			}
 		case DECORATE_ON_EACH:
 			if (log.isTraceEnabled()) {
@@ -158,7 +192,7 @@ class HooksRefresher implements ApplicationListener<RefreshScopeRefreshedEvent>
 			Hooks.onLastOperator(SLEUTH_TRACE_REACTOR_KEY,
 					ReactorSleuth.onLastOperatorForOnEachInstrumentation(this.context));
 			Schedulers.onScheduleHook(TraceReactorAutoConfiguration.SLEUTH_REACTOR_EXECUTOR_SERVICE_KEY,
-					ReactorSleuth.scopePassingOnScheduleHook(this.context));
+					HookRegisteringBeanFactoryPostProcessor.scheduleHook(this.context));
 			break;
 		case DECORATE_ON_LAST:
 			if (log.isTraceEnabled()) {
@@ -169,6 +203,9 @@ class HooksRefresher implements ApplicationListener<RefreshScopeRefreshedEvent>
 		case MANUAL:
 			Hooks.onLastOperator(SLEUTH_TRACE_REACTOR_KEY, ReactorSleuth.springContextSpanOperator(this.context));
 			break;
+		case CONTEXT_ONLY:
+			Hooks.onLastOperator(SLEUTH_TRACE_REACTOR_KEY, ReactorSleuth.contextPassingSpanOperator(this.context));
+			break;
 		}
 	}
 
@@ -178,6 +215,8 @@ class HookRegisteringBeanFactoryPostProcessor implements BeanFactoryPostProcesso
 
 	private static final Log log = LogFactory.getLog(HookRegisteringBeanFactoryPostProcessor.class);
 
+	static final String SCHEDULE_HOOK_BEAN_NAME = "traceReactorScheduleHook";
+
 	private ConfigurableApplicationContext springContext;
 
 	@Override
@@ -189,9 +228,7 @@ class HookRegisteringBeanFactoryPostProcessor implements BeanFactoryPostProcesso
 
 	static void setupHooks(ConfigurableApplicationContext springContext) {
 		ConfigurableEnvironment environment = springContext.getEnvironment();
-		SleuthReactorProperties.InstrumentationType property = environment.getProperty(
-				"spring.sleuth.reactor.instrumentation-type", SleuthReactorProperties.InstrumentationType.class,
-				SleuthReactorProperties.InstrumentationType.DECORATE_ON_EACH);
+		SleuthReactorProperties.InstrumentationType property = instrumentationType(environment);
 		if (wrapperNotOnClasspathHooksPropertyTurnedOn(property)) {
 			log.warn(
 					"You have explicitly set the decorate hooks option but you're using an old version of Reactor. Please upgrade to the latest Boot version (at least 2.4.3). Will fall back to the previous reactor instrumentation mode");
@@ -203,9 +240,7 @@ class HookRegisteringBeanFactoryPostProcessor implements BeanFactoryPostProcesso
 			decorateScheduler(springContext);
 		}
 		else {
-			Boolean decorateOnEach = environment.getProperty("spring.sleuth.reactor.decorate-on-each", Boolean.class,
-					true);
-			if (!decorateOnEach) {
+			if (!decorateOnEach(environment)) {
 				log.warn(
 						"You're using the deprecated [spring.sleuth.reactor.decorate-on-each] property. Please use the [spring.sleuth.reactor.instrumentation-type] one instead.");
 				decorateOnLast(ReactorSleuth.scopePassingSpanOperator(springContext));
@@ -222,9 +257,23 @@ class HookRegisteringBeanFactoryPostProcessor implements BeanFactoryPostProcesso
 			else if (property == SleuthReactorProperties.InstrumentationType.MANUAL) {
 				decorateOnLast(ReactorSleuth.springContextSpanOperator(springContext));
 			}
+			else if (property == SleuthReactorProperties.InstrumentationType.CONTEXT_ONLY) {
+				decorateOnLast(ReactorSleuth.contextPassingSpanOperator(springContext));
+			}
 		}
 	}
 
+	private static SleuthReactorProperties.InstrumentationType instrumentationType(
+			ConfigurableEnvironment environment) {
+		return environment.getProperty("spring.sleuth.reactor.instrumentation-type",
+				SleuthReactorProperties.InstrumentationType.class,
+				SleuthReactorProperties.InstrumentationType.DECORATE_ON_EACH);
+	}
+
+	private static boolean decorateOnEach(ConfigurableEnvironment environment) {
+		return environment.getProperty("spring.sleuth.reactor.decorate-on-each", Boolean.class, true);
+	}
+
 	private static boolean wrapperNotOnClasspathHooksPropertyTurnedOn(
 			SleuthReactorProperties.InstrumentationType property) {
 		return property == SleuthReactorProperties.InstrumentationType.DECORATE_QUEUES
@@ -233,7 +282,25 @@ class HookRegisteringBeanFactoryPostProcessor implements BeanFactoryPostProcesso
 
 	private static void decorateScheduler(ConfigurableApplicationContext springContext) {
 		Schedulers.onScheduleHook(TraceReactorAutoConfiguration.SLEUTH_REACTOR_EXECUTOR_SERVICE_KEY,
-				ReactorSleuth.scopePassingOnScheduleHook(springContext));
+				scheduleHook(springContext));
+	}
+
+	/**
+	 * Creates the schedule hook of the Spring context once and registers it as a
+	 * singleton, so that the task counts of the hook survive the hooks being registered
+	 * again on refresh, and the metrics can be registered against it.
+	 * @param springContext the Spring context
+	 * @return schedule hook of the Spring context
+	 */
+	@SuppressWarnings("unchecked")
+	static Function<Runnable, Runnable> scheduleHook(ConfigurableApplicationContext springContext) {
+		ConfigurableListableBeanFactory beanFactory = springContext.getBeanFactory();
+		Object hook = beanFactory.getSingleton(SCHEDULE_HOOK_BEAN_NAME);
+		if (hook == null) {
+			hook = ReactorSleuth.scopePassingOnScheduleHook(springContext);
+			beanFactory.registerSingleton(SCHEDULE_HOOK_BEAN_NAME, hook);
+		}
+		return (Function<Runnable, Runnable>) hook;
 	}
 
 	private static void decorateOnLast(Function<? super Publisher<Object>, ? extends Publisher<Object>> function) {
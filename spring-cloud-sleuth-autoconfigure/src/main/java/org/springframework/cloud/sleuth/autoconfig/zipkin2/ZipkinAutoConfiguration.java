@@ -16,12 +16,19 @@
 
 package org.springframework.cloud.sleuth.autoconfig.zipkin2;
 
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,7 +41,9 @@ import zipkin2.reporter.ReporterMetrics;
 import zipkin2.reporter.Sender;
 import zipkin2.reporter.metrics.micrometer.MicrometerReporterMetrics;
 
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -52,6 +61,9 @@ import org.springframework.cloud.sleuth.autoconfig.brave.BraveAutoConfiguration;
 import org.springframework.cloud.sleuth.zipkin2.DefaultEndpointLocator;
 import org.springframework.cloud.sleuth.zipkin2.DefaultZipkinRestTemplateCustomizer;
 import org.springframework.cloud.sleuth.zipkin2.EndpointLocator;
+import org.springframework.cloud.sleuth.zipkin2.ShardedReporter;
+import org.springframework.cloud.sleuth.zipkin2.SpanSpool;
+import org.springframework.cloud.sleuth.zipkin2.SpoolingSender;
 import org.springframework.cloud.sleuth.zipkin2.ZipkinProperties;
 import org.springframework.cloud.sleuth.zipkin2.ZipkinRestTemplateCustomizer;
 import org.springframework.context.annotation.Bean;
@@ -125,23 +137,40 @@ public class ZipkinAutoConfiguration {
 	@Bean(REPORTER_BEAN_NAME)
 	@ConditionalOnMissingBean(name = REPORTER_BEAN_NAME)
 	Reporter<Span> reporter(ReporterMetrics reporterMetrics, ZipkinProperties zipkin,
-			@Qualifier(SENDER_BEAN_NAME) Sender sender) {
-		checkResult(zipkinExecutor, sender, zipkin.getCheckTimeout());
-
-		// Note: AsyncReporter supports memory bounds
-		AsyncReporter<Span> asyncReporter = AsyncReporter.builder(sender).queuedMaxSpans(zipkin.getQueuedMaxSpans())
-				.messageTimeout(zipkin.getMessageTimeout(), TimeUnit.SECONDS).metrics(reporterMetrics)
-				.build(zipkin.getEncoder());
+			@Qualifier(SENDER_BEAN_NAME) Sender zipkinSender, ObjectProvider<SpanSpool> spanSpool) {
+		checkResult(zipkinExecutor, zipkinSender, zipkin.getCheckTimeout());
+
+		SpanSpool spool = spanSpool.getIfAvailable();
+		Sender sender = spool != null
+				? new SpoolingSender(zipkinSender, spool, zipkin.getSpool().getReplayMessages()) : zipkinSender;
+
+		Reporter<Span> reporter;
+		Flushable flushable;
+		Closeable closeable;
+		int reporterThreads = zipkin.getReporterThreads();
+		if (reporterThreads > 1) {
+			ShardedReporter shardedReporter = new ShardedReporter(reporterThreads, reporterMetrics,
+					metrics -> asyncReporter(sender, zipkin, reporterThreads, metrics));
+			reporter = shardedReporter;
+			flushable = shardedReporter;
+			closeable = shardedReporter::close;
+		}
+		else {
+			AsyncReporter<Span> asyncReporter = asyncReporter(sender, zipkin, 1, reporterMetrics);
+			reporter = asyncReporter;
+			flushable = asyncReporter;
+			closeable = asyncReporter::close;
+		}
 
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			@Override
 			public void run() {
 				log.info("Flushing remaining spans on shutdown");
-				asyncReporter.flush();
 				try {
+					flushable.flush();
 					Thread.sleep(TimeUnit.SECONDS.toMillis(zipkin.getMessageTimeout()) + 500);
 					log.debug("Flushing done - closing the reporter");
-					asyncReporter.close();
+					closeable.close();
 				}
 				catch (Exception e) {
 					throw new IllegalStateException(e);
@@ -149,7 +178,41 @@ public class ZipkinAutoConfiguration {
 			}
 		});
 
-		return asyncReporter;
+		return reporter;
+	}
+
+	/**
+	 * Creates one of {@code shards} reporters. The queue limits are divided between the
+	 * shards, so that together they don't hold more than a single reporter would.
+	 */
+	static AsyncReporter<Span> asyncReporter(Sender sender, ZipkinProperties zipkin, int shards,
+			ReporterMetrics reporterMetrics) {
+		// Note: AsyncReporter supports memory bounds
+		AsyncReporter.Builder builder = AsyncReporter.builder(sender)
+				.queuedMaxSpans(Math.max(1, zipkin.getQueuedMaxSpans() / shards))
+				.queuedMaxBytes(queuedMaxBytes(zipkin, shards))
+				.messageTimeout(zipkin.getMessageTimeout(), TimeUnit.SECONDS).metrics(reporterMetrics);
+		if (zipkin.getMessageMaxBytes() != null) {
+			builder.messageMaxBytes(zipkin.getMessageMaxBytes());
+		}
+		return builder.build(zipkin.getEncoder());
+	}
+
+	static int queuedMaxBytes(ZipkinProperties zipkin, int shards) {
+		// same default as the AsyncReporter's, 1% of the heap
+		long queuedMaxBytes = zipkin.getQueuedMaxBytes() != null ? zipkin.getQueuedMaxBytes()
+				: (long) (Runtime.getRuntime().totalMemory() * 0.01);
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, queuedMaxBytes / shards));
+	}
+
+	@Bean(destroyMethod = "close")
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("spring.zipkin.spool.enabled")
+	SpanSpool zipkinSpanSpool(ZipkinProperties zipkin) throws IOException {
+		ZipkinProperties.Spool spool = zipkin.getSpool();
+		Path directory = spool.getDirectory() != null ? Paths.get(spool.getDirectory())
+				: Paths.get(System.getProperty("java.io.tmpdir"), "sleuth-zipkin-spool");
+		return new SpanSpool(directory, spool.getSegmentSize(), spool.getMaxBytes());
 	}
 
 	private static void logCheckResult(Sender sender, CheckResult checkResult) {
@@ -244,6 +307,56 @@ public class ZipkinAutoConfiguration {
 	@ConditionalOnClass(MeterRegistry.class)
 	static class TraceMetricsMicrometerConfiguration {
 
+		@Bean
+		@ConditionalOnProperty("spring.zipkin.spool.enabled")
+		SmartInitializingSingleton zipkinSpanSpoolMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+				ObjectProvider<SpanSpool> spanSpoolProvider) {
+			return () -> {
+				MeterRegistry registry = meterRegistry.getIfAvailable();
+				SpanSpool spanSpool = spanSpoolProvider.getIfAvailable();
+				if (registry == null || spanSpool == null) {
+					return;
+				}
+				FunctionCounter.builder("zipkin.reporter.spool.bytes.spooled", spanSpool, SpanSpool::spooledBytes)
+						.baseUnit("bytes").register(registry);
+				FunctionCounter.builder("zipkin.reporter.spool.bytes.replayed", spanSpool, SpanSpool::replayedBytes)
+						.baseUnit("bytes").register(registry);
+				FunctionCounter
+						.builder("zipkin.reporter.spool.bytes.discarded", spanSpool, SpanSpool::discardedBytes)
+						.baseUnit("bytes").register(registry);
+			};
+		}
+
+		/**
+		 * Registers queue gauges per shard once all beans are created, so that the
+		 * reporter is not created too early.
+		 * @param meterRegistry meter registry
+		 * @param beanFactory bean factory
+		 * @return registration of the shard metrics
+		 */
+		@Bean
+		SmartInitializingSingleton zipkinShardedReporterMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+				BeanFactory beanFactory) {
+			return () -> {
+				MeterRegistry registry = meterRegistry.getIfAvailable();
+				if (registry == null || !beanFactory.containsBean(REPORTER_BEAN_NAME)) {
+					return;
+				}
+				Object reporter = beanFactory.getBean(REPORTER_BEAN_NAME);
+				if (!(reporter instanceof ShardedReporter)) {
+					return;
+				}
+				ShardedReporter shardedReporter = (ShardedReporter) reporter;
+				for (int i = 0; i < shardedReporter.shards(); i++) {
+					int shard = i;
+					Gauge.builder("zipkin.reporter.shard.queue.spans", shardedReporter, r -> r.queuedSpans(shard))
+							.tag("shard", String.valueOf(shard)).register(registry);
+					Gauge.builder("zipkin.reporter.shard.queue.bytes", shardedReporter, r -> r.queuedBytes(shard))
+							.tag("shard", String.valueOf(shard)).register(registry);
+				}
+			};
+		}
+
 		@Configuration(proxyBeanMethods = false)
 		@ConditionalOnMissingBean(ReporterMetrics.class)
 		static class NoReporterMetricsBeanConfiguration {
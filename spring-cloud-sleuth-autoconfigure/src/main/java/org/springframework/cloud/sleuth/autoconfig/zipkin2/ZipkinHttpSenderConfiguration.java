@@ -16,8 +16,10 @@
 
 package org.springframework.cloud.sleuth.autoconfig.zipkin2;
 
+import zipkin2.reporter.ReporterMetrics;
 import zipkin2.reporter.Sender;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -61,7 +63,8 @@ class ZipkinHttpSenderConfiguration {
 				ZipkinRestTemplateProvider zipkinRestTemplateProvider) {
 			RestTemplate restTemplate = zipkinRestTemplateProvider.zipkinRestTemplate();
 			restTemplate = zipkinRestTemplateCustomizer.customizeTemplate(restTemplate);
-			return new RestTemplateSender(restTemplate, zipkin.getBaseUrl(), zipkin.getApiPath(), zipkin.getEncoder());
+			return new RestTemplateSender(restTemplate, zipkin.getBaseUrl(), zipkin.getApiPath(), zipkin.getEncoder(),
+					zipkin.getCompression().isEnabled());
 		}
 
 		@Bean
@@ -82,10 +85,16 @@ class ZipkinHttpSenderConfiguration {
 	static class ZipkinReactiveConfiguration {
 
 		@Bean(ZipkinAutoConfiguration.SENDER_BEAN_NAME)
-		Sender webClientSender(ZipkinProperties zipkin, ZipkinWebClientBuilderProvider zipkinWebClientBuilderProvider) {
+		Sender webClientSender(ZipkinProperties zipkin, ZipkinWebClientBuilderProvider zipkinWebClientBuilderProvider,
+				ObjectProvider<ReporterMetrics> reporterMetrics) {
 			WebClient.Builder webClientBuilder = zipkinWebClientBuilderProvider.zipkinWebClientBuilder();
-			return new WebClientSender(webClientBuilder.build(), zipkin.getBaseUrl(), zipkin.getApiPath(),
-					zipkin.getEncoder(), zipkin.getCheckTimeout());
+			WebClientSender sender = new WebClientSender(null, webClientBuilder.build(), zipkin.getBaseUrl(),
+					zipkin.getApiPath(), zipkin.getEncoder(), zipkin.getCheckTimeout(),
+					zipkin.getMaxInFlightRequests(), zipkin.getCompression().isEnabled());
+			// batches that fail after being dispatched are dropped without the reporter
+			// knowing about it
+			reporterMetrics.ifAvailable(sender::setReporterMetrics);
+			return sender;
 		}
 
 		@Bean
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.actuate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import brave.handler.MutableSpan;
+import brave.propagation.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.brave.bridge.BraveFinishedSpan;
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class BraveStreamingFinishedSpanWriterTests {
+
+	@Test
+	void should_stream_the_same_json_as_the_non_streaming_writer() throws IOException {
+		List<FinishedSpan> spans = Arrays.asList(span(1L), span(2L), span(3L));
+
+		Resource resource = new BraveStreamingFinishedSpanWriter()
+				.write(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2, spans);
+
+		then(resource.contentLength()).isEqualTo(-1);
+		try (InputStream stream = resource.getInputStream()) {
+			then(StreamUtils.copyToString(stream, StandardCharsets.UTF_8)).isEqualTo(
+					new BraveFinishedSpanWriter().write(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2, spans));
+		}
+	}
+
+	@Test
+	void should_stream_an_empty_list() throws IOException {
+		Resource resource = new BraveStreamingFinishedSpanWriter()
+				.write(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2, Collections.emptyList());
+
+		try (InputStream stream = resource.getInputStream()) {
+			then(stream.read()).isEqualTo('[');
+			then(stream.read()).isEqualTo(']');
+			then(stream.read()).isEqualTo(-1);
+		}
+	}
+
+	@Test
+	void should_not_support_any_other_format_than_openzipkin() {
+		then(new BraveStreamingFinishedSpanWriter().write(TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF,
+				Collections.singletonList(span(1L)))).isNull();
+	}
+
+	private static FinishedSpan span(long spanId) {
+		return new BraveFinishedSpan(
+				new MutableSpan(TraceContext.newBuilder().spanId(spanId).traceId(2L).build(), null));
+	}
+
+}
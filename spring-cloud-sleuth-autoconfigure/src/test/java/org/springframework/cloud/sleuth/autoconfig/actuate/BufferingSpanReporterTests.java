@@ -36,7 +36,26 @@ class BufferingSpanReporterTests {
 		reporter.report(second);
 		reporter.report(youngest);
 
-		BDDAssertions.then(reporter.spans).containsExactly(second, youngest);
+		BDDAssertions.then(reporter.getFinishedSpans()).containsExactly(second, youngest);
+		BDDAssertions.then(reporter.getOverwrittenSpans()).isEqualTo(1);
+	}
+
+	@Test
+	void should_remove_spans_when_drained() {
+		BufferingSpanReporter reporter = new BufferingSpanReporter(3);
+		FinishedSpan first = mock(FinishedSpan.class, "first");
+		FinishedSpan second = mock(FinishedSpan.class, "second");
+		FinishedSpan third = mock(FinishedSpan.class, "third");
+		reporter.report(first);
+		reporter.report(second);
+
+		BDDAssertions.then(reporter.drainFinishedSpans()).containsExactly(first, second);
+		BDDAssertions.then(reporter.getFinishedSpans()).isEmpty();
+
+		reporter.report(third);
+
+		BDDAssertions.then(reporter.getFinishedSpans()).containsExactly(third);
+		BDDAssertions.then(reporter.getOverwrittenSpans()).isZero();
 	}
 
 }
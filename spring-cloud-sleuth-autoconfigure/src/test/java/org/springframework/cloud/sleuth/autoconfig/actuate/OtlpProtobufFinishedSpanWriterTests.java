@@ -0,0 +1,314 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig.actuate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import brave.handler.MutableSpan;
+import brave.propagation.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.brave.bridge.BraveFinishedSpan;
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.BDDAssertions.then;
+
+class OtlpProtobufFinishedSpanWriterTests {
+
+	@Test
+	void should_convert_finished_spans_to_otlp_protobuf() {
+		FinishedSpan finishedSpan = new BraveFinishedSpan(
+				new MutableSpan(TraceContext.newBuilder().spanId(1L).traceId(2L).build(), null));
+
+		byte[] bytes = new OtlpProtobufFinishedSpanWriter().write(TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF,
+				Collections.singletonList(finishedSpan));
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		// resource_spans { resource { attributes { key value { string_value } } }
+		write(expected, 0x0A, 0x82, 0x01, 0x0A, 40, 0x0A, 38, 0x0A, 12);
+		expected.write("service.name".getBytes(StandardCharsets.UTF_8), 0, 12);
+		write(expected, 0x12, 22, 0x0A, 20);
+		expected.write("unknown_service:java".getBytes(StandardCharsets.UTF_8), 0, 20);
+		// scope_spans { scope { name } spans { ... } } }
+		write(expected, 0x12, 86, 0x0A, 34, 0x0A, 32);
+		expected.write("org.springframework.cloud.sleuth".getBytes(StandardCharsets.UTF_8), 0, 32);
+		write(expected, 0x12, 48);
+		// trace_id, left padded to 16 bytes
+		write(expected, 0x0A, 16, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2);
+		// span_id
+		write(expected, 0x12, 8, 0, 0, 0, 0, 0, 0, 0, 1);
+		// kind internal
+		write(expected, 0x30, 1);
+		// start and end time
+		write(expected, 0x39, 0, 0, 0, 0, 0, 0, 0, 0);
+		write(expected, 0x41, 0, 0, 0, 0, 0, 0, 0, 0);
+		then(bytes).containsExactly(expected.toByteArray());
+	}
+
+	@Test
+	void should_encode_multi_byte_characters() {
+		MutableSpan span = new MutableSpan(TraceContext.newBuilder().spanId(1L).traceId(2L).build(), null);
+		span.name("za\u017c\u00f3\u0142\u0107 \ud83d\ude00");
+		FinishedSpan finishedSpan = new BraveFinishedSpan(span);
+
+		byte[] bytes = new OtlpProtobufFinishedSpanWriter().write(TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF,
+				Collections.singletonList(finishedSpan));
+
+		byte[] name = "za\u017c\u00f3\u0142\u0107 \ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+		then(OtlpProtobufFinishedSpanWriter.utf8Length("za\u017c\u00f3\u0142\u0107 \ud83d\ude00")).isEqualTo(name.length);
+		then(new String(bytes, StandardCharsets.ISO_8859_1))
+				.contains(new String(name, StandardCharsets.ISO_8859_1));
+	}
+
+	@Test
+	void should_group_spans_by_local_service_name_into_resources() {
+		List<FinishedSpan> spans = Arrays.asList(span("a", 1L), span("b", 2L), span("a", 3L));
+
+		Message request = Message.parse(
+				new OtlpProtobufFinishedSpanWriter().write(TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF, spans));
+
+		List<Message> resourceSpans = request.messages(1);
+		then(resourceSpans).hasSize(2);
+		then(attributes(resourceSpans.get(0).message(1))).containsExactly(entry("service.name", "a"));
+		then(spanIds(resourceSpans.get(0))).containsExactly(1L, 3L);
+		then(attributes(resourceSpans.get(1).message(1))).containsExactly(entry("service.name", "b"));
+		then(spanIds(resourceSpans.get(1))).containsExactly(2L);
+	}
+
+	@Test
+	void should_write_tags_and_remote_endpoint_as_attributes() {
+		MutableSpan span = mutableSpan("a", 1L);
+		span.tag("http.method", "GET");
+		span.remoteServiceName("db");
+		span.remoteIpAndPort("1.2.3.4", 5432);
+
+		Message encoded = onlySpan(span);
+
+		Map<String, Object> attributes = attributes(encoded);
+		then(attributes).containsEntry("http.method", "GET").containsEntry("peer.service", "db")
+				.containsEntry("net.peer.ip", "1.2.3.4").containsEntry("net.peer.port", 5432L);
+	}
+
+	@Test
+	void should_write_events_in_nanoseconds() {
+		MutableSpan span = mutableSpan("a", 1L);
+		span.startTimestamp(1000L);
+		span.annotate(1500L, "cache.miss");
+		span.finishTimestamp(2000L);
+
+		Message encoded = onlySpan(span);
+
+		then(encoded.fixed64(7)).isEqualTo(1_000_000L);
+		then(encoded.fixed64(8)).isEqualTo(2_000_000L);
+		List<Message> events = encoded.messages(11);
+		then(events).hasSize(1);
+		then(events.get(0).fixed64(1)).isEqualTo(1_500_000L);
+		then(events.get(0).string(2)).isEqualTo("cache.miss");
+	}
+
+	@Test
+	void should_map_span_kinds() {
+		Map<brave.Span.Kind, Long> expected = new LinkedHashMap<>();
+		expected.put(brave.Span.Kind.SERVER, 2L);
+		expected.put(brave.Span.Kind.CLIENT, 3L);
+		expected.put(brave.Span.Kind.PRODUCER, 4L);
+		expected.put(brave.Span.Kind.CONSUMER, 5L);
+		expected.put(null, 1L);
+
+		expected.forEach((kind, otlpKind) -> {
+			MutableSpan span = mutableSpan("a", 1L);
+			span.kind(kind);
+
+			then(onlySpan(span).varint(6)).as("kind of %s", kind).isEqualTo(otlpKind);
+		});
+	}
+
+	@Test
+	void should_write_error_as_status() {
+		MutableSpan span = mutableSpan("a", 1L);
+		span.error(new IllegalStateException("boom"));
+
+		Message status = onlySpan(span).message(15);
+
+		then(status.string(2)).isEqualTo("boom");
+		then(status.varint(3)).isEqualTo(2L);
+	}
+
+	@Test
+	void should_not_support_other_formats() {
+		then(new OtlpProtobufFinishedSpanWriter().write(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2,
+				Collections.emptyList())).isNull();
+	}
+
+	@Test
+	void should_not_retain_buffers_of_large_scrapes() {
+		OtlpProtobufFinishedSpanWriter writer = new OtlpProtobufFinishedSpanWriter();
+		List<FinishedSpan> spans = new ArrayList<>();
+		for (long spanId = 1; spanId <= 10_000; spanId++) {
+			spans.add(span("service", spanId));
+		}
+
+		byte[] bytes = writer.write(TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF, spans);
+
+		then(bytes.length).isGreaterThan(OtlpProtobufFinishedSpanWriter.MAX_RETAINED_BUFFER_SIZE);
+		then(spanIds(Message.parse(bytes).message(1))).hasSize(10_000);
+		then(writer.pooledBuffers()).isEqualTo(1);
+		then(writer.retainedBufferSize())
+				.isLessThanOrEqualTo(OtlpProtobufFinishedSpanWriter.MAX_RETAINED_BUFFER_SIZE);
+		then(spanIds(Message.parse(writer.write(TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF,
+				Collections.singletonList(span("service", 1L)))).message(1))).containsExactly(1L);
+	}
+
+	private static MutableSpan mutableSpan(String serviceName, long spanId) {
+		MutableSpan span = new MutableSpan(TraceContext.newBuilder().spanId(spanId).traceId(2L).build(), null);
+		span.localServiceName(serviceName);
+		return span;
+	}
+
+	private static FinishedSpan span(String serviceName, long spanId) {
+		return new BraveFinishedSpan(mutableSpan(serviceName, spanId));
+	}
+
+	private static Message onlySpan(MutableSpan span) {
+		Message request = Message.parse(new OtlpProtobufFinishedSpanWriter().write(
+				TextOutputFormat.CONTENT_TYPE_OTLP_PROTOBUF, Collections.singletonList(new BraveFinishedSpan(span))));
+		return request.message(1).message(2).message(2);
+	}
+
+	private static List<Long> spanIds(Message resourceSpans) {
+		List<Long> ids = new ArrayList<>();
+		for (Message span : resourceSpans.message(2).messages(2)) {
+			byte[] id = span.bytes(2);
+			long value = 0;
+			for (byte b : id) {
+				value = value << 8 | (b & 0xFF);
+			}
+			ids.add(value);
+		}
+		return ids;
+	}
+
+	/**
+	 * Reads the {@code KeyValue} attributes of a span or resource, which both use field
+	 * 1 for the key and 9 or 1 for the attributes.
+	 */
+	private static Map<String, Object> attributes(Message message) {
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		List<Message> keyValues = message.fields.containsKey(9) ? message.messages(9) : message.messages(1);
+		for (Message keyValue : keyValues) {
+			Message value = keyValue.message(2);
+			attributes.put(keyValue.string(1), value.fields.containsKey(1) ? value.string(1) : value.varint(3));
+		}
+		return attributes;
+	}
+
+	private static void write(ByteArrayOutputStream stream, int... bytes) {
+		for (int b : bytes) {
+			stream.write(b);
+		}
+	}
+
+	/**
+	 * Minimal protobuf wire format reader, keeping the values of each field in order.
+	 */
+	static final class Message {
+
+		final Map<Integer, List<Object>> fields = new LinkedHashMap<>();
+
+		static Message parse(byte[] bytes) {
+			Message message = new Message();
+			int[] position = { 0 };
+			while (position[0] < bytes.length) {
+				long tag = readVarint(bytes, position);
+				int field = (int) (tag >>> 3);
+				Object value;
+				switch ((int) (tag & 7)) {
+				case 0:
+					value = readVarint(bytes, position);
+					break;
+				case 1:
+					long fixed = 0;
+					for (int i = 0; i < 8; i++) {
+						fixed |= (bytes[position[0]++] & 0xFFL) << (8 * i);
+					}
+					value = fixed;
+					break;
+				case 2:
+					int length = (int) readVarint(bytes, position);
+					value = Arrays.copyOfRange(bytes, position[0], position[0] + length);
+					position[0] += length;
+					break;
+				default:
+					throw new IllegalArgumentException("Unexpected wire type in tag " + tag);
+				}
+				message.fields.computeIfAbsent(field, f -> new ArrayList<>()).add(value);
+			}
+			return message;
+		}
+
+		private static long readVarint(byte[] bytes, int[] position) {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[position[0]++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return value;
+		}
+
+		List<Message> messages(int field) {
+			List<Message> messages = new ArrayList<>();
+			for (Object value : this.fields.getOrDefault(field, Collections.emptyList())) {
+				messages.add(parse((byte[]) value));
+			}
+			return messages;
+		}
+
+		Message message(int field) {
+			return parse(bytes(field));
+		}
+
+		byte[] bytes(int field) {
+			return (byte[]) this.fields.get(field).get(0);
+		}
+
+		String string(int field) {
+			return new String(bytes(field), StandardCharsets.UTF_8);
+		}
+
+		long varint(int field) {
+			return (Long) this.fields.get(field).get(0);
+		}
+
+		long fixed64(int field) {
+			return (Long) this.fields.get(field).get(0);
+		}
+
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.sleuth.autoconfig.actuate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -27,6 +29,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
 
 import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
 
 class TracesScrapeEndpointTests {
 
@@ -41,6 +45,63 @@ class TracesScrapeEndpointTests {
 		then(response.getStatus()).isEqualTo(HttpStatus.NOT_ACCEPTABLE.value());
 	}
 
+	@Test
+	void should_return_spans_matching_the_cursor() {
+		BufferingSpanReporter reporter = new BufferingSpanReporter(10);
+		FinishedSpan old = span("a", "1", 100L);
+		FinishedSpan otherTrace = span("b", "2", 200L);
+		FinishedSpan newer = span("a", "3", 300L);
+		FinishedSpan newest = span("a", "4", 400L);
+		reporter.report(old);
+		reporter.report(otherTrace);
+		reporter.report(newer);
+		reporter.report(newest);
+		List<List<FinishedSpan>> written = new ArrayList<>();
+		TracesScrapeEndpoint tracesScrapeEndpoint = new TracesScrapeEndpoint(reporter, recording(written));
+
+		tracesScrapeEndpoint.spansSnapshot(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2, 100L, "1", 1, "a");
+
+		then(written).containsExactly(Collections.singletonList(newer));
+		then(reporter.getFinishedSpans()).hasSize(4);
+	}
+
+	@Test
+	void should_page_through_spans_that_ended_at_the_same_time() {
+		BufferingSpanReporter reporter = new BufferingSpanReporter(10);
+		FinishedSpan second = span("a", "2", 100L);
+		FinishedSpan first = span("a", "1", 100L);
+		FinishedSpan third = span("a", "3", 100L);
+		FinishedSpan earlier = span("a", "9", 50L);
+		reporter.report(second);
+		reporter.report(first);
+		reporter.report(third);
+		reporter.report(earlier);
+		List<List<FinishedSpan>> written = new ArrayList<>();
+		TracesScrapeEndpoint tracesScrapeEndpoint = new TracesScrapeEndpoint(reporter, recording(written));
+
+		tracesScrapeEndpoint.spansSnapshot(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2, 100L, null, 2, null);
+		tracesScrapeEndpoint.spansSnapshot(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2, 100L, "2", 2, null);
+		tracesScrapeEndpoint.spansSnapshot(TextOutputFormat.CONTENT_TYPE_OPENZIPKIN_JSON_V2, 100L, "3", 2, null);
+
+		then(written).containsExactly(Arrays.asList(first, second), Collections.singletonList(third),
+				Collections.emptyList());
+	}
+
+	private static FinishedSpanWriter<Object> recording(List<List<FinishedSpan>> written) {
+		return (format, spans) -> {
+			written.add(spans);
+			return "";
+		};
+	}
+
+	private static FinishedSpan span(String traceId, String spanId, long endTimestamp) {
+		FinishedSpan span = mock(FinishedSpan.class);
+		given(span.getTraceId()).willReturn(traceId);
+		given(span.getSpanId()).willReturn(spanId);
+		given(span.getEndTimestamp()).willReturn(endTimestamp);
+		return span;
+	}
+
 	@NonNull
 	private BufferingSpanReporter bufferingSpanReporter() {
 		return new BufferingSpanReporter(1) {
@@ -23,12 +23,15 @@ import brave.handler.SpanHandler;
 import brave.propagation.TraceContext;
 import brave.sampler.RateLimitingSampler;
 import brave.sampler.Sampler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.BDDAssertions;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.cloud.sleuth.brave.sampler.AdaptiveSampler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -138,6 +141,63 @@ public class BraveSamplerConfigurationTests {
 		BDDAssertions.then(sampler).isSameAs(Sampler.NEVER_SAMPLE);
 	}
 
+	@Test
+	void samplerFromProps_prefersAdaptive() {
+		SamplerProperties properties = new SamplerProperties();
+		properties.setProbability(0.01f);
+		properties.getAdaptive().setTargetRate(20);
+
+		Sampler sampler = BraveSamplerConfiguration.samplerFromProps(properties);
+
+		BDDAssertions.then(sampler).isInstanceOf(AdaptiveSampler.class);
+	}
+
+	@Test
+	void should_register_adaptive_sampler_metrics() {
+		this.contextRunner.withUserConfiguration(WithTracingCustomizer.class, WithMeterRegistry.class)
+				.withPropertyValues("spring.sleuth.sampler.adaptive.target-rate=20").run((context -> {
+					BDDAssertions.then(context.getBean(Sampler.class)).isInstanceOf(AdaptiveSampler.class);
+					BDDAssertions.then(context.getBean(MeterRegistry.class).get("sleuth.sampler.adaptive.probability")
+							.gauge().value()).isEqualTo(1.0);
+				}));
+	}
+
+	@Test
+	void should_register_adaptive_sampler_metrics_when_there_are_other_samplers() {
+		this.contextRunner
+				.withUserConfiguration(WithTracingCustomizer.class, WithMeterRegistry.class, WithOtherSampler.class)
+				.withPropertyValues("spring.sleuth.sampler.adaptive.target-rate=20").run((context -> {
+					BDDAssertions.then(context.getBeansOfType(Sampler.class)).hasSize(2);
+					BDDAssertions.then(context.getBean(MeterRegistry.class).get("sleuth.sampler.adaptive.probability")
+							.gauge().value()).isEqualTo(1.0);
+				}));
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	static class WithOtherSampler {
+
+		@Bean
+		Sampler adaptiveSampler(SamplerProperties properties) {
+			return BraveSamplerConfiguration.adaptiveSampler(properties);
+		}
+
+		@Bean
+		Sampler otherSampler() {
+			return Sampler.ALWAYS_SAMPLE;
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	static class WithMeterRegistry {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	static class WithSpanHandler {
 
@@ -89,6 +89,28 @@ public class BraveHttpConfigurationTests {
 		});
 	}
 
+	@Test
+	public void checksSamplingRulesBeforeServerSkipPattern() {
+		contextRunner()
+				.withPropertyValues("spring.sleuth.web.skip-pattern=/foo.*|/bar.*",
+						"spring.sleuth.sampler.rules.http[0].path=/foo/**",
+						"spring.sleuth.sampler.rules.http[0].probability=1.0")
+				.run((context) -> {
+					SamplerFunction<HttpRequest> serverSampler = context.getBean(HttpTracing.class)
+							.serverRequestSampler();
+
+					then(serverSampler.trySample(mockHttpRequest("GET", "/foo/1"))).isTrue();
+					then(serverSampler.trySample(mockHttpRequest("GET", "/bar/1"))).isFalse();
+					then(serverSampler.trySample(mockHttpRequest("GET", "/baz/1"))).isNull();
+				});
+	}
+
+	private HttpRequest mockHttpRequest(String method, String path) {
+		HttpRequest httpRequest = mockHttpRequestForPath(path);
+		BDDMockito.given(httpRequest.method()).willReturn(method);
+		return httpRequest;
+	}
+
 	@Test
 	public void defaultsServerSamplerToDeferWhenSkipPatternCleared() {
 		contextRunner().withPropertyValues("spring.sleuth.web.skip-pattern").run((context) -> {
@@ -28,11 +28,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import zipkin2.Call;
 import zipkin2.CheckResult;
+import zipkin2.Span;
 import zipkin2.codec.Encoding;
+import zipkin2.codec.SpanBytesEncoder;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.InMemoryReporterMetrics;
 import zipkin2.reporter.Sender;
 
 import org.springframework.boot.test.system.CapturedOutput;
 import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.cloud.sleuth.zipkin2.ZipkinProperties;
 
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.awaitility.Awaitility.await;
@@ -40,6 +45,9 @@ import static org.awaitility.Awaitility.await;
 @ExtendWith(OutputCaptureExtension.class)
 class ZipkinAutoConfigurationTests {
 
+	private static final Span SPAN = Span.newBuilder().traceId("7180c278b62e8f6a216a2aea45d08fc9")
+			.id("5b4185666d50f68b").name("get").build();
+
 	ExecutorService service = Executors.newSingleThreadExecutor();
 
 	@AfterEach
@@ -82,6 +90,72 @@ class ZipkinAutoConfigurationTests {
 				"CheckResult{ok=false, error=java.util.concurrent.CompletionException: java.lang.RuntimeException: boom}"));
 	}
 
+	@Test
+	void shouldDivideQueuedMaxSpansBetweenReporterShards() {
+		ZipkinProperties zipkin = new ZipkinProperties();
+		zipkin.setMessageTimeout(0);
+		zipkin.setQueuedMaxSpans(8);
+		InMemoryReporterMetrics metrics = new InMemoryReporterMetrics();
+		AsyncReporter<Span> shard = ZipkinAutoConfiguration.asyncReporter(new NotSendingSender(), zipkin, 4, metrics);
+
+		for (int i = 0; i < 3; i++) {
+			shard.report(SPAN);
+		}
+
+		then(metrics.spans()).isEqualTo(3);
+		then(metrics.spansDropped()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldDivideQueuedMaxBytesBetweenReporterShards() {
+		ZipkinProperties zipkin = new ZipkinProperties();
+		zipkin.setMessageTimeout(0);
+		zipkin.setQueuedMaxBytes(4 * 2 * SpanBytesEncoder.JSON_V2.sizeInBytes(SPAN));
+		InMemoryReporterMetrics metrics = new InMemoryReporterMetrics();
+		AsyncReporter<Span> shard = ZipkinAutoConfiguration.asyncReporter(new NotSendingSender(), zipkin, 4, metrics);
+
+		for (int i = 0; i < 3; i++) {
+			shard.report(SPAN);
+		}
+
+		then(metrics.spans()).isEqualTo(3);
+		then(metrics.spansDropped()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldDivideDefaultQueuedMaxBytesBetweenReporterShards() {
+		int onePercentOfHeapPerShard = (int) (Runtime.getRuntime().maxMemory() * 0.01 / 4);
+
+		then(ZipkinAutoConfiguration.queuedMaxBytes(new ZipkinProperties(), 4)).isPositive()
+				.isLessThanOrEqualTo(onePercentOfHeapPerShard);
+		then(ZipkinAutoConfiguration.queuedMaxBytes(new ZipkinProperties(), 1))
+				.isGreaterThan(ZipkinAutoConfiguration.queuedMaxBytes(new ZipkinProperties(), 4));
+	}
+
+	private static final class NotSendingSender extends Sender {
+
+		@Override
+		public Encoding encoding() {
+			return Encoding.JSON;
+		}
+
+		@Override
+		public int messageMaxBytes() {
+			return 5 * 1024 * 1024;
+		}
+
+		@Override
+		public int messageSizeInBytes(List<byte[]> list) {
+			return Encoding.JSON.listSizeInBytes(list);
+		}
+
+		@Override
+		public Call<Void> sendSpans(List<byte[]> list) {
+			return Call.create(null);
+		}
+
+	}
+
 	private static final class ExceptionThrowingSender extends Sender {
 
 		@Override
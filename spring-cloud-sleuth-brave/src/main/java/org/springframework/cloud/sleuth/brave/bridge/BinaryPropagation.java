@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import brave.internal.propagation.StringPropagationAdapter;
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+
+import org.springframework.cloud.sleuth.internal.EncodingUtils;
+
+/**
+ * Propagates the trace context in the binary {@code grpc-trace-bin} format. The 29 byte
+ * value consists of the version, followed by the trace id, span id and trace options
+ * fields, each preceded by its field id. As in gRPC text metadata, the value is passed to
+ * setters and getters as unpadded base64, so that it is safe in text carriers such as
+ * HTTP or messaging headers. Setters and getters of binary carriers, like Kafka record
+ * headers and RSocket metadata, write and read the raw bytes instead (see
+ * {@link EncodingUtils#isBinaryHeader(String)}). Since {@link Propagation} only takes
+ * {@code String} values, those carriers still convert the value between base64 and bytes
+ * on each inject and extract.
+ *
+ * @since 3.1.10
+ */
+class BinaryPropagation extends Propagation.Factory implements Propagation<String> {
+
+	static final String TRACE_BIN = EncodingUtils.BINARY_TRACE_HEADER;
+
+	private static final List<String> FIELDS = Collections.singletonList(TRACE_BIN);
+
+	private static final int VERSION = 0;
+
+	private static final int TRACE_ID_FIELD = 0;
+
+	private static final int SPAN_ID_FIELD = 1;
+
+	private static final int TRACE_OPTIONS_FIELD = 2;
+
+	private static final int TRACE_ID_SIZE = 16;
+
+	private static final int SPAN_ID_SIZE = 8;
+
+	private static final int TRACE_ID_OFFSET = 2;
+
+	private static final int SPAN_ID_OFFSET = TRACE_ID_OFFSET + TRACE_ID_SIZE + 1;
+
+	private static final int TRACE_OPTIONS_OFFSET = SPAN_ID_OFFSET + SPAN_ID_SIZE + 1;
+
+	static final int SIZE = TRACE_OPTIONS_OFFSET + 1;
+
+	private static final int SAMPLED = 1;
+
+	@Override
+	public <K> Propagation<K> create(KeyFactory<K> keyFactory) {
+		return StringPropagationAdapter.create(this, keyFactory);
+	}
+
+	@Override
+	public List<String> keys() {
+		return FIELDS;
+	}
+
+	@Override
+	public <R> TraceContext.Injector<R> injector(Setter<R, String> setter) {
+		Objects.requireNonNull(setter, "setter");
+		return (context, carrier) -> setter.put(carrier, TRACE_BIN, encode(context));
+	}
+
+	@Override
+	public <R> TraceContext.Extractor<R> extractor(Getter<R, String> getter) {
+		Objects.requireNonNull(getter, "getter");
+		return carrier -> {
+			String value = getter.get(carrier, TRACE_BIN);
+			if (value == null) {
+				return TraceContextOrSamplingFlags.EMPTY;
+			}
+			TraceContext context = decode(value);
+			if (context == null) {
+				return TraceContextOrSamplingFlags.EMPTY;
+			}
+			return TraceContextOrSamplingFlags.create(context);
+		};
+	}
+
+	static String encode(TraceContext context) {
+		byte[] bytes = new byte[SIZE];
+		bytes[0] = VERSION;
+		bytes[1] = TRACE_ID_FIELD;
+		writeLong(bytes, TRACE_ID_OFFSET, context.traceIdHigh());
+		writeLong(bytes, TRACE_ID_OFFSET + 8, context.traceId());
+		bytes[SPAN_ID_OFFSET - 1] = SPAN_ID_FIELD;
+		writeLong(bytes, SPAN_ID_OFFSET, context.spanId());
+		bytes[TRACE_OPTIONS_OFFSET - 1] = TRACE_OPTIONS_FIELD;
+		bytes[TRACE_OPTIONS_OFFSET] = (byte) (Boolean.TRUE.equals(context.sampled()) ? SAMPLED : 0);
+		return EncodingUtils.binaryHeaderValue(bytes);
+	}
+
+	/**
+	 * Reads the fields in any order and stops at the first unknown field, as newer
+	 * versions may only append fields.
+	 * @param value base64 encoded value, padded or not
+	 * @return context or {@code null} if the value is invalid
+	 */
+	static TraceContext decode(String value) {
+		byte[] bytes;
+		try {
+			bytes = Base64.getDecoder().decode(value);
+		}
+		catch (IllegalArgumentException ex) {
+			return null;
+		}
+		int length = bytes.length;
+		if (length == 0 || bytes[0] != VERSION) {
+			return null;
+		}
+		long traceIdHigh = 0L;
+		long traceId = 0L;
+		long spanId = 0L;
+		Boolean sampled = null;
+		int position = 1;
+		while (position < length) {
+			byte field = bytes[position];
+			if (field == TRACE_ID_FIELD && position + TRACE_ID_SIZE < length) {
+				traceIdHigh = readLong(bytes, position + 1);
+				traceId = readLong(bytes, position + 9);
+				position += TRACE_ID_SIZE + 1;
+			}
+			else if (field == SPAN_ID_FIELD && position + SPAN_ID_SIZE < length) {
+				spanId = readLong(bytes, position + 1);
+				position += SPAN_ID_SIZE + 1;
+			}
+			else if (field == TRACE_OPTIONS_FIELD && position + 1 < length) {
+				sampled = (bytes[position + 1] & SAMPLED) == SAMPLED;
+				position += 2;
+			}
+			else {
+				break;
+			}
+		}
+		if ((traceIdHigh == 0L && traceId == 0L) || spanId == 0L) {
+			return null;
+		}
+		return TraceContext.newBuilder().traceIdHigh(traceIdHigh).traceId(traceId).spanId(spanId).sampled(sampled)
+				.build();
+	}
+
+	private static void writeLong(byte[] bytes, int offset, long value) {
+		for (int i = 7; i >= 0; i--) {
+			bytes[offset + i] = (byte) (value & 0xFF);
+			value >>>= 8;
+		}
+	}
+
+	private static long readLong(byte[] bytes, int offset) {
+		long result = 0L;
+		for (int i = 0; i < 8; i++) {
+			result = (result << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return result;
+	}
+
+}
@@ -17,6 +17,11 @@
 package org.springframework.cloud.sleuth.brave.bridge;
 
 import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,10 +30,16 @@ import brave.baggage.BaggageField;
 import org.springframework.cloud.sleuth.BaggageInScope;
 import org.springframework.cloud.sleuth.BaggageManager;
 import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.lang.Nullable;
 
 /**
  * Brave implementation of a {@link BaggageManager}.
  *
+ * Fields known at startup get a fixed slot, so that they can be read by index without
+ * allocating (see {@link #slot(String)} and {@link #getValue(TraceContext, int)}). Their
+ * values are stored per context by Brave in an array indexed the same way for every
+ * context, which is copied only when a value changes.
+ *
  * @author Marcin Grzejszczak
  * @since 3.0.0
  */
@@ -36,6 +47,32 @@ public class BraveBaggageManager implements Closeable, BaggageManager {
 
 	private static final Map<String, BaggageInScope> CACHE = new ConcurrentHashMap<>();
 
+	private final BraveBaggageInScope[] slots;
+
+	private final Map<String, Integer> slotsByName;
+
+	public BraveBaggageManager() {
+		this(Collections.emptyList());
+	}
+
+	/**
+	 * @param fieldNames names of the baggage fields known at startup, each of which gets
+	 * a slot in the order of the list
+	 * @since 3.1.10
+	 */
+	public BraveBaggageManager(List<String> fieldNames) {
+		Map<String, Integer> slotsByName = new HashMap<>();
+		BraveBaggageInScope[] slots = new BraveBaggageInScope[fieldNames.size()];
+		int size = 0;
+		for (String name : fieldNames) {
+			if (slotsByName.putIfAbsent(key(name), size) == null) {
+				slots[size++] = new BraveBaggageInScope(BaggageField.create(name));
+			}
+		}
+		this.slots = size == slots.length ? slots : Arrays.copyOf(slots, size);
+		this.slotsByName = slotsByName;
+	}
+
 	public Map<String, String> getAllBaggage() {
 		return BaggageField.getAllValues();
 	}
@@ -51,11 +88,19 @@ public class BraveBaggageManager implements Closeable, BaggageManager {
 		if (baggageField == null) {
 			return null;
 		}
-		return new BraveBaggageInScope(baggageField);
+		return createBaggage(baggageField.name());
 	}
 
 	@Override
 	public BaggageInScope createBaggage(String name) {
+		int slot = slot(name);
+		if (slot >= 0) {
+			return this.slots[slot];
+		}
+		BaggageInScope baggage = CACHE.get(name);
+		if (baggage != null) {
+			return baggage;
+		}
 		return CACHE.computeIfAbsent(name, s -> new BraveBaggageInScope(BaggageField.create(s)));
 	}
 
@@ -64,6 +109,49 @@ public class BraveBaggageManager implements Closeable, BaggageManager {
 		return createBaggage(name).set(value);
 	}
 
+	/**
+	 * @param name baggage field name
+	 * @return slot of the field or {@code -1} if the field was not known at startup
+	 * @since 3.1.10
+	 */
+	public int slot(String name) {
+		if (this.slots.length == 0) {
+			return -1;
+		}
+		Integer slot = this.slotsByName.get(name);
+		if (slot == null) {
+			slot = this.slotsByName.get(key(name));
+		}
+		return slot != null ? slot : -1;
+	}
+
+	/**
+	 * Reads a baggage value without allocating.
+	 * @param traceContext trace context
+	 * @param slot slot of the field as returned by {@link #slot(String)}
+	 * @return value of the field or {@code null} if it's not set
+	 * @since 3.1.10
+	 */
+	@Nullable
+	public String getValue(TraceContext traceContext, int slot) {
+		return this.slots[slot].unwrap().getValue(BraveTraceContext.toBrave(traceContext));
+	}
+
+	/**
+	 * Reads a baggage value of the current context without allocating.
+	 * @param slot slot of the field as returned by {@link #slot(String)}
+	 * @return value of the field or {@code null} if it's not set
+	 * @since 3.1.10
+	 */
+	@Nullable
+	public String getValue(int slot) {
+		return this.slots[slot].unwrap().getValue();
+	}
+
+	private static String key(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
 	@Override
 	public void close() {
 		CACHE.clear();
@@ -83,6 +83,11 @@ public class BraveFinishedSpan implements FinishedSpan {
 		return this.mutableSpan.localIp();
 	}
 
+	@Override
+	public String getLocalServiceName() {
+		return this.mutableSpan.localServiceName();
+	}
+
 	@Override
 	public int getRemotePort() {
 		return this.mutableSpan.remotePort();
@@ -17,6 +17,7 @@
 package org.springframework.cloud.sleuth.brave.bridge;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 import brave.Tracing;
 import brave.propagation.SamplingFlags;
@@ -25,6 +26,8 @@ import brave.propagation.TraceContextOrSamplingFlags;
 import org.springframework.cloud.sleuth.Span;
 import org.springframework.cloud.sleuth.TraceContext;
 import org.springframework.cloud.sleuth.propagation.Propagator;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 
 /**
  * Brave implementation of a {@link Propagator}.
@@ -36,6 +39,20 @@ public class BravePropagator implements Propagator {
 
 	private final Tracing tracing;
 
+	/**
+	 * Brave injectors per setter. The entries are weakly referenced, so that setters
+	 * created per call and the carriers they capture are released by the next garbage
+	 * collection.
+	 */
+	private final ConcurrentMap<Setter<?>, brave.propagation.TraceContext.Injector<?>> injectors = new ConcurrentReferenceHashMap<>(
+			16, ReferenceType.WEAK);
+
+	/**
+	 * Brave extractors per getter, weakly referenced like the {@link #injectors}.
+	 */
+	private final ConcurrentMap<Getter<?>, brave.propagation.TraceContext.Extractor<?>> extractors = new ConcurrentReferenceHashMap<>(
+			16, ReferenceType.WEAK);
+
 	public BravePropagator(Tracing tracing) {
 		this.tracing = tracing;
 	}
@@ -47,16 +64,38 @@ public class BravePropagator implements Propagator {
 
 	@Override
 	public <C> void inject(TraceContext traceContext, C carrier, Setter<C> setter) {
-		this.tracing.propagation().injector(setter::set).inject(BraveTraceContext.toBrave(traceContext), carrier);
+		injector(setter).inject(BraveTraceContext.toBrave(traceContext), carrier);
 	}
 
 	@Override
 	public <C> Span.Builder extract(C carrier, Getter<C> getter) {
-		TraceContextOrSamplingFlags extract = this.tracing.propagation().extractor(getter::get).extract(carrier);
+		TraceContextOrSamplingFlags extract = extractor(getter).extract(carrier);
 		if (extract.samplingFlags() == SamplingFlags.EMPTY) {
 			return new BraveSpanBuilder(this.tracing.tracer());
 		}
 		return BraveSpanBuilder.toBuilder(this.tracing.tracer(), extract);
 	}
 
+	@SuppressWarnings("unchecked")
+	private <C> brave.propagation.TraceContext.Injector<C> injector(Setter<C> setter) {
+		brave.propagation.TraceContext.Injector<C> injector = (brave.propagation.TraceContext.Injector<C>) this.injectors
+				.get(setter);
+		if (injector == null) {
+			injector = this.tracing.propagation().injector(setter::set);
+			this.injectors.putIfAbsent(setter, injector);
+		}
+		return injector;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <C> brave.propagation.TraceContext.Extractor<C> extractor(Getter<C> getter) {
+		brave.propagation.TraceContext.Extractor<C> extractor = (brave.propagation.TraceContext.Extractor<C>) this.extractors
+				.get(getter);
+		if (extractor == null) {
+			extractor = this.tracing.propagation().extractor(getter::get);
+			this.extractors.putIfAbsent(getter, extractor);
+		}
+		return extractor;
+	}
+
 }
@@ -17,11 +17,12 @@
 package org.springframework.cloud.sleuth.brave.bridge;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentMap;
 
 import brave.internal.propagation.StringPropagationAdapter;
 import brave.propagation.B3Propagation;
@@ -34,6 +35,10 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cloud.sleuth.brave.propagation.PropagationFactorySupplier;
 import org.springframework.cloud.sleuth.brave.propagation.PropagationType;
+import org.springframework.cloud.sleuth.brave.propagation.TraceStateMember;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 
 /**
  * Merges various propagation factories into a composite.
@@ -60,7 +65,7 @@ public class CompositePropagationFactorySupplier implements PropagationFactorySu
 	public Propagation.Factory get() {
 		return new CompositePropagationFactory(this.beanFactory,
 				this.beanFactory.getBeanProvider(BraveBaggageManager.class).getIfAvailable(BraveBaggageManager::new),
-				this.localFields, this.types);
+				this.localFields, this.types, this.beanFactory.getBeanProvider(TraceStateMember.class).getIfAvailable());
 	}
 
 }
@@ -71,8 +76,32 @@ class CompositePropagationFactory extends Propagation.Factory implements Propaga
 
 	private final List<PropagationType> types;
 
+	private final Propagation.Factory[] factories;
+
+	private final Propagation<String>[] propagations;
+
+	/**
+	 * Injectors per setter. The entries are weakly referenced, so that setters created
+	 * per call and the carriers they capture are released by the next garbage
+	 * collection. A weakly referenced key alone would not do, since the injector
+	 * references its setter.
+	 */
+	private final ConcurrentMap<Setter<?, String>, TraceContext.Injector<?>> injectors = new ConcurrentReferenceHashMap<>(
+			16, ReferenceType.WEAK);
+
+	/**
+	 * Extractors per getter, weakly referenced like the {@link #injectors}.
+	 */
+	private final ConcurrentMap<Getter<?, String>, TraceContext.Extractor<?>> extractors = new ConcurrentReferenceHashMap<>(
+			16, ReferenceType.WEAK);
+
 	CompositePropagationFactory(BeanFactory beanFactory, BraveBaggageManager braveBaggageManager,
 			List<String> localFields, List<PropagationType> types) {
+		this(beanFactory, braveBaggageManager, localFields, types, null);
+	}
+
+	CompositePropagationFactory(BeanFactory beanFactory, BraveBaggageManager braveBaggageManager,
+			List<String> localFields, List<PropagationType> types, @Nullable TraceStateMember traceStateMember) {
 		this.types = types;
 		this.mapping.put(PropagationType.AWS,
 				new AbstractMap.SimpleEntry<>(AWSPropagation.FACTORY, AWSPropagation.FACTORY.get()));
@@ -81,12 +110,24 @@ class CompositePropagationFactory extends Propagation.Factory implements Propaga
 		// See #1643
 		Factory b3Factory = b3Factory();
 		this.mapping.put(PropagationType.B3, new AbstractMap.SimpleEntry<>(b3Factory, b3Factory.get()));
-		W3CPropagation w3CPropagation = new W3CPropagation(braveBaggageManager, localFields);
+		W3CPropagation w3CPropagation = new W3CPropagation(braveBaggageManager, localFields, traceStateMember);
 		this.mapping.put(PropagationType.W3C, new AbstractMap.SimpleEntry<>(w3CPropagation, w3CPropagation.get()));
+		BinaryPropagation binaryPropagation = new BinaryPropagation();
+		this.mapping.put(PropagationType.BINARY,
+				new AbstractMap.SimpleEntry<>(binaryPropagation, binaryPropagation.get()));
 		LazyPropagationFactory lazyPropagationFactory = new LazyPropagationFactory(
 				beanFactory.getBeanProvider(PropagationFactorySupplier.class));
 		this.mapping.put(PropagationType.CUSTOM,
 				new AbstractMap.SimpleEntry<>(lazyPropagationFactory, lazyPropagationFactory.get()));
+		List<Map.Entry<Propagation.Factory, Propagation<String>>> entries = new ArrayList<>();
+		for (PropagationType type : types) {
+			Map.Entry<Propagation.Factory, Propagation<String>> entry = this.mapping.get(type);
+			if (entry != null) {
+				entries.add(entry);
+			}
+		}
+		this.factories = entries.stream().map(Map.Entry::getKey).toArray(Propagation.Factory[]::new);
+		this.propagations = entries.stream().map(Map.Entry::getValue).toArray(Propagation[]::new);
 	}
 
 	private Factory b3Factory() {
@@ -95,31 +136,62 @@ class CompositePropagationFactory extends Propagation.Factory implements Propaga
 
 	@Override
 	public List<String> keys() {
-		return this.types.stream().map(this.mapping::get).flatMap(p -> p.getValue().keys().stream())
-				.collect(Collectors.toList());
+		List<String> keys = new ArrayList<>();
+		for (Propagation<String> propagation : this.propagations) {
+			keys.addAll(propagation.keys());
+		}
+		return keys;
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <R> TraceContext.Injector<R> injector(Setter<R, String> setter) {
+		TraceContext.Injector<R> injector = (TraceContext.Injector<R>) this.injectors.get(setter);
+		if (injector != null) {
+			return injector;
+		}
+		injector = newInjector(setter);
+		TraceContext.Injector<R> previous = (TraceContext.Injector<R>) this.injectors.putIfAbsent(setter, injector);
+		return previous != null ? previous : injector;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> TraceContext.Injector<R> newInjector(Setter<R, String> setter) {
+		TraceContext.Injector<R>[] injectors = new TraceContext.Injector[this.propagations.length];
+		for (int i = 0; i < this.propagations.length; i++) {
+			injectors[i] = this.propagations[i].injector(setter);
+		}
 		return (traceContext, request) -> {
-			this.types.stream().map(this.mapping::get)
-					.forEach(p -> p.getValue().injector(setter).inject(traceContext, request));
+			for (TraceContext.Injector<R> injector : injectors) {
+				injector.inject(traceContext, request);
+			}
 		};
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <R> TraceContext.Extractor<R> extractor(Getter<R, String> getter) {
+		TraceContext.Extractor<R> extractor = (TraceContext.Extractor<R>) this.extractors.get(getter);
+		if (extractor != null) {
+			return extractor;
+		}
+		extractor = newExtractor(getter);
+		TraceContext.Extractor<R> previous = (TraceContext.Extractor<R>) this.extractors.putIfAbsent(getter, extractor);
+		return previous != null ? previous : extractor;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> TraceContext.Extractor<R> newExtractor(Getter<R, String> getter) {
+		List<TraceContext.Extractor<R>> list = new ArrayList<>();
+		for (Propagation<String> propagation : this.propagations) {
+			if (propagation != null && propagation != NoOpPropagation.INSTANCE) {
+				list.add(propagation.extractor(getter));
+			}
+		}
+		TraceContext.Extractor<R>[] extractors = list.toArray(new TraceContext.Extractor[0]);
 		return request -> {
-			for (PropagationType type : this.types) {
-				Map.Entry<Factory, Propagation<String>> entry = this.mapping.get(type);
-				if (entry == null) {
-					continue;
-				}
-				Propagation<String> propagator = entry.getValue();
-				if (propagator == null || propagator == NoOpPropagation.INSTANCE) {
-					continue;
-				}
-				TraceContextOrSamplingFlags extract = propagator.extractor(getter).extract(request);
+			for (TraceContext.Extractor<R> extractor : extractors) {
+				TraceContextOrSamplingFlags extract = extractor.extract(request);
 				if (extract != TraceContextOrSamplingFlags.EMPTY) {
 					return extract;
 				}
@@ -135,27 +207,35 @@ class CompositePropagationFactory extends Propagation.Factory implements Propaga
 
 	@Override
 	public boolean supportsJoin() {
-		return this.types.stream().map(this.mapping::get).allMatch(e -> e.getKey().supportsJoin());
+		for (Propagation.Factory factory : this.factories) {
+			if (!factory.supportsJoin()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public boolean requires128BitTraceId() {
-		return this.types.stream().map(this.mapping::get).allMatch(e -> e.getKey().requires128BitTraceId());
+		for (Propagation.Factory factory : this.factories) {
+			if (!factory.requires128BitTraceId()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
+	/**
+	 * Lets every factory decorate the context, e.g. the W3C one sets the
+	 * {@link TraceStateMember}.
+	 */
 	@Override
 	public TraceContext decorate(TraceContext context) {
-		for (PropagationType type : this.types) {
-			Map.Entry<Factory, Propagation<String>> entry = this.mapping.get(type);
-			if (entry == null) {
-				continue;
-			}
-			TraceContext decorate = entry.getKey().decorate(context);
-			if (decorate != context) {
-				return decorate;
-			}
+		TraceContext decorated = context;
+		for (Propagation.Factory factory : this.factories) {
+			decorated = factory.decorate(decorated);
 		}
-		return super.decorate(context);
+		return decorated;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -228,12 +308,65 @@ class CompositePropagationFactory extends Propagation.Factory implements Propaga
 
 		@Override
 		public <R> TraceContext.Injector<R> injector(Setter<R, String> setter) {
-			return propagation().injector(setter);
+			return new LazyInjector<>(this, setter);
 		}
 
 		@Override
 		public <R> TraceContext.Extractor<R> extractor(Getter<R, String> getter) {
-			return propagation().extractor(getter);
+			return new LazyExtractor<>(this, getter);
+		}
+
+	}
+
+	/**
+	 * Resolves the injector of the custom propagation on first use, so that the cached
+	 * composite injector doesn't look up beans when it's created.
+	 */
+	private static final class LazyInjector<R> implements TraceContext.Injector<R> {
+
+		private final LazyPropagation propagation;
+
+		private final Setter<R, String> setter;
+
+		private volatile TraceContext.Injector<R> delegate;
+
+		private LazyInjector(LazyPropagation propagation, Setter<R, String> setter) {
+			this.propagation = propagation;
+			this.setter = setter;
+		}
+
+		@Override
+		public void inject(TraceContext traceContext, R request) {
+			if (this.delegate == null) {
+				this.delegate = this.propagation.propagation().injector(this.setter);
+			}
+			this.delegate.inject(traceContext, request);
+		}
+
+	}
+
+	/**
+	 * Resolves the extractor of the custom propagation on first use.
+	 */
+	private static final class LazyExtractor<R> implements TraceContext.Extractor<R> {
+
+		private final LazyPropagation propagation;
+
+		private final Getter<R, String> getter;
+
+		private volatile TraceContext.Extractor<R> delegate;
+
+		private LazyExtractor(LazyPropagation propagation, Getter<R, String> getter) {
+			this.propagation = propagation;
+			this.getter = getter;
+		}
+
+		@Override
+		public TraceContextOrSamplingFlags extract(R request) {
+			if (this.delegate == null) {
+				this.delegate = this.propagation.propagation().extractor(this.getter);
+			}
+			return this.delegate.extract(request);
 		}
 
 	}
@@ -16,31 +16,90 @@
 
 package org.springframework.cloud.sleuth.brave.bridge;
 
-import java.util.Collections;
+import java.io.Closeable;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 import brave.handler.MutableSpan;
 import brave.handler.SpanHandler;
 import brave.propagation.TraceContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
 import org.springframework.cloud.sleuth.exporter.SpanFilter;
 import org.springframework.cloud.sleuth.exporter.SpanReporter;
+import org.springframework.lang.Nullable;
 
 /**
  * Merges {@link SpanFilter}s and {@link SpanReporter}s into a {@link SpanHandler}.
+ * Optionally, spans can be reported on a separate thread through a bounded queue. When
+ * that queue is full, spans are dropped instead of blocking the thread that ends them.
+ * Spans that end after {@link #close()} are reported on the thread that ends them.
+ * With a {@link TailSamplingSpanBuffer}, spans that were not sampled are recorded and
+ * reported only if their trace turns out to be interesting.
  *
  * @author Marcin Grzejszczak
  * @since 3.0.0
  */
-public class CompositeSpanHandler extends SpanHandler {
+public class CompositeSpanHandler extends SpanHandler implements Closeable {
 
-	private final List<SpanFilter> filters;
+	private static final Log log = LogFactory.getLog(CompositeSpanHandler.class);
 
-	private final List<SpanReporter> reporters;
+	private static final SpanFilter[] NO_FILTERS = new SpanFilter[0];
+
+	private static final SpanReporter[] NO_REPORTERS = new SpanReporter[0];
+
+	private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+	private final SpanFilter[] filters;
+
+	private final SpanReporter[] reporters;
+
+	private final BlockingQueue<MutableSpan> queue;
+
+	private final Thread reportingThread;
+
+	private final LongAdder droppedSpans = new LongAdder();
+
+	private final TailSamplingSpanBuffer tailSampling;
+
+	private volatile boolean closed;
 
 	public CompositeSpanHandler(List<SpanFilter> filters, List<SpanReporter> reporters) {
-		this.filters = filters == null ? Collections.emptyList() : filters;
-		this.reporters = reporters == null ? Collections.emptyList() : reporters;
+		this(filters, reporters, 0);
+	}
+
+	public CompositeSpanHandler(List<SpanFilter> filters, List<SpanReporter> reporters, int queueSize) {
+		this(filters, reporters, queueSize, null);
+	}
+
+	/**
+	 * @param filters span filters
+	 * @param reporters span reporters
+	 * @param queueSize size of the queue of spans waiting to be reported on a separate
+	 * thread. {@code 0} reports spans on the thread that ends them.
+	 * @param tailSampling buffer of spans that were not sampled, {@code null} to report
+	 * only sampled spans
+	 * @since 3.1.10
+	 */
+	public CompositeSpanHandler(List<SpanFilter> filters, List<SpanReporter> reporters, int queueSize,
+			@Nullable TailSamplingSpanBuffer tailSampling) {
+		this.tailSampling = tailSampling;
+		this.filters = filters == null ? NO_FILTERS : filters.toArray(NO_FILTERS);
+		this.reporters = reporters == null ? NO_REPORTERS : reporters.toArray(NO_REPORTERS);
+		if (queueSize > 0 && this.reporters.length > 0) {
+			this.queue = new ArrayBlockingQueue<>(queueSize);
+			this.reportingThread = new Thread(this::reportQueued, "sleuth-span-reporter");
+			this.reportingThread.setDaemon(true);
+			this.reportingThread.start();
+		}
+		else {
+			this.queue = null;
+			this.reportingThread = null;
+		}
 	}
 
 	@Override
@@ -48,25 +107,126 @@ public class CompositeSpanHandler extends SpanHandler {
 		if (cause != Cause.FINISHED) {
 			return true;
 		}
-		boolean shouldProcess = shouldProcess(span);
-		if (!shouldProcess) {
-			return false;
+		FinishedSpan finishedSpan = null;
+		if (this.filters.length > 0) {
+			finishedSpan = BraveFinishedSpan.fromBrave(span);
+			if (!shouldProcess(finishedSpan)) {
+				return false;
+			}
 		}
-		shouldProcess = super.end(context, span, cause);
+		boolean shouldProcess = super.end(context, span, cause);
 		if (!shouldProcess) {
 			return false;
 		}
-		this.reporters.forEach(r -> r.report(BraveFinishedSpan.fromBrave(span)));
+		if (this.reporters.length == 0) {
+			return true;
+		}
+		if (this.tailSampling != null && !Boolean.TRUE.equals(context.sampled())) {
+			for (MutableSpan released : this.tailSampling.offer(new MutableSpan(span))) {
+				report(released, null);
+			}
+			return true;
+		}
+		report(span, finishedSpan);
 		return true;
 	}
 
-	private boolean shouldProcess(MutableSpan span) {
-		for (SpanFilter exporter : this.filters) {
-			if (!exporter.isExportable(BraveFinishedSpan.fromBrave(span))) {
+	/**
+	 * Spans that were not sampled are recorded too, when they may be released by tail
+	 * sampling.
+	 */
+	@Override
+	public boolean alwaysSampleLocal() {
+		return this.tailSampling != null;
+	}
+
+	private void report(MutableSpan span, @Nullable FinishedSpan finishedSpan) {
+		if (this.queue != null && !this.closed) {
+			// later handlers may still modify the span
+			MutableSpan queued = new MutableSpan(span);
+			if (!this.queue.offer(queued)) {
+				this.droppedSpans.increment();
+				if (log.isDebugEnabled()) {
+					log.debug("Reporter queue is full, will drop span [" + span + "]");
+				}
+				return;
+			}
+			// the reporting thread might have stopped before the span got in
+			if (!this.closed || !this.queue.remove(queued)) {
+				return;
+			}
+		}
+		report(finishedSpan != null ? finishedSpan : BraveFinishedSpan.fromBrave(span));
+	}
+
+	private boolean shouldProcess(FinishedSpan span) {
+		for (SpanFilter filter : this.filters) {
+			if (!filter.isExportable(span)) {
 				return false;
 			}
 		}
 		return true;
 	}
 
+	private void report(FinishedSpan span) {
+		for (SpanReporter reporter : this.reporters) {
+			reporter.report(span);
+		}
+	}
+
+	private void reportQueued() {
+		while (!this.closed || !this.queue.isEmpty()) {
+			try {
+				MutableSpan span = this.queue.take();
+				report(BraveFinishedSpan.fromBrave(span));
+			}
+			catch (InterruptedException ex) {
+				if (!this.closed) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			catch (RuntimeException ex) {
+				log.warn("Exception occurred while reporting a span", ex);
+			}
+		}
+	}
+
+	/**
+	 * @return number of spans dropped because the reporter queue was full or because
+	 * they were still queued when {@link #close()} gave up waiting for them
+	 * @since 3.1.10
+	 */
+	public long getDroppedSpans() {
+		return this.droppedSpans.sum();
+	}
+
+	/**
+	 * Stops the reporting thread once all queued spans got reported. Spans that are
+	 * still queued after waiting for a second are dropped.
+	 */
+	@Override
+	public void close() {
+		if (this.reportingThread == null || this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.reportingThread.interrupt();
+		try {
+			this.reportingThread.join(CLOSE_TIMEOUT_MILLIS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		int abandoned = 0;
+		while (this.queue.poll() != null) {
+			this.droppedSpans.increment();
+			abandoned++;
+		}
+		if (abandoned > 0) {
+			log.warn("Dropped [" + abandoned + "] spans that were not reported within [" + CLOSE_TIMEOUT_MILLIS
+					+ "] ms of closing");
+		}
+	}
+
 }
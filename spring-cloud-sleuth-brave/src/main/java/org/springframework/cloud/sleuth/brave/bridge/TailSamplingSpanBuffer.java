@@ -0,0 +1,251 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import brave.handler.MutableSpan;
+
+/**
+ * Holds the spans of traces that were not sampled until the trace turns out to be
+ * interesting. A trace is interesting once one of its spans has an error, took at least
+ * the latency threshold or has a tag matching one of the tag rules. Then all of its
+ * buffered spans are released and its later spans pass through directly. Traces are
+ * evicted once they are older than the decision wait. Spans of new traces are dropped
+ * while the buffer holds the maximum number of traces, and spans of a trace are dropped
+ * once it holds the maximum number of spans per trace.
+ *
+ * <p>
+ * Traces are evicted in the order they were created, a few at a time by the threads
+ * that offer spans, so offering a span never sweeps the whole buffer.
+ *
+ * @since 3.1.10
+ */
+public class TailSamplingSpanBuffer {
+
+	/**
+	 * Maximum number of traces a single {@link #offer(MutableSpan)} evicts. Evicting
+	 * more traces than one offer can create keeps the buffer from filling up with
+	 * expired traces, without making one caller pay for a whole sweep.
+	 */
+	static final int MAX_EVICTIONS_PER_OFFER = 8;
+
+	private final long decisionWaitNanos;
+
+	private final int maxTraces;
+
+	private final int maxSpansPerTrace;
+
+	private final long latencyThresholdMicros;
+
+	private final Map<String, Pattern> tagRules;
+
+	private final LongSupplier nanoTime;
+
+	private final Map<String, Trace> traces = new ConcurrentHashMap<>();
+
+	/**
+	 * Buffered traces in the order they were created, so the oldest is at the head.
+	 */
+	private final Queue<Trace> expirations = new ConcurrentLinkedQueue<>();
+
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	private final LongAdder droppedSpans = new LongAdder();
+
+	/**
+	 * @param decisionWait how long the spans of a trace are kept
+	 * @param maxTraces maximum number of buffered traces
+	 * @param maxSpansPerTrace maximum number of buffered spans of a single trace
+	 * @param latencyThreshold minimum duration of an interesting span, {@code null} not
+	 * to look at durations
+	 * @param tagRules tag keys and value patterns of interesting spans
+	 */
+	public TailSamplingSpanBuffer(Duration decisionWait, int maxTraces, int maxSpansPerTrace,
+			Duration latencyThreshold, Map<String, String> tagRules) {
+		this(decisionWait, maxTraces, maxSpansPerTrace, latencyThreshold, tagRules, System::nanoTime);
+	}
+
+	TailSamplingSpanBuffer(Duration decisionWait, int maxTraces, int maxSpansPerTrace, Duration latencyThreshold,
+			Map<String, String> tagRules, LongSupplier nanoTime) {
+		this.decisionWaitNanos = decisionWait.toNanos();
+		this.maxTraces = maxTraces;
+		this.maxSpansPerTrace = maxSpansPerTrace;
+		this.latencyThresholdMicros = latencyThreshold != null
+				? TimeUnit.NANOSECONDS.toMicros(latencyThreshold.toNanos()) : Long.MAX_VALUE;
+		this.tagRules = new HashMap<>();
+		tagRules.forEach((key, value) -> this.tagRules.put(key, Pattern.compile(value)));
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * Buffers the span or releases it along with the other spans of its trace.
+	 * @param span finished span that was not sampled
+	 * @return spans to report, empty when the span was buffered or dropped
+	 */
+	public List<MutableSpan> offer(MutableSpan span) {
+		long now = this.nanoTime.getAsLong();
+		evictExpired(now);
+		while (true) {
+			Trace trace = this.traces.get(span.traceId());
+			if (trace == null) {
+				if (this.traces.size() >= this.maxTraces && !isInteresting(span)) {
+					this.droppedSpans.increment();
+					return Collections.emptyList();
+				}
+				trace = this.traces.computeIfAbsent(span.traceId(), id -> newTrace(id, now));
+			}
+			synchronized (trace) {
+				if (trace.evicted) {
+					// evicted after the lookup, the span belongs to a new trace
+					this.traces.remove(trace.traceId, trace);
+					continue;
+				}
+				return offer(trace, span);
+			}
+		}
+	}
+
+	private Trace newTrace(String traceId, long now) {
+		Trace trace = new Trace(traceId, now);
+		this.expirations.add(trace);
+		return trace;
+	}
+
+	private List<MutableSpan> offer(Trace trace, MutableSpan span) {
+		if (trace.released) {
+			return Collections.singletonList(span);
+		}
+		if (!isInteresting(span)) {
+			if (trace.spans.size() >= this.maxSpansPerTrace) {
+				this.droppedSpans.increment();
+			}
+			else {
+				trace.spans.add(span);
+			}
+			return Collections.emptyList();
+		}
+		trace.released = true;
+		List<MutableSpan> spans = trace.spans;
+		trace.spans = Collections.emptyList();
+		spans.add(span);
+		return spans;
+	}
+
+	private boolean isInteresting(MutableSpan span) {
+		if (span.error() != null || span.tag("error") != null) {
+			return true;
+		}
+		if (span.finishTimestamp() - span.startTimestamp() >= this.latencyThresholdMicros) {
+			return true;
+		}
+		for (Map.Entry<String, Pattern> rule : this.tagRules.entrySet()) {
+			String value = span.tag(rule.getKey());
+			if (value != null && rule.getValue().matcher(value).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Evicts up to {@link #MAX_EVICTIONS_PER_OFFER} of the oldest traces once they are
+	 * older than the decision wait. Only one thread evicts at a time, the others don't
+	 * wait for it.
+	 */
+	private void evictExpired(long now) {
+		if (!this.evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			for (int i = 0; i < MAX_EVICTIONS_PER_OFFER; i++) {
+				Trace trace = this.expirations.peek();
+				if (trace == null || now - trace.createdNanos < this.decisionWaitNanos) {
+					return;
+				}
+				this.expirations.poll();
+				evict(trace);
+			}
+		}
+		finally {
+			this.evicting.set(false);
+		}
+	}
+
+	private void evict(Trace trace) {
+		synchronized (trace) {
+			trace.evicted = true;
+			if (!trace.released) {
+				this.droppedSpans.add(trace.spans.size());
+			}
+			trace.spans = Collections.emptyList();
+		}
+		this.traces.remove(trace.traceId, trace);
+	}
+
+	/**
+	 * @return number of buffered traces
+	 */
+	public int getBufferedTraces() {
+		return this.traces.size();
+	}
+
+	/**
+	 * @return number of spans dropped because their traces were not interesting, the
+	 * buffer was full or their trace had too many spans
+	 */
+	public long getDroppedSpans() {
+		return this.droppedSpans.sum();
+	}
+
+	private static final class Trace {
+
+		private final String traceId;
+
+		private final long createdNanos;
+
+		private List<MutableSpan> spans = new ArrayList<>();
+
+		private boolean released;
+
+		/**
+		 * Set once the trace was removed from the buffer, so that a span offered
+		 * concurrently is not added to it and lost.
+		 */
+		private boolean evicted;
+
+		private Trace(String traceId, long createdNanos) {
+			this.traceId = traceId;
+			this.createdNanos = createdNanos;
+		}
+
+	}
+
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import brave.propagation.TraceContext;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Immutable list-members of a W3C {@code tracestate} header, attached to a
+ * {@link TraceContext} as an extra. A parsed state is written back as the header it was
+ * parsed from, so unchanged state is propagated without being rebuilt. See <a href=
+ * "https://www.w3.org/TR/trace-context/#tracestate-header">tracestate header</a>.
+ *
+ * @since 3.1.10
+ */
+final class TraceState {
+
+	/**
+	 * Maximum number of list-members as defined by the specification.
+	 */
+	static final int MAX_MEMBERS = 32;
+
+	private static final int MAX_KEY_LENGTH = 256;
+
+	private static final int MAX_TENANT_ID_LENGTH = 241;
+
+	private static final int MAX_VENDOR_LENGTH = 14;
+
+	private static final int MAX_VALUE_LENGTH = 256;
+
+	private final String[] keys;
+
+	private final String[] values;
+
+	private final String source;
+
+	private String header;
+
+	private TraceState(String[] keys, String[] values, @Nullable String source, @Nullable String header) {
+		this.keys = keys;
+		this.values = values;
+		this.source = source;
+		this.header = header;
+	}
+
+	/**
+	 * @param header {@code tracestate} header
+	 * @return parsed state or {@code null} when the header is invalid
+	 */
+	@Nullable
+	static TraceState parse(CharSequence header) {
+		String[] keys = new String[4];
+		String[] values = new String[4];
+		int size = 0;
+		int length = header.length();
+		int position = 0;
+		while (position <= length) {
+			int end = position;
+			while (end < length && header.charAt(end) != ',') {
+				end++;
+			}
+			int start = position;
+			int stop = end;
+			while (start < stop && isWhitespace(header.charAt(start))) {
+				start++;
+			}
+			while (stop > start && isWhitespace(header.charAt(stop - 1))) {
+				stop--;
+			}
+			if (start < stop) {
+				int equals = indexOf(header, '=', start, stop);
+				if (equals < 0 || !isValidKey(header, start, equals) || !isValidValue(header, equals + 1, stop)) {
+					return null;
+				}
+				String key = header.subSequence(start, equals).toString();
+				if (indexOf(keys, size, key) >= 0) {
+					return null;
+				}
+				if (size == MAX_MEMBERS) {
+					return null;
+				}
+				if (size == keys.length) {
+					keys = copyOf(keys, size * 2);
+					values = copyOf(values, size * 2);
+				}
+				keys[size] = key;
+				values[size] = header.subSequence(equals + 1, stop).toString();
+				size++;
+			}
+			position = end + 1;
+		}
+		if (size == 0) {
+			return null;
+		}
+		String source = header.toString();
+		return new TraceState(copyOf(keys, size), copyOf(values, size), source, source);
+	}
+
+	/**
+	 * @param context trace context
+	 * @return the state attached to the context or {@code null} if there's none
+	 */
+	@Nullable
+	static TraceState get(TraceContext context) {
+		return context.findExtra(TraceState.class);
+	}
+
+	/**
+	 * Returns a context with the list-member added or updated, which per the
+	 * specification moves it to the beginning of the list. Used when a new context is
+	 * decorated, see
+	 * {@link org.springframework.cloud.sleuth.brave.propagation.TraceStateMember}.
+	 * @param context trace context
+	 * @param key list-member key
+	 * @param value list-member value
+	 * @return context with the updated state
+	 */
+	static TraceContext put(TraceContext context, String key, String value) {
+		TraceState current = get(context);
+		TraceState updated;
+		if (current != null) {
+			updated = current.put(key, value);
+		}
+		else {
+			validate(key, value);
+			updated = new TraceState(new String[] { key }, new String[] { value }, null, null);
+		}
+		if (updated == current) {
+			return context;
+		}
+		TraceContext.Builder builder = context.toBuilder().clearExtra();
+		for (Object extra : context.extra()) {
+			if (!(extra instanceof TraceState)) {
+				builder.addExtra(extra);
+			}
+		}
+		return builder.addExtra(updated).build();
+	}
+
+	/**
+	 * @param key list-member key
+	 * @param value list-member value
+	 * @return state with the list-member added or updated at the beginning of the list
+	 */
+	TraceState put(String key, String value) {
+		int index = indexOf(this.keys, this.keys.length, key);
+		if (index == 0 && this.values[0].equals(value)) {
+			return this;
+		}
+		validate(key, value);
+		int size = index >= 0 ? this.keys.length : Math.min(this.keys.length + 1, MAX_MEMBERS);
+		String[] keys = new String[size];
+		String[] values = new String[size];
+		keys[0] = key;
+		values[0] = value;
+		for (int i = 0, j = 1; i < this.keys.length && j < size; i++) {
+			if (i != index) {
+				keys[j] = this.keys[i];
+				values[j] = this.values[i];
+				j++;
+			}
+		}
+		return new TraceState(keys, values, this.source, null);
+	}
+
+	/**
+	 * @param key list-member key
+	 * @return value of the list-member or {@code null} if there's none
+	 */
+	@Nullable
+	String get(String key) {
+		int index = indexOf(this.keys, this.keys.length, key);
+		return index >= 0 ? this.values[index] : null;
+	}
+
+	int size() {
+		return this.keys.length;
+	}
+
+	/**
+	 * @return header this state was parsed from, also after it got updated
+	 */
+	@Nullable
+	String source() {
+		return this.source;
+	}
+
+	/**
+	 * @return {@code tracestate} header value
+	 */
+	String header() {
+		String header = this.header;
+		if (header == null) {
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < this.keys.length; i++) {
+				if (i > 0) {
+					builder.append(',');
+				}
+				builder.append(this.keys[i]).append('=').append(this.values[i]);
+			}
+			header = builder.toString();
+			this.header = header;
+		}
+		return header;
+	}
+
+	private static void validate(String key, String value) {
+		if (!isValidKey(key, 0, key.length()) || !isValidValue(value, 0, value.length())) {
+			throw new IllegalArgumentException("Invalid tracestate list-member [" + key + "=" + value + "]");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return header();
+	}
+
+	/**
+	 * Key is {@code lcalpha 0*255( lcalpha / DIGIT / "_" / "-"/ "*" / "/" )} or
+	 * {@code ( lcalpha / DIGIT ) 0*240(...) "@" lcalpha 0*13(...)}.
+	 */
+	private static boolean isValidKey(CharSequence key, int start, int end) {
+		int length = end - start;
+		if (length == 0 || length > MAX_KEY_LENGTH) {
+			return false;
+		}
+		int at = -1;
+		for (int i = start; i < end; i++) {
+			char c = key.charAt(i);
+			if (c == '@') {
+				if (at >= 0) {
+					return false;
+				}
+				at = i;
+			}
+			else if (!isLowerAlpha(c) && !isDigit(c) && c != '_' && c != '-' && c != '*' && c != '/') {
+				return false;
+			}
+		}
+		if (at < 0) {
+			return isLowerAlpha(key.charAt(start));
+		}
+		char first = key.charAt(start);
+		return at > start && at - start <= MAX_TENANT_ID_LENGTH && end - at - 1 > 0
+				&& end - at - 1 <= MAX_VENDOR_LENGTH && (isLowerAlpha(first) || isDigit(first))
+				&& isLowerAlpha(key.charAt(at + 1));
+	}
+
+	/**
+	 * Value is {@code 0*255(chr) nblk-chr} where {@code chr} is printable ASCII except
+	 * {@code ,} and {@code =}, and {@code nblk-chr} additionally excludes space.
+	 */
+	private static boolean isValidValue(CharSequence value, int start, int end) {
+		int length = end - start;
+		if (length == 0 || length > MAX_VALUE_LENGTH || value.charAt(end - 1) == ' ') {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			char c = value.charAt(i);
+			if (c < 0x20 || c > 0x7e || c == ',' || c == '=') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isLowerAlpha(char c) {
+		return c >= 'a' && c <= 'z';
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t';
+	}
+
+	private static int indexOf(CharSequence chars, char c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (chars.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(String[] keys, int size, String key) {
+		for (int i = 0; i < size; i++) {
+			if (keys[i].equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String[] copyOf(String[] array, int size) {
+		String[] copy = new String[size];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, size));
+		return copy;
+	}
+
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import brave.baggage.BaggageField;
@@ -39,7 +40,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.cloud.sleuth.BaggageInScope;
+import org.springframework.cloud.sleuth.brave.propagation.TraceStateMember;
 import org.springframework.cloud.sleuth.internal.EncodingUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.StringUtils;
 
 import static java.util.Collections.singletonList;
@@ -96,36 +100,20 @@ class W3CPropagation extends Propagation.Factory implements Propagation<String>
 
 	private static final int TRACEPARENT_HEADER_SIZE = TRACE_OPTION_OFFSET + TRACE_OPTION_HEX_SIZE;
 
-	private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
-
-	private static final String INVALID_SPAN_ID = "0000000000000000";
-
 	// private static final char TRACESTATE_ENTRY_DELIMITER = ',';
 
-	private static final Set<String> VALID_VERSIONS;
-
-	private static final String VERSION_00 = "00";
-
-	static {
-		// A valid version is 1 byte representing an 8-bit unsigned integer, version ff is
-		// invalid.
-		VALID_VERSIONS = new HashSet<>();
-		for (int i = 0; i < 255; i++) {
-			String version = Long.toHexString(i);
-			if (version.length() < 2) {
-				version = '0' + version;
-			}
-			VALID_VERSIONS.add(version);
-		}
-	}
-
 	private final W3CBaggagePropagator baggagePropagator;
 
-	private final BraveBaggageManager braveBaggageManager;
+	private final TraceStateMember traceStateMember;
 
 	W3CPropagation(BraveBaggageManager braveBaggageManager, List<String> localFields) {
+		this(braveBaggageManager, localFields, null);
+	}
+
+	W3CPropagation(BraveBaggageManager braveBaggageManager, List<String> localFields,
+			@Nullable TraceStateMember traceStateMember) {
 		this.baggagePropagator = new W3CBaggagePropagator(braveBaggageManager, localFields);
-		this.braveBaggageManager = braveBaggageManager;
+		this.traceStateMember = traceStateMember;
 	}
 
 	@Override
@@ -138,58 +126,73 @@ class W3CPropagation extends Propagation.Factory implements Propagation<String>
 		return FIELDS;
 	}
 
+	/**
+	 * Sets the {@link TraceStateMember} on every new context. The updated state is
+	 * inherited by the children of the context.
+	 */
+	@Override
+	public TraceContext decorate(TraceContext context) {
+		if (this.traceStateMember == null) {
+			return context;
+		}
+		String value = this.traceStateMember.value(context);
+		if (value == null) {
+			return context;
+		}
+		try {
+			return TraceState.put(context, this.traceStateMember.key(), value);
+		}
+		catch (IllegalArgumentException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not setting the tracestate list-member", ex);
+			}
+			return context;
+		}
+	}
+
 	@Override
 	public <R> TraceContext.Injector<R> injector(Setter<R, String> setter) {
+		Objects.requireNonNull(setter, "setter");
+		TraceContext.Injector<R> baggageInjector = this.baggagePropagator.injector(setter);
 		return (context, carrier) -> {
 			Objects.requireNonNull(context, "context");
-			Objects.requireNonNull(setter, "setter");
 			char[] chars = TemporaryBuffers.chars(TRACEPARENT_HEADER_SIZE);
 			chars[0] = VERSION.charAt(0);
 			chars[1] = VERSION.charAt(1);
 			chars[2] = TRACEPARENT_DELIMITER;
-			String traceId = padLeftWithZeros(context.traceIdString(), TRACE_ID_HEX_SIZE);
-			for (int i = 0; i < traceId.length(); i++) {
-				chars[TRACE_ID_OFFSET + i] = traceId.charAt(i);
-			}
+			EncodingUtils.longToBase16String(context.traceIdHigh(), chars, TRACE_ID_OFFSET);
+			EncodingUtils.longToBase16String(context.traceId(), chars, TRACE_ID_OFFSET + LONG_BASE16);
 			chars[SPAN_ID_OFFSET - 1] = TRACEPARENT_DELIMITER;
-			String spanId = context.spanIdString();
-			for (int i = 0; i < spanId.length(); i++) {
-				chars[SPAN_ID_OFFSET + i] = spanId.charAt(i);
-			}
+			EncodingUtils.longToBase16String(context.spanId(), chars, SPAN_ID_OFFSET);
 			chars[TRACE_OPTION_OFFSET - 1] = TRACEPARENT_DELIMITER;
 			copyTraceFlagsHexTo(chars, TRACE_OPTION_OFFSET, context);
 			setter.put(carrier, TRACE_PARENT, new String(chars, 0, TRACEPARENT_HEADER_SIZE));
 			addTraceState(setter, context, carrier);
-			this.baggagePropagator.injector(setter).inject(context, carrier);
+			baggageInjector.inject(context, carrier);
 		};
 	}
 
 	private <R> void addTraceState(Setter<R, String> setter, TraceContext context, R carrier) {
 		if (carrier != null) {
-			BaggageInScope baggage = this.braveBaggageManager.getBaggage(BraveTraceContext.fromBrave(context),
-					TRACE_STATE);
-			if (baggage == null) {
-				return;
-			}
-			String traceState = baggage.get(BraveTraceContext.fromBrave(context));
+			String traceState = traceState(context);
 			if (StringUtils.hasText(traceState)) {
 				setter.put(carrier, TRACE_STATE, traceState);
 			}
 		}
 	}
 
-	private String padLeftWithZeros(String string, int length) {
-		if (string.length() >= length) {
-			return string;
-		}
-		else {
-			StringBuilder sb = new StringBuilder(length);
-			for (int i = string.length(); i < length; i++) {
-				sb.append('0');
-			}
-
-			return sb.append(string).toString();
+	/**
+	 * Prefers the parsed {@link TraceState}, unless the {@code tracestate} baggage was
+	 * changed since it was extracted.
+	 */
+	private String traceState(TraceContext context) {
+		TraceState traceState = TraceState.get(context);
+		BaggageField field = BaggageField.getByName(context, TRACE_STATE);
+		String baggage = field != null ? field.getValue(context) : null;
+		if (traceState != null && (baggage == null || baggage.equals(traceState.source()))) {
+			return traceState.header();
 		}
+		return baggage;
 	}
 
 	void copyTraceFlagsHexTo(char[] dest, int destOffset, TraceContext context) {
@@ -226,30 +229,26 @@ class W3CPropagation extends Propagation.Factory implements Propagation<String>
 		if (!StringUtils.hasText(traceStateHeader)) {
 			return TraceContextOrSamplingFlags.create(contextFromParentHeader);
 		}
-		try {
-			return TraceContextOrSamplingFlags
-					.newBuilder(TraceContext.newBuilder().traceId(contextFromParentHeader.traceId())
-							.traceIdHigh(contextFromParentHeader.traceIdHigh()).spanId(contextFromParentHeader.spanId())
-							.sampled(contextFromParentHeader.sampled()).shared(true).build())
-					.build();
-		}
-		catch (IllegalArgumentException e) {
+		TraceState traceState = TraceState.parse(traceStateHeader);
+		if (traceState == null) {
 			logger.info("Unparseable tracestate header. Returning span context without state.");
 			return TraceContextOrSamplingFlags.create(contextFromParentHeader);
 		}
+		return TraceContextOrSamplingFlags.create(contextFromParentHeader.toBuilder().addExtra(traceState).build());
 	}
 
-	private static boolean isTraceIdValid(CharSequence traceId) {
-		return (traceId.length() == TRACE_ID_HEX_SIZE) && !INVALID_TRACE_ID.contentEquals(traceId)
-				&& EncodingUtils.isValidBase16String(traceId);
+	private static boolean isVersionValid(CharSequence traceparent) {
+		// A valid version is 1 byte representing an 8-bit unsigned integer, version ff is
+		// invalid.
+		return EncodingUtils.isValidBase16String(traceparent, 0, VERSION_SIZE)
+				&& !(traceparent.charAt(0) == 'f' && traceparent.charAt(1) == 'f');
 	}
 
-	private static boolean isSpanIdValid(String spanId) {
-		return (spanId.length() == SPAN_ID_HEX_SIZE) && !INVALID_SPAN_ID.equals(spanId)
-				&& EncodingUtils.isValidBase16String(spanId);
+	private static boolean isVersion00(CharSequence traceparent) {
+		return traceparent.charAt(0) == VERSION.charAt(0) && traceparent.charAt(1) == VERSION.charAt(1);
 	}
 
-	private static TraceContext extractContextFromTraceParent(String traceparent) {
+	private static TraceContext extractContextFromTraceParent(CharSequence traceparent) {
 		// TODO(bdrutu): Do we need to verify that version is hex and that
 		// for the version the length is the expected one?
 		boolean isValid = (traceparent.length() == TRACEPARENT_HEADER_SIZE
@@ -264,27 +263,26 @@ class W3CPropagation extends Propagation.Factory implements Propagation<String>
 		}
 
 		try {
-			String version = traceparent.substring(0, 2);
-			if (!VALID_VERSIONS.contains(version)) {
+			if (!isVersionValid(traceparent)) {
 				return null;
 			}
-			if (version.equals(VERSION_00) && traceparent.length() > TRACEPARENT_HEADER_SIZE) {
+			if (isVersion00(traceparent) && traceparent.length() > TRACEPARENT_HEADER_SIZE) {
 				return null;
 			}
-
-			String traceId = traceparent.substring(TRACE_ID_OFFSET, TRACE_ID_OFFSET + TRACE_ID_HEX_SIZE);
-			String spanId = traceparent.substring(SPAN_ID_OFFSET, SPAN_ID_OFFSET + SPAN_ID_HEX_SIZE);
-			if (isTraceIdValid(traceId) && isSpanIdValid(spanId)) {
-				String traceIdHigh = traceId.substring(0, traceId.length() / 2);
-				String traceIdLow = traceId.substring(traceId.length() / 2);
-				byte isSampled = TraceFlags.byteFromHex(traceparent, TRACE_OPTION_OFFSET);
-				return TraceContext.newBuilder().shared(true)
-						.traceIdHigh(EncodingUtils.longFromBase16String(traceIdHigh))
-						.traceId(EncodingUtils.longFromBase16String(traceIdLow))
-						.spanId(EncodingUtils.longFromBase16String(spanId)).sampled(isSampled == TraceFlags.IS_SAMPLED)
-						.build();
+			if (!EncodingUtils.isValidBase16String(traceparent, TRACE_ID_OFFSET, TRACE_ID_OFFSET + TRACE_ID_HEX_SIZE)
+					|| !EncodingUtils.isValidBase16String(traceparent, SPAN_ID_OFFSET,
+							SPAN_ID_OFFSET + SPAN_ID_HEX_SIZE)) {
+				return null;
 			}
-			return null;
+			long traceIdHigh = EncodingUtils.longFromBase16String(traceparent, TRACE_ID_OFFSET);
+			long traceId = EncodingUtils.longFromBase16String(traceparent, TRACE_ID_OFFSET + LONG_BASE16);
+			long spanId = EncodingUtils.longFromBase16String(traceparent, SPAN_ID_OFFSET);
+			if ((traceIdHigh == 0L && traceId == 0L) || spanId == 0L) {
+				return null;
+			}
+			byte isSampled = TraceFlags.byteFromHex(traceparent, TRACE_OPTION_OFFSET);
+			return TraceContext.newBuilder().shared(true).traceIdHigh(traceIdHigh).traceId(traceId).spanId(spanId)
+					.sampled(isSampled == TraceFlags.IS_SAMPLED).build();
 		}
 		catch (IllegalArgumentException e) {
 			logger.info("Unparseable traceparent header. Returning INVALID span context.");
@@ -311,20 +309,40 @@ class W3CBaggagePropagator {
 
 	private final BraveBaggageManager braveBaggageManager;
 
-	private final List<String> localFields;
+	private final String[] localFields;
+
+	/**
+	 * Baggage propagation factories per set of extracted field names, so that they are
+	 * not built on every extraction. The entries are softly referenced, since the names
+	 * come from the incoming headers.
+	 */
+	private final ConcurrentMap<Set<String>, Propagation.Factory> factories = new ConcurrentReferenceHashMap<>();
 
 	W3CBaggagePropagator(BraveBaggageManager braveBaggageManager, List<String> localFields) {
 		this.braveBaggageManager = braveBaggageManager;
-		this.localFields = localFields;
+		this.localFields = localFields.toArray(new String[0]);
 	}
 
-	private BaggagePropagation.FactoryBuilder factory() {
-		return BaggagePropagation.newFactoryBuilder(new Propagation.Factory() {
-			@Override
-			public <K> Propagation<K> create(Propagation.KeyFactory<K> keyFactory) {
-				return null;
-			}
-		});
+	private Propagation.Factory factory(Set<String> names) {
+		Propagation.Factory factory = this.factories.get(names);
+		if (factory != null) {
+			return factory;
+		}
+		BaggagePropagation.FactoryBuilder factoryBuilder = BaggagePropagation
+				.newFactoryBuilder(new Propagation.Factory() {
+					@Override
+					public <K> Propagation<K> create(Propagation.KeyFactory<K> keyFactory) {
+						return null;
+					}
+				});
+		for (String name : names) {
+			BaggageField field = TRACE_STATE.equals(name) ? TRACE_STATE_BAGGAGE
+					: ((BraveBaggageInScope) this.braveBaggageManager.createBaggage(name)).unwrap();
+			factoryBuilder = factoryBuilder.add(BaggagePropagationConfig.SingleBaggageField.remote(field));
+		}
+		factory = factoryBuilder.build();
+		Propagation.Factory previous = this.factories.putIfAbsent(names, factory);
+		return previous != null ? previous : factory;
 	}
 
 	public List<String> keys() {
@@ -339,8 +357,7 @@ class W3CBaggagePropagator {
 			}
 			StringBuilder headerContent = new StringBuilder();
 			// We ignore local keys - they won't get propagated
-			String[] strings = this.localFields.toArray(new String[0]);
-			Map<String, String> filtered = extra.toMapFilteringFieldNames(strings);
+			Map<String, String> filtered = extra.toMapFilteringFieldNames(this.localFields);
 			for (Map.Entry<String, String> entry : filtered.entrySet()) {
 				if (TRACE_STATE.equalsIgnoreCase(entry.getKey())) {
 					continue;
@@ -362,22 +379,17 @@ class W3CBaggagePropagator {
 
 	<R> TraceContextOrSamplingFlags contextWithBaggage(R carrier, TraceContextOrSamplingFlags flags,
 			Propagation.Getter<R, String> getter) {
-		BaggagePropagation.FactoryBuilder factoryBuilder = factory();
 		String traceState = getter.get(carrier, TRACE_STATE);
 		boolean hasTraceState = StringUtils.hasText(traceState);
-		if (hasTraceState) {
-			factoryBuilder = factoryBuilder
-					.add(BaggagePropagationConfig.SingleBaggageField.remote(TRACE_STATE_BAGGAGE));
-		}
 		String baggageHeader = getter.get(carrier, FIELD);
 		List<AbstractMap.SimpleEntry<BaggageInScope, String>> pairs = baggageHeader == null || baggageHeader.isEmpty()
 				? Collections.emptyList() : addBaggageToContext(baggageHeader);
-		Set<String> names = pairs.stream().map(e -> e.getKey().name()).collect(Collectors.toSet());
-		for (String name : names) {
-			factoryBuilder = factoryBuilder.add(BaggagePropagationConfig.SingleBaggageField
-					.remote(((BraveBaggageInScope) this.braveBaggageManager.createBaggage(name)).unwrap()));
+		Set<String> names = pairs.stream().map(e -> e.getKey().name())
+				.collect(Collectors.toCollection(HashSet::new));
+		if (hasTraceState) {
+			names.add(TRACE_STATE);
 		}
-		TraceContext decoratedContext = factoryBuilder.build().decorate(flags.context());
+		TraceContext decoratedContext = factory(names).decorate(flags.context());
 		if (hasTraceState) {
 			BaggageInScope baggageInScope = this.braveBaggageManager.createBaggage(TRACE_STATE);
 			baggageInScope.set(new BraveTraceContext(decoratedContext), traceState);
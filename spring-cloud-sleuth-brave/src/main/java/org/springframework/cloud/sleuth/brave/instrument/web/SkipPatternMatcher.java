@@ -0,0 +1,363 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.instrument.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+/**
+ * Matches paths against a skip pattern without running the regex for the common shapes
+ * of skip patterns. The alternatives of the pattern are expanded, including groups such
+ * as the one generated for actuator endpoints, and sorted into:
+ *
+ * <ul>
+ * <li>full paths, e.g. {@code /favicon.ico}, and prefixes, e.g. {@code /swagger.*},
+ * looked up in a trie</li>
+ * <li>suffixes, e.g. {@code .*\.png}, looked up in a trie of reversed suffixes</li>
+ * </ul>
+ *
+ * Only the alternatives of any other shape are joined into a regex that is run when
+ * none of the above matched.
+ *
+ * @since 3.1.10
+ */
+final class SkipPatternMatcher {
+
+	/**
+	 * Stands for {@code .*} in expanded alternatives.
+	 */
+	private static final char ANY = '\u0000';
+
+	/**
+	 * Stands for a single {@code .} in expanded alternatives.
+	 */
+	private static final char ANY_CHARACTER = '\u0001';
+
+	private static final int MAX_EXPANSIONS = 256;
+
+	private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+	private final CharTrie prefixes = new CharTrie();
+
+	private final CharTrie suffixes = new CharTrie();
+
+	private final Pattern remainder;
+
+	SkipPatternMatcher(Pattern pattern) {
+		if (pattern.flags() != 0) {
+			this.remainder = pattern;
+			return;
+		}
+		StringJoiner remainder = new StringJoiner("|");
+		for (String alternative : split(pattern.pattern())) {
+			List<String> expanded = new Parser(alternative).expand();
+			if (expanded == null || !addAll(expanded)) {
+				remainder.add(alternative);
+			}
+		}
+		this.remainder = remainder.length() > 0 ? Pattern.compile(remainder.toString()) : null;
+	}
+
+	boolean matches(String path) {
+		if (this.prefixes.matches(path, false) || this.suffixes.matches(path, true)) {
+			return true;
+		}
+		return this.remainder != null && this.remainder.matcher(path).matches();
+	}
+
+	/**
+	 * @return {@code false} when any expanded alternative has a shape that needs a regex
+	 */
+	private boolean addAll(List<String> expanded) {
+		for (String value : expanded) {
+			int any = value.indexOf(ANY);
+			if (any >= 0 && value.indexOf(ANY, any + 1) >= 0) {
+				return false;
+			}
+			if (any > 0 && any < value.length() - 1) {
+				return false;
+			}
+		}
+		for (String value : expanded) {
+			int any = value.indexOf(ANY);
+			if (any < 0) {
+				this.prefixes.add(value, false, false);
+			}
+			else if (any == value.length() - 1) {
+				this.prefixes.add(value.substring(0, any), false, true);
+			}
+			else {
+				this.suffixes.add(value.substring(1), true, true);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Splits the top level alternatives of a regex.
+	 */
+	static List<String> split(String regex) {
+		List<String> alternatives = new ArrayList<>();
+		int depth = 0;
+		boolean inClass = false;
+		int start = 0;
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i++;
+			}
+			else if (inClass) {
+				inClass = c != ']';
+			}
+			else if (c == '[') {
+				inClass = true;
+			}
+			else if (c == '(') {
+				depth++;
+			}
+			else if (c == ')') {
+				depth--;
+			}
+			else if (c == '|' && depth == 0) {
+				alternatives.add(regex.substring(start, i));
+				start = i + 1;
+			}
+		}
+		alternatives.add(regex.substring(start));
+		return alternatives;
+	}
+
+	/**
+	 * Expands literals, escaped characters, {@code .*} and (optional) groups of
+	 * alternatives into all strings they can match.
+	 */
+	private static final class Parser {
+
+		private final String regex;
+
+		private int position;
+
+		private Parser(String regex) {
+			this.regex = regex;
+		}
+
+		/**
+		 * @return all expansions or {@code null} when the regex uses other constructs
+		 */
+		List<String> expand() {
+			try {
+				List<String> result = alternatives();
+				return this.position == this.regex.length() ? result : null;
+			}
+			catch (UnsupportedOperationException ex) {
+				return null;
+			}
+		}
+
+		private List<String> alternatives() {
+			List<String> result = new ArrayList<>(sequence());
+			while (this.position < this.regex.length() && this.regex.charAt(this.position) == '|') {
+				this.position++;
+				result.addAll(sequence());
+				checkSize(result.size());
+			}
+			return result;
+		}
+
+		private List<String> sequence() {
+			List<String> result = Collections.singletonList("");
+			while (this.position < this.regex.length()) {
+				char c = this.regex.charAt(this.position);
+				List<String> next;
+				if (c == '|' || c == ')') {
+					return result;
+				}
+				else if (c == '(') {
+					next = group();
+				}
+				else if (c == '\\') {
+					next = Collections.singletonList(String.valueOf(escaped()));
+				}
+				else if (c == '.' && this.regex.startsWith(".*", this.position)) {
+					this.position += 2;
+					next = Collections.singletonList(String.valueOf(ANY));
+				}
+				else if (c == '.') {
+					this.position++;
+					next = Collections.singletonList(String.valueOf(ANY_CHARACTER));
+				}
+				else if (META_CHARACTERS.indexOf(c) >= 0 || c <= ANY_CHARACTER) {
+					throw new UnsupportedOperationException();
+				}
+				else {
+					this.position++;
+					next = Collections.singletonList(String.valueOf(c));
+				}
+				result = concat(result, next);
+			}
+			return result;
+		}
+
+		private List<String> group() {
+			this.position++;
+			if (this.regex.startsWith("?:", this.position)) {
+				this.position += 2;
+			}
+			else if (this.position < this.regex.length() && this.regex.charAt(this.position) == '?') {
+				throw new UnsupportedOperationException();
+			}
+			List<String> result = alternatives();
+			if (this.position >= this.regex.length() || this.regex.charAt(this.position) != ')') {
+				throw new UnsupportedOperationException();
+			}
+			this.position++;
+			if (this.position < this.regex.length() && this.regex.charAt(this.position) == '?') {
+				this.position++;
+				result = new ArrayList<>(result);
+				result.add("");
+			}
+			return result;
+		}
+
+		private char escaped() {
+			if (this.position + 1 >= this.regex.length()) {
+				throw new UnsupportedOperationException();
+			}
+			char c = this.regex.charAt(this.position + 1);
+			if (META_CHARACTERS.indexOf(c) < 0 && c != '/' && c != '-') {
+				throw new UnsupportedOperationException();
+			}
+			this.position += 2;
+			return c;
+		}
+
+		private static List<String> concat(List<String> left, List<String> right) {
+			checkSize(left.size() * right.size());
+			List<String> result = new ArrayList<>(left.size() * right.size());
+			for (String l : left) {
+				for (String r : right) {
+					result.add(l + r);
+				}
+			}
+			return result;
+		}
+
+		private static void checkSize(int size) {
+			if (size > MAX_EXPANSIONS) {
+				throw new UnsupportedOperationException();
+			}
+		}
+
+	}
+
+	/**
+	 * Trie of characters that finds whether a path (or, when reversed, its end) matches
+	 * any of the added values. Values either have to match the whole path or only its
+	 * beginning.
+	 */
+	private static final class CharTrie {
+
+		private char[] keys = new char[0];
+
+		private CharTrie[] children = new CharTrie[0];
+
+		private boolean anyCharacterChild;
+
+		private boolean exact;
+
+		private boolean prefix;
+
+		void add(String value, boolean reversed, boolean prefix) {
+			CharTrie node = this;
+			for (int i = 0; i < value.length(); i++) {
+				node = node.child(value.charAt(reversed ? value.length() - 1 - i : i));
+			}
+			if (prefix) {
+				node.prefix = true;
+			}
+			else {
+				node.exact = true;
+			}
+		}
+
+		private CharTrie child(char key) {
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i] == key) {
+					return this.children[i];
+				}
+			}
+			char[] keys = new char[this.keys.length + 1];
+			System.arraycopy(this.keys, 0, keys, 0, this.keys.length);
+			keys[this.keys.length] = key;
+			CharTrie[] children = new CharTrie[this.children.length + 1];
+			System.arraycopy(this.children, 0, children, 0, this.children.length);
+			CharTrie child = new CharTrie();
+			children[this.children.length] = child;
+			this.keys = keys;
+			this.children = children;
+			this.anyCharacterChild |= key == ANY_CHARACTER;
+			return child;
+		}
+
+		boolean matches(String path, boolean reversed) {
+			return matches(path, 0, reversed);
+		}
+
+		private boolean matches(String path, int index, boolean reversed) {
+			CharTrie node = this;
+			int length = path.length();
+			for (int i = index; i < length; i++) {
+				if (node.prefix) {
+					return true;
+				}
+				char c = path.charAt(reversed ? length - 1 - i : i);
+				if (node.anyCharacterChild) {
+					return node.matchesChildren(path, c, i + 1, reversed);
+				}
+				node = node.next(c);
+				if (node == null) {
+					return false;
+				}
+			}
+			return node.prefix || node.exact;
+		}
+
+		private boolean matchesChildren(String path, char c, int next, boolean reversed) {
+			for (int i = 0; i < this.keys.length; i++) {
+				if ((this.keys[i] == c || this.keys[i] == ANY_CHARACTER)
+						&& this.children[i].matches(path, next, reversed)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private CharTrie next(char key) {
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i] == key) {
+					return this.children[i];
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -39,6 +39,13 @@ public enum PropagationType {
 	 */
 	W3C,
 
+	/**
+	 * Binary propagation type. Writes the trace context in the 29 byte
+	 * {@code grpc-trace-bin} layout. Kafka record headers and RSocket metadata carry the
+	 * raw bytes, other carriers such as HTTP headers get the value base64 encoded.
+	 */
+	BINARY,
+
 	/**
 	 * Custom propagation type. If picked, requires bean registration overriding the
 	 * default propagation mechanisms.
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.propagation;
+
+import brave.propagation.TraceContext;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * List-member of the W3C {@code tracestate} header that this service sets on the spans
+ * it creates, e.g. a vendor specific sampling decision. Applied by the
+ * {@link PropagationType#W3C} propagation when registered as a bean. The member is moved
+ * to the beginning of the list, as required by the specification, and propagated to the
+ * children of the span.
+ *
+ * @since 3.1.10
+ */
+public interface TraceStateMember {
+
+	/**
+	 * @return key of the list-member, e.g. {@code vendor} or {@code tenant@vendor}
+	 */
+	String key();
+
+	/**
+	 * Called for every new span, so it should not allocate when the value didn't change.
+	 * @param context context of the new span
+	 * @return value of the list-member or {@code null} to leave the state as it is
+	 */
+	@Nullable
+	String value(TraceContext context);
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.sampler;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import brave.sampler.Sampler;
+
+import org.springframework.util.Assert;
+
+/**
+ * Sampler that targets a number of sampled traces per second, regardless of the load.
+ * At the end of every window the rate of incoming traces is averaged with the previous
+ * windows and the probability is set to the target rate divided by that average. Within
+ * a window never more than the target rate times the window length gets sampled, so a
+ * sudden surge is capped until the probability catches up.
+ *
+ * @since 3.1.10
+ */
+public class AdaptiveSampler extends Sampler {
+
+	/**
+	 * Weight of the last window in the average of the incoming rate.
+	 */
+	private static final double LAST_WINDOW_WEIGHT = 0.5;
+
+	private final Supplier<Integer> targetRate;
+
+	private final long windowNanos;
+
+	private final LongSupplier nanoTime;
+
+	private final AtomicLong windowStart;
+
+	private final LongAdder seen = new LongAdder();
+
+	private final AtomicLong sampled = new AtomicLong();
+
+	private volatile double probability = 1.0;
+
+	private volatile double incomingRate = -1;
+
+	private volatile double sampledRate;
+
+	public AdaptiveSampler(Supplier<Integer> targetRate, Duration window) {
+		this(targetRate, window, System::nanoTime);
+	}
+
+	AdaptiveSampler(Supplier<Integer> targetRate, Duration window, LongSupplier nanoTime) {
+		Assert.notNull(targetRate, "target rate is required for AdaptiveSampler");
+		Assert.isTrue(!window.isNegative() && !window.isZero(), "window must be positive");
+		this.targetRate = targetRate;
+		this.windowNanos = window.toNanos();
+		this.nanoTime = nanoTime;
+		this.windowStart = new AtomicLong(nanoTime.getAsLong());
+	}
+
+	@Override
+	public boolean isSampled(long traceId) {
+		long now = this.nanoTime.getAsLong();
+		long start = this.windowStart.get();
+		if (now - start >= this.windowNanos && this.windowStart.compareAndSet(start, now)) {
+			recompute(now - start);
+		}
+		this.seen.increment();
+		int targetRate = targetRate();
+		if (targetRate == 0) {
+			return false;
+		}
+		double probability = this.probability;
+		if (probability < 1.0 && ThreadLocalRandom.current().nextDouble() >= probability) {
+			return false;
+		}
+		return this.sampled.getAndIncrement() < windowBudget(targetRate);
+	}
+
+	private void recompute(long elapsedNanos) {
+		double seconds = elapsedNanos / 1_000_000_000d;
+		double lastRate = this.seen.sumThenReset() / seconds;
+		int targetRate = targetRate();
+		this.sampledRate = Math.min(this.sampled.getAndSet(0), windowBudget(targetRate)) / seconds;
+		double incomingRate = this.incomingRate < 0 ? lastRate
+				: LAST_WINDOW_WEIGHT * lastRate + (1 - LAST_WINDOW_WEIGHT) * this.incomingRate;
+		this.incomingRate = incomingRate;
+		this.probability = incomingRate <= targetRate ? 1.0 : targetRate / incomingRate;
+	}
+
+	private long windowBudget(int targetRate) {
+		return (long) Math.ceil(targetRate * (this.windowNanos / 1_000_000_000d));
+	}
+
+	private int targetRate() {
+		Integer rate = this.targetRate.get();
+		return rate != null ? Math.max(rate, 0) : 0;
+	}
+
+	/**
+	 * @return probability with which traces are currently sampled
+	 */
+	public double getProbability() {
+		return this.probability;
+	}
+
+	/**
+	 * @return traces per second sampled in the last window
+	 */
+	public double getSampledRate() {
+		return this.sampledRate;
+	}
+
+	/**
+	 * @return average of incoming traces per second over the last windows
+	 */
+	public double getIncomingRate() {
+		return Math.max(this.incomingRate, 0);
+	}
+
+}
@@ -18,7 +18,7 @@ package org.springframework.cloud.sleuth.brave.sampler;
 
 import java.util.BitSet;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
 
 import brave.sampler.Sampler;
@@ -38,7 +38,12 @@ import org.springframework.util.Assert;
  * </p>
  *
  * This counts to see how many out of 100 traces should be retained. This means that it is
- * accurate in units of 100 traces.
+ * accurate in units of 100 traces. Probabilities that need a finer resolution are
+ * counted out of 1,000 or 10,000 traces, so the resolution is 0.01%, one trace in
+ * 10,000. A probability between two such steps is rounded to the nearest one. Each
+ * thread walks the shared decisions from its own position, so no state is shared
+ * between threads that are sampling. When the probability changes, the decisions are
+ * recomputed.
  *
  * @author Marcin Grzejszczak
  * @author Adrian Cole
@@ -46,17 +51,22 @@ import org.springframework.util.Assert;
  */
 public class ProbabilityBasedSampler extends Sampler {
 
-	private final AtomicInteger counter = new AtomicInteger(0);
+	/**
+	 * Numbers of traces the decisions are counted out of. The largest one sets the
+	 * resolution of 0.01%.
+	 */
+	private static final int[] WINDOWS = { 100, 1_000, 10_000 };
 
-	private final BitSet sampleDecisions;
+	private final ThreadLocal<int[]> positions = new ThreadLocal<>();
 
 	private final Supplier<Float> probability;
 
+	private volatile Decisions decisions;
+
 	public ProbabilityBasedSampler(Supplier<Float> probability) {
 		Assert.notNull(probability, "probability property is required for ProbabilityBasedSampler");
 		this.probability = probability;
-		int outOf100 = (int) (probability.get() * 100.0f);
-		this.sampleDecisions = randomBitSet(100, outOf100, new Random());
+		this.decisions = new Decisions(probability.get());
 	}
 
 	/**
@@ -89,20 +99,64 @@ public class ProbabilityBasedSampler extends Sampler {
 
 	@Override
 	public boolean isSampled(long traceId) {
-		if (this.probability.get() == 0) {
+		float probability = this.probability.get();
+		if (probability == 0) {
 			return false;
 		}
-		else if (this.probability.get() == 1.0f) {
+		else if (probability == 1.0f) {
 			return true;
 		}
-		synchronized (this) {
-			final int i = this.counter.getAndIncrement();
-			boolean result = this.sampleDecisions.get(i);
-			if (i == 99) {
-				this.counter.set(0);
+		Decisions decisions = this.decisions;
+		if (decisions.probability != probability) {
+			// racing threads compute the same decisions, the last one wins
+			decisions = new Decisions(probability);
+			this.decisions = decisions;
+		}
+		return decisions.sampleDecisions.get(nextPosition(decisions.window));
+	}
+
+	/**
+	 * Threads start at a random position, so that the first traces of each thread don't
+	 * all get the same decision.
+	 */
+	private int nextPosition(int window) {
+		int[] position = this.positions.get();
+		if (position == null) {
+			position = new int[] { ThreadLocalRandom.current().nextInt(window) };
+			this.positions.set(position);
+		}
+		int i = position[0] % window;
+		position[0] = i + 1 == window ? 0 : i + 1;
+		return i;
+	}
+
+	/**
+	 * Picks the smallest window in which the probability is a whole number of traces.
+	 */
+	static int window(float probability) {
+		for (int window : WINDOWS) {
+			float traces = probability * window;
+			if (Math.abs(traces - Math.round(traces)) < 0.001f) {
+				return window;
 			}
-			return result;
 		}
+		return WINDOWS[WINDOWS.length - 1];
+	}
+
+	private static final class Decisions {
+
+		private final float probability;
+
+		private final int window;
+
+		private final BitSet sampleDecisions;
+
+		private Decisions(float probability) {
+			this.probability = probability;
+			this.window = window(probability);
+			this.sampleDecisions = randomBitSet(this.window, Math.round(probability * this.window), new Random());
+		}
+
 	}
 
 }
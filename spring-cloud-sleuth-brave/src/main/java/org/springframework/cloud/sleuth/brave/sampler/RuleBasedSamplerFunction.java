@@ -0,0 +1,401 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.sampler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import brave.http.HttpRequest;
+import brave.messaging.MessagingRequest;
+import brave.rpc.RpcRequest;
+import brave.sampler.Sampler;
+import brave.sampler.SamplerFunction;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link SamplerFunction} that samples requests according to the most specific matching
+ * {@link Rule}. A rule matches on two parts of a request: the HTTP method and path, the
+ * messaging destination, or the RPC service and method. Parts of a rule can be
+ * {@code *}, which matches any value. Paths are matched per segment, where {@code *} and
+ * {@code {name}} match a single segment and a trailing {@code **} matches all remaining
+ * segments. The same rules are used for both sides of a request, e.g. for HTTP clients
+ * and servers or for message producers and consumers; build a separate function per
+ * side when they should differ.
+ *
+ * <p>
+ * The order of the rules does not matter, except that of two rules with the same parts
+ * the first one wins. Otherwise a request is sampled by the first of:
+ * <ol>
+ * <li>the rule whose parts equal the request parts</li>
+ * <li>the rule with {@code *} as the first part and a second part without wildcards
+ * that equals the second part of the request</li>
+ * <li>the best rule with wildcards in the second part, compared from left to right: a
+ * literal first part wins over {@code *}, a literal segment over {@code *} or
+ * {@code {name}} in the same position, and those over a trailing {@code **}. Of two
+ * trailing {@code **}, the one after more segments wins.</li>
+ * </ol>
+ * For example, for {@code GET /orders/recent} the rule {@code * /orders/recent} wins over
+ * {@code GET /orders/{id}}, which wins over {@code GET /orders/**}.
+ *
+ * <p>
+ * All rules are compiled into lookup tables up front. Rules without wildcards are found
+ * with a single map lookup, the remaining ones in a trie of path segments that is walked
+ * without copying the path. When no rule matches, the decision is left to the fallback
+ * sampler.
+ *
+ * @param <R> type of request
+ * @since 3.1.10
+ */
+public final class RuleBasedSamplerFunction<R> implements SamplerFunction<R> {
+
+	private static final String ANY = "*";
+
+	private static final String ANY_REMAINING = "**";
+
+	private final Function<R, String> firstPart;
+
+	private final Function<R, String> secondPart;
+
+	private final char separator;
+
+	private final Map<String, Map<String, Sampler>> literals = new HashMap<>();
+
+	private final Node templates = new Node();
+
+	private final SamplerFunction<R> fallback;
+
+	private RuleBasedSamplerFunction(Function<R, String> firstPart, Function<R, String> secondPart, char separator,
+			List<Rule> rules, @Nullable SamplerFunction<R> fallback) {
+		this.firstPart = firstPart;
+		this.secondPart = secondPart;
+		this.separator = separator;
+		this.fallback = fallback;
+		for (Rule rule : rules) {
+			add(rule);
+		}
+	}
+
+	/**
+	 * @param rules rules where the first part is the HTTP method and the second the path
+	 * @param fallback sampler to use when no rule matches
+	 * @return sampler of HTTP requests
+	 */
+	public static SamplerFunction<HttpRequest> http(List<Rule> rules, @Nullable SamplerFunction<HttpRequest> fallback) {
+		List<Rule> methodRules = new ArrayList<>(rules.size());
+		for (Rule rule : rules) {
+			methodRules.add(new Rule(upperCase(rule.first), rule.second, rule.sampler));
+		}
+		return new RuleBasedSamplerFunction<>(request -> upperCase(request.method()), HttpRequest::path, '/',
+				methodRules, fallback);
+	}
+
+	/**
+	 * @param rules rules where the first part is the destination
+	 * @param fallback sampler to use when no rule matches
+	 * @return sampler of messaging requests
+	 */
+	public static SamplerFunction<MessagingRequest> messaging(List<Rule> rules,
+			@Nullable SamplerFunction<MessagingRequest> fallback) {
+		return new RuleBasedSamplerFunction<>(MessagingRequest::channelName, request -> null, (char) 0, rules,
+				fallback);
+	}
+
+	/**
+	 * @param rules rules where the first part is the service and the second the method
+	 * @param fallback sampler to use when no rule matches
+	 * @return sampler of RPC requests
+	 */
+	public static SamplerFunction<RpcRequest> rpc(List<Rule> rules, @Nullable SamplerFunction<RpcRequest> fallback) {
+		return new RuleBasedSamplerFunction<>(RpcRequest::service, RpcRequest::method, (char) 0, rules, fallback);
+	}
+
+	private static String upperCase(@Nullable String method) {
+		return method != null ? method.toUpperCase(Locale.ROOT) : null;
+	}
+
+	@Override
+	public Boolean trySample(R request) {
+		String first = this.firstPart.apply(request);
+		String second = this.secondPart.apply(request);
+		Sampler sampler = first != null ? match(first, second != null ? second : "") : null;
+		if (sampler == null) {
+			return this.fallback != null ? this.fallback.trySample(request) : null;
+		}
+		return sampler.isSampled(0L);
+	}
+
+	private Sampler match(String first, String second) {
+		Sampler sampler = literal(first, second);
+		if (sampler == null) {
+			sampler = literal(ANY, second);
+		}
+		if (sampler == null) {
+			sampler = this.templates.match(first, second, this.separator);
+		}
+		return sampler;
+	}
+
+	private Sampler literal(String first, String second) {
+		Map<String, Sampler> samplers = this.literals.get(first);
+		return samplers != null ? samplers.get(second) : null;
+	}
+
+	private void add(Rule rule) {
+		String first = rule.first;
+		List<String> segments = segments(rule.second);
+		boolean literal = segments.stream().noneMatch(RuleBasedSamplerFunction::isWildcard);
+		if (literal) {
+			this.literals.computeIfAbsent(first, f -> new HashMap<>()).putIfAbsent(rule.second, rule.sampler);
+		}
+		Node node = this.templates.child(first);
+		for (int i = 0; i < segments.size(); i++) {
+			String segment = segments.get(i);
+			if (segment.equals(ANY_REMAINING) && i == segments.size() - 1) {
+				if (node.anyRemaining == null) {
+					node.anyRemaining = rule.sampler;
+				}
+				return;
+			}
+			node = node.child(segment);
+		}
+		if (node.sampler == null) {
+			node.sampler = rule.sampler;
+		}
+	}
+
+	private static boolean isWildcard(String segment) {
+		return segment.equals(ANY) || segment.equals(ANY_REMAINING)
+				|| (segment.startsWith("{") && segment.endsWith("}"));
+	}
+
+	/**
+	 * Splits the second part of a rule. Requests are matched without splitting.
+	 */
+	private List<String> segments(String value) {
+		List<String> segments = new ArrayList<>();
+		if (this.separator == 0) {
+			if (!value.isEmpty()) {
+				segments.add(value);
+			}
+			return segments;
+		}
+		int start = 0;
+		for (int i = 0; i <= value.length(); i++) {
+			if (i == value.length() || value.charAt(i) == this.separator) {
+				if (i > start) {
+					segments.add(value.substring(start, i));
+				}
+				start = i + 1;
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * Sampling rule.
+	 */
+	public static final class Rule {
+
+		final String first;
+
+		final String second;
+
+		final Sampler sampler;
+
+		private Rule(String first, String second, Sampler sampler) {
+			this.first = first;
+			this.second = second;
+			this.sampler = sampler;
+		}
+
+		/**
+		 * @param first HTTP method, destination or RPC service, {@code null} or
+		 * {@code *} for any
+		 * @param second path or RPC method, {@code null} when not applicable
+		 * @param sampler sampler for matching requests
+		 * @return rule
+		 */
+		public static Rule of(@Nullable String first, @Nullable String second, Sampler sampler) {
+			Assert.notNull(sampler, "sampler is required for a sampling rule");
+			return new Rule(first != null ? first : ANY, second != null ? second : "", sampler);
+		}
+
+		/**
+		 * @param first HTTP method, destination or RPC service, {@code null} or
+		 * {@code *} for any
+		 * @param second path or RPC method, {@code null} when not applicable
+		 * @param probability probability of sampling matching requests
+		 * @return rule
+		 */
+		public static Rule probability(@Nullable String first, @Nullable String second, float probability) {
+			return of(first, second, new ProbabilityBasedSampler(() -> probability));
+		}
+
+		/**
+		 * @param first HTTP method, destination or RPC service, {@code null} or
+		 * {@code *} for any
+		 * @param second path or RPC method, {@code null} when not applicable
+		 * @param rate maximum number of sampled matching requests per second
+		 * @return rule
+		 */
+		public static Rule rate(@Nullable String first, @Nullable String second, int rate) {
+			return of(first, second, brave.sampler.RateLimitingSampler.create(rate));
+		}
+
+	}
+
+	private static final class Node {
+
+		private final Map<String, Node> children = new HashMap<>();
+
+		private Node any;
+
+		private Sampler anyRemaining;
+
+		private Sampler sampler;
+
+		Node child(String segment) {
+			if (isWildcard(segment) && !segment.equals(ANY_REMAINING)) {
+				if (this.any == null) {
+					this.any = new Node();
+				}
+				return this.any;
+			}
+			return this.children.computeIfAbsent(segment, s -> new Node());
+		}
+
+		/**
+		 * Matches the first part at the root, then the segments of the second part.
+		 */
+		Sampler match(String first, String second, char separator) {
+			Segment segment = new Segment(second, separator);
+			Sampler result = null;
+			Node literal = this.children.get(first);
+			if (literal != null) {
+				result = literal.matchSegments(segment, 0);
+			}
+			if (result == null && this.any != null) {
+				result = this.any.matchSegments(segment, 0);
+			}
+			return result;
+		}
+
+		Sampler matchSegments(Segment segment, int from) {
+			if (!segment.next(from)) {
+				return this.sampler != null ? this.sampler : this.anyRemaining;
+			}
+			int end = segment.end;
+			Sampler result = null;
+			Node literal = this.children.isEmpty() ? null : this.children.get(segment);
+			if (literal != null) {
+				result = literal.matchSegments(segment, end);
+			}
+			if (result == null && this.any != null) {
+				result = this.any.matchSegments(segment, end);
+			}
+			return result != null ? result : this.anyRemaining;
+		}
+
+	}
+
+	/**
+	 * Window over one segment of the second part of a request, used as the key to look up
+	 * the literal children of a {@link Node} without copying the segment. Equals only the
+	 * {@link String} with the same characters and has the same hash code.
+	 */
+	private static final class Segment {
+
+		private final String value;
+
+		private final char separator;
+
+		private int start;
+
+		private int end;
+
+		private int hash;
+
+		Segment(String value, char separator) {
+			this.value = value;
+			this.separator = separator;
+		}
+
+		/**
+		 * Moves to the first non empty segment at or after the given index.
+		 * @return {@code false} when there are no more segments
+		 */
+		boolean next(int from) {
+			int length = this.value.length();
+			int start = from;
+			if (this.separator == 0) {
+				if (start >= length) {
+					return false;
+				}
+				this.start = start;
+				this.end = length;
+			}
+			else {
+				while (start < length && this.value.charAt(start) == this.separator) {
+					start++;
+				}
+				if (start == length) {
+					return false;
+				}
+				int end = start;
+				while (end < length && this.value.charAt(end) != this.separator) {
+					end++;
+				}
+				this.start = start;
+				this.end = end;
+			}
+			int hash = 0;
+			for (int i = this.start; i < this.end; i++) {
+				hash = 31 * hash + this.value.charAt(i);
+			}
+			this.hash = hash;
+			return true;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof String)) {
+				return false;
+			}
+			String string = (String) other;
+			int length = this.end - this.start;
+			return string.length() == length && string.regionMatches(0, this.value, this.start, length);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public String toString() {
+			return this.value.substring(this.start, this.end);
+		}
+
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.internal.EncodingUtils;
+import org.springframework.http.HttpHeaders;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class BinaryPropagationTests {
+
+	static final Propagation.Setter<Map<String, String>, String> SETTER = Map::put;
+
+	static final Propagation.Getter<Map<String, String>, String> GETTER = Map::get;
+
+	// grpc-trace-bin example from the OpenCensus specification
+	static final byte[] EXAMPLE = { 0, 0, 64, 65, 66, 67, 68, 69, 70, 71, 72, 73, 74, 75, 76, 77, 78, 79, 1, 97, 98,
+			99, 100, 101, 102, 103, 104, 2, 1 };
+
+	BinaryPropagation propagation = new BinaryPropagation();
+
+	TraceContext context = TraceContext.newBuilder().traceIdHigh(0x4041424344454647L).traceId(0x48494a4b4c4d4e4fL)
+			.spanId(0x6162636465666768L).sampled(true).build();
+
+	@Test
+	void should_inject_the_binary_format() {
+		Map<String, String> carrier = new HashMap<>();
+
+		this.propagation.injector(SETTER).inject(this.context, carrier);
+
+		then(this.propagation.keys()).containsExactly("grpc-trace-bin");
+		then(EncodingUtils.isBinaryHeader(BinaryPropagation.TRACE_BIN)).isTrue();
+		then(EncodingUtils.binaryHeaderBytes(carrier.get(BinaryPropagation.TRACE_BIN))).containsExactly(EXAMPLE);
+	}
+
+	@Test
+	void should_inject_a_printable_value_into_http_headers() {
+		HttpHeaders headers = new HttpHeaders();
+
+		this.propagation.injector(HttpHeaders::set).inject(this.context, headers);
+
+		String value = headers.getFirst(BinaryPropagation.TRACE_BIN);
+		then(value).isEqualTo("AABAQUJDREVGR0hJSktMTU5PAWFiY2RlZmdoAgE").matches("[A-Za-z0-9+/]+");
+		then(this.propagation.extractor(HttpHeaders::getFirst).extract(headers).context()).isEqualTo(this.context);
+	}
+
+	@Test
+	void should_extract_a_padded_value() {
+		Map<String, String> carrier = new HashMap<>();
+		carrier.put(BinaryPropagation.TRACE_BIN, Base64.getEncoder().encodeToString(EXAMPLE));
+
+		then(this.propagation.extractor(GETTER).extract(carrier).context()).isEqualTo(this.context);
+	}
+
+	@Test
+	void should_extract_the_binary_format() {
+		Map<String, String> carrier = new HashMap<>();
+		carrier.put(BinaryPropagation.TRACE_BIN, EncodingUtils.binaryHeaderValue(EXAMPLE));
+
+		TraceContext extracted = this.propagation.extractor(GETTER).extract(carrier).context();
+
+		then(extracted).isEqualTo(this.context);
+		then(extracted.sampled()).isTrue();
+	}
+
+	@Test
+	void should_round_trip_a_not_sampled_context() {
+		TraceContext notSampled = TraceContext.newBuilder().traceId(1L).spanId(2L).sampled(false).build();
+
+		TraceContext decoded = BinaryPropagation.decode(BinaryPropagation.encode(notSampled));
+
+		then(decoded).isEqualTo(notSampled);
+		then(decoded.sampled()).isFalse();
+	}
+
+	@Test
+	void should_leave_sampling_undecided_without_trace_options() {
+		byte[] withoutOptions = new byte[BinaryPropagation.SIZE - 2];
+		System.arraycopy(EXAMPLE, 0, withoutOptions, 0, withoutOptions.length);
+
+		TraceContext decoded = BinaryPropagation.decode(EncodingUtils.binaryHeaderValue(withoutOptions));
+
+		then(decoded).isEqualTo(this.context);
+		then(decoded.sampled()).isNull();
+	}
+
+	@Test
+	void should_ignore_unknown_trailing_fields() {
+		byte[] withUnknownField = new byte[BinaryPropagation.SIZE + 2];
+		System.arraycopy(EXAMPLE, 0, withUnknownField, 0, EXAMPLE.length);
+		withUnknownField[EXAMPLE.length] = 9;
+
+		then(BinaryPropagation.decode(EncodingUtils.binaryHeaderValue(withUnknownField))).isEqualTo(this.context);
+	}
+
+	@Test
+	void should_not_extract_invalid_values() {
+		Map<String, String> carrier = new HashMap<>();
+		then(this.propagation.extractor(GETTER).extract(carrier)).isSameAs(TraceContextOrSamplingFlags.EMPTY);
+
+		byte[] otherVersion = EXAMPLE.clone();
+		otherVersion[0] = 1;
+		byte[] truncated = new byte[10];
+		System.arraycopy(EXAMPLE, 0, truncated, 0, truncated.length);
+		byte[] zeroSpanId = EXAMPLE.clone();
+		for (int i = 19; i < 27; i++) {
+			zeroSpanId[i] = 0;
+		}
+
+		then(BinaryPropagation.decode("")).isNull();
+		then(BinaryPropagation.decode(EncodingUtils.binaryHeaderValue(otherVersion))).isNull();
+		then(BinaryPropagation.decode(EncodingUtils.binaryHeaderValue(truncated))).isNull();
+		then(BinaryPropagation.decode(EncodingUtils.binaryHeaderValue(zeroSpanId))).isNull();
+		then(BinaryPropagation.decode("not base64")).isNull();
+		then(BinaryPropagation.decode(new String(EXAMPLE, StandardCharsets.ISO_8859_1))).isNull();
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.util.Arrays;
+
+import brave.baggage.BaggageField;
+import brave.internal.baggage.BaggageFields;
+import brave.propagation.TraceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class BraveBaggageManagerTests {
+
+	BaggageField country = BaggageField.create("country");
+
+	BaggageField requestId = BaggageField.create("x-request-id");
+
+	TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L)
+			.addExtra(BaggageFields.newFactory(Arrays.asList(this.country, this.requestId), 2).create()).build();
+
+	BraveBaggageManager manager = new BraveBaggageManager(Arrays.asList("country", "X-Request-Id", "COUNTRY"));
+
+	@AfterEach
+	void close() {
+		this.manager.close();
+	}
+
+	@Test
+	void should_assign_slots_to_fields_known_at_startup() {
+		then(this.manager.slot("country")).isEqualTo(0);
+		then(this.manager.slot("COUNTRY")).isEqualTo(0);
+		then(this.manager.slot("x-request-id")).isEqualTo(1);
+		then(this.manager.slot("missing")).isEqualTo(-1);
+		then(new BraveBaggageManager().slot("country")).isEqualTo(-1);
+	}
+
+	@Test
+	void should_read_values_by_slot() {
+		this.country.updateValue(this.context, "FO");
+
+		then(this.manager.getValue(new BraveTraceContext(this.context), this.manager.slot("country"))).isEqualTo("FO");
+		then(this.manager.getValue(new BraveTraceContext(this.context), this.manager.slot("x-request-id"))).isNull();
+	}
+
+	@Test
+	void should_reuse_baggage_for_the_same_field() {
+		BraveTraceContext traceContext = new BraveTraceContext(this.context);
+
+		then(this.manager.getBaggage(traceContext, "country")).isSameAs(this.manager.createBaggage("country"))
+				.isSameAs(this.manager.getBaggage("Country"));
+		then(this.manager.createBaggage("other")).isSameAs(this.manager.createBaggage("other"));
+		then(this.manager.getBaggage(traceContext, "missing")).isNull();
+	}
+
+	@Test
+	void should_update_values_through_slotted_baggage() {
+		BraveTraceContext traceContext = new BraveTraceContext(this.context);
+
+		this.manager.createBaggage("x-request-id").set(traceContext, "abc");
+
+		then(this.requestId.getValue(this.context)).isEqualTo("abc");
+		then(this.manager.getBaggage(traceContext, "x-request-id").get(traceContext)).isEqualTo("abc");
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import brave.Tracing;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.propagation.Propagator;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class BravePropagatorTests {
+
+	Tracing tracing = Tracing.newBuilder().build();
+
+	BravePropagator propagator = new BravePropagator(this.tracing);
+
+	TraceContext context = BraveTraceContext.fromBrave(brave.propagation.TraceContext.newBuilder().traceId(1L)
+			.spanId(2L).sampled(true).build());
+
+	@AfterEach
+	void close() {
+		this.tracing.close();
+	}
+
+	@Test
+	void should_inject_and_extract_with_the_same_setter_and_getter_repeatedly() {
+		Propagator.Setter<Map<String, String>> setter = Map::put;
+		Propagator.Getter<Map<String, String>> getter = Map::get;
+
+		for (int i = 0; i < 3; i++) {
+			Map<String, String> carrier = new HashMap<>();
+			this.propagator.inject(this.context, carrier, setter);
+
+			Span span = this.propagator.extract(carrier, getter).start();
+
+			then(span.context().traceId()).isEqualTo(this.context.traceId());
+			span.end();
+		}
+	}
+
+	@Test
+	void should_not_retain_carriers_captured_by_setters_and_getters() {
+		WeakReference<Map<String, String>> injected = injectWithCapturingSetter();
+		WeakReference<Map<String, String>> extracted = extractWithCapturingGetter();
+
+		Awaitility.await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+			System.gc();
+			then(injected.get()).isNull();
+			then(extracted.get()).isNull();
+		});
+	}
+
+	private WeakReference<Map<String, String>> injectWithCapturingSetter() {
+		Map<String, String> carrier = new HashMap<>();
+		Propagator.Setter<Map<String, String>> setter = (c, k, v) -> carrier.put(k, v);
+
+		this.propagator.inject(this.context, carrier, setter);
+
+		then(carrier).isNotEmpty();
+		return new WeakReference<>(carrier);
+	}
+
+	private WeakReference<Map<String, String>> extractWithCapturingGetter() {
+		Map<String, String> carrier = new HashMap<>();
+		this.propagator.inject(this.context, carrier, Map::put);
+		Propagator.Getter<Map<String, String>> getter = (c, k) -> carrier.get(k);
+
+		Span span = this.propagator.extract(carrier, getter).start();
+
+		then(span.context().traceId()).isEqualTo(this.context.traceId());
+		span.end();
+		return new WeakReference<>(carrier);
+	}
+
+}
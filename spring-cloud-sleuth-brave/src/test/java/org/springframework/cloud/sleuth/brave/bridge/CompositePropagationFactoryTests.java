@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.sleuth.brave.propagation.PropagationType;
+import org.springframework.cloud.sleuth.brave.propagation.TraceStateMember;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class CompositePropagationFactoryTests {
+
+	static final Propagation.Setter<Map<String, String>, String> SETTER = Map::put;
+
+	static final Propagation.Getter<Map<String, String>, String> GETTER = Map::get;
+
+	CompositePropagationFactory factory = new CompositePropagationFactory(new StaticListableBeanFactory(),
+			new BraveBaggageManager(), Collections.emptyList(),
+			Arrays.asList(PropagationType.W3C, PropagationType.B3, PropagationType.CUSTOM));
+
+	TraceContext context = TraceContext.newBuilder().traceIdHigh(1L).traceId(2L).spanId(3L).sampled(true).build();
+
+	@Test
+	void should_reuse_injectors_and_extractors_for_the_same_setter_and_getter() {
+		then(this.factory.injector(SETTER)).isSameAs(this.factory.injector(SETTER));
+		then(this.factory.extractor(GETTER)).isSameAs(this.factory.extractor(GETTER));
+	}
+
+	@Test
+	void should_inject_all_propagation_types() {
+		Map<String, String> carrier = new HashMap<>();
+
+		this.factory.injector(SETTER).inject(this.context, carrier);
+
+		then(carrier).containsEntry("traceparent", "00-00000000000000010000000000000002-0000000000000003-01")
+				.containsEntry("b3", "00000000000000010000000000000002-0000000000000003-1");
+	}
+
+	@Test
+	void should_extract_with_the_first_matching_propagation_type() {
+		Map<String, String> carrier = new HashMap<>();
+		carrier.put("b3", "00000000000000010000000000000002-0000000000000004-1");
+
+		TraceContextOrSamplingFlags extracted = this.factory.extractor(GETTER).extract(carrier);
+
+		then(extracted.context().spanId()).isEqualTo(4L);
+
+		carrier.put("traceparent", "00-00000000000000010000000000000002-0000000000000005-01");
+
+		extracted = this.factory.extractor(GETTER).extract(carrier);
+
+		then(extracted.context().spanId()).isEqualTo(5L);
+	}
+
+	@Test
+	void should_set_the_trace_state_member_when_decorating() {
+		TraceStateMember member = new TraceStateMember() {
+			@Override
+			public String key() {
+				return "sleuth";
+			}
+
+			@Override
+			public String value(TraceContext context) {
+				return "1";
+			}
+		};
+		CompositePropagationFactory factory = new CompositePropagationFactory(new StaticListableBeanFactory(),
+				new BraveBaggageManager(), Collections.emptyList(),
+				Arrays.asList(PropagationType.B3, PropagationType.W3C), member);
+		Map<String, String> carrier = new HashMap<>();
+
+		factory.injector(SETTER).inject(factory.decorate(this.context), carrier);
+
+		then(carrier).containsEntry("tracestate", "sleuth=1").containsKey("b3");
+	}
+
+	@Test
+	void should_not_retain_carriers_captured_by_setters_and_getters() {
+		WeakReference<Map<String, String>> injected = injectWithCapturingSetter();
+		WeakReference<Map<String, String>> extracted = extractWithCapturingGetter();
+
+		Awaitility.await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+			System.gc();
+			then(injected.get()).isNull();
+			then(extracted.get()).isNull();
+		});
+	}
+
+	private WeakReference<Map<String, String>> injectWithCapturingSetter() {
+		Map<String, String> carrier = new HashMap<>();
+		Propagation.Setter<Map<String, String>, String> setter = (c, k, v) -> carrier.put(k, v);
+
+		this.factory.injector(setter).inject(this.context, carrier);
+
+		then(carrier).containsKeys("traceparent", "b3");
+		return new WeakReference<>(carrier);
+	}
+
+	private WeakReference<Map<String, String>> extractWithCapturingGetter() {
+		Map<String, String> carrier = new HashMap<>();
+		carrier.put("b3", "00000000000000010000000000000002-0000000000000004-1");
+		Propagation.Getter<Map<String, String>, String> getter = (c, k) -> carrier.get(k);
+
+		then(this.factory.extractor(getter).extract(carrier).context().spanId()).isEqualTo(4L);
+		return new WeakReference<>(carrier);
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.exporter.FinishedSpan;
+import org.springframework.cloud.sleuth.exporter.SpanFilter;
+import org.springframework.cloud.sleuth.exporter.SpanReporter;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class CompositeSpanHandlerTests {
+
+	TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+
+	@Test
+	void should_pass_the_same_wrapper_to_filters_and_reporters() {
+		List<FinishedSpan> seen = new ArrayList<>();
+		SpanFilter filter = span -> seen.add(span);
+		SpanReporter reporter = seen::add;
+		CompositeSpanHandler handler = new CompositeSpanHandler(Arrays.asList(filter, filter),
+				Arrays.asList(reporter, reporter));
+
+		boolean processed = handler.end(this.context, span("foo"), SpanHandler.Cause.FINISHED);
+
+		then(processed).isTrue();
+		then(seen).hasSize(4);
+		then(seen).allSatisfy(span -> then(span).isSameAs(seen.get(0)));
+	}
+
+	@Test
+	void should_not_report_filtered_spans() {
+		List<FinishedSpan> reported = new ArrayList<>();
+		CompositeSpanHandler handler = new CompositeSpanHandler(
+				Collections.singletonList(span -> !"ignored".equals(span.getName())),
+				Collections.singletonList(reported::add));
+
+		then(handler.end(this.context, span("ignored"), SpanHandler.Cause.FINISHED)).isFalse();
+		then(handler.end(this.context, span("foo"), SpanHandler.Cause.FINISHED)).isTrue();
+
+		then(reported).extracting(FinishedSpan::getName).containsExactly("foo");
+	}
+
+	@Test
+	void should_report_spans_off_the_calling_thread() throws InterruptedException {
+		List<String> reportingThreads = new CopyOnWriteArrayList<>();
+		List<String> names = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(2);
+		SpanReporter reporter = span -> {
+			reportingThreads.add(Thread.currentThread().getName());
+			names.add(span.getName());
+			latch.countDown();
+		};
+		CompositeSpanHandler handler = new CompositeSpanHandler(null, Collections.singletonList(reporter), 10);
+		try {
+			MutableSpan span = span("foo");
+			handler.end(this.context, span, SpanHandler.Cause.FINISHED);
+			span.name("changed by another handler");
+			handler.end(this.context, span("bar"), SpanHandler.Cause.FINISHED);
+
+			then(latch.await(5, TimeUnit.SECONDS)).isTrue();
+			then(names).containsExactly("foo", "bar");
+			then(reportingThreads).doesNotContain(Thread.currentThread().getName());
+		}
+		finally {
+			handler.close();
+		}
+	}
+
+	@Test
+	void should_drop_spans_when_the_queue_is_full() throws InterruptedException {
+		CountDownLatch reporting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		SpanReporter reporter = span -> {
+			reporting.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		CompositeSpanHandler handler = new CompositeSpanHandler(null, Collections.singletonList(reporter), 1);
+		try {
+			handler.end(this.context, span("blocking"), SpanHandler.Cause.FINISHED);
+			then(reporting.await(5, TimeUnit.SECONDS)).isTrue();
+
+			handler.end(this.context, span("queued"), SpanHandler.Cause.FINISHED);
+			handler.end(this.context, span("dropped"), SpanHandler.Cause.FINISHED);
+
+			then(handler.getDroppedSpans()).isEqualTo(1);
+		}
+		finally {
+			release.countDown();
+			handler.close();
+		}
+	}
+
+	@Test
+	void should_report_spans_on_the_calling_thread_after_close() {
+		List<String> reportingThreads = new CopyOnWriteArrayList<>();
+		CompositeSpanHandler handler = new CompositeSpanHandler(null,
+				Collections.singletonList(span -> reportingThreads.add(Thread.currentThread().getName())), 10);
+		handler.close();
+
+		handler.end(this.context, span("foo"), SpanHandler.Cause.FINISHED);
+
+		then(reportingThreads).containsExactly(Thread.currentThread().getName());
+		then(handler.getDroppedSpans()).isZero();
+	}
+
+	@Test
+	void should_count_spans_still_queued_on_close_as_dropped() throws InterruptedException {
+		CountDownLatch reporting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		SpanReporter reporter = span -> {
+			reporting.countDown();
+			try {
+				// ignores the interrupt of close() to outlive its timeout
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		CompositeSpanHandler handler = new CompositeSpanHandler(null, Collections.singletonList(reporter), 10);
+		try {
+			handler.end(this.context, span("blocking"), SpanHandler.Cause.FINISHED);
+			then(reporting.await(5, TimeUnit.SECONDS)).isTrue();
+			handler.end(this.context, span("queued"), SpanHandler.Cause.FINISHED);
+
+			handler.close();
+
+			then(handler.getDroppedSpans()).isEqualTo(1);
+		}
+		finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void should_report_unsampled_spans_released_by_tail_sampling() {
+		List<String> reported = new ArrayList<>();
+		TailSamplingSpanBuffer buffer = new TailSamplingSpanBuffer(Duration.ofSeconds(30), 10, 100, null,
+				Collections.emptyMap());
+		CompositeSpanHandler handler = new CompositeSpanHandler(null,
+				Collections.singletonList(span -> reported.add(span.getName())), 0, buffer);
+		TraceContext unsampled = this.context.toBuilder().sampled(false).build();
+		MutableSpan failed = span("failed");
+		failed.error(new RuntimeException("boom"));
+
+		then(handler.alwaysSampleLocal()).isTrue();
+		handler.end(unsampled, span("ok"), SpanHandler.Cause.FINISHED);
+		then(reported).isEmpty();
+		handler.end(unsampled, failed, SpanHandler.Cause.FINISHED);
+		then(reported).containsExactly("ok", "failed");
+		handler.end(this.context.toBuilder().traceId(2L).sampled(true).build(), span("sampled"),
+				SpanHandler.Cause.FINISHED);
+		then(reported).containsExactly("ok", "failed", "sampled");
+	}
+
+	private MutableSpan span(String name) {
+		MutableSpan span = new MutableSpan(this.context, null);
+		span.name(name);
+		return span;
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import brave.handler.MutableSpan;
+import brave.propagation.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class TailSamplingSpanBufferTests {
+
+	AtomicLong nanoTime = new AtomicLong();
+
+	TailSamplingSpanBuffer buffer = new TailSamplingSpanBuffer(Duration.ofSeconds(10), 2, 3, Duration.ofMillis(500),
+			Collections.singletonMap("http.status_code", "5.."), this.nanoTime::get);
+
+	@Test
+	void should_buffer_spans_of_uninteresting_traces() {
+		then(this.buffer.offer(span(1L, 2L, 10))).isEmpty();
+		then(this.buffer.offer(span(1L, 3L, 10))).isEmpty();
+
+		then(this.buffer.getBufferedTraces()).isEqualTo(1);
+	}
+
+	@Test
+	void should_release_trace_with_an_error() {
+		MutableSpan child = span(1L, 2L, 10);
+		MutableSpan parent = span(1L, 3L, 10);
+		parent.error(new RuntimeException("boom"));
+
+		this.buffer.offer(child);
+
+		then(this.buffer.offer(parent)).containsExactly(child, parent);
+		MutableSpan later = span(1L, 4L, 10);
+		then(this.buffer.offer(later)).containsExactly(later);
+	}
+
+	@Test
+	void should_release_slow_trace() {
+		MutableSpan child = span(1L, 2L, 10);
+		MutableSpan slow = span(1L, 3L, 600);
+
+		this.buffer.offer(child);
+
+		then(this.buffer.offer(slow)).containsExactly(child, slow);
+	}
+
+	@Test
+	void should_release_trace_with_matching_tag() {
+		MutableSpan ok = span(1L, 2L, 10);
+		ok.tag("http.status_code", "200");
+		MutableSpan failed = span(1L, 3L, 10);
+		failed.tag("http.status_code", "503");
+
+		then(this.buffer.offer(ok)).isEmpty();
+		then(this.buffer.offer(failed)).containsExactly(ok, failed);
+	}
+
+	@Test
+	void should_drop_spans_of_new_traces_when_full() {
+		this.buffer.offer(span(1L, 2L, 10));
+		this.buffer.offer(span(2L, 2L, 10));
+
+		then(this.buffer.offer(span(3L, 2L, 10))).isEmpty();
+
+		then(this.buffer.getBufferedTraces()).isEqualTo(2);
+		then(this.buffer.getDroppedSpans()).isEqualTo(1);
+	}
+
+	@Test
+	void should_evict_expired_traces() {
+		this.buffer.offer(span(1L, 2L, 10));
+		this.buffer.offer(span(1L, 3L, 10));
+
+		this.nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		this.buffer.offer(span(2L, 2L, 10));
+
+		then(this.buffer.getBufferedTraces()).isEqualTo(1);
+		then(this.buffer.getDroppedSpans()).isEqualTo(2);
+	}
+
+	@Test
+	void should_drop_spans_of_a_trace_beyond_the_maximum() {
+		MutableSpan first = span(1L, 2L, 10);
+		this.buffer.offer(first);
+		this.buffer.offer(span(1L, 3L, 10));
+		this.buffer.offer(span(1L, 4L, 10));
+
+		then(this.buffer.offer(span(1L, 5L, 10))).isEmpty();
+		then(this.buffer.getDroppedSpans()).isEqualTo(1);
+
+		MutableSpan slow = span(1L, 6L, 600);
+		then(this.buffer.offer(slow)).hasSize(4).startsWith(first).endsWith(slow);
+	}
+
+	@Test
+	void should_evict_a_few_expired_traces_per_offer() {
+		TailSamplingSpanBuffer buffer = new TailSamplingSpanBuffer(Duration.ofSeconds(10), 100, 3, null,
+				Collections.emptyMap(), this.nanoTime::get);
+		for (long traceId = 1; traceId <= 20; traceId++) {
+			buffer.offer(span(traceId, 1L, 10));
+		}
+
+		this.nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		buffer.offer(span(21L, 1L, 10));
+
+		then(buffer.getBufferedTraces()).isEqualTo(20 - TailSamplingSpanBuffer.MAX_EVICTIONS_PER_OFFER + 1);
+		then(buffer.getDroppedSpans()).isEqualTo(TailSamplingSpanBuffer.MAX_EVICTIONS_PER_OFFER);
+
+		buffer.offer(span(21L, 2L, 10));
+		buffer.offer(span(21L, 3L, 10));
+
+		then(buffer.getBufferedTraces()).isEqualTo(1);
+		then(buffer.getDroppedSpans()).isEqualTo(20);
+	}
+
+	@Test
+	void should_report_or_count_every_span_offered_while_traces_are_evicted() throws Exception {
+		AtomicLong clock = new AtomicLong();
+		TailSamplingSpanBuffer buffer = new TailSamplingSpanBuffer(Duration.ofNanos(50), 1000, 1000, null,
+				Collections.singletonMap("interesting", "true"), clock::incrementAndGet);
+		LongAdder reported = new LongAdder();
+		int threads = 4;
+		int spansPerThread = 20_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < spansPerThread; j++) {
+						MutableSpan span = span(j % 8 + 1, j + 1, 10);
+						if (j % 13 == 0) {
+							span.tag("interesting", "true");
+						}
+						reported.add(buffer.offer(span).size());
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		// evict what is left with interesting spans, which are reported right away
+		long drainingSpans = 0;
+		while (buffer.getBufferedTraces() > 1) {
+			clock.addAndGet(1000);
+			MutableSpan span = span(100L, 1L, 10);
+			span.tag("interesting", "true");
+			reported.add(buffer.offer(span).size());
+			drainingSpans++;
+		}
+
+		then(reported.sum() + buffer.getDroppedSpans()).isEqualTo((long) threads * spansPerThread + drainingSpans);
+	}
+
+	private static MutableSpan span(long traceId, long spanId, long durationMillis) {
+		MutableSpan span = new MutableSpan(TraceContext.newBuilder().traceId(traceId).spanId(spanId).build(), null);
+		span.startTimestamp(1_000_000L);
+		span.finishTimestamp(1_000_000L + TimeUnit.MILLISECONDS.toMicros(durationMillis));
+		return span;
+	}
+
+}
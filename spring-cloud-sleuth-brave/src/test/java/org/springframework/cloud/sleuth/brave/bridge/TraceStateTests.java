@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.bridge;
+
+import java.util.StringJoiner;
+
+import brave.propagation.TraceContext;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class TraceStateTests {
+
+	@Test
+	void should_parse_list_members() {
+		TraceState traceState = TraceState.parse("rojo=00f067aa0ba902b7,  congo=t61rcWkgMzE ,,tenant@vendor=x");
+
+		then(traceState.size()).isEqualTo(3);
+		then(traceState.get("rojo")).isEqualTo("00f067aa0ba902b7");
+		then(traceState.get("congo")).isEqualTo("t61rcWkgMzE");
+		then(traceState.get("tenant@vendor")).isEqualTo("x");
+		then(traceState.get("missing")).isNull();
+	}
+
+	@Test
+	void should_write_unchanged_state_as_the_parsed_header() {
+		String header = "rojo=00f067aa0ba902b7,  congo=t61rcWkgMzE";
+
+		TraceState traceState = TraceState.parse(header);
+
+		then(traceState.header()).isSameAs(header);
+		then(traceState.source()).isSameAs(header);
+	}
+
+	@Test
+	void should_reject_invalid_headers() {
+		then(TraceState.parse("")).isNull();
+		then(TraceState.parse("foo=bar;test=test")).isNull();
+		then(TraceState.parse("foo=bar,test-test")).isNull();
+		then(TraceState.parse("Foo=bar")).isNull();
+		then(TraceState.parse("foo=")).isNull();
+		then(TraceState.parse("foo=bar,foo=baz")).isNull();
+		then(TraceState.parse("@vendor=bar")).isNull();
+		then(TraceState.parse("tenant@=bar")).isNull();
+		then(TraceState.parse("tenant@vendor@x=bar")).isNull();
+	}
+
+	@Test
+	void should_reject_more_than_max_members() {
+		StringJoiner joiner = new StringJoiner(",");
+		for (int i = 0; i <= TraceState.MAX_MEMBERS; i++) {
+			joiner.add("k" + i + "=v");
+		}
+
+		then(TraceState.parse(joiner.toString())).isNull();
+	}
+
+	@Test
+	void should_move_updated_member_to_the_beginning() {
+		TraceState traceState = TraceState.parse("rojo=1,congo=2");
+
+		TraceState updated = traceState.put("congo", "3");
+
+		then(updated.header()).isEqualTo("congo=3,rojo=1");
+		then(updated.source()).isEqualTo("rojo=1,congo=2");
+		then(traceState.header()).isEqualTo("rojo=1,congo=2");
+		then(updated.put("congo", "3")).isSameAs(updated);
+		then(updated.put("sleuth", "4").header()).isEqualTo("sleuth=4,congo=3,rojo=1");
+	}
+
+	@Test
+	void should_drop_the_last_member_when_adding_to_a_full_state() {
+		StringJoiner joiner = new StringJoiner(",");
+		for (int i = 0; i < TraceState.MAX_MEMBERS; i++) {
+			joiner.add("k" + i + "=v");
+		}
+		TraceState traceState = TraceState.parse(joiner.toString());
+
+		TraceState updated = traceState.put("sleuth", "v");
+
+		then(updated.size()).isEqualTo(TraceState.MAX_MEMBERS);
+		then(updated.get("sleuth")).isEqualTo("v");
+		then(updated.get("k" + (TraceState.MAX_MEMBERS - 1))).isNull();
+	}
+
+	@Test
+	void should_reject_invalid_members() {
+		TraceState traceState = TraceState.parse("rojo=1");
+
+		thenThrownBy(() -> traceState.put("Sleuth", "1")).isInstanceOf(IllegalArgumentException.class);
+		thenThrownBy(() -> traceState.put("sleuth", "a=b")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void should_attach_updated_state_to_the_context() {
+		TraceContext context = TraceContext.newBuilder().traceId(1L).spanId(2L).build();
+
+		TraceContext withState = TraceState.put(context, "sleuth", "1");
+		TraceContext updated = TraceState.put(withState, "rojo", "2");
+
+		then(TraceState.get(context)).isNull();
+		then(TraceState.get(withState).header()).isEqualTo("sleuth=1");
+		then(TraceState.get(updated).header()).isEqualTo("rojo=2,sleuth=1");
+		then(updated.extra()).hasSize(1);
+		then(TraceState.put(updated, "rojo", "2")).isSameAs(updated);
+	}
+
+}
@@ -22,7 +22,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Function;
 
+import brave.Tracing;
 import brave.baggage.BaggageField;
 import brave.internal.baggage.BaggageFields;
 import brave.propagation.Propagation;
@@ -30,6 +32,7 @@ import brave.propagation.TraceContext;
 import brave.propagation.TraceContextOrSamplingFlags;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.cloud.sleuth.brave.propagation.TraceStateMember;
 import org.springframework.cloud.sleuth.internal.EncodingUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -55,6 +58,8 @@ class W3CPropagationTest {
 
 	private static final Propagation.Getter<Map<String, String>, String> getter = Map::get;
 
+	private static final Propagation.Setter<Map<String, String>, String> setter = Map::put;
+
 	private static final String TRACESTATE_NOT_DEFAULT_ENCODING_WITH_SPACES = "bar=baz   ,    foo=bar";
 
 	private static final String TRACESTATE_HEADER = "sappp=CwAAmEnGj0gThK52TCXZ270X8nBhc3Nwb3J0LWFwcABQT1NU";
@@ -195,6 +200,112 @@ class W3CPropagationTest {
 		assertThat(BaggageField.getByName(context, "mybaggage").getValue(context)).isEqualTo("mybaggagevalue");
 	}
 
+	@Test
+	void extract_tracestate_shouldBeAttachedToContext() {
+		Map<String, String> carrier = new LinkedHashMap<>();
+		carrier.put(TRACE_PARENT, TRACEPARENT_HEADER_SAMPLED);
+		carrier.put(TRACE_STATE, TRACESTATE_NOT_DEFAULT_ENCODING_WITH_SPACES);
+
+		TraceContext context = w3CPropagation.extractor(getter).extract(carrier).context();
+
+		TraceState traceState = context.findExtra(TraceState.class);
+		assertThat(traceState).isNotNull();
+		assertThat(traceState.get("bar")).isEqualTo("baz");
+		assertThat(traceState.get("foo")).isEqualTo("bar");
+	}
+
+	@Test
+	void inject_extractedTracestate_shouldBeWrittenAsReceived() {
+		Map<String, String> carrier = new LinkedHashMap<>();
+		carrier.put(TRACE_PARENT, TRACEPARENT_HEADER_SAMPLED);
+		carrier.put(TRACE_STATE, TRACESTATE_NOT_DEFAULT_ENCODING_WITH_SPACES);
+		TraceContext context = w3CPropagation.extractor(getter).extract(carrier).context();
+
+		Map<String, String> injected = new LinkedHashMap<>();
+		w3CPropagation.injector((ignored, key, value) -> injected.put(key, value)).inject(context, injected);
+
+		assertThat(injected).containsEntry(TRACE_STATE, TRACESTATE_NOT_DEFAULT_ENCODING_WITH_SPACES);
+	}
+
+	@Test
+	void inject_updatedTracestate() {
+		Map<String, String> carrier = new LinkedHashMap<>();
+		carrier.put(TRACE_PARENT, TRACEPARENT_HEADER_SAMPLED);
+		carrier.put(TRACE_STATE, TRACESTATE_HEADER);
+		TraceContext context = TraceState.put(w3CPropagation.extractor(getter).extract(carrier).context(), "sleuth",
+				"1");
+
+		Map<String, String> injected = new LinkedHashMap<>();
+		w3CPropagation.injector((ignored, key, value) -> injected.put(key, value)).inject(context, injected);
+
+		assertThat(injected).containsEntry(TRACE_STATE, "sleuth=1," + TRACESTATE_HEADER);
+	}
+
+	@Test
+	void tracestateMember_shouldBeSetOnSpansAndInheritedByChildren() {
+		TraceStateMember member = traceStateMember("sleuth",
+				context -> Boolean.TRUE.equals(context.sampled()) ? "s1" : "s0");
+		W3CPropagation propagation = new W3CPropagation(new BraveBaggageManager(), new ArrayList<>(), member);
+		try (Tracing tracing = Tracing.newBuilder().propagationFactory(propagation).build()) {
+			Map<String, String> carrier = new LinkedHashMap<>();
+			carrier.put(TRACE_PARENT, TRACEPARENT_HEADER_SAMPLED);
+			carrier.put(TRACE_STATE, "rojo=1,sleuth=old");
+			brave.Span server = tracing.tracer().nextSpan(tracing.propagation().extractor(getter).extract(carrier));
+			brave.Span child = tracing.tracer().newChild(server.context());
+			brave.Span grandChild = tracing.tracer().newChild(child.context());
+
+			Map<String, String> injected = new LinkedHashMap<>();
+			tracing.propagation().injector(setter).inject(grandChild.context(), injected);
+
+			assertThat(injected).containsEntry(TRACE_STATE, "sleuth=s1,rojo=1");
+			assertThat(grandChild.context().findExtra(TraceState.class))
+					.isSameAs(child.context().findExtra(TraceState.class));
+
+			injected.clear();
+			tracing.propagation().injector(setter).inject(tracing.tracer().newTrace().context(), injected);
+
+			assertThat(injected).containsEntry(TRACE_STATE, "sleuth=s1");
+		}
+	}
+
+	@Test
+	void tracestateMember_shouldBeIgnoredWhenInvalid() {
+		W3CPropagation propagation = new W3CPropagation(new BraveBaggageManager(), new ArrayList<>(),
+				traceStateMember("sleuth", context -> "a=b"));
+		TraceContext context = sampledTraceContext().build();
+
+		assertThat(propagation.decorate(context)).isSameAs(context);
+	}
+
+	@Test
+	void extract_baggageOfEachCarrier() {
+		Map<String, String> first = new LinkedHashMap<>();
+		first.put(TRACE_PARENT, TRACEPARENT_HEADER_SAMPLED);
+		first.put("baggage", "mybaggage=1");
+		Map<String, String> second = new LinkedHashMap<>(first);
+		second.put("baggage", "mybaggage=2");
+
+		TraceContext firstContext = w3CPropagation.extractor(getter).extract(first).context();
+		TraceContext secondContext = w3CPropagation.extractor(getter).extract(second).context();
+
+		assertThat(BaggageField.getByName(firstContext, "mybaggage").getValue(firstContext)).isEqualTo("1");
+		assertThat(BaggageField.getByName(secondContext, "mybaggage").getValue(secondContext)).isEqualTo("2");
+	}
+
+	@Test
+	void inject_tracestateBaggageChangedAfterExtraction() {
+		Map<String, String> carrier = new LinkedHashMap<>();
+		carrier.put(TRACE_PARENT, TRACEPARENT_HEADER_SAMPLED);
+		carrier.put(TRACE_STATE, TRACESTATE_HEADER);
+		TraceContext context = w3CPropagation.extractor(getter).extract(carrier).context();
+		BaggageField.getByName(context, TRACE_STATE).updateValue(context, "rojo=1");
+
+		Map<String, String> injected = new LinkedHashMap<>();
+		w3CPropagation.injector((ignored, key, value) -> injected.put(key, value)).inject(context, injected);
+
+		assertThat(injected).containsEntry(TRACE_STATE, "rojo=1");
+	}
+
 	@Test
 	void extract_EmptyHeader() {
 		Map<String, String> invalidHeaders = new LinkedHashMap<>();
@@ -219,6 +330,30 @@ class W3CPropagationTest {
 				.isSameAs(TraceContextOrSamplingFlags.EMPTY);
 	}
 
+	@Test
+	void extract_InvalidTraceId_AllZeros() {
+		Map<String, String> invalidHeaders = new LinkedHashMap<>();
+		invalidHeaders.put(TRACE_PARENT, "00-" + "00000000000000000000000000000000" + "-" + SPAN_ID_BASE16 + "-01");
+		assertThat(w3CPropagation.extractor(getter).extract(invalidHeaders))
+				.isSameAs(TraceContextOrSamplingFlags.EMPTY);
+	}
+
+	@Test
+	void extract_InvalidTraceId_UpperCase() {
+		Map<String, String> invalidHeaders = new LinkedHashMap<>();
+		invalidHeaders.put(TRACE_PARENT, "00-" + TRACE_ID_BASE16.toUpperCase() + "-" + SPAN_ID_BASE16 + "-01");
+		assertThat(w3CPropagation.extractor(getter).extract(invalidHeaders))
+				.isSameAs(TraceContextOrSamplingFlags.EMPTY);
+	}
+
+	@Test
+	void extract_InvalidSpanId_AllZeros() {
+		Map<String, String> invalidHeaders = new LinkedHashMap<>();
+		invalidHeaders.put(TRACE_PARENT, "00-" + TRACE_ID_BASE16 + "-" + "0000000000000000" + "-01");
+		assertThat(w3CPropagation.extractor(getter).extract(invalidHeaders))
+				.isSameAs(TraceContextOrSamplingFlags.EMPTY);
+	}
+
 	@Test
 	void extract_InvalidSpanId() {
 		Map<String, String> invalidHeaders = new HashMap<>();
@@ -290,6 +425,14 @@ class W3CPropagationTest {
 				.isSameAs(TraceContextOrSamplingFlags.EMPTY);
 	}
 
+	@Test
+	void extract_InvalidVersion_NotHex() {
+		Map<String, String> invalidHeaders = new LinkedHashMap<>();
+		invalidHeaders.put(TRACE_PARENT, "0g-" + TRACE_ID_BASE16 + "-" + SPAN_ID_BASE16 + "-01");
+		assertThat(w3CPropagation.extractor(getter).extract(invalidHeaders))
+				.isSameAs(TraceContextOrSamplingFlags.EMPTY);
+	}
+
 	@Test
 	void extract_InvalidTraceparent_extraTrailing() {
 		Map<String, String> invalidHeaders = new HashMap<>();
@@ -317,6 +460,20 @@ class W3CPropagationTest {
 		assertThat(TRACE_STATE).isEqualTo("tracestate");
 	}
 
+	private static TraceStateMember traceStateMember(String key, Function<TraceContext, String> value) {
+		return new TraceStateMember() {
+			@Override
+			public String key() {
+				return key;
+			}
+
+			@Override
+			public String value(TraceContext context) {
+				return value.apply(context);
+			}
+		};
+	}
+
 	@Test
 	void extract_emptyCarrier() {
 		Map<String, String> emptyHeaders = new HashMap<>();
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.instrument.web;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class SkipPatternMatcherTests {
+
+	static final String DEFAULT_SKIP_PATTERN = "/api-docs.*|/swagger.*|.*\\.png|.*\\.css|.*\\.js|.*\\.html|/favicon.ico|/hystrix.stream";
+
+	static final String ACTUATOR_SKIP_PATTERN = "/actuator(/|/(health|health/.*|info|info/.*|metrics|metrics/.*))?";
+
+	static final List<String> PATHS = Arrays.asList("", "/", "/favicon.ico", "/faviconXico", "/favicon.ico/",
+			"/swagger", "/swagger-ui/index.html", "/api-docs", "/api-doc", "/img/logo.png", "/img/logo.png/",
+			"/style.css", "/app.js", "/app.json", "/index.html", "/hystrix.stream", "/hystrix-stream",
+			"/actuator", "/actuator/", "/actuator/health", "/actuator/health/db", "/actuator/healthy",
+			"/actuator/info", "/actuator/metrics/jvm", "/actuator/env", "/users/1", "/users/1/orders", "foo",
+			"url");
+
+	@Test
+	void should_match_like_the_default_skip_pattern() {
+		thenMatchesLikeRegex(DEFAULT_SKIP_PATTERN);
+	}
+
+	@Test
+	void should_match_like_the_actuator_skip_pattern() {
+		thenMatchesLikeRegex(ACTUATOR_SKIP_PATTERN);
+		thenMatchesLikeRegex(ACTUATOR_SKIP_PATTERN + "|" + DEFAULT_SKIP_PATTERN);
+	}
+
+	@Test
+	void should_match_like_patterns_that_need_a_regex() {
+		thenMatchesLikeRegex("/users/[0-9]+|/swagger.*");
+		thenMatchesLikeRegex("/users/\\d+/orders|.*\\.png");
+		thenMatchesLikeRegex(".*/orders.*|/api-docs.*");
+		thenMatchesLikeRegex("/(?!users).*");
+		thenMatchesLikeRegex("(?i)/SWAGGER.*");
+		thenMatchesLikeRegex("foo");
+		thenMatchesLikeRegex(".*");
+		thenMatchesLikeRegex("");
+	}
+
+	@Test
+	void should_match_case_insensitive_patterns_with_the_regex() {
+		SkipPatternMatcher matcher = new SkipPatternMatcher(Pattern.compile("/swagger.*", Pattern.CASE_INSENSITIVE));
+
+		then(matcher.matches("/SWAGGER-ui")).isTrue();
+	}
+
+	@Test
+	void should_split_top_level_alternatives_only() {
+		then(SkipPatternMatcher.split("/a(/|/(b|c))?|[|]|\\||/d")).containsExactly("/a(/|/(b|c))?", "[|]", "\\|",
+				"/d");
+	}
+
+	private void thenMatchesLikeRegex(String regex) {
+		Pattern pattern = Pattern.compile(regex);
+		SkipPatternMatcher matcher = new SkipPatternMatcher(pattern);
+		for (String path : PATHS) {
+			then(matcher.matches(path)).as("[%s] matching [%s]", regex, path)
+					.isEqualTo(pattern.matcher(path).matches());
+		}
+	}
+
+}
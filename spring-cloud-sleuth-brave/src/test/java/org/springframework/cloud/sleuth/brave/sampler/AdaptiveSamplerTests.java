@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.sampler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.within;
+
+class AdaptiveSamplerTests {
+
+	AtomicLong nanoTime = new AtomicLong();
+
+	@Test
+	void should_sample_everything_below_the_target_rate() {
+		AdaptiveSampler sampler = new AdaptiveSampler(() -> 100, Duration.ofSeconds(1), this.nanoTime::get);
+
+		int sampled = sampleWindows(sampler, 50, 3);
+
+		then(sampled).isEqualTo(150);
+		then(sampler.getProbability()).isEqualTo(1.0);
+	}
+
+	@Test
+	void should_cap_sampled_traces_in_the_first_window() {
+		AdaptiveSampler sampler = new AdaptiveSampler(() -> 10, Duration.ofSeconds(1), this.nanoTime::get);
+
+		int sampled = sampleWindows(sampler, 1000, 1);
+
+		then(sampled).isEqualTo(10);
+	}
+
+	@Test
+	void should_lower_the_probability_when_the_load_grows() {
+		AdaptiveSampler sampler = new AdaptiveSampler(() -> 10, Duration.ofSeconds(1), this.nanoTime::get);
+		sampleWindows(sampler, 1000, 10);
+
+		sampler.isSampled(1L);
+
+		then(sampler.getIncomingRate()).isCloseTo(1000, within(1.0));
+		then(sampler.getProbability()).isCloseTo(0.01, within(0.001));
+		then(sampler.getSampledRate()).isLessThanOrEqualTo(10);
+	}
+
+	@Test
+	void should_raise_the_probability_when_the_load_drops() {
+		AdaptiveSampler sampler = new AdaptiveSampler(() -> 10, Duration.ofSeconds(1), this.nanoTime::get);
+		sampleWindows(sampler, 1000, 5);
+
+		sampleWindows(sampler, 5, 10);
+		sampler.isSampled(1L);
+
+		then(sampler.getProbability()).isEqualTo(1.0);
+	}
+
+	@Test
+	void should_sample_nothing_with_zero_target_rate() {
+		AdaptiveSampler sampler = new AdaptiveSampler(() -> 0, Duration.ofSeconds(1), this.nanoTime::get);
+
+		then(sampleWindows(sampler, 100, 2)).isZero();
+	}
+
+	private int sampleWindows(AdaptiveSampler sampler, int tracesPerWindow, int windows) {
+		int sampled = 0;
+		for (int window = 0; window < windows; window++) {
+			for (int i = 0; i < tracesPerWindow; i++) {
+				sampled += sampler.isSampled(i) ? 1 : 0;
+			}
+			tick(1000);
+		}
+		return sampled;
+	}
+
+	private void tick(long millis) {
+		this.nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+}
@@ -17,6 +17,7 @@
 package org.springframework.cloud.sleuth.brave.sampler;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import brave.sampler.Sampler;
@@ -68,6 +69,47 @@ public class ProbabilityBasedSamplerTests {
 		then(numberOfSampledElements).isEqualTo(threshold);
 	}
 
+	@Test
+	public void should_pass_given_per_mille_of_samples() throws Exception {
+		int numberOfIterations = 1000;
+		float probability = 0.355f;
+
+		int numberOfSampledElements = countNumberOfSampledElements(numberOfIterations, () -> probability);
+
+		then(numberOfSampledElements).isEqualTo(355);
+	}
+
+	@Test
+	public void should_pass_given_hundredths_of_a_percent_of_samples() throws Exception {
+		int numberOfIterations = 10_000;
+		float probability = 0.0005f;
+
+		int numberOfSampledElements = countNumberOfSampledElements(numberOfIterations, () -> probability);
+
+		then(numberOfSampledElements).isEqualTo(5);
+	}
+
+	@Test
+	public void should_round_probability_finer_than_hundredths_of_a_percent() {
+		then(ProbabilityBasedSampler.window(0.00051f)).isEqualTo(10_000);
+		then(ProbabilityBasedSampler.window(0.355f)).isEqualTo(1_000);
+		then(ProbabilityBasedSampler.window(0.35f)).isEqualTo(100);
+	}
+
+	@Test
+	public void should_pass_given_percent_of_samples_after_probability_changed() throws Exception {
+		AtomicReference<Float> probability = new AtomicReference<>(0.2f);
+		Sampler sampler = new ProbabilityBasedSampler(probability::get);
+		probability.set(0.5f);
+
+		int passedCounter = 0;
+		for (int i = 0; i < 100; i++) {
+			passedCounter = passedCounter + (sampler.isSampled(RANDOM.nextLong()) ? 1 : 0);
+		}
+
+		then(passedCounter).isEqualTo(50);
+	}
+
 	@Test
 	public void should_fail_given_no_probability() {
 		assertThatThrownBy(() -> new ProbabilityBasedSampler(null)).isInstanceOf(IllegalArgumentException.class)
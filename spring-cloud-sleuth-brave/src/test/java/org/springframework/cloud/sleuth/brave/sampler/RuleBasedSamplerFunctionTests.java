@@ -0,0 +1,206 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.brave.sampler;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import brave.http.HttpRequest;
+import brave.messaging.MessagingRequest;
+import brave.rpc.RpcRequest;
+import brave.sampler.Sampler;
+import brave.sampler.SamplerFunction;
+import brave.sampler.SamplerFunctions;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.brave.sampler.RuleBasedSamplerFunction.Rule;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class RuleBasedSamplerFunctionTests {
+
+	static final ThreadLocal<Integer> SAMPLED_BY = new ThreadLocal<>();
+
+	SamplerFunction<HttpRequest> httpSampler = RuleBasedSamplerFunction.http(Arrays.asList(
+			Rule.of("GET", "/health", Sampler.NEVER_SAMPLE), Rule.of("post", "/orders/{id}", Sampler.ALWAYS_SAMPLE),
+			Rule.of("*", "/orders/*/items", Sampler.NEVER_SAMPLE), Rule.of(null, "/static/**", Sampler.NEVER_SAMPLE),
+			Rule.of("GET", "/orders/special", Sampler.ALWAYS_SAMPLE)), null);
+
+	@Test
+	void should_match_literal_http_rules() {
+		then(this.httpSampler.trySample(http("GET", "/health"))).isFalse();
+		then(this.httpSampler.trySample(http("POST", "/health"))).isNull();
+	}
+
+	@Test
+	void should_match_http_path_templates() {
+		then(this.httpSampler.trySample(http("POST", "/orders/1"))).isTrue();
+		then(this.httpSampler.trySample(http("GET", "/orders/1"))).isNull();
+		then(this.httpSampler.trySample(http("DELETE", "/orders/1/items"))).isFalse();
+		then(this.httpSampler.trySample(http("GET", "/static/css/main.css"))).isFalse();
+		then(this.httpSampler.trySample(http("GET", "/static"))).isFalse();
+		then(this.httpSampler.trySample(http("GET", "/other"))).isNull();
+	}
+
+	@Test
+	void should_prefer_literal_segments_over_wildcards() {
+		SamplerFunction<HttpRequest> sampler = RuleBasedSamplerFunction.http(
+				Arrays.asList(Rule.of("GET", "/orders/{id}", Sampler.NEVER_SAMPLE),
+						Rule.of("GET", "/orders/{id}/items", Sampler.ALWAYS_SAMPLE),
+						Rule.of("GET", "/orders/recent", Sampler.ALWAYS_SAMPLE)),
+				null);
+
+		then(sampler.trySample(http("GET", "/orders/recent"))).isTrue();
+		then(sampler.trySample(http("GET", "/orders/recent/items"))).isTrue();
+		then(sampler.trySample(http("GET", "/orders/1"))).isFalse();
+	}
+
+	@Test
+	void should_prefer_the_most_specific_of_overlapping_rules_regardless_of_order() {
+		SamplerFunction<HttpRequest> sampler = RuleBasedSamplerFunction.http(Arrays.asList(
+				Rule.of("GET", "/orders/**", sampler(1)), Rule.of("*", "/orders/{id}", sampler(2)),
+				Rule.of("GET", "/orders/{id}", sampler(3)), Rule.of("*", "/orders/recent", sampler(4)),
+				Rule.of("GET", "/orders/{id}/items/**", sampler(5)), Rule.of("GET", "/orders/1/*", sampler(6))),
+				null);
+
+		// a literal path beats templates even with any method
+		then(sampled(sampler, http("GET", "/orders/recent"))).isEqualTo(4);
+		// a literal method beats any method
+		then(sampled(sampler, http("GET", "/orders/2"))).isEqualTo(3);
+		then(sampled(sampler, http("POST", "/orders/2"))).isEqualTo(2);
+		// a single segment wildcard beats a trailing **
+		then(sampled(sampler, http("GET", "/orders"))).isEqualTo(1);
+		then(sampled(sampler, http("GET", "/orders/2/payments"))).isEqualTo(1);
+		// the ** after more segments wins
+		then(sampled(sampler, http("GET", "/orders/2/items/3/details"))).isEqualTo(5);
+		// a literal segment wins when the rules below it match the remaining segments
+		then(sampled(sampler, http("GET", "/orders/1/items"))).isEqualTo(6);
+		then(sampled(sampler, http("GET", "/orders/1/items/3"))).isEqualTo(5);
+	}
+
+	@Test
+	void should_use_the_first_of_duplicate_rules() {
+		SamplerFunction<HttpRequest> sampler = RuleBasedSamplerFunction.http(Arrays.asList(
+				Rule.of("GET", "/health", sampler(1)), Rule.of("get", "/health", sampler(2)),
+				Rule.of("GET", "/orders/{id}", sampler(3)), Rule.of("GET", "/orders/*", sampler(4)),
+				Rule.of("*", "/static/**", sampler(5)), Rule.of(null, "/static/**", sampler(6))), null);
+
+		then(sampled(sampler, http("GET", "/health"))).isEqualTo(1);
+		then(sampled(sampler, http("GET", "/orders/1"))).isEqualTo(3);
+		then(sampled(sampler, http("GET", "/static/main.css"))).isEqualTo(5);
+	}
+
+	@Test
+	void should_ignore_empty_path_segments() {
+		SamplerFunction<HttpRequest> sampler = RuleBasedSamplerFunction.http(
+				Arrays.asList(Rule.of("GET", "/orders/{id}/items", sampler(1)), Rule.of("GET", "/", sampler(2))),
+				null);
+
+		then(sampled(sampler, http("GET", "//orders/1//items/"))).isEqualTo(1);
+		then(sampled(sampler, http("GET", "/"))).isEqualTo(2);
+		then(sampled(sampler, http("GET", "//"))).isEqualTo(2);
+		then(sampled(sampler, http("POST", "/"))).isNull();
+	}
+
+	@Test
+	void should_use_fallback_when_no_rule_matches() {
+		SamplerFunction<HttpRequest> sampler = RuleBasedSamplerFunction.http(
+				Collections.singletonList(Rule.of("GET", "/health", Sampler.NEVER_SAMPLE)),
+				SamplerFunctions.neverSample());
+
+		then(sampler.trySample(http("GET", "/api"))).isFalse();
+		then(sampler.trySample(http(null, null))).isFalse();
+	}
+
+	@Test
+	void should_sample_with_rule_probability() {
+		SamplerFunction<HttpRequest> sampler = RuleBasedSamplerFunction
+				.http(Collections.singletonList(Rule.probability("GET", "/api", 0.1f)), null);
+
+		int sampled = 0;
+		for (int i = 0; i < 1000; i++) {
+			sampled += Boolean.TRUE.equals(sampler.trySample(http("GET", "/api"))) ? 1 : 0;
+		}
+
+		then(sampled).isEqualTo(100);
+	}
+
+	@Test
+	void should_match_messaging_destinations() {
+		SamplerFunction<MessagingRequest> sampler = RuleBasedSamplerFunction.messaging(
+				Arrays.asList(Rule.of("orders", null, Sampler.ALWAYS_SAMPLE), Rule.of("*", null, Sampler.NEVER_SAMPLE)),
+				null);
+
+		then(sampler.trySample(messaging("orders"))).isTrue();
+		then(sampler.trySample(messaging("payments"))).isFalse();
+		then(sampler.trySample(messaging(null))).isNull();
+	}
+
+	@Test
+	void should_match_rpc_service_and_method() {
+		SamplerFunction<RpcRequest> sampler = RuleBasedSamplerFunction.rpc(
+				Arrays.asList(Rule.of("users.UserService", "GetUser", Sampler.ALWAYS_SAMPLE),
+						Rule.of("users.UserService", "*", Sampler.NEVER_SAMPLE)),
+				null);
+
+		then(sampler.trySample(rpc("users.UserService", "GetUser"))).isTrue();
+		then(sampler.trySample(rpc("users.UserService", "DeleteUser"))).isFalse();
+		then(sampler.trySample(rpc("orders.OrderService", "GetOrder"))).isNull();
+	}
+
+	/**
+	 * Sampler that marks the request as sampled by the rule with the given id.
+	 */
+	private static Sampler sampler(int id) {
+		return new Sampler() {
+			@Override
+			public boolean isSampled(long traceId) {
+				SAMPLED_BY.set(id);
+				return true;
+			}
+		};
+	}
+
+	private static Integer sampled(SamplerFunction<HttpRequest> sampler, HttpRequest request) {
+		SAMPLED_BY.remove();
+		sampler.trySample(request);
+		return SAMPLED_BY.get();
+	}
+
+	private static HttpRequest http(String method, String path) {
+		HttpRequest request = mock(HttpRequest.class);
+		given(request.method()).willReturn(method);
+		given(request.path()).willReturn(path);
+		return request;
+	}
+
+	private static MessagingRequest messaging(String destination) {
+		MessagingRequest request = mock(MessagingRequest.class);
+		given(request.channelName()).willReturn(destination);
+		return request;
+	}
+
+	private static RpcRequest rpc(String service, String method) {
+		RpcRequest request = mock(RpcRequest.class);
+		given(request.service()).willReturn(service);
+		given(request.method()).willReturn(method);
+		return request;
+	}
+
+}
@@ -22,11 +22,13 @@ import java.util.Optional;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.header.Header;
 
+import org.springframework.cloud.sleuth.internal.EncodingUtils;
 import org.springframework.cloud.sleuth.propagation.Propagator;
 
 /**
  * Getter extracting the values from the {@link ConsumerRecord} headers for Kafka based
- * communication.
+ * communication. The value of the binary trace context header is read from its raw
+ * bytes.
  *
  * @author Anders Clausen
  * @author Flaviu Muresan
@@ -38,7 +40,9 @@ public class TracingKafkaPropagatorGetter implements Propagator.Getter<ConsumerR
 	public String get(ConsumerRecord<?, ?> carrier, String key) {
 		return Optional.ofNullable(carrier).map(ConsumerRecord::headers).map(headers -> headers.headers(key))
 				.map(Iterable::iterator).filter(Iterator::hasNext).map(Iterator::next).map(Header::value)
-				.map(String::new).orElse(null);
+				.map(value -> EncodingUtils.isBinaryHeader(key) ? EncodingUtils.binaryHeaderValue(value)
+						: new String(value))
+				.orElse(null);
 	}
 
 }
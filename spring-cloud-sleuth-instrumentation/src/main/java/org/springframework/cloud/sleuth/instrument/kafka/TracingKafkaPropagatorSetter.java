@@ -18,11 +18,13 @@ package org.springframework.cloud.sleuth.instrument.kafka;
 
 import org.apache.kafka.clients.producer.ProducerRecord;
 
+import org.springframework.cloud.sleuth.internal.EncodingUtils;
 import org.springframework.cloud.sleuth.propagation.Propagator;
 
 /**
  * Setter injecting the values onto the {@link ProducerRecord} headers for Kafka based
- * communication.
+ * communication. The value of the binary trace context header is written as its raw
+ * bytes.
  *
  * @author Anders Clausen
  * @author Flaviu Muresan
@@ -33,7 +35,8 @@ public class TracingKafkaPropagatorSetter implements Propagator.Setter<ProducerR
 	@Override
 	public void set(ProducerRecord<?, ?> carrier, String key, String value) {
 		if (carrier != null) {
-			carrier.headers().add(key, value.getBytes());
+			carrier.headers().add(key,
+					EncodingUtils.isBinaryHeader(key) ? EncodingUtils.binaryHeaderBytes(value) : value.getBytes());
 		}
 	}
 
@@ -16,7 +16,9 @@
 
 package org.springframework.cloud.sleuth.instrument.reactor;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import org.reactivestreams.Processor;
@@ -96,6 +98,14 @@ final class ReactorHooksHelper {
 		sourceProducerClass = c;
 	}
 
+	private static final String REACTOR_PUBLISHER_PACKAGE = "reactor.core.publisher.";
+
+	/**
+	 * Only holds classes of reactor-core, so it is bounded and doesn't keep classes of
+	 * other class loaders alive.
+	 */
+	static final Map<Class<?>, Kind> KINDS = new ConcurrentHashMap<>();
+
 	private ReactorHooksHelper() {
 	}
 
@@ -115,27 +125,70 @@ final class ReactorHooksHelper {
 				// is start of the chain, Publisher without source or foreign Publisher
 				return true;
 			}
-			if (current instanceof Fuseable.ScalarCallable) {
+			switch (kind(current)) {
+			case NOT_DECORATED:
+			case SYNC_SOURCE:
 				return false;
-			}
-			if (isTraceContextPropagator(current)) {
-				return false;
-			}
-
-			if (!isSync(current)) {
-				boolean isLifter = getLifterName(current) != null;
-				if (isLifter) {
-					return shouldDecorateLifter(current);
-				}
+			case ASYNC:
 				return true;
+			case SYNC:
+				break;
+			default:
+				if (isTraceContextPropagator(current)) {
+					return false;
+				}
+				if (!isSync(current)) {
+					boolean isLifter = getLifterName(current) != null;
+					if (isLifter) {
+						return shouldDecorateLifter(current);
+					}
+					return true;
+				}
+				if (isSourceProducer(current)) {
+					return false;
+				}
 			}
+			current = getParent(current);
+		}
+	}
 
-			if (isSourceProducer(current)) {
-				return false;
+	/**
+	 * Operators of reactor-core report a {@code RUN_STYLE} that depends only on their
+	 * class, except for lifters and sources wrapping another publisher (e.g.
+	 * {@code FluxSource} and {@code MonoSource}) that report the {@code RUN_STYLE} of
+	 * their source. So for those classes the part of the verdict that depends on the
+	 * publisher itself is computed once. Other publishers are checked for each instance.
+	 */
+	static Kind kind(Publisher<?> p) {
+		Class<?> type = p.getClass();
+		if (!type.getName().startsWith(REACTOR_PUBLISHER_PACKAGE)) {
+			if (p instanceof Fuseable.ScalarCallable || p instanceof TraceContextPropagator) {
+				return Kind.NOT_DECORATED;
 			}
+			return Kind.PER_INSTANCE;
+		}
+		Kind kind = KINDS.get(type);
+		if (kind == null) {
+			kind = computeKind(p);
+			KINDS.putIfAbsent(type, kind);
+		}
+		return kind;
+	}
 
-			current = getParent(current);
+	private static Kind computeKind(Publisher<?> p) {
+		if (p instanceof Fuseable.ScalarCallable || p instanceof TraceContextPropagator) {
+			return Kind.NOT_DECORATED;
+		}
+		if (getLifterName(p) != null || (isSourceProducer(p) && getParent(p) != null)) {
+			return Kind.PER_INSTANCE;
 		}
+		if (!isSync(p)) {
+			return Kind.ASYNC;
+		}
+		if (isSourceProducer(p)) {
+			return Kind.SYNC_SOURCE;
+		}
+		return Kind.SYNC;
 	}
 
 	/**
@@ -193,6 +246,40 @@ final class ReactorHooksHelper {
 		return null;
 	}
 
+	/**
+	 * What a publisher class means for the verdict of {@link #shouldDecorate(Publisher)}.
+	 */
+	enum Kind {
+
+		/**
+		 * Scalar publisher or {@link TraceContextPropagator}, chain doesn't need to be
+		 * decorated.
+		 */
+		NOT_DECORATED,
+
+		/**
+		 * Synchronous source, chain doesn't need to be decorated.
+		 */
+		SYNC_SOURCE,
+
+		/**
+		 * Synchronous operator, the verdict depends on its source.
+		 */
+		SYNC,
+
+		/**
+		 * Asynchronous publisher, chain needs to be decorated.
+		 */
+		ASYNC,
+
+		/**
+		 * Lifters, sources wrapping another publisher and publishers outside of
+		 * reactor-core, checked for each instance.
+		 */
+		PER_INSTANCE
+
+	}
+
 	/**
 	 * @param name function name.
 	 * @param delegate delegate function.
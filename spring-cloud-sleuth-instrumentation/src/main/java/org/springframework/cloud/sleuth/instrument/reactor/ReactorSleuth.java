@@ -18,7 +18,9 @@ package org.springframework.cloud.sleuth.instrument.reactor;
 
 import java.util.AbstractQueue;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -222,7 +224,32 @@ public abstract class ReactorSleuth {
 		if (log.isTraceEnabled()) {
 			log.trace("Spring Context passing operator [" + springContext + "]");
 		}
+		return contextOperator(springContext, false);
+	}
 
+	/**
+	 * Creates a context passing operator. Used by
+	 * {@code InstrumentationType#CONTEXT_ONLY}. Works like
+	 * {@link #springContextSpanOperator(ConfigurableApplicationContext)}, and
+	 * additionally stores the trace context that is current when the chain is subscribed
+	 * in the Reactor context, unless there's one already. Signals are never wrapped in a
+	 * scope, the thread local context is restored only where it's explicitly asked for
+	 * via {@code WebFluxSleuthOperators}.
+	 * @param springContext the Spring context.
+	 * @param <T> an arbitrary type that is left unchanged by the span operator.
+	 * @return operator to apply to {@link Hooks#onLastOperator(Function)} for
+	 * {@code InstrumentationType#CONTEXT_ONLY}
+	 */
+	public static <T> Function<? super Publisher<T>, ? extends Publisher<T>> contextPassingSpanOperator(
+			ConfigurableApplicationContext springContext) {
+		if (log.isTraceEnabled()) {
+			log.trace("Context passing operator [" + springContext + "]");
+		}
+		return contextOperator(springContext, true);
+	}
+
+	private static <T> Function<? super Publisher<T>, ? extends Publisher<T>> contextOperator(
+			ConfigurableApplicationContext springContext, boolean withTraceContext) {
 		LazyBean<Tracer> lazyTracer = LazyBean.create(springContext, Tracer.class);
 		LazyBean<CurrentTraceContext> lazyCurrentTraceContext = LazyBean.create(springContext,
 				CurrentTraceContext.class);
@@ -234,6 +261,12 @@ public abstract class ReactorSleuth {
 		}, (p, sub) -> {
 			Context ctxBefore = context(sub);
 			Context context = contextWithBeans(ctxBefore, lazyTracer, lazyCurrentTraceContext);
+			if (withTraceContext && !context.hasKey(TraceContext.class)) {
+				TraceContext traceContext = context.get(CurrentTraceContext.class).context();
+				if (traceContext != null) {
+					context = context.put(TraceContext.class, traceContext);
+				}
+			}
 			if (context == ctxBefore) {
 				return sub;
 			}
@@ -314,28 +347,17 @@ public abstract class ReactorSleuth {
 		return fallback.context();
 	}
 
+	/**
+	 * Creates a schedule hook that passes the current trace context to the thread that
+	 * runs the scheduled task. Tasks scheduled without a trace context only clear a
+	 * context leaked on the worker thread.
+	 * @param springContext the Spring context.
+	 * @return hook to apply to {@link reactor.core.scheduler.Schedulers#onScheduleHook}
+	 * @see TraceScheduleHook
+	 */
 	public static Function<Runnable, Runnable> scopePassingOnScheduleHook(
 			ConfigurableApplicationContext springContext) {
-		LazyBean<CurrentTraceContext> lazyCurrentTraceContext = LazyBean.create(springContext,
-				CurrentTraceContext.class);
-		return delegate -> {
-			if (springContext.isActive()) {
-				final CurrentTraceContext currentTraceContext = lazyCurrentTraceContext.get();
-				if (currentTraceContext == null) {
-					return delegate;
-				}
-				final TraceContext traceContext = currentTraceContext.context();
-				return () -> {
-					try (CurrentTraceContext.Scope scope = currentTraceContext.maybeScope(traceContext)) {
-						delegate.run();
-					}
-					// extra step to ensure context is cleared when publishOn or similar
-					// operators leaks different context and leaves it uncleared
-					currentTraceContext.maybeScope(null);
-				};
-			}
-			return delegate;
-		};
+		return new TraceScheduleHook(springContext);
 	}
 
 	/**
@@ -688,104 +710,178 @@ public abstract class ReactorSleuth {
 		}
 		CurrentTraceContext currentTraceContext = springContext.getBean(CurrentTraceContext.class);
 		@SuppressWarnings("unchecked")
-		Queue envelopeQueue = queue;
-		return new AbstractQueue<Object>() {
+		Queue<Object> envelopeQueue = (Queue<Object>) queue;
+		return new TraceQueue(envelopeQueue, currentTraceContext);
+	}
+
+	/**
+	 * Queue that restores, on the reading side, the trace context that was current when
+	 * an element was offered. Elements are stored run-length style: an element offered
+	 * with the same trace context as the previous one is stored as is, only a change of
+	 * the context is stored in an {@link Envelope}. When producers offer concurrently
+	 * elements are always wrapped in a one-off {@link Envelope} that doesn't change the
+	 * context of the following elements.
+	 */
+	static final class TraceQueue extends AbstractQueue<Object> {
 
-			boolean cleanOnNull;
+		private static final AtomicIntegerFieldUpdater<TraceQueue> OFFERING = AtomicIntegerFieldUpdater
+				.newUpdater(TraceQueue.class, "offering");
 
-			boolean hasPrevious = false;
+		/**
+		 * Marks that no run has been started yet.
+		 */
+		private static final Object NO_RUN = new Object();
 
-			Thread lastReader;
+		private final Queue<Object> queue;
 
-			@Override
-			public int size() {
-				return envelopeQueue.size();
-			}
+		private final CurrentTraceContext currentTraceContext;
 
-			@Override
-			public boolean offer(Object o) {
-				TraceContext traceContext = currentTraceContext.context();
-				return envelopeQueue.offer(new Envelope(o, traceContext));
-			}
+		private volatile int offering;
 
-			@Override
-			public Object poll() {
-				Object object = envelopeQueue.poll();
-				if (object == null) {
-					if (cleanOnNull) {
-						// to clear thread-local if was just restored
-						currentTraceContext.maybeScope(null);
-					}
-					cleanOnNull = true;
-					lastReader = Thread.currentThread();
-					hasPrevious = false;
-					return null;
+		/**
+		 * Trace context of the current run on the writing side. Guarded by
+		 * {@link #offering}.
+		 */
+		private Object lastOffered = NO_RUN;
+
+		/**
+		 * Trace context of the current run on the reading side.
+		 */
+		private TraceContext lastPolled;
+
+		boolean cleanOnNull;
+
+		boolean hasPrevious = false;
+
+		Thread lastReader;
+
+		TraceQueue(Queue<Object> queue, CurrentTraceContext currentTraceContext) {
+			this.queue = queue;
+			this.currentTraceContext = currentTraceContext;
+		}
+
+		@Override
+		public int size() {
+			return this.queue.size();
+		}
+
+		@Override
+		public boolean offer(Object o) {
+			TraceContext traceContext = this.currentTraceContext.context();
+			if (!OFFERING.compareAndSet(this, 0, 1)) {
+				return this.queue.offer(new Envelope(o, traceContext, false));
+			}
+			try {
+				if (this.lastOffered != NO_RUN && Objects.equals(this.lastOffered, traceContext)) {
+					return this.queue.offer(o);
 				}
-				else if (object instanceof Envelope) {
-					Envelope envelope = (Envelope) object;
-					restoreTheContext(envelope);
-					hasPrevious = true;
-					return envelope.body;
+				boolean offered = this.queue.offer(new Envelope(o, traceContext, true));
+				if (offered) {
+					this.lastOffered = traceContext;
 				}
-				hasPrevious = true;
-				return object;
+				return offered;
 			}
+			finally {
+				OFFERING.lazySet(this, 0);
+			}
+		}
 
-			private void restoreTheContext(Envelope envelope) {
-				TraceContext traceContext = envelope.traceContext;
-				if (traceContext != null) {
-					if (!traceContext.equals(currentTraceContext.context())) {
-						if (!hasPrevious || !Thread.currentThread().equals(this.lastReader)) {
-							// means context was restored form the envelope, thus it has
-							// to be cleared
-							cleanOnNull = true;
-							lastReader = Thread.currentThread();
-						}
-						currentTraceContext.maybeScope(traceContext);
-					}
-					else if (!hasPrevious || !Thread.currentThread().equals(this.lastReader)) {
-						// means same context was already available, no need to clean
-						// anything
-						cleanOnNull = false;
-						lastReader = Thread.currentThread();
-					}
+		@Override
+		public Object poll() {
+			Object object = this.queue.poll();
+			if (object == null) {
+				if (this.cleanOnNull) {
+					// to clear thread-local if was just restored
+					this.currentTraceContext.maybeScope(null);
 				}
+				this.cleanOnNull = true;
+				this.lastReader = Thread.currentThread();
+				this.hasPrevious = false;
+				return null;
 			}
+			Object body = restoreTheContext(object);
+			this.hasPrevious = true;
+			return body;
+		}
 
-			@Override
-			public Object peek() {
-				Object peek = queue.peek();
-				if (peek instanceof Envelope) {
-					Envelope envelope = (Envelope) peek;
-					restoreTheContext(envelope);
-					return (envelope).body;
+		private Object restoreTheContext(Object object) {
+			TraceContext traceContext;
+			Object body;
+			if (object instanceof Envelope) {
+				Envelope envelope = (Envelope) object;
+				traceContext = envelope.traceContext;
+				body = envelope.body;
+				if (envelope.startsRun) {
+					this.lastPolled = traceContext;
 				}
-				return peek;
 			}
+			else {
+				traceContext = this.lastPolled;
+				body = object;
+			}
+			restoreTheContext(traceContext);
+			return body;
+		}
 
-			@Override
-			@SuppressWarnings("unchecked")
-			public Iterator<Object> iterator() {
-				Iterator<?> iterator = queue.iterator();
-				return new Iterator<Object>() {
-					@Override
-					public boolean hasNext() {
-						return iterator.hasNext();
+		private void restoreTheContext(TraceContext traceContext) {
+			if (traceContext != null) {
+				if (!traceContext.equals(this.currentTraceContext.context())) {
+					if (!this.hasPrevious || !Thread.currentThread().equals(this.lastReader)) {
+						// means context was restored form the envelope, thus it has
+						// to be cleared
+						this.cleanOnNull = true;
+						this.lastReader = Thread.currentThread();
 					}
+					this.currentTraceContext.maybeScope(traceContext);
+				}
+				else if (!this.hasPrevious || !Thread.currentThread().equals(this.lastReader)) {
+					// means same context was already available, no need to clean
+					// anything
+					this.cleanOnNull = false;
+					this.lastReader = Thread.currentThread();
+				}
+			}
+		}
+
+		@Override
+		public Object peek() {
+			Object peek = this.queue.peek();
+			if (peek == null) {
+				return null;
+			}
+			return restoreTheContext(peek);
+		}
+
+		@Override
+		public Iterator<Object> iterator() {
+			Iterator<Object> iterator = this.queue.iterator();
+			return new Iterator<Object>() {
+
+				TraceContext run = TraceQueue.this.lastPolled;
 
-					@Override
-					public Object next() {
-						Object next = iterator.next();
-						if (next instanceof Envelope) {
-							Envelope envelope = (Envelope) next;
-							restoreTheContext(envelope);
-							return (envelope).body;
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Object next() {
+					Object next = iterator.next();
+					TraceContext traceContext = this.run;
+					if (next instanceof Envelope) {
+						Envelope envelope = (Envelope) next;
+						traceContext = envelope.traceContext;
+						if (envelope.startsRun) {
+							this.run = traceContext;
 						}
-						return next;
+						next = envelope.body;
 					}
-				};
-			}
-		};
+					restoreTheContext(traceContext);
+					return next;
+				}
+			};
+		}
+
 	}
 
 	static class Envelope {
@@ -794,9 +890,12 @@ public abstract class ReactorSleuth {
 
 		final TraceContext traceContext;
 
-		Envelope(Object body, TraceContext traceContext) {
+		final boolean startsRun;
+
+		Envelope(Object body, TraceContext traceContext, boolean startsRun) {
 			this.body = body;
 			this.traceContext = traceContext;
+			this.startsRun = startsRun;
 		}
 
 	}
@@ -64,6 +64,10 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 	@Override
 	public void onSubscribe(Subscription subscription) {
 		this.s = subscription;
+		if (isParentInScope()) {
+			this.subscriber.onSubscribe(this);
+			return;
+		}
 		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
 			this.subscriber.onSubscribe(this);
 		}
@@ -71,6 +75,10 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 
 	@Override
 	public void request(long n) {
+		if (isParentInScope()) {
+			this.s.request(n);
+			return;
+		}
 		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
 			this.s.request(n);
 		}
@@ -78,6 +86,10 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 
 	@Override
 	public void cancel() {
+		if (isParentInScope()) {
+			this.s.cancel();
+			return;
+		}
 		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
 			this.s.cancel();
 		}
@@ -85,6 +97,10 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 
 	@Override
 	public void onNext(T o) {
+		if (isParentInScope()) {
+			this.subscriber.onNext(o);
+			return;
+		}
 		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
 			this.subscriber.onNext(o);
 		}
@@ -92,6 +108,10 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 
 	@Override
 	public void onError(Throwable throwable) {
+		if (isParentInScope()) {
+			this.subscriber.onError(throwable);
+			return;
+		}
 		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
 			this.subscriber.onError(throwable);
 		}
@@ -99,11 +119,25 @@ final class ScopePassingSpanSubscriber<T> implements SpanSubscription<T>, Scanna
 
 	@Override
 	public void onComplete() {
+		if (isParentInScope()) {
+			this.subscriber.onComplete();
+			return;
+		}
 		try (CurrentTraceContext.Scope scope = this.currentTraceContext.maybeScope(this.parent)) {
 			this.subscriber.onComplete();
 		}
 	}
 
+	/**
+	 * Nested subscribers of a synchronous chain usually share the same parent, so they
+	 * can skip putting it in scope again when it's what is current on this thread. As in
+	 * Brave, contexts are compared with {@code equals}. A {@code null} parent is always
+	 * put in scope, to clear leaked contexts.
+	 */
+	private boolean isParentInScope() {
+		return this.parent != null && this.parent.equals(this.currentTraceContext.context());
+	}
+
 	@Override
 	public Context currentContext() {
 		return this.context;
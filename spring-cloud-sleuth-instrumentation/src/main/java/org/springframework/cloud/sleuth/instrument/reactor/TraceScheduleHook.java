@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Reactor schedule hook that passes the trace context that is current when a task is
+ * scheduled to the thread that runs it. The {@link CurrentTraceContext} is resolved once
+ * the Spring context is active and cached for as long as the hook is registered, the
+ * hook is removed when the Spring context is closed. Tasks scheduled without a trace
+ * context are not put in a scope, they only clear a context leaked on the worker thread
+ * before and after they run. The hook counts the tasks of both kinds. Reactor doesn't
+ * pass the scheduler to a schedule hook, so the counts are not per scheduler.
+ *
+ * <p>
+ * Note: This is an internal class to sleuth and must not be used by external code.
+ *
+ * @since 3.1.10
+ */
+public final class TraceScheduleHook implements Function<Runnable, Runnable> {
+
+	private static final Log log = LogFactory.getLog(TraceScheduleHook.class);
+
+	private final ConfigurableApplicationContext springContext;
+
+	private final LongAdder withTraceContext = new LongAdder();
+
+	private final LongAdder withoutTraceContext = new LongAdder();
+
+	private volatile CurrentTraceContext currentTraceContext;
+
+	TraceScheduleHook(ConfigurableApplicationContext springContext) {
+		this.springContext = springContext;
+	}
+
+	@Override
+	public Runnable apply(Runnable delegate) {
+		CurrentTraceContext currentTraceContext = currentTraceContext();
+		if (currentTraceContext == null) {
+			return delegate;
+		}
+		TraceContext traceContext = currentTraceContext.context();
+		if (traceContext == null) {
+			this.withoutTraceContext.increment();
+			return () -> {
+				// e.g. a queue drained with the DECORATE_QUEUES instrumentation can leave
+				// its context on the worker thread
+				currentTraceContext.maybeScope(null);
+				try {
+					delegate.run();
+				}
+				finally {
+					currentTraceContext.maybeScope(null);
+				}
+			};
+		}
+		this.withTraceContext.increment();
+		return () -> {
+			try (CurrentTraceContext.Scope scope = currentTraceContext.maybeScope(traceContext)) {
+				delegate.run();
+			}
+			// extra step to ensure context is cleared when publishOn or similar
+			// operators leaks different context and leaves it uncleared
+			currentTraceContext.maybeScope(null);
+		};
+	}
+
+	private CurrentTraceContext currentTraceContext() {
+		CurrentTraceContext currentTraceContext = this.currentTraceContext;
+		if (currentTraceContext != null || !this.springContext.isActive()) {
+			return currentTraceContext;
+		}
+		try {
+			currentTraceContext = this.springContext.getBean(CurrentTraceContext.class);
+			this.currentTraceContext = currentTraceContext;
+		}
+		catch (Exception ex) {
+			if (log.isDebugEnabled()) {
+				log.debug("Spring context [" + this.springContext + "] error getting [" + CurrentTraceContext.class
+						+ "].", ex);
+			}
+		}
+		return currentTraceContext;
+	}
+
+	/**
+	 * @return number of tasks that were scheduled with a trace context and run in its
+	 * scope
+	 */
+	public long tasksWithTraceContext() {
+		return this.withTraceContext.sum();
+	}
+
+	/**
+	 * @return number of tasks that were scheduled without a trace context, so they only
+	 * clear leaked contexts
+	 */
+	public long tasksWithoutTraceContext() {
+		return this.withoutTraceContext.sum();
+	}
+
+}
@@ -17,9 +17,11 @@
 package org.springframework.cloud.sleuth.instrument.rsocket;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.util.CharsetUtil;
 import io.rsocket.metadata.CompositeMetadata;
 
+import org.springframework.cloud.sleuth.internal.EncodingUtils;
 import org.springframework.cloud.sleuth.propagation.Propagator;
 
 class ByteBufGetter implements Propagator.Getter<ByteBuf> {
@@ -29,7 +31,11 @@ class ByteBufGetter implements Propagator.Getter<ByteBuf> {
 		final CompositeMetadata compositeMetadata = new CompositeMetadata(carrier, false);
 		for (CompositeMetadata.Entry entry : compositeMetadata) {
 			if (key.equals(entry.getMimeType())) {
-				return entry.getContent().toString(CharsetUtil.UTF_8);
+				ByteBuf content = entry.getContent();
+				if (EncodingUtils.isBinaryHeader(key)) {
+					return EncodingUtils.binaryHeaderValue(ByteBufUtil.getBytes(content));
+				}
+				return content.toString(CharsetUtil.UTF_8);
 			}
 		}
 		return null;
@@ -16,11 +16,13 @@
 
 package org.springframework.cloud.sleuth.instrument.rsocket;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.CompositeByteBuf;
 import io.rsocket.metadata.CompositeMetadataCodec;
 
+import org.springframework.cloud.sleuth.internal.EncodingUtils;
 import org.springframework.cloud.sleuth.propagation.Propagator;
 
 class ByteBufSetter implements Propagator.Setter<CompositeByteBuf> {
@@ -28,8 +30,15 @@ class ByteBufSetter implements Propagator.Setter<CompositeByteBuf> {
 	@Override
 	public void set(CompositeByteBuf carrier, String key, String value) {
 		final ByteBufAllocator alloc = carrier.alloc();
-		CompositeMetadataCodec.encodeAndAddMetadataWithCompression(carrier, alloc, key,
-				ByteBufUtil.writeUtf8(alloc, value));
+		CompositeMetadataCodec.encodeAndAddMetadataWithCompression(carrier, alloc, key, content(alloc, key, value));
+	}
+
+	private ByteBuf content(ByteBufAllocator alloc, String key, String value) {
+		if (EncodingUtils.isBinaryHeader(key)) {
+			byte[] bytes = EncodingUtils.binaryHeaderBytes(value);
+			return alloc.buffer(bytes.length).writeBytes(bytes);
+		}
+		return ByteBufUtil.writeUtf8(alloc, value);
 	}
 
 }
@@ -16,7 +16,9 @@
 
 package org.springframework.cloud.sleuth.internal;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Base64;
 
 import org.springframework.util.Assert;
 
@@ -38,6 +40,14 @@ public final class EncodingUtils {
 
 	static final int LONG_BASE16 = BYTE_BASE16 * LONG_BYTES;
 
+	/**
+	 * Name of the header with the binary trace context. Its value is passed around as a
+	 * base64 string, so that text carriers can take it as it is. Binary carriers write
+	 * and read the raw bytes. Other headers, including baggage whose name ends with
+	 * {@code -bin}, are kept as text, since their consumers may not expect base64.
+	 */
+	public static final String BINARY_TRACE_HEADER = "grpc-trace-bin";
+
 	private static final String ALPHABET = "0123456789abcdef";
 
 	private static final int ASCII_CHARACTERS = 128;
@@ -96,8 +106,10 @@ public final class EncodingUtils {
 	 * Returns the {@code long} value whose base16 representation is stored in the first
 	 * 16 chars of {@code chars} starting from the {@code offset}.
 	 * @param chars the base16 representation of the {@code long}.
+	 * @param offset the starting offset in the {@code CharSequence}.
+	 * @return long value from string
 	 */
-	static long longFromBase16String(CharSequence chars, int offset) {
+	public static long longFromBase16String(CharSequence chars, int offset) {
 		Assert.isTrue(chars.length() >= offset + LONG_BASE16, "chars too small");
 		return (decodeByte(chars.charAt(offset), chars.charAt(offset + 1)) & 0xFFL) << 56
 				| (decodeByte(chars.charAt(offset + 2), chars.charAt(offset + 3)) & 0xFFL) << 48
@@ -136,7 +148,18 @@ public final class EncodingUtils {
 	 * @return {@code true} if valid base16 string
 	 */
 	public static boolean isValidBase16String(CharSequence value) {
-		for (int i = 0; i < value.length(); i++) {
+		return isValidBase16String(value, 0, value.length());
+	}
+
+	/**
+	 * Checks if a range of characters is valid base16.
+	 * @param value to check
+	 * @param beginIndex the inclusive begin index
+	 * @param endIndex the exclusive end index
+	 * @return {@code true} if the range is a valid base16 string
+	 */
+	public static boolean isValidBase16String(CharSequence value, int beginIndex, int endIndex) {
+		for (int i = beginIndex; i < endIndex; i++) {
 			char b = value.charAt(i);
 			// 48..57 && 97..102 are valid
 			if (!isDigit(b) && !isLowercaseHexCharacter(b)) {
@@ -190,6 +213,39 @@ public final class EncodingUtils {
 		dest[destOffset + 1] = ENCODING[b | 256];
 	}
 
+	/**
+	 * Checks if a header carries a binary value.
+	 * @param name header name
+	 * @return {@code true} if the header is the {@link #BINARY_TRACE_HEADER}
+	 */
+	public static boolean isBinaryHeader(String name) {
+		return BINARY_TRACE_HEADER.equals(name);
+	}
+
+	/**
+	 * Converts a base64 binary header value into the raw bytes. A value that is not
+	 * base64 is returned as its UTF-8 bytes, so that it is not lost.
+	 * @param value binary header value
+	 * @return bytes of the value
+	 */
+	public static byte[] binaryHeaderBytes(String value) {
+		try {
+			return Base64.getDecoder().decode(value);
+		}
+		catch (IllegalArgumentException ex) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Converts raw bytes into an unpadded base64 binary header value.
+	 * @param bytes bytes of the value
+	 * @return binary header value
+	 */
+	public static String binaryHeaderValue(byte[] bytes) {
+		return Base64.getEncoder().withoutPadding().encodeToString(bytes);
+	}
+
 	private static char[] getTemporaryBuffer() {
 		char[] chars = charBuffer.get();
 		if (chars == null) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class TracingKafkaPropagatorTests {
+
+	static final String BINARY_VALUE = "AAD/gAE";
+
+	@Test
+	void should_write_and_read_text_headers() {
+		ProducerRecord<String, String> producerRecord = new ProducerRecord<>("test", "test");
+
+		new TracingKafkaPropagatorSetter().set(producerRecord, "b3", "463ac35c9f6413ad-a2fb4a1d1a96d312-1");
+
+		then(new String(producerRecord.headers().lastHeader("b3").value()))
+				.isEqualTo("463ac35c9f6413ad-a2fb4a1d1a96d312-1");
+		then(new TracingKafkaPropagatorGetter().get(consumerRecord(producerRecord), "b3"))
+				.isEqualTo("463ac35c9f6413ad-a2fb4a1d1a96d312-1");
+	}
+
+	@Test
+	void should_write_and_read_binary_trace_context_as_raw_bytes() {
+		ProducerRecord<String, String> producerRecord = new ProducerRecord<>("test", "test");
+
+		new TracingKafkaPropagatorSetter().set(producerRecord, "grpc-trace-bin", BINARY_VALUE);
+
+		then(producerRecord.headers().lastHeader("grpc-trace-bin").value())
+				.containsExactly(new byte[] { 0, 0, (byte) 0xff, (byte) 0x80, 1 });
+		then(new TracingKafkaPropagatorGetter().get(consumerRecord(producerRecord), "grpc-trace-bin"))
+				.isEqualTo(BINARY_VALUE);
+	}
+
+	@Test
+	void should_write_and_read_other_bin_headers_as_text() {
+		ProducerRecord<String, String> producerRecord = new ProducerRecord<>("test", "test");
+
+		new TracingKafkaPropagatorSetter().set(producerRecord, "region-bin", "US");
+
+		then(new String(producerRecord.headers().lastHeader("region-bin").value())).isEqualTo("US");
+		then(new TracingKafkaPropagatorGetter().get(consumerRecord(producerRecord), "region-bin")).isEqualTo("US");
+	}
+
+	private ConsumerRecord<String, String> consumerRecord(ProducerRecord<String, String> producerRecord) {
+		ConsumerRecord<String, String> consumerRecord = new ConsumerRecord<>("test", 0, 0L, "test", "test");
+		producerRecord.headers().forEach(header -> consumerRecord.headers().add(header));
+		return consumerRecord;
+	}
+
+}
@@ -24,6 +24,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.reactivestreams.Publisher;
 import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Hooks;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoOperator;
@@ -130,6 +131,44 @@ class ReactorHooksHelperTests {
 		assertThat(actual).isTrue();
 	}
 
+	@Test
+	public void shouldDecorateWhenSameOperatorClassesAgainThanSameVerdict() {
+		Mono<Long> asyncSource = Mono.delay(Duration.ofMillis(10));
+
+		assertThat(ReactorHooksHelper.shouldDecorate(Mono.just(1).map(Function.identity()))).isFalse();
+		assertThat(ReactorHooksHelper.shouldDecorate(asyncSource.map(Function.identity()))).isTrue();
+		assertThat(ReactorHooksHelper.shouldDecorate(Mono.just(2).map(Function.identity()))).isFalse();
+		assertThat(ReactorHooksHelper.shouldDecorate(asyncSource.map(Function.identity()))).isTrue();
+	}
+
+	@Test
+	public void kindWhenReactorOperatorsThanCachedPerClass() {
+		assertThat(ReactorHooksHelper.kind(Mono.just(1))).isEqualTo(ReactorHooksHelper.Kind.NOT_DECORATED);
+		assertThat(ReactorHooksHelper.kind(Mono.fromSupplier(() -> 1))).isEqualTo(ReactorHooksHelper.Kind.SYNC_SOURCE);
+		assertThat(ReactorHooksHelper.kind(Mono.just(1).hide())).isEqualTo(ReactorHooksHelper.Kind.SYNC);
+		assertThat(ReactorHooksHelper.kind(Mono.delay(Duration.ofMillis(10)))).isEqualTo(ReactorHooksHelper.Kind.ASYNC);
+		assertThat(ReactorHooksHelper.KINDS).containsKey(Mono.just(1).getClass());
+	}
+
+	@Test
+	public void kindWhenOperatorOutsideOfReactorThanCheckedPerInstance() {
+		Mono<?> source = Mono.just(1).as(CustomMonoWithoutRunStyleOperator::new);
+
+		assertThat(ReactorHooksHelper.kind(source)).isEqualTo(ReactorHooksHelper.Kind.PER_INSTANCE);
+		assertThat(ReactorHooksHelper.KINDS).doesNotContainKey(source.getClass());
+	}
+
+	@Test
+	public void kindWhenSourceWrapsAnotherPublisherThanCheckedPerInstance() {
+		Publisher<Integer> foreign = subscriber -> Mono.just(1).subscribe(subscriber);
+		Flux<Integer> wrapped = Flux.from(foreign);
+
+		assertThat(ReactorHooksHelper.kind(wrapped)).isEqualTo(ReactorHooksHelper.Kind.PER_INSTANCE);
+		assertThat(ReactorHooksHelper.kind(Mono.fromDirect(foreign)))
+				.isEqualTo(ReactorHooksHelper.Kind.PER_INSTANCE);
+		assertThat(ReactorHooksHelper.shouldDecorate(wrapped.map(Function.identity()))).isTrue();
+	}
+
 	static class CustomMonoWithoutRunStyleOperator<O> extends MonoOperator<O, O> {
 
 		/**
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.cloud.sleuth.instrument.web.WebFluxSleuthOperators;
+import org.springframework.cloud.sleuth.tracer.NoOpTraceContext;
+import org.springframework.cloud.sleuth.tracer.SimpleCurrentTraceContext;
+import org.springframework.cloud.sleuth.tracer.SimpleTracer;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactorSleuthContextOnlyTests {
+
+	static final String HOOK_KEY = ReactorSleuthContextOnlyTests.class.getName();
+
+	SimpleCurrentTraceContext currentTraceContext = new SimpleCurrentTraceContext();
+
+	GenericApplicationContext springContext = new GenericApplicationContext();
+
+	@BeforeEach
+	void setup() {
+		this.springContext.registerBean(Tracer.class, SimpleTracer::new);
+		this.springContext.registerBean(CurrentTraceContext.class, () -> this.currentTraceContext);
+		this.springContext.refresh();
+		Hooks.onLastOperator(HOOK_KEY, ReactorSleuth.contextPassingSpanOperator(this.springContext));
+	}
+
+	@AfterEach
+	void close() {
+		Hooks.resetOnLastOperator(HOOK_KEY);
+		this.springContext.close();
+	}
+
+	@Test
+	void should_store_trace_context_current_at_subscription_in_reactor_context() {
+		TraceContext traceContext = new NoOpTraceContext();
+		this.currentTraceContext.traceContext = traceContext;
+
+		TraceContext fromContext = Mono.deferContextual(context -> Mono.just(context.get(TraceContext.class)))
+				.block();
+
+		assertThat(fromContext).isSameAs(traceContext);
+	}
+
+	@Test
+	void should_not_scope_signals() {
+		TraceContext traceContext = new NoOpTraceContext();
+		this.currentTraceContext.traceContext = traceContext;
+		Mono<Boolean> mono = Mono.deferContextual(context -> Mono.just(context.hasKey(TraceContext.class)))
+				.map(hasTraceContext -> hasTraceContext && this.currentTraceContext.context() == null);
+
+		this.currentTraceContext.traceContext = null;
+		Boolean actual = mono.contextWrite(context -> context.put(TraceContext.class, traceContext)).block();
+
+		assertThat(actual).isTrue();
+	}
+
+	@Test
+	void should_restore_trace_context_current_at_subscription_only_through_sleuth_operators() {
+		TraceContext traceContext = new NoOpTraceContext();
+		AtomicReference<TraceContext> inScope = new AtomicReference<>();
+		Mono<Integer> mono = Mono.just(1).hide().doOnNext(it -> this.currentTraceContext.traceContext = null)
+				.doOnEach(WebFluxSleuthOperators.withSpanInScope(SignalType.ON_NEXT,
+						() -> inScope.set(this.currentTraceContext.context())));
+
+		this.currentTraceContext.traceContext = traceContext;
+		mono.block();
+
+		assertThat(inScope.get()).isSameAs(traceContext);
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.util.context.Context;
+
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.tracer.NoOpTraceContext;
+import org.springframework.cloud.sleuth.tracer.SimpleCurrentTraceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScopePassingSpanSubscriberTests {
+
+	CountingCurrentTraceContext currentTraceContext = new CountingCurrentTraceContext();
+
+	@Test
+	void should_not_scope_again_when_parent_already_in_scope() {
+		TraceContext parent = new NoOpTraceContext();
+		List<TraceContext> seen = new ArrayList<>();
+		ScopePassingSpanSubscriber<Integer> inner = new ScopePassingSpanSubscriber<>(new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnNext(Integer value) {
+				seen.add(ScopePassingSpanSubscriberTests.this.currentTraceContext.context());
+			}
+		}, Context.empty(), this.currentTraceContext, parent);
+		ScopePassingSpanSubscriber<Integer> outer = new ScopePassingSpanSubscriber<>(inner, inner.currentContext(),
+				this.currentTraceContext, parent);
+
+		outer.onNext(1);
+		outer.onNext(2);
+
+		assertThat(seen).containsExactly(parent, parent);
+		assertThat(this.currentTraceContext.scopes).isEqualTo(2);
+	}
+
+	@Test
+	void should_scope_when_parent_differs() {
+		TraceContext parent = new NoOpTraceContext();
+		TraceContext child = new NoOpTraceContext();
+		List<TraceContext> seen = new ArrayList<>();
+		ScopePassingSpanSubscriber<Integer> inner = new ScopePassingSpanSubscriber<>(new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnNext(Integer value) {
+				seen.add(ScopePassingSpanSubscriberTests.this.currentTraceContext.context());
+			}
+		}, Context.empty(), this.currentTraceContext, child);
+		ScopePassingSpanSubscriber<Integer> outer = new ScopePassingSpanSubscriber<>(inner, Context.empty(),
+				this.currentTraceContext, parent);
+
+		outer.onNext(1);
+
+		assertThat(seen).containsExactly(child);
+		assertThat(this.currentTraceContext.scopes).isEqualTo(2);
+	}
+
+	@Test
+	void should_scope_again_when_another_context_was_put_in_scope_in_between() {
+		TraceContext parent = new NoOpTraceContext();
+		TraceContext other = new NoOpTraceContext();
+		List<TraceContext> seen = new ArrayList<>();
+		ScopePassingSpanSubscriber<Integer> inner = new ScopePassingSpanSubscriber<>(new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnNext(Integer value) {
+				seen.add(ScopePassingSpanSubscriberTests.this.currentTraceContext.context());
+			}
+		}, Context.empty(), this.currentTraceContext, parent);
+		// e.g. tracer.withSpan(...) around sink.next(...) or in doOnNext(...)
+		BaseSubscriber<Integer> scoping = new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnNext(Integer value) {
+				try (CurrentTraceContext.Scope scope = ScopePassingSpanSubscriberTests.this.currentTraceContext
+						.maybeScope(other)) {
+					inner.onNext(value);
+				}
+			}
+		};
+		ScopePassingSpanSubscriber<Integer> outer = new ScopePassingSpanSubscriber<>(scoping, Context.empty(),
+				this.currentTraceContext, parent);
+
+		outer.onNext(1);
+
+		assertThat(seen).containsExactly(parent);
+		assertThat(this.currentTraceContext.context()).isNull();
+	}
+
+	static class CountingCurrentTraceContext extends SimpleCurrentTraceContext {
+
+		int scopes;
+
+		@Override
+		public Scope maybeScope(TraceContext context) {
+			TraceContext previous = this.traceContext;
+			this.traceContext = context;
+			this.scopes++;
+			return () -> this.traceContext = previous;
+		}
+
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.tracer.NoOpTraceContext;
+import org.springframework.cloud.sleuth.tracer.SimpleCurrentTraceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceQueueTests {
+
+	SimpleCurrentTraceContext currentTraceContext = new SimpleCurrentTraceContext();
+
+	Queue<Object> delegate = new ArrayDeque<>();
+
+	ReactorSleuth.TraceQueue queue = new ReactorSleuth.TraceQueue(this.delegate, this.currentTraceContext);
+
+	TraceContext first = new NoOpTraceContext();
+
+	TraceContext second = new NoOpTraceContext();
+
+	@Test
+	void should_wrap_only_elements_that_change_the_context() {
+		offer(this.first, 1, 2);
+		offer(this.second, 3);
+		offer(this.first, 4);
+
+		assertThat(this.delegate).hasSize(4);
+		List<Boolean> wrapped = new ArrayList<>();
+		this.delegate.forEach(o -> wrapped.add(o instanceof ReactorSleuth.Envelope));
+		assertThat(wrapped).containsExactly(true, false, true, true);
+	}
+
+	@Test
+	void should_restore_the_context_of_each_element() {
+		offer(this.first, 1, 2);
+		offer(this.second, 3, 4);
+		offer(this.first, 5);
+		this.currentTraceContext.traceContext = null;
+
+		assertThat(pollWithContext()).containsExactly(1, this.first);
+		assertThat(pollWithContext()).containsExactly(2, this.first);
+		assertThat(pollWithContext()).containsExactly(3, this.second);
+		assertThat(pollWithContext()).containsExactly(4, this.second);
+		assertThat(pollWithContext()).containsExactly(5, this.first);
+		assertThat(this.queue.poll()).isNull();
+		assertThat(this.currentTraceContext.context()).isNull();
+	}
+
+	@Test
+	void should_restore_the_context_when_iterating() {
+		offer(this.first, 1, 2);
+		offer(this.second, 3);
+		this.currentTraceContext.traceContext = null;
+
+		List<TraceContext> contexts = new ArrayList<>();
+		this.queue.forEach(o -> contexts.add(this.currentTraceContext.context()));
+
+		assertThat(contexts).containsExactly(this.first, this.first, this.second);
+	}
+
+	private void offer(TraceContext context, Object... elements) {
+		this.currentTraceContext.traceContext = context;
+		for (Object element : elements) {
+			this.queue.offer(element);
+		}
+	}
+
+	private List<Object> pollWithContext() {
+		List<Object> result = new ArrayList<>();
+		result.add(this.queue.poll());
+		result.add(this.currentTraceContext.context());
+		return result;
+	}
+
+}
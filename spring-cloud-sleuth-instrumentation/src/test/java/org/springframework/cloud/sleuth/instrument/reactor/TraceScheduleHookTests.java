@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.reactor;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.tracer.NoOpTraceContext;
+import org.springframework.cloud.sleuth.tracer.SimpleCurrentTraceContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceScheduleHookTests {
+
+	SimpleCurrentTraceContext currentTraceContext = new SimpleCurrentTraceContext();
+
+	GenericApplicationContext springContext = new GenericApplicationContext();
+
+	TraceScheduleHook hook;
+
+	@BeforeEach
+	void setup() {
+		this.springContext.registerBean(CurrentTraceContext.class, () -> this.currentTraceContext);
+		this.springContext.refresh();
+		this.hook = new TraceScheduleHook(this.springContext);
+	}
+
+	@AfterEach
+	void close() {
+		this.springContext.close();
+	}
+
+	@Test
+	void should_clear_a_leaked_context_when_there_is_no_trace_context() {
+		AtomicReference<TraceContext> inTask = new AtomicReference<>();
+		Runnable task = this.hook.apply(() -> inTask.set(this.currentTraceContext.context()));
+		// e.g. left on the worker thread by a drained queue
+		this.currentTraceContext.traceContext = new NoOpTraceContext();
+
+		task.run();
+
+		assertThat(inTask.get()).isNull();
+		assertThat(this.currentTraceContext.context()).isNull();
+		assertThat(this.hook.tasksWithoutTraceContext()).isEqualTo(1);
+	}
+
+	@Test
+	void should_clear_a_context_leaked_by_a_task_without_trace_context() {
+		Runnable task = this.hook.apply(() -> this.currentTraceContext.traceContext = new NoOpTraceContext());
+
+		task.run();
+
+		assertThat(this.currentTraceContext.context()).isNull();
+	}
+
+	@Test
+	void should_pass_trace_context_to_the_task() {
+		TraceContext traceContext = new NoOpTraceContext();
+		AtomicReference<TraceContext> inTask = new AtomicReference<>();
+		this.currentTraceContext.traceContext = traceContext;
+		Runnable task = this.hook.apply(() -> inTask.set(this.currentTraceContext.context()));
+		this.currentTraceContext.traceContext = null;
+
+		task.run();
+
+		assertThat(inTask.get()).isSameAs(traceContext);
+		assertThat(this.currentTraceContext.context()).isNull();
+		assertThat(this.hook.tasksWithTraceContext()).isEqualTo(1);
+	}
+
+	@Test
+	void should_count_tasks_per_hook() {
+		this.currentTraceContext.traceContext = new NoOpTraceContext();
+		this.hook.apply(() -> {
+		});
+
+		TraceScheduleHook other = new TraceScheduleHook(this.springContext);
+
+		assertThat(this.hook.tasksWithTraceContext()).isEqualTo(1);
+		assertThat(other.tasksWithTraceContext()).isZero();
+		assertThat(other.tasksWithoutTraceContext()).isZero();
+	}
+
+	@Test
+	void should_not_register_listeners_on_the_spring_context() {
+		int listeners = this.springContext.getApplicationListeners().size();
+
+		new TraceScheduleHook(this.springContext).apply(() -> {
+		});
+		new TraceScheduleHook(this.springContext).apply(() -> {
+		});
+
+		assertThat(this.springContext.getApplicationListeners()).hasSize(listeners);
+	}
+
+	@Test
+	void should_return_task_as_is_before_spring_context_is_active() {
+		GenericApplicationContext notRefreshed = new GenericApplicationContext();
+		Runnable task = () -> {
+		};
+
+		assertThat(new TraceScheduleHook(notRefreshed).apply(task)).isSameAs(task);
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.rsocket;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.rsocket.metadata.CompositeMetadata;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class ByteBufSetterGetterTests {
+
+	@Test
+	void should_write_and_read_text_and_binary_metadata() {
+		CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+		String binaryValue = "AAD/gAE";
+
+		try {
+			new ByteBufSetter().set(metadata, "traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+			new ByteBufSetter().set(metadata, "grpc-trace-bin", binaryValue);
+			new ByteBufSetter().set(metadata, "region-bin", "US");
+
+			then(new ByteBufGetter().get(metadata, "traceparent"))
+					.isEqualTo("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+			then(new ByteBufGetter().get(metadata, "grpc-trace-bin")).isEqualTo(binaryValue);
+			then(metadataContent(metadata, "grpc-trace-bin")).containsExactly(0, 0, 0xff, 0x80, 1);
+			then(new ByteBufGetter().get(metadata, "region-bin")).isEqualTo("US");
+			then(metadataContent(metadata, "region-bin")).containsExactly('U', 'S');
+			then(new ByteBufGetter().get(metadata, "missing")).isNull();
+		}
+		finally {
+			metadata.release();
+		}
+	}
+
+	private static byte[] metadataContent(CompositeByteBuf metadata, String key) {
+		for (CompositeMetadata.Entry entry : new CompositeMetadata(metadata, false)) {
+			if (key.equals(entry.getMimeType())) {
+				return ByteBufUtil.getBytes(entry.getContent());
+			}
+		}
+		return null;
+	}
+
+}
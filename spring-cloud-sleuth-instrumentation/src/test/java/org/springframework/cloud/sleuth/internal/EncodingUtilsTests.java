@@ -40,4 +40,27 @@ class EncodingUtilsTests {
 		BDDAssertions.then(fromLong).isEqualTo("596e1787feb110407c6239a5ad0a4287");
 	}
 
+	@Test
+	void should_treat_only_the_binary_trace_context_header_as_binary() {
+		BDDAssertions.then(EncodingUtils.isBinaryHeader("grpc-trace-bin")).isTrue();
+		BDDAssertions.then(EncodingUtils.isBinaryHeader("region-bin")).isFalse();
+		BDDAssertions.then(EncodingUtils.isBinaryHeader("b3")).isFalse();
+	}
+
+	@Test
+	void should_convert_binary_header_values_to_base64_and_back() {
+		byte[] bytes = { 0, 0, (byte) 0xff, (byte) 0x80, 1 };
+
+		String value = EncodingUtils.binaryHeaderValue(bytes);
+
+		BDDAssertions.then(value).isEqualTo("AAD/gAE");
+		BDDAssertions.then(EncodingUtils.binaryHeaderBytes(value)).containsExactly(bytes);
+		BDDAssertions.then(EncodingUtils.binaryHeaderBytes("AAD/gAE=")).containsExactly(bytes);
+	}
+
+	@Test
+	void should_keep_a_binary_header_value_that_is_not_base64_as_text() {
+		BDDAssertions.then(EncodingUtils.binaryHeaderBytes("not base64")).containsExactly("not base64".getBytes());
+	}
+
 }
@@ -36,6 +36,8 @@ public class CachingZipkinUrlExtractor implements ZipkinUrlExtractor {
 
 	private final ZipkinLoadBalancer zipkinLoadBalancer;
 
+	private volatile StaticInstanceZipkinLoadBalancer noOpZipkinLoadBalancer;
+
 	public CachingZipkinUrlExtractor(ZipkinLoadBalancer zipkinLoadBalancer) {
 		this.zipkinLoadBalancer = zipkinLoadBalancer;
 	}
@@ -58,7 +60,12 @@ public class CachingZipkinUrlExtractor implements ZipkinUrlExtractor {
 	}
 
 	StaticInstanceZipkinLoadBalancer noOpZipkinLoadBalancer(ZipkinProperties zipkinProperties) {
-		return new StaticInstanceZipkinLoadBalancer(zipkinProperties);
+		StaticInstanceZipkinLoadBalancer loadBalancer = this.noOpZipkinLoadBalancer;
+		if (loadBalancer == null || loadBalancer.zipkinProperties() != zipkinProperties) {
+			loadBalancer = new StaticInstanceZipkinLoadBalancer(zipkinProperties);
+			this.noOpZipkinLoadBalancer = loadBalancer;
+		}
+		return loadBalancer;
 	}
 
 	private int zipkinPort(ZipkinProperties zipkinProperties) {
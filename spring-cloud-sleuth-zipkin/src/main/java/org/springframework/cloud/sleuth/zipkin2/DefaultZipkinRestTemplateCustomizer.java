@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.zip.GZIPOutputStream;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
@@ -28,7 +29,8 @@ import org.springframework.web.client.RestTemplate;
 
 /**
  * Default {@link ZipkinRestTemplateCustomizer} that provides the GZip compression if
- * {@link ZipkinProperties#getCompression()} is enabled.
+ * {@link ZipkinProperties#getCompression()} is enabled. Requests that are already
+ * compressed by the {@link RestTemplateSender} are passed through.
  *
  * @author Marcin Grzejszczak
  * @since 1.1.0
@@ -53,6 +55,9 @@ public class DefaultZipkinRestTemplateCustomizer implements ZipkinRestTemplateCu
 
 		public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
 				throws IOException {
+			if (request.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+				return execution.execute(request, body);
+			}
 			request.getHeaders().add("Content-Encoding", "gzip");
 			ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
 			try (GZIPOutputStream compressor = new GZIPOutputStream(gzipped)) {
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import zipkin2.codec.Encoding;
+
+/**
+ * Encodes a list of spans into a gzip compressed message. Spans are deflated one by one
+ * into a pooled output buffer, so no intermediate uncompressed message is created. The
+ * {@link Deflater} and the buffer are reused between messages. At most
+ * {@link #MAX_POOLED_BUFFERS} are kept, the deflaters of the others are ended once their
+ * message is encoded, so buffers are not retained by threads that stopped sending. A
+ * buffer that grew above {@link #MAX_RETAINED_BUFFER_SIZE} for a large message is
+ * dropped once the message is copied out of it. The message is copied once, into an
+ * array of its exact size, since the {@code Sender} API takes the message as a
+ * {@code byte[]} that is kept by the call, e.g. to be retried. The pooled deflaters are
+ * ended by {@link #close()}.
+ *
+ * @since 3.1.10
+ */
+final class GzipMessageEncoder {
+
+	/**
+	 * Value of the {@code Content-Encoding} header.
+	 */
+	static final String CONTENT_ENCODING = "gzip";
+
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	private static final byte[] LIST_START = { '[' };
+
+	private static final byte[] LIST_DELIMITER = { ',' };
+
+	private static final byte[] LIST_END = { ']' };
+
+	private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+	static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+	static final int MAX_POOLED_BUFFERS = 4;
+
+	private final boolean json;
+
+	private final Queue<Buffer> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+	private volatile boolean closed;
+
+	GzipMessageEncoder(Encoding encoding) {
+		if (encoding != Encoding.JSON && encoding != Encoding.PROTO3) {
+			throw new UnsupportedOperationException("Unsupported encoding: " + encoding.name());
+		}
+		this.json = encoding == Encoding.JSON;
+	}
+
+	byte[] encode(List<byte[]> encodedSpans) {
+		if (this.closed) {
+			throw new IllegalStateException("close");
+		}
+		Buffer buffer = this.buffers.poll();
+		if (buffer == null) {
+			buffer = new Buffer();
+		}
+		try {
+			buffer.reset();
+			if (this.json) {
+				buffer.deflate(LIST_START);
+			}
+			for (int i = 0; i < encodedSpans.size(); i++) {
+				if (this.json && i > 0) {
+					buffer.deflate(LIST_DELIMITER);
+				}
+				buffer.deflate(encodedSpans.get(i));
+			}
+			if (this.json) {
+				buffer.deflate(LIST_END);
+			}
+			return buffer.finish();
+		}
+		finally {
+			release(buffer);
+		}
+	}
+
+	private void release(Buffer buffer) {
+		if (!this.closed && this.buffers.offer(buffer)) {
+			// close() might have drained the pool before the buffer got in
+			if (this.closed && this.buffers.remove(buffer)) {
+				buffer.deflater.end();
+			}
+			return;
+		}
+		buffer.deflater.end();
+	}
+
+	/**
+	 * Releases the native memory of the pooled deflaters. Messages can't be encoded
+	 * afterwards.
+	 */
+	void close() {
+		this.closed = true;
+		Buffer buffer;
+		while ((buffer = this.buffers.poll()) != null) {
+			buffer.deflater.end();
+		}
+	}
+
+	/**
+	 * @return number of pooled buffers, for tests
+	 */
+	int pooledBuffers() {
+		return this.buffers.size();
+	}
+
+	/**
+	 * @return size of the largest pooled buffer, for tests
+	 */
+	int retainedBufferSize() {
+		int size = 0;
+		for (Buffer buffer : this.buffers) {
+			size = Math.max(size, buffer.bytes.length);
+		}
+		return size;
+	}
+
+	private static final class Buffer {
+
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		private final CRC32 crc = new CRC32();
+
+		private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+
+		private int count;
+
+		private void reset() {
+			this.deflater.reset();
+			this.crc.reset();
+			System.arraycopy(HEADER, 0, this.bytes, 0, HEADER.length);
+			this.count = HEADER.length;
+		}
+
+		private void deflate(byte[] input) {
+			this.crc.update(input, 0, input.length);
+			this.deflater.setInput(input);
+			while (!this.deflater.needsInput()) {
+				drain();
+			}
+		}
+
+		private byte[] finish() {
+			this.deflater.finish();
+			while (!this.deflater.finished()) {
+				drain();
+			}
+			writeInt((int) this.crc.getValue());
+			writeInt((int) this.deflater.getBytesRead());
+			byte[] message = Arrays.copyOf(this.bytes, this.count);
+			if (this.bytes.length > MAX_RETAINED_BUFFER_SIZE) {
+				this.bytes = new byte[INITIAL_BUFFER_SIZE];
+			}
+			return message;
+		}
+
+		private void drain() {
+			ensureCapacity(1);
+			this.count += this.deflater.deflate(this.bytes, this.count, this.bytes.length - this.count);
+		}
+
+		// gzip trailer values are little endian
+		private void writeInt(int value) {
+			ensureCapacity(4);
+			this.bytes[this.count++] = (byte) value;
+			this.bytes[this.count++] = (byte) (value >> 8);
+			this.bytes[this.count++] = (byte) (value >> 16);
+			this.bytes[this.count++] = (byte) (value >> 24);
+		}
+
+		private void ensureCapacity(int required) {
+			if (this.bytes.length - this.count < required) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.count + required));
+			}
+		}
+
+	}
+
+}
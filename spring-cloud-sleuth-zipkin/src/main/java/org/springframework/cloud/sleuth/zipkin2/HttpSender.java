@@ -17,9 +17,15 @@
 package org.springframework.cloud.sleuth.zipkin2;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import zipkin2.Call;
 import zipkin2.Callback;
 import zipkin2.CheckResult;
@@ -27,6 +33,7 @@ import zipkin2.Span;
 import zipkin2.codec.BytesEncoder;
 import zipkin2.codec.Encoding;
 import zipkin2.reporter.BytesMessageEncoder;
+import zipkin2.reporter.ReporterMetrics;
 import zipkin2.reporter.Sender;
 
 import org.springframework.http.MediaType;
@@ -40,23 +47,64 @@ import static zipkin2.codec.SpanBytesEncoder.JSON_V2;
  */
 abstract class HttpSender extends Sender {
 
+	private static final Log log = LogFactory.getLog(HttpSender.class);
+
 	final ZipkinHttpClientSender sender;
 
 	final String url;
 
+	/**
+	 * {@link #url} parsed once, rather than for every batch.
+	 */
+	final URI uri;
+
 	final Encoding encoding;
 
 	final MediaType mediaType;
 
 	final BytesMessageEncoder messageEncoder;
 
+	/**
+	 * Used instead of the {@link #messageEncoder} when compression is enabled.
+	 */
+	final GzipMessageEncoder gzipMessageEncoder;
+
+	/**
+	 * Limits the number of batches being sent at the same time. {@code null} when
+	 * batches are sent in a blocking manner.
+	 */
+	final Semaphore inFlightRequests;
+
+	/**
+	 * Notified about batches that failed to be sent in the non-blocking mode, since
+	 * nobody waits for their outcome.
+	 */
+	volatile FailedBatchListener failedBatchListener = new DroppingFailedBatchListener();
+
+	/**
+	 * Counts batches dropped by the {@link DroppingFailedBatchListener}.
+	 */
+	volatile ReporterMetrics reporterMetrics = ReporterMetrics.NOOP_METRICS;
+
 	/**
 	 * close is typically called from a different thread.
 	 */
 	transient boolean closeCalled;
 
 	HttpSender(ZipkinHttpClientSender sender, String baseUrl, String apiPath, BytesEncoder<Span> encoder) {
+		this(sender, baseUrl, apiPath, encoder, 0, false);
+	}
+
+	/**
+	 * @param maxInFlightRequests maximum number of batches sent at the same time without
+	 * waiting for the response. If lower than {@code 1} batches are sent in a blocking
+	 * manner.
+	 * @param compressionEnabled whether span batches should be gzipped
+	 */
+	HttpSender(ZipkinHttpClientSender sender, String baseUrl, String apiPath, BytesEncoder<Span> encoder,
+			int maxInFlightRequests, boolean compressionEnabled) {
 		this.sender = sender;
+		this.inFlightRequests = maxInFlightRequests > 0 ? new Semaphore(maxInFlightRequests) : null;
 		this.encoding = encoder.encoding();
 		if (encoder.equals(JSON_V2)) {
 			this.mediaType = MediaType.APPLICATION_JSON;
@@ -76,7 +124,9 @@ abstract class HttpSender extends Sender {
 		else {
 			throw new UnsupportedOperationException("Unsupported encoding: " + this.encoding.name());
 		}
+		this.uri = URI.create(this.url);
 		this.messageEncoder = BytesMessageEncoder.forEncoding(this.encoding);
+		this.gzipMessageEncoder = compressionEnabled ? new GzipMessageEncoder(this.encoding) : null;
 	}
 
 	private String buildUrlWithCustomPathIfNecessary(final String baseUrl, final String customApiPath,
@@ -89,6 +139,15 @@ abstract class HttpSender extends Sender {
 		return defaultUrl;
 	}
 
+	/**
+	 * Sets the metrics that count batches which failed to be sent in the non-blocking
+	 * mode as dropped. Should be the same metrics the reporter uses.
+	 * @param metrics reporter metrics
+	 */
+	public void setReporterMetrics(ReporterMetrics metrics) {
+		this.reporterMetrics = metrics;
+	}
+
 	@Override
 	public Encoding encoding() {
 		return this.encoding;
@@ -108,10 +167,28 @@ abstract class HttpSender extends Sender {
 
 	@Override
 	public Call<Void> sendSpans(List<byte[]> encodedSpans) {
+		return sendSpans(encodedSpans, this.inFlightRequests == null);
+	}
+
+	/**
+	 * Like {@link #sendSpans(List)}, but the call completes only once the response was
+	 * received, also in the non-blocking mode.
+	 * @param encodedSpans encoded spans
+	 * @return call
+	 */
+	Call<Void> sendSpansBlocking(List<byte[]> encodedSpans) {
+		return sendSpans(encodedSpans, true);
+	}
+
+	private Call<Void> sendSpans(List<byte[]> encodedSpans, boolean blocking) {
 		if (this.closeCalled) {
 			throw new IllegalStateException("close");
 		}
-		return new HttpPostCall(this.messageEncoder.encode(encodedSpans));
+		if (this.gzipMessageEncoder != null) {
+			return new HttpPostCall(encodedSpans, this.gzipMessageEncoder.encode(encodedSpans),
+					GzipMessageEncoder.CONTENT_ENCODING, blocking);
+		}
+		return new HttpPostCall(encodedSpans, this.messageEncoder.encode(encodedSpans), null, blocking);
 	}
 
 	/**
@@ -131,40 +208,184 @@ abstract class HttpSender extends Sender {
 	@Override
 	public void close() {
 		this.closeCalled = true;
+		if (this.gzipMessageEncoder != null) {
+			this.gzipMessageEncoder.close();
+		}
 	}
 
 	void post(byte[] json) {
-		this.sender.call(this.url, this.mediaType, json);
+		post(json, null);
+	}
+
+	void post(byte[] payload, String contentEncoding) {
+		this.sender.call(this.uri, this.mediaType, contentEncoding, payload);
 	}
 
 	class HttpPostCall extends Call.Base<Void> {
 
+		private final List<byte[]> encodedSpans;
+
 		private final byte[] message;
 
-		HttpPostCall(byte[] message) {
+		private final String contentEncoding;
+
+		private final boolean blocking;
+
+		HttpPostCall(List<byte[]> encodedSpans, byte[] message, String contentEncoding, boolean blocking) {
+			this.encodedSpans = encodedSpans;
 			this.message = message;
+			this.contentEncoding = contentEncoding;
+			this.blocking = blocking;
 		}
 
+		/**
+		 * In the non-blocking mode returns as soon as the batch got dispatched. The
+		 * caller is blocked only when the maximum number of in-flight batches was
+		 * reached. A failure of the request is passed to the
+		 * {@link #failedBatchListener}.
+		 */
 		@Override
 		protected Void doExecute() throws IOException {
-			post(this.message);
+			if (this.blocking) {
+				post(this.message, this.contentEncoding);
+				return null;
+			}
+			dispatch(new FailedBatchCallback(this.encodedSpans));
 			return null;
 		}
 
 		@Override
 		protected void doEnqueue(Callback<Void> callback) {
+			if (this.blocking) {
+				try {
+					post(this.message, this.contentEncoding);
+					callback.onSuccess(null);
+				}
+				catch (RuntimeException | Error e) {
+					callback.onError(e);
+				}
+				return;
+			}
 			try {
-				post(this.message);
-				callback.onSuccess(null);
+				dispatch(callback);
 			}
-			catch (RuntimeException | Error e) {
+			catch (IOException | RuntimeException | Error e) {
 				callback.onError(e);
 			}
 		}
 
+		private void dispatch(Callback<Void> callback) throws IOException {
+			acquirePermit();
+			ReleasingCallback releasingCallback = new ReleasingCallback(callback);
+			try {
+				sender.call(uri, mediaType, this.contentEncoding, this.message, releasingCallback);
+			}
+			catch (RuntimeException | Error e) {
+				// the callback was not attached, so it won't free the slot
+				releasingCallback.release();
+				throw e;
+			}
+		}
+
+		private void acquirePermit() throws IOException {
+			try {
+				inFlightRequests.acquire();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to send spans to [" + url + "]");
+			}
+		}
+
 		@Override
 		public Call<Void> clone() {
-			return new HttpPostCall(this.message);
+			return new HttpPostCall(this.encodedSpans, this.message, this.contentEncoding, this.blocking);
+		}
+
+	}
+
+	/**
+	 * Frees the in-flight slot before delegating the outcome of the request.
+	 */
+	final class ReleasingCallback implements Callback<Void> {
+
+		private final Callback<Void> delegate;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		ReleasingCallback(Callback<Void> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void onSuccess(Void value) {
+			release();
+			this.delegate.onSuccess(value);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			release();
+			this.delegate.onError(t);
+		}
+
+		void release() {
+			if (this.released.compareAndSet(false, true)) {
+				inFlightRequests.release();
+			}
+		}
+
+	}
+
+	/**
+	 * Passes a failure of a non-blocking request nobody waits for to the
+	 * {@link #failedBatchListener}.
+	 */
+	final class FailedBatchCallback implements Callback<Void> {
+
+		private final List<byte[]> encodedSpans;
+
+		FailedBatchCallback(List<byte[]> encodedSpans) {
+			this.encodedSpans = encodedSpans;
+		}
+
+		@Override
+		public void onSuccess(Void value) {
+			failedBatchListener.onSuccess();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			failedBatchListener.onFailure(this.encodedSpans, t);
+		}
+
+	}
+
+	/**
+	 * Notified about the outcome of batches sent in the non-blocking mode. Called from
+	 * the thread of the HTTP client, so it must not block.
+	 */
+	interface FailedBatchListener {
+
+		default void onSuccess() {
+		}
+
+		void onFailure(List<byte[]> encodedSpans, Throwable cause);
+
+	}
+
+	/**
+	 * Counts failed batches as dropped, the way {@code AsyncReporter} does for batches
+	 * whose sending threw an exception.
+	 */
+	final class DroppingFailedBatchListener implements FailedBatchListener {
+
+		@Override
+		public void onFailure(List<byte[]> encodedSpans, Throwable cause) {
+			log.warn("Failed to send [" + encodedSpans.size() + "] spans to Zipkin", cause);
+			ReporterMetrics metrics = reporterMetrics;
+			metrics.incrementMessagesDropped(cause);
+			metrics.incrementSpansDropped(encodedSpans.size());
 		}
 
 	}
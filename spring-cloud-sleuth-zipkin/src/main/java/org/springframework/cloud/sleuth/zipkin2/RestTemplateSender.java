@@ -41,13 +41,31 @@ public class RestTemplateSender extends HttpSender {
 	}
 
 	public RestTemplateSender(RestTemplate restTemplate, String baseUrl, String apiPath, BytesEncoder<Span> encoder) {
-		super((url, mediaType, bytes) -> post(url, mediaType, bytes, restTemplate), baseUrl, apiPath, encoder);
+		this(restTemplate, baseUrl, apiPath, encoder, false);
 	}
 
-	private static void post(String url, MediaType mediaType, byte[] json, RestTemplate restTemplate) {
+	/**
+	 * Creates a new instance of {@link RestTemplateSender}.
+	 * @param restTemplate rest template
+	 * @param baseUrl base url
+	 * @param apiPath api path
+	 * @param encoder encoder
+	 * @param compressionEnabled whether span batches should be gzipped
+	 */
+	public RestTemplateSender(RestTemplate restTemplate, String baseUrl, String apiPath, BytesEncoder<Span> encoder,
+			boolean compressionEnabled) {
+		super((uri, mediaType, contentEncoding, bytes) -> post(uri, mediaType, contentEncoding, bytes, restTemplate),
+				baseUrl, apiPath, encoder, 0, compressionEnabled);
+	}
+
+	private static void post(URI uri, MediaType mediaType, String contentEncoding, byte[] json,
+			RestTemplate restTemplate) {
 		HttpHeaders httpHeaders = new HttpHeaders();
 		httpHeaders.setContentType(mediaType);
-		RequestEntity<byte[]> requestEntity = new RequestEntity<>(json, httpHeaders, HttpMethod.POST, URI.create(url));
+		if (contentEncoding != null) {
+			httpHeaders.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+		}
+		RequestEntity<byte[]> requestEntity = new RequestEntity<>(json, httpHeaders, HttpMethod.POST, uri);
 		restTemplate.exchange(requestEntity, String.class);
 	}
 
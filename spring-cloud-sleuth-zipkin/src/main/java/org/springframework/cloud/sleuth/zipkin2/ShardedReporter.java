@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.io.Flushable;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+import zipkin2.CheckResult;
+import zipkin2.Component;
+import zipkin2.Span;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.Reporter;
+import zipkin2.reporter.ReporterMetrics;
+
+/**
+ * {@link Reporter} that spreads spans over a number of {@link AsyncReporter}s, each with
+ * its own queue and flushing thread. Spans of the same trace always go to the same
+ * shard.
+ *
+ * @since 3.1.10
+ */
+public class ShardedReporter extends Component implements Reporter<Span>, Flushable {
+
+	private final AsyncReporter<Span>[] shards;
+
+	private final AtomicIntegerArray queuedSpans;
+
+	private final AtomicIntegerArray queuedBytes;
+
+	/**
+	 * Creates a new instance of {@link ShardedReporter}.
+	 * @param numberOfShards number of queues and flushing threads
+	 * @param metrics metrics that will get the spans and messages of all shards
+	 * @param reporterFactory creates the {@link AsyncReporter} of a single shard from the
+	 * metrics of that shard
+	 */
+	@SuppressWarnings("unchecked")
+	public ShardedReporter(int numberOfShards, ReporterMetrics metrics,
+			Function<ReporterMetrics, AsyncReporter<Span>> reporterFactory) {
+		if (numberOfShards < 1) {
+			throw new IllegalArgumentException("Number of shards must be positive but was [" + numberOfShards + "]");
+		}
+		this.shards = new AsyncReporter[numberOfShards];
+		this.queuedSpans = new AtomicIntegerArray(numberOfShards);
+		this.queuedBytes = new AtomicIntegerArray(numberOfShards);
+		for (int i = 0; i < numberOfShards; i++) {
+			this.shards[i] = reporterFactory.apply(new ShardReporterMetrics(i, metrics));
+		}
+	}
+
+	@Override
+	public void report(Span span) {
+		this.shards[shard(span.traceId())].report(span);
+	}
+
+	private int shard(String traceId) {
+		return (traceId.hashCode() & Integer.MAX_VALUE) % this.shards.length;
+	}
+
+	@Override
+	public void flush() {
+		for (AsyncReporter<Span> shard : this.shards) {
+			shard.flush();
+		}
+	}
+
+	@Override
+	public CheckResult check() {
+		for (AsyncReporter<Span> shard : this.shards) {
+			CheckResult result = shard.check();
+			if (!result.ok()) {
+				return result;
+			}
+		}
+		return CheckResult.OK;
+	}
+
+	@Override
+	public void close() {
+		for (AsyncReporter<Span> shard : this.shards) {
+			shard.close();
+		}
+	}
+
+	/**
+	 * @return number of shards
+	 */
+	public int shards() {
+		return this.shards.length;
+	}
+
+	/**
+	 * @param shard index of the shard
+	 * @return number of spans waiting to be sent by the given shard
+	 */
+	public int queuedSpans(int shard) {
+		return this.queuedSpans.get(shard);
+	}
+
+	/**
+	 * @param shard index of the shard
+	 * @return number of bytes waiting to be sent by the given shard
+	 */
+	public int queuedBytes(int shard) {
+		return this.queuedBytes.get(shard);
+	}
+
+	@Override
+	public String toString() {
+		return "ShardedReporter{" + this.shards.length + " shards}";
+	}
+
+	/**
+	 * Passes counters to the shared metrics. Queue sizes are tracked per shard and their
+	 * sum is passed to the shared metrics, since every shard only knows its own queue.
+	 */
+	private final class ShardReporterMetrics implements ReporterMetrics {
+
+		private final int shard;
+
+		private final ReporterMetrics delegate;
+
+		private ShardReporterMetrics(int shard, ReporterMetrics delegate) {
+			this.shard = shard;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void incrementMessages() {
+			this.delegate.incrementMessages();
+		}
+
+		@Override
+		public void incrementMessagesDropped(Throwable cause) {
+			this.delegate.incrementMessagesDropped(cause);
+		}
+
+		@Override
+		public void incrementSpans(int quantity) {
+			this.delegate.incrementSpans(quantity);
+		}
+
+		@Override
+		public void incrementSpanBytes(int quantity) {
+			this.delegate.incrementSpanBytes(quantity);
+		}
+
+		@Override
+		public void incrementMessageBytes(int quantity) {
+			this.delegate.incrementMessageBytes(quantity);
+		}
+
+		@Override
+		public void incrementSpansDropped(int quantity) {
+			this.delegate.incrementSpansDropped(quantity);
+		}
+
+		@Override
+		public void updateQueuedSpans(int update) {
+			queuedSpans.set(this.shard, update);
+			this.delegate.updateQueuedSpans(sum(queuedSpans));
+		}
+
+		@Override
+		public void updateQueuedBytes(int update) {
+			queuedBytes.set(this.shard, update);
+			this.delegate.updateQueuedBytes(sum(queuedBytes));
+		}
+
+		private int sum(AtomicIntegerArray values) {
+			int sum = 0;
+			for (int i = 0; i < values.length(); i++) {
+				sum += values.get(i);
+			}
+			return sum;
+		}
+
+	}
+
+}
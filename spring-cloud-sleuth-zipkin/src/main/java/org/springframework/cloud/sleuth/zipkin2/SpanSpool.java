@@ -0,0 +1,544 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Persistent buffer of encoded span batches. Batches are appended to memory-mapped
+ * segment files of a fixed size. When a segment is full a new one is started. When the
+ * total size would exceed the configured maximum, the oldest segment is discarded.
+ * Segments left by a previous run are replayed too, starting after the last batch that
+ * was removed.
+ *
+ * <p>
+ * A segment starts with the offset of the first batch that wasn't removed yet. Each
+ * batch is stored as the number of spans followed by the length and bytes of every span.
+ * A zero span count marks the end of a segment. A segment whose content turns out to be
+ * corrupt is dropped.
+ *
+ * @since 3.1.10
+ */
+public class SpanSpool implements Closeable {
+
+	private static final Log log = LogFactory.getLog(SpanSpool.class);
+
+	private static final String SEGMENT_PREFIX = "spans-";
+
+	private static final String SEGMENT_SUFFIX = ".spool";
+
+	/**
+	 * Size of the read offset that starts every segment.
+	 */
+	private static final int HEADER_SIZE = 4;
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final int maxSegments;
+
+	/**
+	 * Full segments, oldest first. The first one is the one being read.
+	 */
+	private final Deque<Segment> sealed = new ArrayDeque<>();
+
+	private final AtomicLong spooledBytes = new AtomicLong();
+
+	private final AtomicLong replayedBytes = new AtomicLong();
+
+	private final AtomicLong discardedBytes = new AtomicLong();
+
+	private Segment writing;
+
+	/**
+	 * Segment of the batch returned by the last {@link #peek()}.
+	 */
+	private Segment peeked;
+
+	private long nextSegmentId;
+
+	private boolean closed;
+
+	/**
+	 * Creates a new instance of {@link SpanSpool}.
+	 * @param directory directory where segment files are stored
+	 * @param segmentSize size of a single segment file in bytes
+	 * @param maxBytes maximum size of all segment files in bytes
+	 * @throws IOException when the directory or previously stored segments can't be read
+	 */
+	public SpanSpool(Path directory, int segmentSize, long maxBytes) throws IOException {
+		if (segmentSize < HEADER_SIZE + 8) {
+			throw new IllegalArgumentException(
+					"Segment size must be at least " + (HEADER_SIZE + 8) + " bytes but was [" + segmentSize + "]");
+		}
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+		this.maxSegments = (int) Math.max(1, maxBytes / segmentSize);
+		recover();
+	}
+
+	private void recover() throws IOException {
+		TreeMap<Long, Path> existing = new TreeMap<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(this.directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path path : paths) {
+				String name = path.getFileName().toString();
+				try {
+					existing.put(Long.parseLong(
+							name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), path);
+				}
+				catch (NumberFormatException e) {
+					log.warn("Ignoring unknown file [" + path + "] in the span spool directory");
+				}
+			}
+		}
+		for (Path path : existing.values()) {
+			Segment segment = Segment.open(path);
+			if (segment.isEmpty()) {
+				segment.delete();
+			}
+			else {
+				this.sealed.addLast(segment);
+			}
+		}
+		this.nextSegmentId = existing.isEmpty() ? 0 : existing.lastKey() + 1;
+		if (log.isDebugEnabled() && !existing.isEmpty()) {
+			log.debug("Recovered [" + this.sealed.size() + "] span spool segments from [" + this.directory + "]");
+		}
+	}
+
+	/**
+	 * Stores a batch of encoded spans.
+	 * @param encodedSpans encoded spans
+	 * @return {@code false} when the batch was discarded
+	 */
+	public synchronized boolean append(List<byte[]> encodedSpans) {
+		if (encodedSpans.isEmpty()) {
+			return true;
+		}
+		int size = recordSize(encodedSpans);
+		if (size > this.segmentSize - HEADER_SIZE || this.closed) {
+			this.discardedBytes.addAndGet(size);
+			return false;
+		}
+		try {
+			if (this.writing == null || this.writing.remaining() < size) {
+				rotate();
+			}
+			this.writing.write(encodedSpans);
+		}
+		catch (IOException e) {
+			log.warn("Failed to spool spans to [" + this.directory + "]", e);
+			this.discardedBytes.addAndGet(size);
+			return false;
+		}
+		this.spooledBytes.addAndGet(size);
+		return true;
+	}
+
+	private void rotate() throws IOException {
+		if (this.writing != null) {
+			this.writing.seal();
+			this.sealed.addLast(this.writing);
+			this.writing = null;
+		}
+		while (this.sealed.size() >= this.maxSegments && !this.sealed.isEmpty()) {
+			Segment oldest = this.sealed.pollFirst();
+			this.discardedBytes.addAndGet(oldest.unreadBytes());
+			oldest.delete();
+		}
+		this.writing = Segment.create(
+				this.directory.resolve(SEGMENT_PREFIX + this.nextSegmentId++ + SEGMENT_SUFFIX), this.segmentSize);
+	}
+
+	/**
+	 * Returns the oldest stored batch without removing it. The segment being written is
+	 * read in place, so replaying doesn't start new segments.
+	 * @return encoded spans or {@code null} when nothing is stored
+	 */
+	public synchronized List<byte[]> peek() {
+		this.peeked = null;
+		if (this.closed) {
+			return null;
+		}
+		while (true) {
+			Segment segment = this.sealed.isEmpty() ? this.writing : this.sealed.peekFirst();
+			if (segment == null) {
+				return null;
+			}
+			List<byte[]> encodedSpans;
+			try {
+				encodedSpans = segment.read();
+			}
+			catch (CorruptSegmentException e) {
+				log.warn("Dropping corrupt span spool segment [" + segment.path + "]", e);
+				this.discardedBytes.addAndGet(segment.unreadBytes());
+				drop(segment);
+				continue;
+			}
+			if (encodedSpans != null) {
+				this.peeked = segment;
+				return encodedSpans;
+			}
+			if (segment == this.writing) {
+				return null;
+			}
+			drop(segment);
+		}
+	}
+
+	private void drop(Segment segment) {
+		if (segment == this.writing) {
+			this.writing = null;
+		}
+		else {
+			this.sealed.remove(segment);
+		}
+		segment.delete();
+	}
+
+	/**
+	 * Removes the batch returned by the last {@link #peek()}. Does nothing when that
+	 * batch was discarded in the meantime.
+	 */
+	public synchronized void remove() {
+		Segment segment = this.peeked;
+		this.peeked = null;
+		if (segment != null && !segment.deleted) {
+			this.replayedBytes.addAndGet(segment.skip());
+		}
+	}
+
+	/**
+	 * @return total bytes of span batches stored so far
+	 */
+	public long spooledBytes() {
+		return this.spooledBytes.get();
+	}
+
+	/**
+	 * @return total bytes of span batches removed after a successful replay
+	 */
+	public long replayedBytes() {
+		return this.replayedBytes.get();
+	}
+
+	/**
+	 * @return total bytes of span batches dropped because they didn't fit into the spool
+	 * or were corrupt
+	 */
+	public long discardedBytes() {
+		return this.discardedBytes.get();
+	}
+
+	/**
+	 * Writes the segments to disk and releases them. Batches appended afterwards are
+	 * discarded.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.peeked = null;
+		for (Segment segment : this.sealed) {
+			segment.close();
+		}
+		this.sealed.clear();
+		if (this.writing != null) {
+			this.writing.close();
+			this.writing = null;
+		}
+	}
+
+	static int recordSize(List<byte[]> encodedSpans) {
+		int size = 4;
+		for (byte[] span : encodedSpans) {
+			size += 4 + span.length;
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "SpanSpool{" + this.directory + "}";
+	}
+
+	private static final class Segment {
+
+		private final Path path;
+
+		private final FileChannel channel;
+
+		private final MappedByteBuffer buffer;
+
+		private int readPosition = HEADER_SIZE;
+
+		private boolean deleted;
+
+		private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+			this.path = path;
+			this.channel = channel;
+			this.buffer = buffer;
+		}
+
+		private static Segment create(Path path, int size) throws IOException {
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			Segment segment = new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+			segment.buffer.putInt(0, HEADER_SIZE);
+			segment.buffer.position(HEADER_SIZE);
+			return segment;
+		}
+
+		private static Segment open(Path path) throws IOException {
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			Segment segment = new Segment(path, channel,
+					channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+			int end = segment.endOfRecords();
+			segment.buffer.position(end);
+			if (end >= HEADER_SIZE) {
+				int readPosition = segment.buffer.getInt(0);
+				// anything else than the start of a record means the header is corrupt
+				segment.readPosition = readPosition >= HEADER_SIZE && readPosition <= end
+						&& (readPosition == end || segment.recordEnd(readPosition, end) > 0) ? readPosition
+								: HEADER_SIZE;
+			}
+			else {
+				segment.readPosition = end;
+			}
+			return segment;
+		}
+
+		/**
+		 * Finds the end of the last complete record. A partially written or corrupt
+		 * record, e.g. after a crash, is treated as the end of the segment.
+		 */
+		private int endOfRecords() {
+			int capacity = this.buffer.capacity();
+			if (capacity < HEADER_SIZE) {
+				return 0;
+			}
+			int position = HEADER_SIZE;
+			int next;
+			while ((next = recordEnd(position, capacity)) > 0) {
+				position = next;
+			}
+			return position;
+		}
+
+		/**
+		 * @return end of the record that starts at {@code start}, or {@code -1} when
+		 * there's no complete and valid record before {@code limit}
+		 */
+		private int recordEnd(int start, int limit) {
+			if (start + 4 > limit) {
+				return -1;
+			}
+			int count = this.buffer.getInt(start);
+			// every span takes at least 4 bytes
+			if (count <= 0 || count > (limit - start - 4) / 4) {
+				return -1;
+			}
+			long next = start + 4;
+			for (int i = 0; i < count; i++) {
+				if (next + 4 > limit) {
+					return -1;
+				}
+				int length = this.buffer.getInt((int) next);
+				if (length < 0) {
+					return -1;
+				}
+				next += 4L + length;
+			}
+			return next <= limit ? (int) next : -1;
+		}
+
+		private int remaining() {
+			return this.buffer.remaining();
+		}
+
+		private boolean isEmpty() {
+			return this.buffer.position() <= this.readPosition;
+		}
+
+		private void write(List<byte[]> encodedSpans) {
+			this.buffer.putInt(encodedSpans.size());
+			for (byte[] span : encodedSpans) {
+				this.buffer.putInt(span.length);
+				this.buffer.put(span);
+			}
+		}
+
+		private List<byte[]> read() {
+			if (isEmpty()) {
+				return null;
+			}
+			int end = recordEnd(this.readPosition, this.buffer.position());
+			if (end < 0) {
+				throw new CorruptSegmentException(
+						"Invalid batch at [" + this.readPosition + "] of [" + this.buffer.position() + "] bytes");
+			}
+			int count = this.buffer.getInt(this.readPosition);
+			List<byte[]> encodedSpans = new ArrayList<>(count);
+			ByteBuffer view = this.buffer.duplicate();
+			view.position(this.readPosition + 4);
+			for (int i = 0; i < count; i++) {
+				byte[] span = new byte[view.getInt()];
+				view.get(span);
+				encodedSpans.add(span);
+			}
+			return encodedSpans;
+		}
+
+		/**
+		 * Moves past the batch returned by {@link #read()} and stores the new offset, so
+		 * that the batch isn't replayed again after a restart.
+		 */
+		private int skip() {
+			int start = this.readPosition;
+			int end = recordEnd(start, this.buffer.position());
+			if (end < 0) {
+				return 0;
+			}
+			this.readPosition = end;
+			this.buffer.putInt(0, end);
+			return end - start;
+		}
+
+		private long unreadBytes() {
+			return Math.max(0, this.buffer.position() - this.readPosition);
+		}
+
+		private void seal() {
+			this.buffer.force();
+		}
+
+		private void close() {
+			try {
+				this.buffer.force();
+				this.channel.close();
+			}
+			catch (IOException e) {
+				log.warn("Failed to close span spool segment [" + this.path + "]", e);
+			}
+			finally {
+				BufferUnmapper.unmap(this.buffer);
+			}
+		}
+
+		private void delete() {
+			this.deleted = true;
+			try {
+				this.channel.close();
+			}
+			catch (IOException e) {
+				log.warn("Failed to close span spool segment [" + this.path + "]", e);
+			}
+			// the file can't be deleted on Windows while it's mapped
+			BufferUnmapper.unmap(this.buffer);
+			try {
+				Files.deleteIfExists(this.path);
+			}
+			catch (IOException e) {
+				log.warn("Failed to delete span spool segment [" + this.path + "]", e);
+			}
+		}
+
+	}
+
+	private static final class CorruptSegmentException extends RuntimeException {
+
+		private CorruptSegmentException(String message) {
+			super(message);
+		}
+
+	}
+
+	/**
+	 * Releases a mapped buffer right away instead of when it gets garbage collected. The
+	 * buffer must not be accessed afterwards.
+	 */
+	private static final class BufferUnmapper {
+
+		private static final Object UNSAFE;
+
+		private static final Method INVOKE_CLEANER;
+
+		static {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			try {
+				// JDK 9+
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				unsafe = theUnsafe.get(null);
+			}
+			catch (Exception e) {
+				invokeCleaner = null;
+			}
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+		}
+
+		private static void unmap(MappedByteBuffer buffer) {
+			try {
+				if (INVOKE_CLEANER != null) {
+					INVOKE_CLEANER.invoke(UNSAFE, buffer);
+					return;
+				}
+				// JDK 8
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+			catch (Exception e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Failed to unmap span spool segment, it will be released when garbage collected", e);
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import zipkin2.Call;
+import zipkin2.Callback;
+import zipkin2.CheckResult;
+import zipkin2.codec.Encoding;
+import zipkin2.reporter.Sender;
+
+/**
+ * {@link Sender} that stores span batches in a {@link SpanSpool} when the delegate
+ * fails to send them. Stored batches are replayed, a limited number at a time, after
+ * each successful send and each successful {@link #check()}. When the delegate is an
+ * HTTP sender in the non-blocking mode, batches whose request failed after it was
+ * dispatched are stored too, and stored batches are replayed in a blocking manner.
+ *
+ * @since 3.1.10
+ */
+public class SpoolingSender extends Sender {
+
+	private static final Log log = LogFactory.getLog(SpoolingSender.class);
+
+	private final Sender delegate;
+
+	private final SpanSpool spool;
+
+	private final int replayMessages;
+
+	private final ReentrantLock replayLock = new ReentrantLock();
+
+	/**
+	 * Whether the last non-blocking request of the delegate failed. Replaying is pointless
+	 * until one succeeds again.
+	 */
+	private volatile boolean delegateFailing;
+
+	/**
+	 * Whether the delegate completes callbacks on the threads of the HTTP client, where
+	 * replaying, which blocks, is not allowed.
+	 */
+	private final boolean nonBlockingDelegate;
+
+	/**
+	 * Creates a new instance of {@link SpoolingSender}.
+	 * @param delegate sender that sends the spans to Zipkin
+	 * @param spool spool for batches that failed to be sent
+	 * @param replayMessages maximum number of stored batches replayed at a time
+	 */
+	public SpoolingSender(Sender delegate, SpanSpool spool, int replayMessages) {
+		this.delegate = delegate;
+		this.spool = spool;
+		this.replayMessages = replayMessages;
+		if (delegate instanceof HttpSender) {
+			((HttpSender) delegate).failedBatchListener = new SpoolingFailedBatchListener();
+		}
+		this.nonBlockingDelegate = delegate instanceof HttpSender && ((HttpSender) delegate).inFlightRequests != null;
+	}
+
+	@Override
+	public Encoding encoding() {
+		return this.delegate.encoding();
+	}
+
+	@Override
+	public int messageMaxBytes() {
+		return this.delegate.messageMaxBytes();
+	}
+
+	@Override
+	public int messageSizeInBytes(List<byte[]> encodedSpans) {
+		return this.delegate.messageSizeInBytes(encodedSpans);
+	}
+
+	@Override
+	public Call<Void> sendSpans(List<byte[]> encodedSpans) {
+		return new SpoolingCall(encodedSpans, this.delegate.sendSpans(encodedSpans));
+	}
+
+	@Override
+	public CheckResult check() {
+		CheckResult result = this.delegate.check();
+		if (result.ok()) {
+			replay();
+		}
+		return result;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.delegate.close();
+		this.spool.close();
+	}
+
+	void spool(List<byte[]> encodedSpans, Throwable cause) {
+		if (log.isDebugEnabled()) {
+			log.debug("Failed to send [" + encodedSpans.size() + "] spans, will spool them", cause);
+		}
+		this.spool.append(encodedSpans);
+	}
+
+	/**
+	 * Sends up to {@code replayMessages} stored batches. Skipped when another thread is
+	 * already replaying, so that a batch is never sent twice.
+	 */
+	void replay() {
+		if (!this.replayLock.tryLock()) {
+			return;
+		}
+		try {
+			for (int i = 0; i < this.replayMessages; i++) {
+				try {
+					List<byte[]> encodedSpans = this.spool.peek();
+					if (encodedSpans == null) {
+						return;
+					}
+					blockingCall(encodedSpans).execute();
+				}
+				catch (IOException | RuntimeException e) {
+					if (log.isDebugEnabled()) {
+						log.debug("Failed to replay spooled spans", e);
+					}
+					return;
+				}
+				this.spool.remove();
+			}
+		}
+		finally {
+			this.replayLock.unlock();
+		}
+	}
+
+	private Call<Void> blockingCall(List<byte[]> encodedSpans) {
+		if (this.delegate instanceof HttpSender) {
+			return ((HttpSender) this.delegate).sendSpansBlocking(encodedSpans);
+		}
+		return this.delegate.sendSpans(encodedSpans);
+	}
+
+	@Override
+	public String toString() {
+		return "SpoolingSender{" + this.delegate + "}";
+	}
+
+	/**
+	 * Stores batches whose non-blocking request failed instead of dropping them.
+	 */
+	final class SpoolingFailedBatchListener implements HttpSender.FailedBatchListener {
+
+		@Override
+		public void onSuccess() {
+			delegateFailing = false;
+		}
+
+		@Override
+		public void onFailure(List<byte[]> encodedSpans, Throwable cause) {
+			delegateFailing = true;
+			spool(encodedSpans, cause);
+		}
+
+	}
+
+	final class SpoolingCall extends Call.Base<Void> {
+
+		private final List<byte[]> encodedSpans;
+
+		private final Call<Void> delegate;
+
+		SpoolingCall(List<byte[]> encodedSpans, Call<Void> delegate) {
+			this.encodedSpans = encodedSpans;
+			this.delegate = delegate;
+		}
+
+		@Override
+		protected Void doExecute() throws IOException {
+			try {
+				this.delegate.execute();
+			}
+			catch (IOException | RuntimeException e) {
+				spool(this.encodedSpans, e);
+				return null;
+			}
+			if (!delegateFailing) {
+				replay();
+			}
+			return null;
+		}
+
+		@Override
+		protected void doEnqueue(Callback<Void> callback) {
+			this.delegate.enqueue(new Callback<Void>() {
+				@Override
+				public void onSuccess(Void value) {
+					if (!nonBlockingDelegate) {
+						replay();
+					}
+					callback.onSuccess(value);
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					spool(encodedSpans, t);
+					callback.onSuccess(null);
+				}
+			});
+		}
+
+		@Override
+		public Call<Void> clone() {
+			return new SpoolingCall(this.encodedSpans, this.delegate.clone());
+		}
+
+	}
+
+}
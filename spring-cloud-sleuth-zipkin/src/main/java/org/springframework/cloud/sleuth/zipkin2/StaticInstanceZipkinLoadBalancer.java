@@ -28,13 +28,26 @@ public class StaticInstanceZipkinLoadBalancer implements ZipkinLoadBalancer {
 
 	private final ZipkinProperties zipkinProperties;
 
+	private volatile URI instance;
+
 	public StaticInstanceZipkinLoadBalancer(ZipkinProperties zipkinProperties) {
 		this.zipkinProperties = zipkinProperties;
 	}
 
 	@Override
 	public URI instance() {
-		return URI.create(this.zipkinProperties.getBaseUrl());
+		String baseUrl = this.zipkinProperties.getBaseUrl();
+		URI instance = this.instance;
+		// base url can get refreshed
+		if (instance == null || !instance.toString().equals(baseUrl)) {
+			instance = URI.create(baseUrl);
+			this.instance = instance;
+		}
+		return instance;
+	}
+
+	ZipkinProperties zipkinProperties() {
+		return this.zipkinProperties;
 	}
 
 }
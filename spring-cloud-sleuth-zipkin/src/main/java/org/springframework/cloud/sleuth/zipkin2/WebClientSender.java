@@ -21,10 +21,12 @@ import java.time.Duration;
 import java.util.function.Function;
 
 import reactor.core.publisher.Mono;
+import zipkin2.Callback;
 import zipkin2.Span;
 import zipkin2.codec.BytesEncoder;
 import zipkin2.reporter.Sender;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -63,8 +65,7 @@ public class WebClientSender extends HttpSender {
 	 */
 	public WebClientSender(WebClient webClient, String baseUrl, String apiPath, BytesEncoder<Span> encoder,
 			long checkTimeout) {
-		super((url, mediaType, bytes) -> post(null, url, mediaType, bytes, webClient, checkTimeout).block(), baseUrl,
-				apiPath, encoder);
+		this(null, webClient, baseUrl, apiPath, encoder, checkTimeout);
 	}
 
 	/**
@@ -79,19 +80,93 @@ public class WebClientSender extends HttpSender {
 	 */
 	public WebClientSender(Function<Mono<ResponseEntity<Void>>, Mono<ResponseEntity<Void>>> wrapperFunction,
 			WebClient webClient, String baseUrl, String apiPath, BytesEncoder<Span> encoder, long checkTimeout) {
-		super((url, mediaType, bytes) -> post(wrapperFunction, url, mediaType, bytes, webClient, checkTimeout).block(),
-				baseUrl, apiPath, encoder);
+		this(wrapperFunction, webClient, baseUrl, apiPath, encoder, checkTimeout, 0, false);
+	}
+
+	/**
+	 * Creates a new instance of {@link WebClientSender}. With a positive
+	 * {@code maxInFlightRequests} span batches are sent without blocking the reporting
+	 * thread on the response.
+	 * @param webClient web client
+	 * @param wrapperFunction function that will be run on onErrorResume. Send in null to
+	 * get default behavior.
+	 * @param baseUrl base url
+	 * @param apiPath api path
+	 * @param encoder encoder
+	 * @param checkTimeout check timeout
+	 * @param maxInFlightRequests maximum number of batches sent at the same time; if
+	 * lower than {@code 1} batches are sent in a blocking manner
+	 */
+	public WebClientSender(Function<Mono<ResponseEntity<Void>>, Mono<ResponseEntity<Void>>> wrapperFunction,
+			WebClient webClient, String baseUrl, String apiPath, BytesEncoder<Span> encoder, long checkTimeout,
+			int maxInFlightRequests) {
+		this(wrapperFunction, webClient, baseUrl, apiPath, encoder, checkTimeout, maxInFlightRequests, false);
+	}
+
+	/**
+	 * Creates a new instance of {@link WebClientSender}.
+	 * @param webClient web client
+	 * @param wrapperFunction function that will be run on onErrorResume. Send in null to
+	 * get default behavior.
+	 * @param baseUrl base url
+	 * @param apiPath api path
+	 * @param encoder encoder
+	 * @param checkTimeout check timeout
+	 * @param maxInFlightRequests maximum number of batches sent at the same time; if
+	 * lower than {@code 1} batches are sent in a blocking manner
+	 * @param compressionEnabled whether span batches should be gzipped
+	 */
+	public WebClientSender(Function<Mono<ResponseEntity<Void>>, Mono<ResponseEntity<Void>>> wrapperFunction,
+			WebClient webClient, String baseUrl, String apiPath, BytesEncoder<Span> encoder, long checkTimeout,
+			int maxInFlightRequests, boolean compressionEnabled) {
+		super(new WebClientHttpClientSender(wrapperFunction, webClient, checkTimeout), baseUrl, apiPath, encoder,
+				maxInFlightRequests, compressionEnabled);
 	}
 
 	private static Mono<ResponseEntity<Void>> post(
-			Function<Mono<ResponseEntity<Void>>, Mono<ResponseEntity<Void>>> wrapperFunction, String url,
-			MediaType mediaType, byte[] json, WebClient webClient, long checkTimeout) {
+			Function<Mono<ResponseEntity<Void>>, Mono<ResponseEntity<Void>>> wrapperFunction, URI uri,
+			MediaType mediaType, String contentEncoding, byte[] json, WebClient webClient, long checkTimeout) {
 		if (wrapperFunction == null) {
 			wrapperFunction = (response) -> response;
 		}
+		WebClient.RequestBodySpec request = webClient.post().uri(uri).accept(mediaType)
+				.contentType(mediaType);
+		if (contentEncoding != null) {
+			request.header(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+		}
+		return wrapperFunction.apply(request.bodyValue(json).retrieve().toBodilessEntity()
+				.timeout(Duration.ofMillis(checkTimeout)));
+	}
+
+	private static final class WebClientHttpClientSender implements ZipkinHttpClientSender {
+
+		private final Function<Mono<ResponseEntity<Void>>, Mono<ResponseEntity<Void>>> wrapperFunction;
+
+		private final WebClient webClient;
+
+		private final long checkTimeout;
+
+		private WebClientHttpClientSender(
+				Function<Mono<ResponseEntity<Void>>, Mono<ResponseEntity<Void>>> wrapperFunction, WebClient webClient,
+				long checkTimeout) {
+			this.wrapperFunction = wrapperFunction;
+			this.webClient = webClient;
+			this.checkTimeout = checkTimeout;
+		}
+
+		@Override
+		public void call(URI uri, MediaType mediaType, String contentEncoding, byte[] payload) {
+			post(this.wrapperFunction, uri, mediaType, contentEncoding, payload, this.webClient, this.checkTimeout)
+					.block();
+		}
+
+		@Override
+		public void call(URI uri, MediaType mediaType, String contentEncoding, byte[] payload,
+				Callback<Void> callback) {
+			post(this.wrapperFunction, uri, mediaType, contentEncoding, payload, this.webClient, this.checkTimeout)
+					.subscribe(null, callback::onError, () -> callback.onSuccess(null));
+		}
 
-		return wrapperFunction.apply(webClient.post().uri(URI.create(url)).accept(mediaType).contentType(mediaType)
-				.bodyValue(json).retrieve().toBodilessEntity().timeout(Duration.ofMillis(checkTimeout)));
 	}
 
 	@Override
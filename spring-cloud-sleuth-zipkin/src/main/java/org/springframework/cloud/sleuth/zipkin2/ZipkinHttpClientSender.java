@@ -16,6 +16,10 @@
 
 package org.springframework.cloud.sleuth.zipkin2;
 
+import java.net.URI;
+
+import zipkin2.Callback;
+
 import org.springframework.http.MediaType;
 
 /**
@@ -28,10 +32,34 @@ interface ZipkinHttpClientSender {
 
 	/**
 	 * Sends spans to Zipkin via an HTTP Client.
-	 * @param url Zipkin URL
+	 * @param uri Zipkin URI
+	 * @param mediaType HTTP message media type
+	 * @param contentEncoding value of the {@code Content-Encoding} header, {@code null}
+	 * when the payload is not compressed
+	 * @param payload payload to send
+	 */
+	void call(URI uri, MediaType mediaType, String contentEncoding, byte[] payload);
+
+	/**
+	 * Sends spans to Zipkin via an HTTP Client without waiting for the response. The
+	 * callback is completed once the response was received. Defaults to a blocking
+	 * {@link #call(URI, MediaType, String, byte[])}.
+	 * @param uri Zipkin URI
 	 * @param mediaType HTTP message media type
+	 * @param contentEncoding value of the {@code Content-Encoding} header, {@code null}
+	 * when the payload is not compressed
 	 * @param payload payload to send
+	 * @param callback callback completed with the outcome of the request
 	 */
-	void call(String url, MediaType mediaType, byte[] payload);
+	default void call(URI uri, MediaType mediaType, String contentEncoding, byte[] payload,
+			Callback<Void> callback) {
+		try {
+			call(uri, mediaType, contentEncoding, payload);
+			callback.onSuccess(null);
+		}
+		catch (RuntimeException | Error e) {
+			callback.onError(e);
+		}
+	}
 
 }
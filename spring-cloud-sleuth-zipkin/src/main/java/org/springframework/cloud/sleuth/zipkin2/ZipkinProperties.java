@@ -80,11 +80,46 @@ public class ZipkinProperties {
 
 	private Locator locator = new Locator();
 
+	/**
+	 * Configuration related to pooling of HTTP connections used to send spans to Zipkin.
+	 */
+	private Pool pool = new Pool();
+
+	/**
+	 * Configuration related to storing spans on disk while Zipkin is unreachable.
+	 */
+	private Spool spool = new Spool();
+
 	/**
 	 * Maximum backlog of spans reported vs sent.
 	 */
 	private int queuedMaxSpans = 1000;
 
+	/**
+	 * Maximum number of span batches the reactive HTTP sender sends at the same time
+	 * without waiting for the response. Set to a value lower than 1 to block the
+	 * reporting thread until each batch was sent.
+	 */
+	private int maxInFlightRequests = 0;
+
+	/**
+	 * Maximum backlog of span bytes reported vs sent. Defaults to 1% of the heap.
+	 */
+	private Integer queuedMaxBytes;
+
+	/**
+	 * Maximum size of a message with spans sent to Zipkin. Defaults to the maximum
+	 * supported by the sender.
+	 */
+	private Integer messageMaxBytes;
+
+	/**
+	 * Number of threads sending spans to Zipkin. Each thread has its own queue of
+	 * {@link #queuedMaxSpans} and {@link #queuedMaxBytes} divided by the number of
+	 * threads. Spans of the same trace go to the same queue.
+	 */
+	private int reporterThreads = 1;
+
 	public Locator getLocator() {
 		return this.locator;
 	}
@@ -93,6 +128,22 @@ public class ZipkinProperties {
 		this.locator = locator;
 	}
 
+	public Pool getPool() {
+		return this.pool;
+	}
+
+	public void setPool(Pool pool) {
+		this.pool = pool;
+	}
+
+	public Spool getSpool() {
+		return this.spool;
+	}
+
+	public void setSpool(Spool spool) {
+		this.spool = spool;
+	}
+
 	public String getBaseUrl() {
 		return this.baseUrl;
 	}
@@ -173,6 +224,38 @@ public class ZipkinProperties {
 		this.queuedMaxSpans = queuedMaxSpans;
 	}
 
+	public Integer getQueuedMaxBytes() {
+		return this.queuedMaxBytes;
+	}
+
+	public void setQueuedMaxBytes(Integer queuedMaxBytes) {
+		this.queuedMaxBytes = queuedMaxBytes;
+	}
+
+	public Integer getMessageMaxBytes() {
+		return this.messageMaxBytes;
+	}
+
+	public void setMessageMaxBytes(Integer messageMaxBytes) {
+		this.messageMaxBytes = messageMaxBytes;
+	}
+
+	public int getReporterThreads() {
+		return this.reporterThreads;
+	}
+
+	public void setReporterThreads(int reporterThreads) {
+		this.reporterThreads = reporterThreads;
+	}
+
+	public int getMaxInFlightRequests() {
+		return this.maxInFlightRequests;
+	}
+
+	public void setMaxInFlightRequests(int maxInFlightRequests) {
+		this.maxInFlightRequests = maxInFlightRequests;
+	}
+
 	/** When enabled, spans are gzipped before sent to the zipkin server. */
 	public static class Compression {
 
@@ -188,6 +271,142 @@ public class ZipkinProperties {
 
 	}
 
+	/**
+	 * Pooled, keep-alive HTTP client used by the {@link RestTemplateSender}. Requires
+	 * OkHttp on the classpath. HTTP/2 is used when the Zipkin server supports it.
+	 */
+	public static class Pool {
+
+		/**
+		 * Enables the pooled HTTP client.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum number of idle connections to keep in the pool.
+		 */
+		private int maxIdleConnections = 5;
+
+		/**
+		 * Time in seconds after which idle connections get evicted from the pool.
+		 */
+		private int idleTimeout = 300;
+
+		/**
+		 * Maximum number of requests sent to Zipkin at the same time, and hence of
+		 * connections in use. Further requests wait for one of them to complete.
+		 */
+		private int maxConnections = 5;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxIdleConnections() {
+			return this.maxIdleConnections;
+		}
+
+		public void setMaxIdleConnections(int maxIdleConnections) {
+			this.maxIdleConnections = maxIdleConnections;
+		}
+
+		public int getIdleTimeout() {
+			return this.idleTimeout;
+		}
+
+		public void setIdleTimeout(int idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+
+		public int getMaxConnections() {
+			return this.maxConnections;
+		}
+
+		public void setMaxConnections(int maxConnections) {
+			this.maxConnections = maxConnections;
+		}
+
+	}
+
+	/**
+	 * Span batches that failed to be sent get stored in memory-mapped files and are
+	 * replayed once Zipkin is reachable again.
+	 */
+	public static class Spool {
+
+		/**
+		 * Enables storing span batches on disk when sending them fails.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Directory of the spool files. Defaults to a directory in
+		 * {@code java.io.tmpdir}.
+		 */
+		private String directory;
+
+		/**
+		 * Size of a single spool file in bytes.
+		 */
+		private int segmentSize = 8 * 1024 * 1024;
+
+		/**
+		 * Maximum size of all spool files in bytes. Oldest spans get discarded when it's
+		 * exceeded.
+		 */
+		private long maxBytes = 256L * 1024 * 1024;
+
+		/**
+		 * Maximum number of stored span batches replayed after each successful send.
+		 */
+		private int replayMessages = 1;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getDirectory() {
+			return this.directory;
+		}
+
+		public void setDirectory(String directory) {
+			this.directory = directory;
+		}
+
+		public int getSegmentSize() {
+			return this.segmentSize;
+		}
+
+		public void setSegmentSize(int segmentSize) {
+			this.segmentSize = segmentSize;
+		}
+
+		public long getMaxBytes() {
+			return this.maxBytes;
+		}
+
+		public void setMaxBytes(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		public int getReplayMessages() {
+			return this.replayMessages;
+		}
+
+		public void setReplayMessages(int replayMessages) {
+			this.replayMessages = replayMessages;
+		}
+
+	}
+
 	/**
 	 * When set will override the default {@code spring.application.name} value of the
 	 * service id.
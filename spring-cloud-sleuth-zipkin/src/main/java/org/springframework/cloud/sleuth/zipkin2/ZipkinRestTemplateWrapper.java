@@ -16,15 +16,28 @@
 
 package org.springframework.cloud.sleuth.zipkin2;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.http.HttpMethod;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
@@ -33,7 +46,10 @@ import org.springframework.web.client.RestTemplate;
 /**
  * Resolves at runtime where the Zipkin server is. If there's no discovery client then
  * {@link URI} from the properties is taken. Otherwise service discovery is pinged for
- * current Zipkin address.
+ * current Zipkin address. The URI built for each instance returned by the load balancer is
+ * cached. When {@link ZipkinProperties#getPool()} is enabled and OkHttp is on the
+ * classpath, connections to Zipkin are pooled and kept alive, and the number of requests
+ * sent at the same time is bounded.
  *
  * @author Marcin Grzejszczak
  * @since 3.0.0
@@ -42,10 +58,23 @@ public class ZipkinRestTemplateWrapper extends RestTemplate {
 
 	private static final Log log = LogFactory.getLog(ZipkinRestTemplateWrapper.class);
 
+	private static final boolean OK_HTTP_PRESENT = ClassUtils.isPresent("okhttp3.OkHttpClient", null);
+
 	private final ZipkinProperties zipkinProperties;
 
+	/**
+	 * Maximum number of load balancer instances whose resolved URI is cached. The cache
+	 * is cleared when it's exceeded, so that the current instances get back in.
+	 */
+	static final int MAX_CACHED_INSTANCES = 32;
+
 	private final ZipkinUrlExtractor extractor;
 
+	/**
+	 * Resolved URIs by the instance returned by the load balancer.
+	 */
+	final Map<URI, ResolvedUri> resolvedUris = new ConcurrentHashMap<>();
+
 	public ZipkinRestTemplateWrapper(ZipkinProperties zipkinProperties, ZipkinUrlExtractor extractor) {
 		this.zipkinProperties = zipkinProperties;
 		this.extractor = extractor;
@@ -53,6 +82,13 @@ public class ZipkinRestTemplateWrapper extends RestTemplate {
 	}
 
 	private ClientHttpRequestFactory clientHttpRequestFactory(ZipkinProperties zipkinProperties) {
+		if (zipkinProperties.getPool().isEnabled()) {
+			if (OK_HTTP_PRESENT) {
+				return OkHttpClientFactory.clientHttpRequestFactory(zipkinProperties);
+			}
+			log.warn("Pooling of connections to Zipkin was enabled but OkHttp is not on the classpath. "
+					+ "Will fall back to a non pooled client");
+		}
 		SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
 		factory.setReadTimeout(zipkinProperties.getCheckTimeout());
 		factory.setConnectTimeout(zipkinProperties.getCheckTimeout());
@@ -68,10 +104,19 @@ public class ZipkinRestTemplateWrapper extends RestTemplate {
 	}
 
 	private URI resolvedZipkinUri(URI originalUrl, URI resolvedZipkinUri) {
+		ResolvedUri cached = this.resolvedUris.get(resolvedZipkinUri);
+		if (cached != null && cached.originalUrl.equals(originalUrl)) {
+			return cached.uri;
+		}
 		try {
-			return new URI(resolvedZipkinUri.getScheme(), resolvedZipkinUri.getUserInfo(), resolvedZipkinUri.getHost(),
-					resolvedZipkinUri.getPort(), originalUrl.getPath(), originalUrl.getQuery(),
-					originalUrl.getFragment());
+			URI uri = new URI(resolvedZipkinUri.getScheme(), resolvedZipkinUri.getUserInfo(),
+					resolvedZipkinUri.getHost(), resolvedZipkinUri.getPort(), originalUrl.getPath(),
+					originalUrl.getQuery(), originalUrl.getFragment());
+			if (cached == null && this.resolvedUris.size() >= MAX_CACHED_INSTANCES) {
+				this.resolvedUris.clear();
+			}
+			this.resolvedUris.put(resolvedZipkinUri, new ResolvedUri(originalUrl, uri));
+			return uri;
 		}
 		catch (URISyntaxException e) {
 			if (log.isDebugEnabled()) {
@@ -82,4 +127,69 @@ public class ZipkinRestTemplateWrapper extends RestTemplate {
 		}
 	}
 
+	private static final class ResolvedUri {
+
+		private final URI originalUrl;
+
+		private final URI uri;
+
+		private ResolvedUri(URI originalUrl, URI uri) {
+			this.originalUrl = originalUrl;
+			this.uri = uri;
+		}
+
+	}
+
+	/**
+	 * Separate class so that OkHttp classes get loaded only when OkHttp is present.
+	 */
+	private static final class OkHttpClientFactory {
+
+		private static ClientHttpRequestFactory clientHttpRequestFactory(ZipkinProperties zipkinProperties) {
+			ZipkinProperties.Pool pool = zipkinProperties.getPool();
+			Dispatcher dispatcher = new Dispatcher();
+			dispatcher.setMaxRequests(pool.getMaxConnections());
+			dispatcher.setMaxRequestsPerHost(pool.getMaxConnections());
+			OkHttpClient client = new OkHttpClient.Builder().dispatcher(dispatcher)
+					// the dispatcher limits only asynchronous calls, RestTemplate's are not
+					.addInterceptor(new MaxConcurrentRequestsInterceptor(pool.getMaxConnections()))
+					.connectionPool(
+							new ConnectionPool(pool.getMaxIdleConnections(), pool.getIdleTimeout(), TimeUnit.SECONDS))
+					.connectTimeout(zipkinProperties.getCheckTimeout(), TimeUnit.MILLISECONDS)
+					.readTimeout(zipkinProperties.getCheckTimeout(), TimeUnit.MILLISECONDS).build();
+			return new OkHttp3ClientHttpRequestFactory(client);
+		}
+
+	}
+
+	/**
+	 * Bounds the number of requests that are executed at the same time.
+	 */
+	static final class MaxConcurrentRequestsInterceptor implements Interceptor {
+
+		private final Semaphore permits;
+
+		MaxConcurrentRequestsInterceptor(int maxConcurrentRequests) {
+			this.permits = new Semaphore(Math.max(1, maxConcurrentRequests));
+		}
+
+		@Override
+		public Response intercept(Chain chain) throws IOException {
+			try {
+				this.permits.acquire();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to send a request to Zipkin");
+			}
+			try {
+				return chain.proceed(chain.request());
+			}
+			finally {
+				this.permits.release();
+			}
+		}
+
+	}
+
 }
@@ -21,6 +21,7 @@ import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import javax.net.ServerSocketFactory;
 
@@ -38,6 +39,8 @@ import zipkin2.codec.SpanBytesEncoder;
 import zipkin2.reporter.Sender;
 import zipkin2.reporter.brave.AsyncZipkinSpanHandler;
 
+import org.springframework.util.StreamUtils;
+
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static zipkin2.codec.SpanBytesEncoder.JSON_V2;
@@ -62,6 +65,8 @@ abstract class AbstractSenderTest {
 
 	abstract Sender protoSender();
 
+	abstract Sender compressedSender(SpanBytesEncoder encoder);
+
 	abstract String expectedToString();
 
 	abstract String expectedToStringWithNonEmptyApiPath(String mockedApiPath);
@@ -100,6 +105,39 @@ abstract class AbstractSenderTest {
 		assertThat(request.getBody().readByteArray()).containsExactly(SpanBytesEncoder.PROTO3.encode(SPAN));
 	}
 
+	@Test
+	public void compressedJson() throws Exception {
+		this.server.enqueue(new MockResponse());
+		this.sender = compressedSender(JSON_V2);
+
+		send(SPAN, SPAN).execute();
+
+		RecordedRequest request = this.server.takeRequest(1, TimeUnit.SECONDS);
+		assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+		String json = new String(JSON_V2.encode(SPAN), "UTF-8");
+		try (GZIPInputStream body = new GZIPInputStream(request.getBody().inputStream())) {
+			assertThat(new String(StreamUtils.copyToByteArray(body), "UTF-8")).isEqualTo("[" + json + "," + json + "]");
+		}
+	}
+
+	@Test
+	public void compressedProto3() throws Exception {
+		this.server.enqueue(new MockResponse());
+		this.server.enqueue(new MockResponse());
+		this.sender = compressedSender(SpanBytesEncoder.PROTO3);
+
+		send(SPAN).execute();
+		send(SPAN).execute();
+
+		for (int i = 0; i < 2; i++) {
+			RecordedRequest request = this.server.takeRequest(1, TimeUnit.SECONDS);
+			assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+			try (GZIPInputStream body = new GZIPInputStream(request.getBody().inputStream())) {
+				assertThat(StreamUtils.copyToByteArray(body)).containsExactly(SpanBytesEncoder.PROTO3.encode(SPAN));
+			}
+		}
+	}
+
 	@Test
 	public void testWhereApiIsSetNonEmpty() {
 		final String mockedApiPath = "/test/v2";
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import zipkin2.codec.Encoding;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+
+class GzipMessageEncoderTests {
+
+	GzipMessageEncoder encoder = new GzipMessageEncoder(Encoding.JSON);
+
+	@Test
+	void should_encode_a_gzipped_json_list() throws IOException {
+		byte[] message = this.encoder.encode(Arrays.asList(bytes("{\"a\":1}"), bytes("{\"b\":2}")));
+
+		then(new String(gunzip(message), StandardCharsets.UTF_8)).isEqualTo("[{\"a\":1},{\"b\":2}]");
+	}
+
+	@Test
+	void should_not_retain_a_buffer_grown_for_a_large_message() throws IOException {
+		// random bytes barely compress, so the buffer has to grow
+		byte[] large = new byte[2 * GzipMessageEncoder.MAX_RETAINED_BUFFER_SIZE];
+		new Random(1L).nextBytes(large);
+
+		byte[] message = this.encoder.encode(Collections.singletonList(large));
+
+		then(gunzip(message)).hasSize(large.length + 2);
+		then(this.encoder.retainedBufferSize()).isLessThanOrEqualTo(GzipMessageEncoder.MAX_RETAINED_BUFFER_SIZE);
+		then(gunzip(this.encoder.encode(Collections.singletonList(bytes("{}")))))
+				.isEqualTo(bytes("[{}]"));
+	}
+
+	@Test
+	void should_pool_a_bounded_number_of_buffers_across_threads() throws Exception {
+		int threads = 4 * GzipMessageEncoder.MAX_POOLED_BUFFERS;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CyclicBarrier barrier = new CyclicBarrier(threads);
+		try {
+			List<Future<byte[]>> messages = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				messages.add(executor.submit(() -> {
+					barrier.await();
+					return this.encoder.encode(Collections.singletonList(bytes("{}")));
+				}));
+			}
+			for (Future<byte[]> message : messages) {
+				then(gunzip(message.get(5, TimeUnit.SECONDS))).isEqualTo(bytes("[{}]"));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		then(this.encoder.pooledBuffers()).isBetween(1, GzipMessageEncoder.MAX_POOLED_BUFFERS);
+	}
+
+	@Test
+	void should_not_encode_once_closed() {
+		this.encoder.encode(Collections.singletonList(bytes("{}")));
+
+		this.encoder.close();
+
+		thenThrownBy(() -> this.encoder.encode(Collections.singletonList(bytes("{}"))))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gunzip(byte[] message) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(message))) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[4096];
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.sleuth.zipkin2;
 
+import zipkin2.codec.SpanBytesEncoder;
 import zipkin2.reporter.Sender;
 
 import org.springframework.http.client.ClientHttpRequestFactory;
@@ -45,6 +46,11 @@ class RestTemplateSenderTest extends AbstractSenderTest {
 		return new RestTemplateSender(new RestTemplate(clientHttpRequestFactory()), this.endpoint, "", PROTO3);
 	}
 
+	@Override
+	Sender compressedSender(SpanBytesEncoder encoder) {
+		return new RestTemplateSender(new RestTemplate(clientHttpRequestFactory()), this.endpoint, "", encoder, true);
+	}
+
 	@Override
 	String expectedToString() {
 		return "RestTemplateSender{" + this.endpoint + "/api/v2/spans}";
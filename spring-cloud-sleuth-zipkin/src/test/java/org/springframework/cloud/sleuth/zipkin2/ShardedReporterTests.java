@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import zipkin2.Call;
+import zipkin2.Span;
+import zipkin2.codec.Encoding;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.InMemoryReporterMetrics;
+import zipkin2.reporter.Sender;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class ShardedReporterTests {
+
+	RecordingSender sender = new RecordingSender();
+
+	InMemoryReporterMetrics metrics = new InMemoryReporterMetrics();
+
+	ShardedReporter reporter = new ShardedReporter(4, this.metrics,
+			shardMetrics -> AsyncReporter.builder(this.sender).messageTimeout(0, TimeUnit.SECONDS)
+					.metrics(shardMetrics).build());
+
+	@Test
+	void should_send_spans_of_a_trace_through_a_single_shard() {
+		for (int i = 0; i < 10; i++) {
+			this.reporter.report(span("7180c278b62e8f6a216a2aea45d08fc9", i));
+		}
+
+		then(this.metrics.queuedSpans()).isEqualTo(10);
+		then(queuedSpansPerShard()).containsOnlyOnce(10);
+
+		this.reporter.flush();
+
+		then(this.metrics.queuedSpans()).isZero();
+		then(this.sender.messages).hasSize(1);
+		then(this.sender.messages.get(0)).hasSize(10);
+	}
+
+	@Test
+	void should_sum_queued_spans_of_all_shards() {
+		for (int i = 0; i < 100; i++) {
+			this.reporter.report(span(String.format("%032x", i), i));
+		}
+
+		then(this.metrics.queuedSpans()).isEqualTo(100);
+		then(queuedSpansPerShard().stream().mapToInt(Integer::intValue).sum()).isEqualTo(100);
+		then(queuedSpansPerShard()).allMatch(queued -> queued > 0);
+	}
+
+	private List<Integer> queuedSpansPerShard() {
+		List<Integer> queued = new ArrayList<>();
+		for (int i = 0; i < this.reporter.shards(); i++) {
+			queued.add(this.reporter.queuedSpans(i));
+		}
+		return queued;
+	}
+
+	private static Span span(String traceId, int id) {
+		return Span.newBuilder().traceId(traceId).id(id + 1).name("span").build();
+	}
+
+	static class RecordingSender extends Sender {
+
+		final List<List<byte[]>> messages = new ArrayList<>();
+
+		@Override
+		public Encoding encoding() {
+			return Encoding.JSON;
+		}
+
+		@Override
+		public int messageMaxBytes() {
+			return 5 * 1024 * 1024;
+		}
+
+		@Override
+		public int messageSizeInBytes(List<byte[]> encodedSpans) {
+			return encoding().listSizeInBytes(encodedSpans);
+		}
+
+		@Override
+		public Call<Void> sendSpans(List<byte[]> encodedSpans) {
+			this.messages.add(encodedSpans);
+			return Call.create(null);
+		}
+
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import zipkin2.Call;
+import zipkin2.CheckResult;
+import zipkin2.codec.Encoding;
+import zipkin2.reporter.Sender;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class SpanSpoolTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void should_replay_batches_in_order() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 64, 1024);
+
+		spool.append(batch("a", "b"));
+		spool.append(batch("c"));
+
+		then(asStrings(spool.peek())).containsExactly("a", "b");
+		then(asStrings(spool.peek())).as("peek doesn't remove").containsExactly("a", "b");
+		spool.remove();
+		then(asStrings(spool.peek())).containsExactly("c");
+		spool.remove();
+		then(spool.peek()).isNull();
+		then(spool.replayedBytes()).isEqualTo(spool.spooledBytes());
+	}
+
+	@Test
+	void should_recover_batches_stored_by_a_previous_instance() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 64, 1024);
+		spool.append(batch("a"));
+		spool.append(batch("b"));
+		spool.close();
+
+		SpanSpool recovered = new SpanSpool(this.directory, 64, 1024);
+
+		then(asStrings(recovered.peek())).containsExactly("a");
+		recovered.remove();
+		recovered.append(batch("c"));
+		then(asStrings(recovered.peek())).containsExactly("b");
+		recovered.remove();
+		then(asStrings(recovered.peek())).containsExactly("c");
+	}
+
+	@Test
+	void should_discard_oldest_segment_when_max_size_exceeded() throws IOException {
+		// every batch takes 9 bytes so a segment holds one batch
+		SpanSpool spool = new SpanSpool(this.directory, 16, 32);
+
+		spool.append(batch("a"));
+		spool.append(batch("b"));
+		spool.append(batch("c"));
+
+		then(spool.discardedBytes()).isEqualTo(9);
+		then(asStrings(spool.peek())).containsExactly("b");
+	}
+
+	@Test
+	void should_discard_batch_larger_than_segment() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 16, 32);
+
+		then(spool.append(batch("0123456789abcdef"))).isFalse();
+
+		then(spool.peek()).isNull();
+		then(spool.discardedBytes()).isEqualTo(24);
+	}
+
+	@Test
+	void should_not_replay_removed_batches_after_a_restart() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 64, 1024);
+		spool.append(batch("a"));
+		spool.append(batch("b"));
+		then(asStrings(spool.peek())).containsExactly("a");
+		spool.remove();
+		spool.close();
+
+		SpanSpool recovered = new SpanSpool(this.directory, 64, 1024);
+
+		then(asStrings(recovered.peek())).containsExactly("b");
+		recovered.remove();
+		then(recovered.peek()).isNull();
+	}
+
+	@Test
+	void should_delete_fully_replayed_segments_on_restart() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 64, 1024);
+		spool.append(batch("a"));
+		spool.peek();
+		spool.remove();
+		spool.close();
+
+		SpanSpool recovered = new SpanSpool(this.directory, 64, 1024);
+
+		then(recovered.peek()).isNull();
+		then(segmentFiles()).isZero();
+	}
+
+	@Test
+	void should_read_the_segment_being_written_without_starting_a_new_one() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 64, 1024);
+
+		for (String span : Arrays.asList("a", "b", "c")) {
+			spool.append(batch(span));
+			then(asStrings(spool.peek())).containsExactly(span);
+			spool.remove();
+			then(spool.peek()).isNull();
+		}
+
+		then(segmentFiles()).isEqualTo(1);
+	}
+
+	@Test
+	void should_ignore_a_truncated_batch_stored_by_a_previous_instance() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 64, 1024);
+		spool.append(batch("a"));
+		spool.append(batch("b"));
+		spool.close();
+		// header, "a" batch and a part of the "b" batch
+		truncate(this.directory.resolve("spans-0.spool"), 4 + 9 + 5);
+
+		SpanSpool recovered = new SpanSpool(this.directory, 64, 1024);
+
+		then(asStrings(recovered.peek())).containsExactly("a");
+		recovered.remove();
+		then(recovered.peek()).isNull();
+	}
+
+	@Test
+	void should_skip_a_corrupt_segment_stored_by_a_previous_instance() throws IOException {
+		// every batch takes 9 bytes so a segment holds one batch
+		SpanSpool spool = new SpanSpool(this.directory, 16, 1024);
+		spool.append(batch("a"));
+		spool.append(batch("b"));
+		spool.close();
+		// length of the "a" span
+		overwriteInt(this.directory.resolve("spans-0.spool"), 8, -1);
+
+		SpanSpool recovered = new SpanSpool(this.directory, 16, 1024);
+
+		then(asStrings(recovered.peek())).containsExactly("b");
+	}
+
+	@Test
+	void should_drop_a_segment_corrupted_while_spooling() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 16, 1024);
+		spool.append(batch("a"));
+		spool.append(batch("b"));
+		// length of the "a" span
+		overwriteInt(this.directory.resolve("spans-0.spool"), 8, Integer.MAX_VALUE);
+
+		then(asStrings(spool.peek())).containsExactly("b");
+		then(spool.discardedBytes()).isEqualTo(9);
+		then(Files.exists(this.directory.resolve("spans-0.spool"))).isFalse();
+	}
+
+	@Test
+	void should_discard_batches_appended_after_close() throws IOException {
+		SpanSpool spool = new SpanSpool(this.directory, 64, 1024);
+		spool.append(batch("a"));
+		spool.close();
+
+		then(spool.append(batch("b"))).isFalse();
+		then(spool.peek()).isNull();
+		then(spool.discardedBytes()).isEqualTo(9);
+	}
+
+	@Test
+	void should_spool_failed_batches_and_replay_them_when_check_succeeds() throws IOException {
+		AtomicBoolean down = new AtomicBoolean(true);
+		List<List<byte[]>> sent = new ArrayList<>();
+		SpoolingSender sender = new SpoolingSender(new FakeSender(down, sent), new SpanSpool(this.directory, 64, 1024),
+				10);
+
+		sender.sendSpans(batch("a")).execute();
+		sender.sendSpans(batch("b")).execute();
+
+		then(sent).isEmpty();
+
+		down.set(false);
+		then(sender.check().ok()).isTrue();
+
+		then(sent).hasSize(2);
+		then(asStrings(sent.get(0))).containsExactly("a");
+		then(asStrings(sent.get(1))).containsExactly("b");
+	}
+
+	private long segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(this.directory)) {
+			return files.count();
+		}
+	}
+
+	private static void truncate(Path path, long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(size);
+		}
+	}
+
+	private static void overwriteInt(Path path, long position, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write((ByteBuffer) ByteBuffer.allocate(4).putInt(value).flip(), position);
+		}
+	}
+
+	private static List<byte[]> batch(String... spans) {
+		List<byte[]> batch = new ArrayList<>();
+		for (String span : spans) {
+			batch.add(span.getBytes(StandardCharsets.UTF_8));
+		}
+		return batch;
+	}
+
+	private static List<String> asStrings(List<byte[]> batch) {
+		List<String> spans = new ArrayList<>();
+		for (byte[] span : batch) {
+			spans.add(new String(span, StandardCharsets.UTF_8));
+		}
+		return spans;
+	}
+
+	static class FakeSender extends Sender {
+
+		final AtomicBoolean down;
+
+		final List<List<byte[]>> sent;
+
+		FakeSender(AtomicBoolean down, List<List<byte[]>> sent) {
+			this.down = down;
+			this.sent = sent;
+		}
+
+		@Override
+		public Encoding encoding() {
+			return Encoding.JSON;
+		}
+
+		@Override
+		public int messageMaxBytes() {
+			return 1024;
+		}
+
+		@Override
+		public int messageSizeInBytes(List<byte[]> encodedSpans) {
+			return encoding().listSizeInBytes(encodedSpans);
+		}
+
+		@Override
+		public Call<Void> sendSpans(List<byte[]> encodedSpans) {
+			if (this.down.get()) {
+				return Call.errorCall(new IOException("down"));
+			}
+			this.sent.add(Arrays.asList(encodedSpans.toArray(new byte[0][])));
+			return Call.create(null);
+		}
+
+		@Override
+		public CheckResult check() {
+			return this.down.get() ? CheckResult.failed(new IOException("down")) : CheckResult.OK;
+		}
+
+	}
+
+}
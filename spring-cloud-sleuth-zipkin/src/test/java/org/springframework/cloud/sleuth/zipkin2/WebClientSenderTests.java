@@ -17,16 +17,30 @@
 package org.springframework.cloud.sleuth.zipkin2;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import reactor.core.publisher.Mono;
+import zipkin2.Callback;
 import zipkin2.CheckResult;
+import zipkin2.codec.SpanBytesEncoder;
+import zipkin2.reporter.InMemoryReporterMetrics;
 import zipkin2.reporter.Sender;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 import static zipkin2.codec.SpanBytesEncoder.JSON_V2;
 import static zipkin2.codec.SpanBytesEncoder.PROTO3;
 
@@ -52,6 +66,12 @@ class WebClientSenderTests extends AbstractSenderTest {
 				this.endpoint, "", PROTO3, DEFAULT_CHECK_TIMEOUT);
 	}
 
+	@Override
+	Sender compressedSender(SpanBytesEncoder encoder) {
+		return new WebClientSender(null, WebClient.builder().clientConnector(new ReactorClientHttpConnector()).build(),
+				this.endpoint, "", encoder, DEFAULT_CHECK_TIMEOUT, 0, true);
+	}
+
 	@Override
 	String expectedToString() {
 		return "WebClientSender{" + this.endpoint + "/api/v2/spans}";
@@ -76,4 +96,90 @@ class WebClientSenderTests extends AbstractSenderTest {
 		assertThat(result.ok()).isTrue();
 	}
 
+	@Test
+	void nonBlockingSenderDoesNotWaitForTheResponse() throws Exception {
+		WebClientSender sender = new WebClientSender(null,
+				WebClient.builder().clientConnector(new ReactorClientHttpConnector()).build(), this.endpoint, "",
+				JSON_V2, DEFAULT_CHECK_TIMEOUT, 2);
+		this.sender = sender;
+		this.server.enqueue(new MockResponse().setBodyDelay(500, TimeUnit.MILLISECONDS));
+		this.server.enqueue(new MockResponse().setBodyDelay(500, TimeUnit.MILLISECONDS));
+
+		long start = System.nanoTime();
+		send(SPAN).execute();
+		send(SPAN).execute();
+
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(500);
+		RecordedRequest request = this.server.takeRequest(1, TimeUnit.SECONDS);
+		assertThat(request.getHeader("Content-Type")).isEqualTo("application/json");
+		assertThat(this.server.takeRequest(1, TimeUnit.SECONDS)).isNotNull();
+	}
+
+	@Test
+	void nonBlockingSenderCountsFailedBatchesAsDropped() throws Exception {
+		WebClientSender sender = nonBlockingSender();
+		InMemoryReporterMetrics metrics = new InMemoryReporterMetrics();
+		sender.setReporterMetrics(metrics);
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+
+		send(SPAN, SPAN).execute();
+
+		await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+			assertThat(metrics.messagesDropped()).isEqualTo(1);
+			assertThat(metrics.spansDropped()).isEqualTo(2);
+		});
+		assertThat(sender.inFlightRequests.availablePermits()).isEqualTo(2);
+	}
+
+	@Test
+	void nonBlockingSenderSpoolsFailedBatches(@TempDir Path directory) throws Exception {
+		WebClientSender delegate = nonBlockingSender();
+		SpanSpool spool = new SpanSpool(directory, 1024, 64 * 1024);
+		this.sender = new SpoolingSender(delegate, spool, 10);
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+
+		send(SPAN).execute();
+
+		await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> assertThat(spool.spooledBytes()).isPositive());
+		this.server.takeRequest(1, TimeUnit.SECONDS);
+		this.server.enqueue(new MockResponse());
+		this.server.enqueue(new MockResponse());
+
+		assertThat(this.sender.check().ok()).isTrue();
+
+		assertThat(spool.peek()).isNull();
+		assertThat(spool.replayedBytes()).isEqualTo(spool.spooledBytes());
+	}
+
+	@Test
+	void nonBlockingSenderReleasesTheSlotWhenTheRequestCannotBeDispatched() {
+		HttpSender sender = new HttpSender(new ZipkinHttpClientSender() {
+			@Override
+			public void call(URI uri, MediaType mediaType, String contentEncoding, byte[] payload) {
+				throw new IllegalStateException("boom");
+			}
+
+			@Override
+			public void call(URI uri, MediaType mediaType, String contentEncoding, byte[] payload,
+					Callback<Void> callback) {
+				throw new IllegalStateException("boom");
+			}
+		}, this.endpoint, null, JSON_V2, 1, false) {
+		};
+		List<byte[]> encodedSpans = Collections.singletonList(JSON_V2.encode(SPAN));
+
+		assertThatThrownBy(() -> sender.sendSpans(encodedSpans).execute()).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> sender.sendSpans(encodedSpans).execute()).isInstanceOf(IllegalStateException.class);
+
+		assertThat(sender.inFlightRequests.availablePermits()).isEqualTo(1);
+	}
+
+	private WebClientSender nonBlockingSender() {
+		WebClientSender sender = new WebClientSender(null,
+				WebClient.builder().clientConnector(new ReactorClientHttpConnector()).build(), this.endpoint, "",
+				JSON_V2, DEFAULT_CHECK_TIMEOUT, 2);
+		this.sender = sender;
+		return sender;
+	}
+
 }
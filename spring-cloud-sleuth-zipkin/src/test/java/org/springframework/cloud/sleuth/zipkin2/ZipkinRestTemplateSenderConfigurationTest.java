@@ -97,6 +97,20 @@ public class ZipkinRestTemplateSenderConfigurationTest {
 		assertThat(uri.toString()).isEqualTo(URI.create(zipkinProperties.getBaseUrl()).toString());
 	}
 
+	@Test
+	public void shouldReuseStaticInstanceUntilBaseUrlChanges() {
+		ZipkinProperties zipkinProperties = new ZipkinProperties();
+		StaticInstanceZipkinLoadBalancer loadBalancer = new StaticInstanceZipkinLoadBalancer(zipkinProperties);
+
+		URI first = loadBalancer.instance();
+
+		assertThat(loadBalancer.instance()).isSameAs(first);
+
+		zipkinProperties.setBaseUrl("https://example.com:9411/");
+
+		assertThat(loadBalancer.instance()).hasToString("https://example.com:9411/");
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@ConditionalOnClass(LoadBalancerClient.class)
 	static class MyDiscoveryClientZipkinUrlExtractorConfiguration {
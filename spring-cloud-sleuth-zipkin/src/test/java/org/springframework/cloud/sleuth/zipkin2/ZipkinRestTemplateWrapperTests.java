@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin2;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+class ZipkinRestTemplateWrapperTests {
+
+	MockWebServer first = new MockWebServer();
+
+	MockWebServer second = new MockWebServer();
+
+	ZipkinProperties zipkinProperties = new ZipkinProperties();
+
+	@AfterEach
+	void close() throws IOException {
+		this.first.close();
+		this.second.close();
+	}
+
+	@Test
+	void should_use_a_simple_request_factory_when_pooling_is_disabled() {
+		ZipkinRestTemplateWrapper wrapper = new ZipkinRestTemplateWrapper(this.zipkinProperties,
+				properties -> this.first.url("/").uri());
+
+		then(wrapper.getRequestFactory()).isInstanceOf(SimpleClientHttpRequestFactory.class);
+	}
+
+	@Test
+	void should_send_through_pooled_ok_http_client_when_pooling_is_enabled() throws InterruptedException {
+		this.zipkinProperties.getPool().setEnabled(true);
+		ZipkinRestTemplateWrapper wrapper = new ZipkinRestTemplateWrapper(this.zipkinProperties,
+				properties -> this.first.url("/").uri());
+		this.first.enqueue(new MockResponse());
+		this.first.enqueue(new MockResponse());
+
+		wrapper.postForEntity("http://zipkin/api/v2/spans", "[]", Void.class);
+		wrapper.postForEntity("http://zipkin/api/v2/spans", "[]", Void.class);
+
+		then(wrapper.getRequestFactory()).isInstanceOf(OkHttp3ClientHttpRequestFactory.class);
+		takeRequest(this.first);
+		RecordedRequest secondRequest = takeRequest(this.first);
+		// the second request reuses the kept alive connection
+		then(secondRequest.getSequenceNumber()).isEqualTo(1);
+	}
+
+	@Test
+	void should_follow_the_load_balancer_when_it_returns_a_different_instance() throws InterruptedException {
+		AtomicReference<URI> instance = new AtomicReference<>(this.first.url("/").uri());
+		ZipkinRestTemplateWrapper wrapper = new ZipkinRestTemplateWrapper(this.zipkinProperties,
+				properties -> instance.get());
+		this.first.enqueue(new MockResponse());
+		this.first.enqueue(new MockResponse());
+		this.second.enqueue(new MockResponse());
+
+		wrapper.postForEntity("http://zipkin/api/v2/spans?a=b", "[]", Void.class);
+		wrapper.postForEntity("http://zipkin/api/v2/spans?a=b", "[]", Void.class);
+		instance.set(this.second.url("/").uri());
+		wrapper.postForEntity("http://zipkin/api/v2/spans?a=b", "[]", Void.class);
+
+		then(takeRequest(this.first).getPath()).isEqualTo("/api/v2/spans?a=b");
+		then(takeRequest(this.first).getPath()).isEqualTo("/api/v2/spans?a=b");
+		then(takeRequest(this.second).getPath()).isEqualTo("/api/v2/spans?a=b");
+	}
+
+	@Test
+	void should_cache_the_uri_of_each_instance_when_the_load_balancer_round_robins() throws InterruptedException {
+		URI firstInstance = this.first.url("/").uri();
+		URI secondInstance = this.second.url("/").uri();
+		AtomicInteger calls = new AtomicInteger();
+		ZipkinRestTemplateWrapper wrapper = new ZipkinRestTemplateWrapper(this.zipkinProperties,
+				properties -> calls.getAndIncrement() % 2 == 0 ? firstInstance : secondInstance);
+		for (int i = 0; i < 2; i++) {
+			this.first.enqueue(new MockResponse());
+			this.second.enqueue(new MockResponse());
+		}
+
+		for (int i = 0; i < 4; i++) {
+			wrapper.postForEntity("http://zipkin/api/v2/spans", "[]", Void.class);
+		}
+
+		then(wrapper.resolvedUris).containsOnlyKeys(firstInstance, secondInstance);
+		then(takeRequest(this.first).getPath()).isEqualTo("/api/v2/spans");
+		then(takeRequest(this.second).getPath()).isEqualTo("/api/v2/spans");
+		then(takeRequest(this.first).getPath()).isEqualTo("/api/v2/spans");
+		then(takeRequest(this.second).getPath()).isEqualTo("/api/v2/spans");
+	}
+
+	@Test
+	void should_rebuild_the_uri_when_the_original_url_changes() throws InterruptedException {
+		ZipkinRestTemplateWrapper wrapper = new ZipkinRestTemplateWrapper(this.zipkinProperties,
+				properties -> this.first.url("/").uri());
+		this.first.enqueue(new MockResponse());
+		this.first.enqueue(new MockResponse());
+
+		wrapper.postForEntity("http://zipkin/api/v2/spans", "[]", Void.class);
+		wrapper.postForEntity("http://zipkin/custom/path", "[]", Void.class);
+
+		then(takeRequest(this.first).getPath()).isEqualTo("/api/v2/spans");
+		then(takeRequest(this.first).getPath()).isEqualTo("/custom/path");
+	}
+
+	@Test
+	void should_use_the_properties_passed_to_the_extractor() {
+		ZipkinProperties other = new ZipkinProperties();
+		other.setBaseUrl("https://example.com:9411/");
+		CachingZipkinUrlExtractor extractor = new CachingZipkinUrlExtractor(() -> URI.create("https://lb"));
+
+		then(extractor.zipkinUrl(this.zipkinProperties)).hasToString(this.zipkinProperties.getBaseUrl());
+		then(extractor.noOpZipkinLoadBalancer(other).instance()).hasToString("https://example.com:9411/");
+		then(extractor.noOpZipkinLoadBalancer(other)).isSameAs(extractor.noOpZipkinLoadBalancer(other));
+	}
+
+	private static RecordedRequest takeRequest(MockWebServer server) throws InterruptedException {
+		RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+		then(request).isNotNull();
+		return request;
+	}
+
+}